@@ -0,0 +1,363 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.transform;
+
+import javax.annotation.Nullable;
+
+/**
+ * Single pass tokenizer for access log lines. Each line is scanned once from left to right, and only the fields
+ * the {@link LogParserTransform} emits are turned into strings. The timestamp is exposed as a region of the line,
+ * so that it can be looked up in a {@link TimestampCache} without being copied. Instances are reused for every
+ * line and are not thread safe.
+ *
+ * Lines are accepted under the same rules as the regular expressions the transform used before:
+ * <ul>
+ *   <li>CLF: {@code ip ident user [time] "request" status size}, optionally followed by
+ *   {@code "referrer" "user agent"} as in the Combined Log Format.</li>
+ *   <li>S3: {@code owner bucket [time] ip requester requestId operation key "request" status error bytes size
+ *   totalTime turnaroundTime "referrer" "user agent" versionId...}</li>
+ *   <li>Cloudfront: tab separated, with the date, time, client ip, uri, status and user agent at positions
+ *   0, 1, 4, 7, 8 and 10.</li>
+ * </ul>
+ */
+final class AccessLogTokenizer {
+  private static final int CLOUDFRONT_IP = 4;
+  private static final int CLOUDFRONT_URI = 7;
+  private static final int CLOUDFRONT_STATUS = 8;
+  private static final int CLOUDFRONT_USER_AGENT = 10;
+
+  private String line;
+  private int pos;
+  // bounds of the last token read
+  private int start;
+  private int end;
+
+  private String ip;
+  private String userAgent;
+  private String uri;
+  private int httpStatus;
+  private int timeStart;
+  private int timeEnd;
+
+  /**
+   * Tokenizes a line in the Common or Combined Log Format.
+   *
+   * @return whether the line is in the format
+   */
+  boolean parseClf(String line) {
+    reset(line);
+    if (!ip() || !space() || !token() || !space() || !token() || !space() || !bracketed() || !space()) {
+      return false;
+    }
+    timeStart = start;
+    timeEnd = end;
+    if (!quoted()) {
+      return false;
+    }
+    int requestStart = start;
+    int requestEnd = end;
+    if (!space() || !status() || !space() || !size()) {
+      return false;
+    }
+    if (pos == line.length()) {
+      userAgent = "";
+    } else {
+      if (!space() || !quoted() || !space() || !quoted() || pos != line.length()) {
+        return false;
+      }
+      userAgent = line.substring(start, end);
+    }
+    uri = parseUri(requestStart, requestEnd);
+    return true;
+  }
+
+  /**
+   * Tokenizes a line of an S3 server access log.
+   *
+   * @return whether the line is in the format
+   */
+  boolean parseS3(String line) {
+    reset(line);
+    if (!token() || !space() || !token() || !space() || !bracketed()) {
+      return false;
+    }
+    timeStart = start;
+    timeEnd = end;
+    // ip, requester, request id, operation and key
+    if (!space() || !ip() || !space() || !token() || !space() || !token() || !space() || !token() || !space()
+      || !token() || !space() || !quoted()) {
+      return false;
+    }
+    int requestStart = start;
+    int requestEnd = end;
+    // status, error code, bytes sent, object size, total time and turnaround time
+    if (!space() || !status() || !space() || !token() || !space() || !size() || !space() || !size() || !space()
+      || !digits() || !space() || !size()) {
+      return false;
+    }
+    // referrer, user agent, and at least the version id
+    if (!space() || !quoted() || !space() || !quoted()) {
+      return false;
+    }
+    userAgent = line.substring(start, end);
+    if (!space() || pos == line.length()) {
+      return false;
+    }
+    uri = parseUri(requestStart, requestEnd);
+    return true;
+  }
+
+  /**
+   * Tokenizes a line of a Cloudfront access log. Comment lines must be skipped before calling this.
+   *
+   * @return whether the line has enough fields
+   * @throws NumberFormatException if the status field is not a number
+   */
+  boolean parseCloudfront(String line) {
+    reset(line);
+    int fieldStart = 0;
+    for (int field = 0; field <= CLOUDFRONT_USER_AGENT; field++) {
+      if (fieldStart > line.length()) {
+        return false;
+      }
+      int tab = line.indexOf('\t', fieldStart);
+      int fieldEnd = tab < 0 ? line.length() : tab;
+      switch (field) {
+        case 1:
+          // date and time, separated by a tab
+          timeStart = 0;
+          timeEnd = fieldEnd;
+          break;
+        case CLOUDFRONT_IP:
+          ip = line.substring(fieldStart, fieldEnd);
+          break;
+        case CLOUDFRONT_URI:
+          uri = line.substring(fieldStart, fieldEnd);
+          break;
+        case CLOUDFRONT_STATUS:
+          httpStatus = parseInt(fieldStart, fieldEnd);
+          break;
+        case CLOUDFRONT_USER_AGENT:
+          userAgent = line.substring(fieldStart, fieldEnd);
+          break;
+        default:
+          break;
+      }
+      fieldStart = fieldEnd + 1;
+    }
+    return true;
+  }
+
+  String getLine() {
+    return line;
+  }
+
+  String getIp() {
+    return ip;
+  }
+
+  String getUserAgent() {
+    return userAgent;
+  }
+
+  /**
+   * Returns the uri of the request, or null if the request is not of the form {@code method uri ...}.
+   */
+  @Nullable
+  String getUri() {
+    return uri;
+  }
+
+  int getHttpStatus() {
+    return httpStatus;
+  }
+
+  /**
+   * Returns the index of the first character of the timestamp in the line.
+   */
+  int getTimeStart() {
+    return timeStart;
+  }
+
+  /**
+   * Returns the index just after the last character of the timestamp in the line.
+   */
+  int getTimeEnd() {
+    return timeEnd;
+  }
+
+  private void reset(String line) {
+    this.line = line;
+    this.pos = 0;
+    this.ip = null;
+    this.userAgent = null;
+    this.uri = null;
+  }
+
+  /**
+   * Reads the uri from a request of the form {@code method uri ...}.
+   */
+  @Nullable
+  private String parseUri(int requestStart, int requestEnd) {
+    int i = requestStart;
+    while (i < requestEnd && !Character.isWhitespace(line.charAt(i))) {
+      i++;
+    }
+    // the method must not be empty, and is followed by a single whitespace character
+    if (i == requestStart || i == requestEnd) {
+      return null;
+    }
+    int uriStart = ++i;
+    while (i < requestEnd && !Character.isWhitespace(line.charAt(i))) {
+      i++;
+    }
+    return i == uriStart ? null : line.substring(uriStart, i);
+  }
+
+  private boolean space() {
+    if (pos < line.length() && line.charAt(pos) == ' ') {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Reads a non-empty run of non-whitespace characters.
+   */
+  private boolean token() {
+    start = pos;
+    while (pos < line.length() && !Character.isWhitespace(line.charAt(pos))) {
+      pos++;
+    }
+    end = pos;
+    return end > start;
+  }
+
+  /**
+   * Reads an IPv4 address, or a loopback address such as {@code ::1}.
+   */
+  private boolean ip() {
+    start = pos;
+    if (line.startsWith("::", pos)) {
+      pos += 2;
+      if (pos == line.length() || !isDigit(line.charAt(pos))) {
+        return false;
+      }
+      pos++;
+    } else {
+      while (pos < line.length() && (isDigit(line.charAt(pos)) || line.charAt(pos) == '.')) {
+        pos++;
+      }
+    }
+    end = pos;
+    if (end == start) {
+      return false;
+    }
+    ip = line.substring(start, end);
+    return true;
+  }
+
+  /**
+   * Reads a non-empty value enclosed in brackets. The bounds of the token exclude the brackets.
+   */
+  private boolean bracketed() {
+    return enclosed('[', ']');
+  }
+
+  /**
+   * Reads a non-empty value enclosed in double quotes. The bounds of the token exclude the quotes.
+   */
+  private boolean quoted() {
+    return enclosed('"', '"');
+  }
+
+  private boolean enclosed(char open, char close) {
+    if (pos == line.length() || line.charAt(pos) != open) {
+      return false;
+    }
+    int closeIndex = line.indexOf(close, pos + 1);
+    if (closeIndex <= pos + 1) {
+      return false;
+    }
+    start = pos + 1;
+    end = closeIndex;
+    pos = closeIndex + 1;
+    return true;
+  }
+
+  /**
+   * Reads a three digit HTTP status code.
+   */
+  private boolean status() {
+    if (pos + 3 > line.length()) {
+      return false;
+    }
+    int status = 0;
+    for (int i = pos; i < pos + 3; i++) {
+      char c = line.charAt(i);
+      if (!isDigit(c)) {
+        return false;
+      }
+      status = status * 10 + c - '0';
+    }
+    pos += 3;
+    httpStatus = status;
+    return true;
+  }
+
+  /**
+   * Reads a size, which is a number or '-' when there is none.
+   */
+  private boolean size() {
+    start = pos;
+    while (pos < line.length() && (isDigit(line.charAt(pos)) || line.charAt(pos) == '-'
+      || line.charAt(pos) == '"')) {
+      pos++;
+    }
+    end = pos;
+    return end > start;
+  }
+
+  private boolean digits() {
+    start = pos;
+    while (pos < line.length() && isDigit(line.charAt(pos))) {
+      pos++;
+    }
+    end = pos;
+    return end > start;
+  }
+
+  private int parseInt(int from, int to) {
+    if (from == to) {
+      throw new NumberFormatException("For input string: \"\"");
+    }
+    int value = 0;
+    for (int i = from; i < to; i++) {
+      char c = line.charAt(i);
+      if (!isDigit(c) || value > (Integer.MAX_VALUE - 9) / 10) {
+        throw new NumberFormatException("For input string: \"" + line.substring(from, to) + "\"");
+      }
+      value = value * 10 + c - '0';
+    }
+    return value;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -41,7 +41,6 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.cdap.etl.api.lineage.field.FieldTransformOperation;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.ScriptConstants;
 import io.cdap.plugin.common.SchemaValidator;
 import io.cdap.plugin.common.StructuredRecordSerializer;
@@ -52,13 +51,21 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import javax.script.Compilable;
 import javax.script.Invocable;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -75,12 +82,27 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     .registerTypeAdapter(StructuredRecord.class, new StructuredRecordSerializer())
     .create();
   private static final Logger LOG = LoggerFactory.getLogger(JavaScriptTransform.class);
-  private static final String FUNCTION_NAME = "dont_name_your_function_this";
-  private static final String VARIABLE_NAME = "dont_name_your_variable_this";
-  private static final String EMITTER_NAME = "dont_name_your_variable2_this";
-  private static final String CONTEXT_NAME = "dont_name_your_context_this";
+  private static final String FUNCTION_NAME = "transform";
+  private static final String RECORD_HELPER_NAME = "CDAP_ETL_RECORD_HELPER";
+  // copies Java maps and lists into JavaScript objects and arrays, leaving other values as they are
+  private static final String RECORD_HELPER_DEFINITION = "var " + RECORD_HELPER_NAME + " = new Object();" +
+    RECORD_HELPER_NAME + ".toJSValue = function(value) { " +
+    "if (value instanceof java.util.Map) { " +
+    "var result = {}; var it = value.entrySet().iterator(); " +
+    "while (it.hasNext()) { var entry = it.next(); " +
+    "result[entry.getKey()] = " + RECORD_HELPER_NAME + ".toJSValue(entry.getValue()); } " +
+    "return result; } " +
+    "if (value instanceof java.util.List) { " +
+    "var array = []; " +
+    "for (var i = 0; i < value.size(); i++) { array.push(" + RECORD_HELPER_NAME + ".toJSValue(value.get(i))); } " +
+    "return array; } " +
+    "return value; }";
   private ScriptEngine engine;
   private Invocable invocable;
+  private Object recordHelper;
+  private JavaTypeConverters js;
+  private ScriptContext scriptContext;
+  private JSEmitter jsEmitter;
   private Schema schema;
   private Schema errSchema;
   private final Config config;
@@ -124,7 +146,8 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     @Nullable
     private final String schema;
 
-    @Description("Lookup tables to use during transform. Currently supports KeyValueTable.")
+    @Description("Lookup tables to use during transform. Currently supports KeyValueTable. The keys listed in " +
+      "the 'prefetchKeys' of a table with caching enabled are read into its cache before the first record.")
     @Nullable
     private final String lookup;
 
@@ -191,6 +214,7 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     }
 
     init(context, context.getFailureCollector());
+    scriptContext.prefetchLookups();
   }
 
   @VisibleForTesting
@@ -201,15 +225,92 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) {
     try {
-      engine.eval(String.format("var %s = %s;", VARIABLE_NAME, StructuredRecordStringConverter.toJsonString(input)));
-      Emitter<Map> jsEmitter = new JSEmitter(emitter, schema == null ? input.getSchema() : schema);
-      engine.put(EMITTER_NAME, jsEmitter);
-      invocable.invokeFunction(FUNCTION_NAME);
+      invocable.invokeFunction(FUNCTION_NAME, toJSObject(input), getJSEmitter(emitter, input.getSchema()),
+                               scriptContext);
     } catch (Exception e) {
       throw new IllegalArgumentException("Could not transform input: " + e.getMessage(), e);
     }
   }
 
+  /**
+   * Converts a record into a plain JavaScript object, the same one that evaluating its JSON would give, so that
+   * scripts can use the usual object idioms like JSON.stringify, Object.keys, for in loops and delete on it.
+   */
+  private Object toJSObject(StructuredRecord record) throws ScriptException, NoSuchMethodException {
+    return invocable.invokeMethod(recordHelper, "toJSValue", toJSValue(record));
+  }
+
+  /**
+   * Converts a record value into Java maps, lists and values that are JavaScript primitives, in the form its JSON
+   * would have: records and maps become maps, arrays and bytes become lists, and all numbers become doubles or
+   * integers.
+   */
+  @Nullable
+  private static Object toJSValue(@Nullable Object value) {
+    if (value instanceof StructuredRecord) {
+      StructuredRecord record = (StructuredRecord) value;
+      //noinspection ConstantConditions
+      List<Schema.Field> fields = record.getSchema().getFields();
+      Map<String, Object> result = new LinkedHashMap<>(fields.size() * 2);
+      for (Schema.Field field : fields) {
+        result.put(field.getName(), toJSValue(record.get(field.getName())));
+      }
+      return result;
+    }
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      Map<String, Object> result = new LinkedHashMap<>(map.size() * 2);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        result.put(String.valueOf(entry.getKey()), toJSValue(entry.getValue()));
+      }
+      return result;
+    }
+    if (value instanceof Collection) {
+      List<Object> result = new ArrayList<>(((Collection<?>) value).size());
+      for (Object element : (Collection<?>) value) {
+        result.add(toJSValue(element));
+      }
+      return result;
+    }
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      List<Object> result = new ArrayList<>(buffer.remaining());
+      while (buffer.hasRemaining()) {
+        result.add((int) buffer.get());
+      }
+      return result;
+    }
+    if (value != null && value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      List<Object> result = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        result.add(toJSValue(Array.get(value, i)));
+      }
+      return result;
+    }
+    if (value instanceof Long) {
+      // the script engine may treat longs as Java objects instead of numbers
+      return ((Long) value).doubleValue();
+    }
+    if (value instanceof Float) {
+      // the decimal value the float prints as, as in JSON
+      return Double.valueOf(value.toString());
+    }
+    if (value instanceof Byte || value instanceof Short) {
+      return ((Number) value).intValue();
+    }
+    return value;
+  }
+
+  private JSEmitter getJSEmitter(Emitter<StructuredRecord> emitter, Schema inputSchema) {
+    Schema outputSchema = schema == null ? inputSchema : schema;
+    // the emitter is usually the same for every record of a task, so avoid creating one per record
+    if (jsEmitter == null || jsEmitter.emitter != emitter || jsEmitter.schema != outputSchema) {
+      jsEmitter = new JSEmitter(emitter, outputSchema);
+    }
+    return jsEmitter;
+  }
+
   /**
    * Emitter to be used from within JavaScript code
    */
@@ -393,12 +494,22 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
       throw collector.getOrThrowException();
     }
 
-    JavaTypeConverters js = ((Invocable) engine).getInterface(
+    js = ((Invocable) engine).getInterface(
       engine.get(ScriptConstants.HELPER_NAME), JavaTypeConverters.class);
+    try {
+      engine.eval(RECORD_HELPER_DEFINITION);
+    } catch (ScriptException e) {
+      // shouldn't happen
+      collector.addFailure("Failed to define record helper functions.", null);
+      throw collector.getOrThrowException();
+    }
+    recordHelper = engine.get(RECORD_HELPER_NAME);
 
     LookupConfig lookupConfig;
+    PrefetchConfig prefetchConfig;
     try {
       lookupConfig = GSON.fromJson(config.lookup, LookupConfig.class);
+      prefetchConfig = GSON.fromJson(config.lookup, PrefetchConfig.class);
     } catch (JsonSyntaxException e) {
       collector.addFailure("Invalid lookup config.", "Expected JSON map of string to string.")
         .withConfigProperty(Config.LOOKUP);
@@ -406,17 +517,16 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     }
 
     Arguments arguments = context == null ? null : context.getArguments();
-    engine.put(CONTEXT_NAME, new ScriptContext(LOG, metrics, context, lookupConfig, js, arguments));
+    scriptContext = new ScriptContext(LOG, metrics, context, lookupConfig, getPrefetchKeys(prefetchConfig), js,
+                                      arguments);
 
     try {
-      // this is pretty ugly, but doing this so that we can pass the 'input' json into the transform function.
-      // that is, we want people to implement
-      // function transform(input) { ... }
-      // rather than function transform() { ... } and have them access a global variable in the function
-
-      String script = String.format("function %s() { return transform(%s, %s, %s); }\n%s",
-                                    FUNCTION_NAME, VARIABLE_NAME, EMITTER_NAME, CONTEXT_NAME, config.script);
-      engine.eval(script);
+      // compile the script once, records are then passed straight to the functions it defines
+      if (engine instanceof Compilable) {
+        ((Compilable) engine).compile(config.script).eval();
+      } else {
+        engine.eval(config.script);
+      }
     } catch (ScriptException e) {
       collector.addFailure(String.format("Invalid script: %s.", e.getMessage()), null)
         .withConfigProperty(Config.SCRIPT);
@@ -433,4 +543,29 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     }
     collector.getOrThrowException();
   }
+
+  private static Map<String, Set<String>> getPrefetchKeys(@Nullable PrefetchConfig prefetchConfig) {
+    Map<String, Set<String>> prefetchKeys = new HashMap<>();
+    if (prefetchConfig == null || prefetchConfig.tables == null) {
+      return prefetchKeys;
+    }
+    for (Map.Entry<String, TablePrefetchConfig> table : prefetchConfig.tables.entrySet()) {
+      if (table.getValue() != null && table.getValue().prefetchKeys != null) {
+        prefetchKeys.put(table.getKey(), new HashSet<>(table.getValue().prefetchKeys));
+      }
+    }
+    return prefetchKeys;
+  }
+
+  /**
+   * The keys to read into the cache of each lookup table at initialize, given as a {@code prefetchKeys} list in the
+   * config of the table in the lookup JSON, which {@link LookupConfig} does not read.
+   */
+  private static final class PrefetchConfig {
+    private Map<String, TablePrefetchConfig> tables;
+  }
+
+  private static final class TablePrefetchConfig {
+    private List<String> prefetchKeys;
+  }
 }
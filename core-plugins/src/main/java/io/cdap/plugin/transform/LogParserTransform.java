@@ -37,11 +37,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -67,34 +70,30 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
   private static final String INPUT_NAME_DESCRIPTION = "Name of the field in the input schema which encodes the " +
     "log information. The given field must be of type String or Bytes.";
   private static final Logger LOG = LoggerFactory.getLogger(LogParserTransform.class);
-  //Regex used to parse a CLF log, each field is commented above
-  private static final Pattern CLF_LOG_PATTERN = Pattern.compile(
-    //   IP                    id    user      date          request     code     size    referrer    user agent
-    "^([\\d.]+|[:][:][\\d]) (\\S+) (\\S+) \\[([^\\]]+)\\] \"([^\"]+)\" (\\d{3}) ([-\"\\d]+) \"([^\"]+)\" \"([^\"]+)\"");
-  //Regex used to parse a S3 log, each field is commented above
-  private static final Pattern S3_LOG_PATTERN = Pattern.compile(
-    // bucket owner name   time           ip                    req   reqID operation  key    request
-    "^(\\S+) (\\S+) \\[(\\p{Print}+)\\] ([\\d.]+|[:][:][\\d]) (\\S+) (\\S+) (\\S+) (\\S+) \"([^\"]+)\" " +
-      //  HTTP stat error code  bytes sent     obj size  time    turn time  referrer         user agent
-      "(\\d{3}) (\\p{Print}+) ([-\"\\d]+) ([-\"\\d]+) ([\\d]+) ([-\"\\d]+) \"(\\p{Print}+)\" \"([^\"]+)\" " +
-      //  version id
-      "(\\p{Print}+)");
-  //Regex used to parse the request field for the URI
-  private static final Pattern REQUEST_PAGE_PATTERN = Pattern.compile("(\\S+)\\s(\\S+).*");
-  //Indices of which group request, time, ip, user agent, and HTTP status code are in the S3 regex
-  private static final int[] S3_INDICES = {9, 3, 4, 17, 10};
-  //Indices of which group request, time, ip, user agent, and HTTP status code are in the CLF regex
-  private static final int[] CLF_INDICES = {5, 4, 1, 9, 6};
-  //Number of groups matched in the S3 regex
-  private static final int S3_REGEX_LENGTH = 18;
-  //Number of groups matched in the CLF regex
-  private static final int CLF_REGEX_LENGTH = 9;
+  //Timestamp format of CLF and S3 logs, for example 10/Oct/2000:13:55:36 -0700
+  private static final DateTimeFormatter STRFTIME_FORMAT = new DateTimeFormatterBuilder()
+    .parseCaseInsensitive()
+    .appendPattern("dd/MMM/yyyy:HH:mm:ss Z")
+    .toFormatter(Locale.ENGLISH);
+  //Timestamp format of Cloudfront logs, where the date and time are separate fields in UTC
+  private static final DateTimeFormatter CLOUDFRONT_FORMAT =
+    DateTimeFormatter.ofPattern("yyyy-MM-dd'\t'HH:mm:ss", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+  //Number of distinct user agents to keep parsed, as parsing them is the most expensive part of a line
+  private static final int USER_AGENT_CACHE_SIZE = 1000;
   private static final String S3_LOG = "S3";
   private static final String CLF_LOG = "CLF";
   private static final String CLOUDFRONT_LOG = "Cloudfront";
   private final LogParserConfig config;
-  private final SimpleDateFormat sdfStrftime = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z");
-  private final SimpleDateFormat sdfCloudfront = new SimpleDateFormat("yyyy-MM-dd:HH:mm:ss z");
+  private final AccessLogTokenizer tokenizer = new AccessLogTokenizer();
+  private final TimestampCache strftimeCache = new TimestampCache(STRFTIME_FORMAT);
+  private final TimestampCache cloudfrontCache = new TimestampCache(CLOUDFRONT_FORMAT);
+  private final Map<String, ReadableUserAgent> userAgents =
+    new LinkedHashMap<String, ReadableUserAgent>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ReadableUserAgent> eldest) {
+        return size() > USER_AGENT_CACHE_SIZE;
+      }
+    };
 
   public LogParserTransform(LogParserConfig config) {
     this.config = config;
@@ -153,47 +152,34 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
 
     StructuredRecord output;
     if (S3_LOG.equals(config.logFormat)) {
-      Matcher logMatcher = S3_LOG_PATTERN.matcher(log);
-      if (!logMatcher.matches() || logMatcher.groupCount() < S3_REGEX_LENGTH) {
+      if (!tokenizer.parseS3(log)) {
         LOG.debug("Couldn't parse log because log did not match the S3 format, log: {}", log);
         emitter.emitError(new InvalidEntry<>(31, "Couldn't parse log, because the log did not match the S3 format.",
                                              input));
         return;
       }
-      output = parseRequest(logMatcher, S3_INDICES);
+      output = parseRequest();
     } else if (CLF_LOG.equals(config.logFormat)) {
-      Matcher logMatcher = CLF_LOG_PATTERN.matcher(log);
-      if (!logMatcher.matches() || logMatcher.groupCount() < CLF_REGEX_LENGTH) {
+      if (!tokenizer.parseClf(log)) {
         LOG.debug("Couldn't parse log because the log did not match the CLF format. log: {}", log);
         emitter.emitError(new InvalidEntry<>(31, "Couldn't parse log, because the log did not match the CLF format.",
                                              input));
         return;
       }
-      output = parseRequest(logMatcher, CLF_INDICES);
+      output = parseRequest();
     } else {
       if (log.startsWith("#")) {
         LOG.trace("Log is a comment. Ignoring...");
         return;
       }
-
-      String[] fields = log.split("\\t");
-      String uri = fields[7];
-      String ip = fields[4];
-      long ts = sdfCloudfront.parse(String.format("%s:%s UTC", fields[0], fields[1])).getTime();
-      UserAgentStringParser parser = UADetectorServiceFactory.getResourceModuleParser();
-      ReadableUserAgent userAgent = parser.parse(fields[10]);
-      String browser = userAgent.getFamily().getName();
-      String device = userAgent.getDeviceCategory().getCategory().getName();
-      int httpStatus = Integer.parseInt(fields[8]);
-
-      output = StructuredRecord.builder(LOG_SCHEMA)
-        .set("uri", uri)
-        .set("ip", ip)
-        .set("browser", browser)
-        .set("device", device)
-        .set("httpStatus", httpStatus)
-        .set("ts", ts)
-        .build();
+      if (!tokenizer.parseCloudfront(log)) {
+        LOG.debug("Couldn't parse log because the log did not match the Cloudfront format. log: {}", log);
+        emitter.emitError(new InvalidEntry<>(31, "Couldn't parse log, because the log did not match the " +
+          "Cloudfront format.", input));
+        return;
+      }
+      long ts = cloudfrontCache.parse(log, tokenizer.getTimeStart(), tokenizer.getTimeEnd());
+      output = buildRecord(tokenizer.getUri(), ts);
     }
     if (output != null) {
       emitter.emit(output);
@@ -273,43 +259,43 @@ public class LogParserTransform extends Transform<StructuredRecord, StructuredRe
   }
 
   /**
-   * Parses a request for the URI, IP, Browser, Device, and Time
-   *
-   * @param logMatcher the regex matcher to use
-   * @param indices array of indices that define what position in the regex the fields are, in the order of Request,
-   *                Time, IP, User Agent, and HTTP status code.
+   * Parses the request of the line last tokenized for the URI, IP, Browser, Device, and Time
    */
   @Nullable
-  private StructuredRecord parseRequest(Matcher logMatcher, int[] indices) {
-    String request = logMatcher.group(indices[0]);
-    Matcher requestMatcher = REQUEST_PAGE_PATTERN.matcher(request);
-    if (!requestMatcher.matches() || requestMatcher.groupCount() < 2) {
-      LOG.debug("Couldn't parse uri because request does not match request pattern, request: {}", request);
+  private StructuredRecord parseRequest() {
+    String uri = tokenizer.getUri();
+    if (uri == null) {
+      LOG.debug("Couldn't parse uri because request does not match request pattern, log: {}", tokenizer.getLine());
       return null;
     }
 
-    String uri = requestMatcher.group(2);
-    long ts = System.currentTimeMillis();
+    long ts;
     try {
-      ts = sdfStrftime.parse(logMatcher.group(indices[1])).getTime();
-    } catch (ParseException e) {
+      ts = strftimeCache.parse(tokenizer.getLine(), tokenizer.getTimeStart(), tokenizer.getTimeEnd());
+    } catch (DateTimeParseException e) {
+      ts = System.currentTimeMillis();
       LOG.debug("Couldn't parse time from the input record, using current timestamp instead. Exception: {}",
                 e.getMessage());
     }
+    return buildRecord(uri, ts);
+  }
 
-    String ip = logMatcher.group(indices[2]);
-    UserAgentStringParser parser = UADetectorServiceFactory.getResourceModuleParser();
-    ReadableUserAgent userAgent = parser.parse(logMatcher.group(indices[3]));
+  private StructuredRecord buildRecord(String uri, long ts) {
+    ReadableUserAgent userAgent = userAgents.get(tokenizer.getUserAgent());
+    if (userAgent == null) {
+      UserAgentStringParser parser = UADetectorServiceFactory.getResourceModuleParser();
+      userAgent = parser.parse(tokenizer.getUserAgent());
+      userAgents.put(tokenizer.getUserAgent(), userAgent);
+    }
     String browser = userAgent.getFamily().getName();
     String device = userAgent.getDeviceCategory().getCategory().getName();
-    int httpStatus = Integer.parseInt(logMatcher.group(indices[4]));
 
     return StructuredRecord.builder(LOG_SCHEMA)
       .set("uri", uri)
-      .set("ip", ip)
+      .set("ip", tokenizer.getIp())
       .set("browser", browser)
       .set("device", device)
-      .set("httpStatus", httpStatus)
+      .set("httpStatus", tokenizer.getHttpStatus())
       .set("ts", ts)
       .build();
   }
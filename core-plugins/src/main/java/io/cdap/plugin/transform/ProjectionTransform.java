@@ -49,6 +49,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -122,6 +123,10 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
   private Map<String, Schema.Type> fieldsToConvert = Maps.newHashMap();
   // cache input schema hash to output schema so we don't have to build it each time
   private Map<Schema, Schema> schemaCache = Maps.newHashMap();
+  // compiled projection for each input schema, and for the schema of the last record
+  private final Map<Schema, ProjectionPlan> planCache = Maps.newHashMap();
+  private Schema lastInputSchema;
+  private ProjectionPlan lastPlan;
 
   @Override
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
@@ -173,8 +178,37 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
   @Override
   public void transform(StructuredRecord valueIn, Emitter<StructuredRecord> emitter) {
     Schema inputSchema = valueIn.getSchema();
+    if (inputSchema != lastInputSchema) {
+      lastPlan = planCache.get(inputSchema);
+      if (lastPlan == null) {
+        lastPlan = compile(inputSchema);
+        planCache.put(inputSchema, lastPlan);
+      }
+      lastInputSchema = inputSchema;
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(lastPlan.outputSchema);
+    for (FieldProjection field : lastPlan.fields) {
+      Object inputVal = valueIn.get(field.inputName);
+      if (inputVal == null || field.converter == null) {
+        builder.set(field.outputName, inputVal);
+      } else if (field.parse) {
+        // if the input is a string, try and do some sensible conversion
+        builder.convertAndSet(field.outputName, (String) inputVal);
+      } else {
+        builder.set(field.outputName, field.converter.apply(inputVal));
+      }
+    }
+    emitter.emit(builder.build());
+  }
+
+  /**
+   * Compiles the projection of records of the given schema: which fields to copy, what to name them in the output
+   * record, and how to convert their values. All lookups by field name and all type checks happen here, once per
+   * schema, rather than once per value.
+   */
+  private ProjectionPlan compile(Schema inputSchema) {
     Schema outputSchema = getOutputSchema(inputSchema, getContext().getFailureCollector());
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
+    List<FieldProjection> fields = new ArrayList<>(outputSchema.getFields().size());
     for (Schema.Field inputField : inputSchema.getFields()) {
       String inputFieldName = inputField.getName();
       if (!fieldsToKeep.isEmpty() && !fieldsToKeep.contains(inputFieldName)) {
@@ -188,17 +222,26 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
         outputFieldName = inputFieldName;
       }
 
-      Schema.Field outputField = outputSchema.getField(outputFieldName);
-      Object inputVal = valueIn.get(inputFieldName);
-
-      // if we need to convert the value, convert it. otherwise just pass the value through
-      if (fieldsToConvert.containsKey(inputFieldName)) {
-        convertAndSet(builder, outputFieldName, inputVal, inputField.getSchema(), outputField.getSchema());
+      // if we need to convert the value, compile the conversion. otherwise just pass the value through
+      if (!fieldsToConvert.containsKey(inputFieldName)) {
+        fields.add(new FieldProjection(inputFieldName, outputFieldName, false, null));
+        continue;
+      }
+      // guaranteed that if the input type is nullable, the output type is also nullable.
+      Schema inputFieldSchema = inputField.getSchema();
+      Schema outputFieldSchema = outputSchema.getField(outputFieldName).getSchema();
+      Schema.Type inputType = inputFieldSchema.isNullable() ?
+        inputFieldSchema.getNonNullable().getType() : inputFieldSchema.getType();
+      Schema.Type outputType = outputFieldSchema.isNullable() ?
+        outputFieldSchema.getNonNullable().getType() : outputFieldSchema.getType();
+      if (inputType == Schema.Type.STRING) {
+        fields.add(new FieldProjection(inputFieldName, outputFieldName, true, Function.identity()));
       } else {
-        builder.set(outputFieldName, inputVal);
+        fields.add(new FieldProjection(inputFieldName, outputFieldName, false,
+                                       compileConverter(outputFieldName, inputType, outputType)));
       }
     }
-    emitter.emit(builder.build());
+    return new ProjectionPlan(outputSchema, fields.toArray(new FieldProjection[0]));
   }
 
   private void init(Schema inputSchema, FailureCollector collector) {
@@ -293,134 +336,111 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
     }
   }
 
-  private void convertAndSet(StructuredRecord.Builder builder, String fieldName, Object val,
-                             Schema inputSchema, Schema outputSchema) {
-    // guaranteed that if the input type is nullable, the output type is also nullable.
-    Schema.Type inputType = inputSchema.getType();
-    Schema.Type outputType = outputSchema.getType();
-    if (inputSchema.isNullable()) {
-      if (val == null) {
-        builder.set(fieldName, null);
-        return;
-      }
-      inputType = inputSchema.getNonNullable().getType();
-      outputType = outputSchema.getNonNullable().getType();
-    }
-
-    // if the input is a string, try and do some sensible conversion
-    if (inputType == Schema.Type.STRING) {
-      builder.convertAndSet(fieldName, (String) val);
-    } else {
-      // otherwise, just try to cast it.
-      builder.set(fieldName, convertPrimitive(fieldName, val, inputType, outputType,
-                                              getContext().getFailureCollector()));
-    }
-  }
-
-  private Object convertPrimitive(String fieldName, Object val, Schema.Type inputType,
-                                  Schema.Type outputType, FailureCollector collector) {
+  /**
+   * Returns the function that converts values of one simple type to another, or null if the value can be passed
+   * through as is. Conversions that are not supported only fail once there is a value to convert.
+   */
+  @Nullable
+  private Function<Object, Object> compileConverter(String fieldName, Schema.Type inputType,
+                                                    Schema.Type outputType) {
     if (inputType == outputType) {
-      return val;
+      return null;
     }
 
     // guaranteed input and output types are non-null simple types
     switch (inputType) {
       // if input is bytes, try to convert the bytes to the correct type
       case BYTES:
-        byte[] bytesVal;
-        if (val instanceof ByteBuffer) {
-          bytesVal = Bytes.toBytes((ByteBuffer) val);
-        } else {
-          bytesVal = (byte[]) val;
-        }
         switch (outputType) {
           case BOOLEAN:
-            return Bytes.toBoolean(bytesVal);
+            return val -> Bytes.toBoolean(toBytes(val));
           case INT:
-            return Bytes.toInt(bytesVal);
+            return val -> Bytes.toInt(toBytes(val));
           case LONG:
-            return Bytes.toLong(bytesVal);
+            return val -> Bytes.toLong(toBytes(val));
           case FLOAT:
-            return Bytes.toFloat(bytesVal);
+            return val -> Bytes.toFloat(toBytes(val));
           case DOUBLE:
-            return Bytes.toDouble(bytesVal);
+            return val -> Bytes.toDouble(toBytes(val));
           case STRING:
-            return Bytes.toString(bytesVal);
+            return val -> Bytes.toString(toBytes(val));
         }
         break;
       case BOOLEAN:
-        Boolean boolVal = (Boolean) val;
         switch (outputType) {
           case STRING:
-            return String.valueOf(boolVal);
+            return String::valueOf;
           case BYTES:
-            return Bytes.toBytes(boolVal);
+            return val -> Bytes.toBytes((Boolean) val);
         }
         break;
       case INT:
-        Integer intVal = (Integer) val;
         switch (outputType) {
           case LONG:
-            return intVal.longValue();
+            return val -> ((Integer) val).longValue();
           case FLOAT:
-            return intVal.floatValue();
+            return val -> ((Integer) val).floatValue();
           case DOUBLE:
-            return intVal.doubleValue();
+            return val -> ((Integer) val).doubleValue();
           case STRING:
-            return String.valueOf(intVal);
+            return String::valueOf;
           case BYTES:
-            return Bytes.toBytes(intVal);
+            return val -> Bytes.toBytes((Integer) val);
         }
         break;
       case LONG:
-        Long longVal = (Long) val;
         switch (outputType) {
           case FLOAT:
-            return longVal.floatValue();
+            return val -> ((Long) val).floatValue();
           case DOUBLE:
-            return longVal.doubleValue();
+            return val -> ((Long) val).doubleValue();
           case STRING:
-            return String.valueOf(longVal);
+            return String::valueOf;
           case BYTES:
-            return Bytes.toBytes(longVal);
+            return val -> Bytes.toBytes((Long) val);
         }
         break;
       case FLOAT:
-        Float floatVal = (Float) val;
         switch (outputType) {
           case DOUBLE:
-            return floatVal.doubleValue();
+            return val -> ((Float) val).doubleValue();
           case STRING:
-            return String.valueOf(floatVal);
+            return String::valueOf;
           case BYTES:
-            return Bytes.toBytes(floatVal);
+            return val -> Bytes.toBytes((Float) val);
           case INT:
-            return Math.round(floatVal);
+            return val -> Math.round((Float) val);
           case LONG:
-            return (long) Math.round(floatVal);
+            return val -> (long) Math.round((Float) val);
         }
         break;
       case DOUBLE:
-        Double doubleVal = (Double) val;
         switch (outputType) {
           case STRING:
-            return String.valueOf(doubleVal);
+            return String::valueOf;
           case BYTES:
-            return Bytes.toBytes(doubleVal);
+            return val -> Bytes.toBytes((Double) val);
           case INT:
-            return (int) Math.round(doubleVal);
+            return val -> (int) Math.round((Double) val);
           case LONG:
-            return Math.round(doubleVal);
+            return val -> Math.round((Double) val);
         }
         break;
     }
 
-    String typeStr = outputType.toString().toLowerCase();
-    collector.addFailure(
-      String.format("Cannot convert field '%s' from type '%s' to type '%s'.", fieldName, inputType, outputType),
-      null)
-      .withConfigElement(ProjectionTransformConfig.CONVERT, String.format("%s:%s", fieldName, typeStr));
-    throw collector.getOrThrowException();
+    return val -> {
+      FailureCollector collector = getContext().getFailureCollector();
+      String typeStr = outputType.toString().toLowerCase();
+      collector.addFailure(
+        String.format("Cannot convert field '%s' from type '%s' to type '%s'.", fieldName, inputType, outputType),
+        null)
+        .withConfigElement(ProjectionTransformConfig.CONVERT, String.format("%s:%s", fieldName, typeStr));
+      throw collector.getOrThrowException();
+    };
+  }
+
+  private static byte[] toBytes(Object val) {
+    return val instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) val) : (byte[]) val;
   }
 
   private Schema getOutputSchema(Schema inputSchema, FailureCollector collector) {
@@ -473,4 +493,36 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
     schemaCache.put(inputSchema, output);
     return output;
   }
+
+  /**
+   * Output schema and field projections for records of one input schema.
+   */
+  private static final class ProjectionPlan {
+    private final Schema outputSchema;
+    private final FieldProjection[] fields;
+
+    private ProjectionPlan(Schema outputSchema, FieldProjection[] fields) {
+      this.outputSchema = outputSchema;
+      this.fields = fields;
+    }
+  }
+
+  /**
+   * Copies one input field to the output record, converting its value if needed. String values are parsed into
+   * the output type by the record builder, any other value is converted by the converter.
+   */
+  private static final class FieldProjection {
+    private final String inputName;
+    private final String outputName;
+    private final boolean parse;
+    private final Function<Object, Object> converter;
+
+    private FieldProjection(String inputName, String outputName, boolean parse,
+                            @Nullable Function<Object, Object> converter) {
+      this.inputName = inputName;
+      this.outputName = outputName;
+      this.parse = parse;
+      this.converter = converter;
+    }
+  }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.transform;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses timestamps with second precision into milliseconds since the epoch, remembering the last one parsed.
+ * Log lines arrive in time order with many lines per second, so most lines carry the same timestamp text as the
+ * line before them and are answered without parsing. Instances are not thread safe.
+ */
+final class TimestampCache {
+  private final DateTimeFormatter formatter;
+  private String lastText;
+  private long lastMillis;
+
+  /**
+   * @param formatter the formatter to parse with, which must resolve to an instant, either because the pattern
+   *                  has an offset or because the formatter has a zone
+   */
+  TimestampCache(DateTimeFormatter formatter) {
+    this.formatter = formatter;
+  }
+
+  /**
+   * Parses the timestamp between the given indexes of the text.
+   *
+   * @throws DateTimeParseException if the timestamp could not be parsed
+   */
+  long parse(String text, int start, int end) {
+    int length = end - start;
+    if (lastText != null && lastText.length() == length && text.regionMatches(start, lastText, 0, length)) {
+      return lastMillis;
+    }
+    String timestamp = text.substring(start, end);
+    long millis = formatter.parse(timestamp, Instant::from).toEpochMilli();
+    lastText = timestamp;
+    lastMillis = millis;
+    return millis;
+  }
+}
@@ -29,8 +29,10 @@ import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.api.metadata.MetadataEntity;
 import io.cdap.cdap.api.metadata.MetadataScope;
 import io.cdap.cdap.datapipeline.SmartWorkflow;
+import io.cdap.cdap.etl.api.batch.BatchSink;
 import io.cdap.cdap.etl.api.batch.BatchSource;
 import io.cdap.cdap.etl.mock.batch.MockSink;
+import io.cdap.cdap.etl.mock.batch.MockSource;
 import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
 import io.cdap.cdap.etl.proto.v2.ETLPlugin;
 import io.cdap.cdap.etl.proto.v2.ETLStage;
@@ -69,6 +71,8 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -982,6 +986,158 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testOrcRoundTrip() throws Exception {
+    Schema innerSchema = Schema.recordOf("inner",
+                                         Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                         Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("created", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+      Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+      Schema.Field.of("inner", Schema.nullableOf(innerSchema)));
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      records.add(StructuredRecord.builder(schema)
+                    .set("id", (long) i)
+                    .set("name", i == 2 ? null : "n" + i)
+                    .set("score", i == 3 ? null : i * 1.5d)
+                    .set("created", i == 1 ? null : 18000 + i)
+                    .set("tags", i == 0 ? null : Arrays.asList("a", "b" + i))
+                    .set("inner", StructuredRecord.builder(innerSchema).set("x", i).set("y", "y" + i).build())
+                    .build());
+    }
+    File dir = new File(temporaryFolder.newFolder(), "orc");
+    writeWithFileSink("OrcRoundTrip", dir, "orc", schema, records);
+
+    // with the schema the records are read back as they were written
+    ApplicationManager appManager = createSourceAndDeployApp("OrcRoundTripWithSchema", dir, "orc",
+                                                             "test-orc-with-schema", schema, null, false, false);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+    Assert.assertEquals(new HashSet<>(records),
+                        new HashSet<>(MockSink.readOutput(getDataset("test-orc-with-schema"))));
+
+    // without it, the schema comes from the file, where logical types are stored as their physical types and every
+    // field is nullable
+    Schema fileInnerSchema = Schema.recordOf(
+      "record_inner",
+      Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema fileSchema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("created", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING))))),
+      Schema.Field.of("inner", Schema.nullableOf(fileInnerSchema)));
+    Set<StructuredRecord> expected = new HashSet<>();
+    for (StructuredRecord record : records) {
+      StructuredRecord inner = record.get("inner");
+      expected.add(StructuredRecord.builder(fileSchema)
+                     .set("id", record.get("id"))
+                     .set("name", record.get("name"))
+                     .set("score", record.get("score"))
+                     .set("created", record.get("created"))
+                     .set("tags", record.get("tags"))
+                     .set("inner", StructuredRecord.builder(fileInnerSchema)
+                       .set("x", inner.get("x")).set("y", inner.get("y")).build())
+                     .build());
+    }
+    appManager = createSourceAndDeployApp("OrcRoundTripWithoutSchema", dir, "orc", "test-orc-without-schema", null,
+                                          null, false, false);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+    Assert.assertEquals(expected, new HashSet<>(MockSink.readOutput(getDataset("test-orc-without-schema"))));
+
+    // rows with null values match != and the negation of other comparisons
+    Map<String, String> properties = ImmutableMap.<String, String>builder()
+      .put(Constants.Reference.REFERENCE_NAME, "OrcRoundTripFilter")
+      .put(Properties.File.PATH, dir.getAbsolutePath())
+      .put(Properties.File.FORMAT, "orc")
+      .put(Properties.File.SCHEMA, schema.toString())
+      .put("filter", "name != 'n1' and not score > 4")
+      .build();
+    appManager = createSourceAndDeployApp("OrcRoundTripFilter", "test-orc-filter", properties);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+    Assert.assertEquals(ImmutableSet.of(records.get(0), records.get(2), records.get(3)),
+                        new HashSet<>(MockSink.readOutput(getDataset("test-orc-filter"))));
+  }
+
+  @Test
+  public void testParquetFilterAndProjection() throws Exception {
+    Schema innerSchema = Schema.recordOf("inner",
+                                         Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                         Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+      Schema.Field.of("inner", Schema.nullableOf(innerSchema)));
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      records.add(StructuredRecord.builder(schema)
+                    .set("id", (long) i)
+                    .set("name", i == 2 ? null : "n" + i)
+                    .set("score", i * 1.5d)
+                    .set("tags", Arrays.asList("a", "b" + i))
+                    .set("inner", StructuredRecord.builder(innerSchema).set("x", i).set("y", "y" + i).build())
+                    .build());
+    }
+    File dir = new File(temporaryFolder.newFolder(), "parquet");
+    writeWithFileSink("ParquetFilter", dir, "parquet", schema, records);
+
+    // only the projected fields are read, in the order of the projection, and rows with a null name match !=
+    Schema projected = Schema.recordOf(
+      "record",
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+    Map<String, String> properties = ImmutableMap.<String, String>builder()
+      .put(Constants.Reference.REFERENCE_NAME, "ParquetFilterSource")
+      .put(Properties.File.PATH, dir.getAbsolutePath())
+      .put(Properties.File.FORMAT, "parquet")
+      .put(Properties.File.SCHEMA, projected.toString())
+      .put("filter", "id >= 1 and name != 'n1'")
+      .build();
+    ApplicationManager appManager = createSourceAndDeployApp("ParquetFilterAndProjection", "test-parquet-filter",
+                                                             properties);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(projected).set("id", 2L).build(),
+      StructuredRecord.builder(projected).set("id", 3L).set("name", "n3").build());
+    Assert.assertEquals(expected, new HashSet<>(MockSink.readOutput(getDataset("test-parquet-filter"))));
+  }
+
+  /**
+   * Writes records to a directory with the File sink, in the given format.
+   */
+  private void writeWithFileSink(String appName, File dir, String format, Schema schema,
+                                 List<StructuredRecord> records) throws Exception {
+    String inputName = appName + "Input";
+    Map<String, String> properties = new HashMap<>();
+    properties.put(Constants.Reference.REFERENCE_NAME, appName + "Sink");
+    properties.put(Properties.File.PATH, dir.getAbsolutePath());
+    properties.put(Properties.File.FORMAT, format);
+    properties.put(Properties.File.SCHEMA, schema.toString());
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder()
+      .addStage(new ETLStage("source", MockSource.getPlugin(inputName, schema)))
+      .addStage(new ETLStage("sink", new ETLPlugin("File", BatchSink.PLUGIN_TYPE, properties, null)))
+      .addConnection("source", "sink")
+      .build();
+    ApplicationManager appManager = deployETL(etlConfig, appName + "Writer");
+    MockSource.writeInput(getDataset(inputName), records);
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+  }
+
   private ApplicationManager createSourceAndDeployApp(String appName, File file, String format,
                                                       String outputDatasetName, Schema schema) throws Exception {
     return createSourceAndDeployApp(appName, file, format, outputDatasetName, schema, null, false, true);
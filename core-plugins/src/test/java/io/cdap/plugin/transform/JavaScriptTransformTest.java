@@ -404,4 +404,84 @@ public class JavaScriptTransformTest {
     Assert.assertEquals(1, mockContext.getMockMetrics().getCount("script.transform.count"));
     Assert.assertEquals(1, mockContext.getMockMetrics().getPipelineCount("transform.1.script.transform.count"));
   }
+
+  @Test
+  public void testObjectIdioms() throws Exception {
+    Schema schema = Schema.recordOf(
+      "idioms",
+      Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("json", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("keys", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("loop", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("own", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    JavaScriptTransform.Config config = new JavaScriptTransform.Config(
+      "function transform(input, emitter, context) { " +
+        "var json = JSON.stringify(input); " +
+        "var keys = Object.keys(input).join(','); " +
+        "var loop = []; " +
+        "for (var key in input) { if (input[key] !== null) { loop.push(key + '=' + input[key]); } } " +
+        "var own = input.hasOwnProperty('x') + ',' + input.hasOwnProperty('z'); " +
+        "delete input.y; " +
+        "input.json = json; input.keys = keys; input.loop = loop.join(','); input.own = own; " +
+        "input.y = 'y' in input ? 'still there' : null; " +
+        "emitter.emit(input); " +
+        "}",
+      schema.toString(), null);
+    JavaScriptTransform transform = new JavaScriptTransform(config);
+    transform.initialize(new MockTransformContext());
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(schema).set("x", 5).set("y", "why").build(), emitter);
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(5, output.<Integer>get("x").intValue());
+    Assert.assertNull(output.get("y"));
+    Assert.assertEquals("{\"x\":5,\"y\":\"why\",\"json\":null,\"keys\":null,\"loop\":null,\"own\":null}",
+                        output.get("json"));
+    Assert.assertEquals("x,y,json,keys,loop,own", output.get("keys"));
+    Assert.assertEquals("x=5,y=why", output.get("loop"));
+    Assert.assertEquals("true,false", output.get("own"));
+  }
+
+  @Test
+  public void testValueTypes() throws Exception {
+    Schema inner = Schema.recordOf(
+      "inner",
+      Schema.Field.of("s", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("n", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema schema = Schema.recordOf(
+      "types",
+      Schema.Field.of("l", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("f", Schema.of(Schema.Type.FLOAT)),
+      Schema.Field.of("b", Schema.of(Schema.Type.BYTES)),
+      Schema.Field.of("a", Schema.arrayOf(Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("m", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))),
+      Schema.Field.of("r", inner));
+    Schema outputSchema = Schema.recordOf("output", Schema.Field.of("out", Schema.of(Schema.Type.STRING)));
+    // values reach the script as the JavaScript values their JSON would give
+    JavaScriptTransform.Config config = new JavaScriptTransform.Config(
+      "function transform(input, emitter, context) { " +
+        "var types = [typeof input.l, typeof input.f, Array.isArray(input.b), Array.isArray(input.a), " +
+        "typeof input.a[0], typeof input.m, typeof input.r].join(','); " +
+        "emitter.emit({'out': types + ' ' + JSON.stringify(input)}); " +
+        "}",
+      outputSchema.toString(), null);
+    JavaScriptTransform transform = new JavaScriptTransform(config);
+    transform.initialize(new MockTransformContext());
+
+    StructuredRecord input = StructuredRecord.builder(schema)
+      .set("l", 12345678901L)
+      .set("f", 1.5f)
+      .set("b", ByteBuffer.wrap(new byte[] {1, -1}))
+      .set("a", ImmutableList.of(1L, 2L))
+      .set("m", ImmutableMap.of("k", 3))
+      .set("r", StructuredRecord.builder(inner).set("s", "x").build())
+      .build();
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(input, emitter);
+    Assert.assertEquals("number,number,true,true,number,object,object " +
+                          "{\"l\":12345678901,\"f\":1.5,\"b\":[1,-1],\"a\":[1,2],\"m\":{\"k\":3}," +
+                          "\"r\":{\"s\":\"x\",\"n\":null}}",
+                        emitter.getEmitted().get(0).get("out"));
+  }
 }
@@ -229,6 +229,28 @@ public class LogParserTransformTest {
     Assert.assertEquals(971211336000L, output.<Long>get("ts").longValue());
   }
 
+  @Test
+  public void testCommonLogFormatTransform() throws Exception {
+    // lines without referrer and user agent, within the same second
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (String uri : new String[] { "/a.gif", "/b.gif" }) {
+      StructuredRecord record = StructuredRecord.builder(STRING_SCHEMA)
+        .set("body", "::1 - - [10/Oct/2000:13:55:36 -0700] \"GET " + uri + " HTTP/1.0\" 404 -")
+        .build();
+      CLF_TRANSFORM.transform(record, emitter);
+    }
+
+    Assert.assertEquals(2, emitter.getEmitted().size());
+    for (int i = 0; i < 2; i++) {
+      StructuredRecord output = emitter.getEmitted().get(i);
+      Assert.assertEquals(i == 0 ? "/a.gif" : "/b.gif", output.get("uri"));
+      Assert.assertEquals("::1", output.get("ip"));
+      Assert.assertEquals("unknown", output.get("browser"));
+      Assert.assertEquals(404, output.<Integer>get("httpStatus").intValue());
+      Assert.assertEquals(971211336000L, output.<Long>get("ts").longValue());
+    }
+  }
+
   @Test
   public void testErrorDatasetForInvalidCLFLog() throws Exception {
     StructuredRecord record = StructuredRecord.builder(BYTE_SCHEMA)
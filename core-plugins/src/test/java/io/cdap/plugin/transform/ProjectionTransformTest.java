@@ -327,6 +327,40 @@ public class ProjectionTransformTest {
     Assert.assertEquals("10", output.get("x"));
   }
 
+  @Test
+  public void testMultipleInputSchemas() throws Exception {
+    Schema intSchema = Schema.recordOf("record",
+                                       Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                       Schema.Field.of("y", Schema.of(Schema.Type.INT)));
+    Schema stringSchema = Schema.recordOf("record",
+                                          Schema.Field.of("x", Schema.of(Schema.Type.STRING)),
+                                          Schema.Field.of("y", Schema.of(Schema.Type.INT)));
+
+    ProjectionTransform.ProjectionTransformConfig config = new ProjectionTransform
+      .ProjectionTransformConfig(null, "x:z", "x:long", null);
+    Transform<StructuredRecord, StructuredRecord> transform = new ProjectionTransform(config);
+    TransformContext transformContext = new MockTransformContext();
+    transform.initialize(transformContext);
+
+    // switch back and forth between schemas, so that each projection is reused
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(intSchema).set("x", 1).set("y", 2).build(), emitter);
+    transform.transform(StructuredRecord.builder(stringSchema).set("x", "3").set("y", 4).build(), emitter);
+    transform.transform(StructuredRecord.builder(intSchema).set("x", 5).set("y", 6).build(), emitter);
+    transform.transform(StructuredRecord.builder(stringSchema).set("x", "7").set("y", 8).build(), emitter);
+
+    Schema expectedSchema = Schema.recordOf("record.projected",
+                                            Schema.Field.of("z", Schema.of(Schema.Type.LONG)),
+                                            Schema.Field.of("y", Schema.of(Schema.Type.INT)));
+    Assert.assertEquals(4, emitter.getEmitted().size());
+    for (int i = 0; i < 4; i++) {
+      StructuredRecord output = emitter.getEmitted().get(i);
+      Assert.assertEquals(expectedSchema, output.getSchema());
+      Assert.assertEquals(2L * i + 1, output.<Long>get("z").longValue());
+      Assert.assertEquals(2 * i + 2, output.<Integer>get("y").intValue());
+    }
+  }
+
   @Test
   public void testConvertToString() throws Exception {
     ProjectionTransform.ProjectionTransformConfig config = new ProjectionTransform
@@ -137,4 +137,22 @@ public class StructuredtoAvroTest {
     Assert.assertNull(result.get("byteBuffer"));
     Assert.assertNull(result.get("byteArray"));
   }
+
+  @Test
+  public void testRecordsOfDifferentSchemas() throws Exception {
+    Schema schema1 = Schema.recordOf("first", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema schema2 = Schema.recordOf("second",
+                                     Schema.Field.of("x", Schema.of(Schema.Type.STRING)),
+                                     Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.LONG))));
+    StructuredToAvroTransformer avroTransformer = new StructuredToAvroTransformer(null);
+
+    GenericRecord result = avroTransformer.transform(StructuredRecord.builder(schema1).set("x", 1).build());
+    Assert.assertEquals(1, result.get("x"));
+    result = avroTransformer.transform(StructuredRecord.builder(schema2).set("x", "a").set("y", 2L).build());
+    Assert.assertEquals("a", result.get("x"));
+    Assert.assertEquals(2L, result.get("y"));
+    result = avroTransformer.transform(StructuredRecord.builder(schema1).set("x", 3).build());
+    Assert.assertEquals(3, result.get("x"));
+    Assert.assertEquals("first", result.getSchema().getName());
+  }
 }
@@ -22,6 +22,8 @@ import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.format.UnexpectedFormatException;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.RecordAccessor;
+import io.cdap.plugin.common.SchemaCache;
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Writable;
@@ -49,6 +51,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import javax.sql.rowset.serial.SerialBlob;
 
 /**
@@ -71,14 +74,29 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    */
   private int [] columnTypes;
 
+  // fields of the record's schema, resolved on first write unless shared by the creator
+  private RecordAccessor accessor;
+
   /**
    * Used to construct a DBRecord from a StructuredRecord in the ETL Pipeline
    *
    * @param record the {@link StructuredRecord} to construct the {@link DBRecord} from
    */
   public DBRecord(StructuredRecord record, int [] columnTypes) {
+    this(record, columnTypes, null);
+  }
+
+  /**
+   * Used to construct a DBRecord from a StructuredRecord in the ETL Pipeline, sharing the field accessor between
+   * records of the same schema.
+   *
+   * @param record the {@link StructuredRecord} to construct the {@link DBRecord} from
+   * @param accessor the accessor for the schema of the record, or null to create one when writing
+   */
+  public DBRecord(StructuredRecord record, int [] columnTypes, @Nullable RecordAccessor accessor) {
     this.record = record;
     this.columnTypes = columnTypes;
+    this.accessor = accessor;
   }
 
   /**
@@ -125,7 +143,7 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
 
     if (!Strings.isNullOrEmpty(outputSchemaString)) {
       try {
-        outputSchema = Schema.parseJson(outputSchemaString);
+        outputSchema = SchemaCache.parseJson(outputSchemaString);
       } catch (IOException e) {
         throw new IllegalArgumentException(String.format("Unable to parse schema string '%s'.", outputSchemaString), e);
       }
@@ -230,10 +248,9 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
   }
 
   public void write(DataOutput out) throws IOException {
-    Schema recordSchema = record.getSchema();
-    List<Schema.Field> schemaFields = recordSchema.getFields();
-    for (Schema.Field field : schemaFields) {
-      writeToDataOut(out, field);
+    RecordAccessor fields = getAccessor();
+    for (int i = 0; i < fields.size(); i++) {
+      writeToDataOut(out, fields, i);
     }
   }
 
@@ -243,30 +260,32 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    * @param stmt the {@link PreparedStatement} to write the {@link StructuredRecord} to
    */
   public void write(PreparedStatement stmt) throws SQLException {
-    Schema recordSchema = record.getSchema();
-    List<Schema.Field> schemaFields = recordSchema.getFields();
-    for (int i = 0; i < schemaFields.size(); i++) {
-      writeToDB(stmt, schemaFields.get(i), i);
+    RecordAccessor fields = getAccessor();
+    for (int i = 0; i < fields.size(); i++) {
+      writeToDB(stmt, fields, i);
     }
   }
 
-  private Schema getNonNullableSchema(Schema.Field field) {
-    Schema schema = field.getSchema();
-    if (field.getSchema().isNullable()) {
-      schema = field.getSchema().getNonNullable();
+  private RecordAccessor getAccessor() {
+    if (accessor == null || accessor.getSchema() != record.getSchema()) {
+      accessor = RecordAccessor.of(record.getSchema());
     }
-    Preconditions.checkArgument(schema.getType().isSimpleType(),
+    return accessor;
+  }
+
+  private Schema.Type getSimpleType(RecordAccessor fields, int position) {
+    Schema.Type type = fields.getType(position);
+    Preconditions.checkArgument(type.isSimpleType(),
                                 "Only simple types are supported (boolean, int, long, float, double, string, bytes) " +
                                   "for writing a DBRecord, but found '%s' as the type for column '%s'. Please " +
-                                  "remove this column or transform it to a simple type.", schema.getType(),
-                                field.getName());
-    return schema;
+                                  "remove this column or transform it to a simple type.", type,
+                                fields.getName(position));
+    return type;
   }
 
-  private void writeToDataOut(DataOutput out, Schema.Field field) throws IOException {
-    Schema fieldSchema = getNonNullableSchema(field);
-    Schema.Type fieldType = fieldSchema.getType();
-    Object fieldValue = record.get(field.getName());
+  private void writeToDataOut(DataOutput out, RecordAccessor fields, int position) throws IOException {
+    Schema.Type fieldType = getSimpleType(fields, position);
+    Object fieldValue = fields.get(record, position);
 
     if (fieldValue == null) {
       return;
@@ -302,16 +321,15 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
         break;
       default:
         throw new IOException(String.format("Column %s with value %s has an unsupported datatype %s",
-          field.getName(), fieldValue, fieldType));
+          fields.getName(position), fieldValue, fieldType));
     }
   }
 
-  private void writeToDB(PreparedStatement stmt, Schema.Field field, int fieldIndex) throws SQLException {
-    String fieldName = field.getName();
-    Schema fieldSchema = getNonNullableSchema(field);
-    Schema.Type fieldType = fieldSchema.getType();
-    Schema.LogicalType fieldLogicalType = fieldSchema.getLogicalType();
-    Object fieldValue = record.get(fieldName);
+  private void writeToDB(PreparedStatement stmt, RecordAccessor fields, int fieldIndex) throws SQLException {
+    String fieldName = fields.getName(fieldIndex);
+    Schema.Type fieldType = getSimpleType(fields, fieldIndex);
+    Schema.LogicalType fieldLogicalType = fields.getLogicalType(fieldIndex);
+    Object fieldValue = fields.get(record, fieldIndex);
     int sqlIndex = fieldIndex + 1;
 
     if (fieldValue == null) {
@@ -387,7 +405,7 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
         break;
       default:
         throw new SQLException(String.format("Column %s with value %s has an unsupported datatype %s",
-          field.getName(), fieldValue, fieldType));
+          fieldName, fieldValue, fieldType));
     }
   }
 
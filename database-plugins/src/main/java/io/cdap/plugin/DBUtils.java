@@ -20,6 +20,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
+import io.cdap.plugin.common.SchemaCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -118,7 +119,7 @@ public final class DBUtils {
 
     if (!Strings.isNullOrEmpty(schemaStr)) {
       try {
-        schema = Schema.parseJson(schemaStr);
+        schema = SchemaCache.parseJson(schemaStr);
       } catch (IOException e) {
         throw new IllegalArgumentException(String.format("Unable to parse schema string '%s'.", schemaStr), e);
       }
@@ -42,6 +42,7 @@ import io.cdap.plugin.DBRecord;
 import io.cdap.plugin.DBUtils;
 import io.cdap.plugin.FieldCase;
 import io.cdap.plugin.common.LineageRecorder;
+import io.cdap.plugin.common.RecordAccessor;
 import io.cdap.plugin.common.ReferenceBatchSink;
 import io.cdap.plugin.common.ReferencePluginConfig;
 import io.cdap.plugin.db.batch.TransactionIsolationLevel;
@@ -79,6 +80,9 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
   private Class<? extends Driver> driverClass;
   private int [] columnTypes;
   private List<String> columns;
+  // schema of the columns to write, projected from the last input schema
+  private Schema lastInputSchema;
+  private RecordAccessor outputAccessor;
 
   public DBSink(DBSinkConfig dbSinkConfig) {
     super(new ReferencePluginConfig(dbSinkConfig.referenceName));
@@ -135,19 +139,22 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
   @Override
   public void transform(StructuredRecord input, Emitter<KeyValue<DBRecord, NullWritable>> emitter) throws Exception {
     // Create StructuredRecord that only has the columns in this.columns
-    List<Schema.Field> outputFields = new ArrayList<>();
-    for (String column : columns) {
-      Schema.Field field = input.getSchema().getField(column);
-      Preconditions.checkNotNull(field, "Missing schema field for column '%s'", column);
-      outputFields.add(field);
+    if (input.getSchema() != lastInputSchema) {
+      List<Schema.Field> outputFields = new ArrayList<>();
+      for (String column : columns) {
+        Schema.Field field = input.getSchema().getField(column);
+        Preconditions.checkNotNull(field, "Missing schema field for column '%s'", column);
+        outputFields.add(field);
+      }
+      outputAccessor = RecordAccessor.of(Schema.recordOf(input.getSchema().getRecordName(), outputFields));
+      lastInputSchema = input.getSchema();
     }
-    StructuredRecord.Builder output = StructuredRecord.builder(
-      Schema.recordOf(input.getSchema().getRecordName(), outputFields));
-    for (String column : columns) {
-      output.set(column, input.get(column));
+    StructuredRecord.Builder output = StructuredRecord.builder(outputAccessor.getSchema());
+    for (int i = 0; i < outputAccessor.size(); i++) {
+      outputAccessor.set(output, i, input.get(outputAccessor.getName(i)));
     }
 
-    emitter.emit(new KeyValue<DBRecord, NullWritable>(new DBRecord(output.build(), columnTypes), null));
+    emitter.emit(new KeyValue<>(new DBRecord(output.build(), columnTypes, outputAccessor), null));
   }
 
   @Override
@@ -159,6 +166,7 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
   @VisibleForTesting
   void setColumns(List<String> columns) {
     this.columns = ImmutableList.copyOf(columns);
+    this.lastInputSchema = null;
   }
 
   private void setResultSetMetadata() throws Exception {
@@ -16,17 +16,16 @@
 
 package io.cdap.plugin.format.avro;
 
-import com.google.common.collect.Maps;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.format.UnexpectedFormatException;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.common.RecordConverter;
+import io.cdap.plugin.common.SchemaCache;
 import org.apache.avro.generic.GenericRecord;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
-import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -34,7 +33,9 @@ import javax.annotation.Nullable;
  */
 public class AvroToStructuredTransformer extends RecordConverter<GenericRecord, StructuredRecord> {
 
-  private final Map<Integer, Schema> schemaCache = Maps.newHashMap();
+  // shared by all readers, since every split of a file carries the same schema
+  private static final SchemaCache<org.apache.avro.Schema, Schema> SCHEMA_CACHE =
+    new SchemaCache<>(schema -> Schema.parseJson(schema.toString()));
 
   public StructuredRecord transform(GenericRecord genericRecord) throws IOException {
     org.apache.avro.Schema genericRecordSchema = genericRecord.getSchema();
@@ -85,15 +86,6 @@ public class AvroToStructuredTransformer extends RecordConverter<GenericRecord,
   }
 
   public Schema convertSchema(org.apache.avro.Schema schema) throws IOException {
-    int hashCode = schema.hashCode();
-    Schema structuredSchema;
-
-    if (schemaCache.containsKey(hashCode)) {
-      structuredSchema = schemaCache.get(hashCode);
-    } else {
-      structuredSchema = Schema.parseJson(schema.toString());
-      schemaCache.put(hashCode, structuredSchema);
-    }
-    return structuredSchema;
+    return SCHEMA_CACHE.get(schema);
   }
 }
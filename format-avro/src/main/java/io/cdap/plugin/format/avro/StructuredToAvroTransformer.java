@@ -1,4 +1,3 @@
-
 /*
  * Copyright © 2018-2019 Cask Data, Inc.
  *
@@ -17,28 +16,47 @@
 
 package io.cdap.plugin.format.avro;
 
-import com.google.common.collect.Maps;
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
 import io.cdap.plugin.common.RecordConverter;
+import io.cdap.plugin.common.SchemaCache;
 import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.generic.GenericRecordBuilder;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
  * Creates GenericRecords from StructuredRecords
+ *
+ * The conversion of the records of each output and input schema is compiled once into a tree of converters, which
+ * put the converted values directly into the positions of the Avro record, instead of looking fields up by name and
+ * resolving their types for every value.
  */
 public class StructuredToAvroTransformer extends RecordConverter<StructuredRecord, GenericRecord> {
 
-  private final Map<Integer, Schema> schemaCache;
+  // shared by all writers, keyed by the CDAP schema rather than its hash code, which may collide
+  private static final SchemaCache<io.cdap.cdap.api.data.schema.Schema, Schema> SCHEMA_CACHE =
+    new SchemaCache<>(schema -> new Schema.Parser().parse(schema.toString()));
+
   private final io.cdap.cdap.api.data.schema.Schema outputCDAPSchema;
+  // compiled record converters, by the Avro schema they create records of and the schema of the records they read
+  private final Map<List<Object>, RecordPlan> plans = new HashMap<>();
+  // the plan for the last output and input schema, since consecutive records usually share them
+  private io.cdap.cdap.api.data.schema.Schema lastOutputSchema;
+  private io.cdap.cdap.api.data.schema.Schema lastInputSchema;
+  private RecordPlan lastPlan;
 
   public StructuredToAvroTransformer(@Nullable io.cdap.cdap.api.data.schema.Schema outputSchema) {
-    this.schemaCache = Maps.newHashMap();
     this.outputCDAPSchema = outputSchema;
   }
 
@@ -51,19 +69,12 @@ public class StructuredToAvroTransformer extends RecordConverter<StructuredRecor
   public GenericRecord transform(StructuredRecord structuredRecord,
                                  io.cdap.cdap.api.data.schema.Schema schema) throws IOException {
     io.cdap.cdap.api.data.schema.Schema structuredRecordSchema = structuredRecord.getSchema();
-
-    Schema avroSchema = getAvroSchema(schema);
-
-    GenericRecordBuilder recordBuilder = new GenericRecordBuilder(avroSchema);
-    for (Schema.Field field : avroSchema.getFields()) {
-      String fieldName = field.name();
-      io.cdap.cdap.api.data.schema.Schema.Field schemaField = structuredRecordSchema.getField(fieldName);
-      if (schemaField == null) {
-        throw new IllegalArgumentException("Input record does not contain the " + fieldName + " field.");
-      }
-      recordBuilder.set(fieldName, convertField(structuredRecord.get(fieldName), schemaField));
+    if (schema != lastOutputSchema || structuredRecordSchema != lastInputSchema) {
+      lastPlan = getPlan(getAvroSchema(schema), structuredRecordSchema);
+      lastOutputSchema = schema;
+      lastInputSchema = structuredRecordSchema;
     }
-    return recordBuilder.build();
+    return lastPlan.convert(structuredRecord);
   }
 
   @Override
@@ -74,14 +85,250 @@ public class StructuredToAvroTransformer extends RecordConverter<StructuredRecor
     return ByteBuffer.wrap((byte[]) field);
   }
 
-  private Schema getAvroSchema(io.cdap.cdap.api.data.schema.Schema cdapSchema) {
-    int hashCode = cdapSchema.hashCode();
-    if (schemaCache.containsKey(hashCode)) {
-      return schemaCache.get(hashCode);
-    } else {
-      Schema avroSchema = new Schema.Parser().parse(cdapSchema.toString());
-      schemaCache.put(hashCode, avroSchema);
+  private Schema getAvroSchema(io.cdap.cdap.api.data.schema.Schema cdapSchema) throws IOException {
+    return SCHEMA_CACHE.get(cdapSchema);
+  }
+
+  private RecordPlan getPlan(Schema avroSchema, io.cdap.cdap.api.data.schema.Schema inputSchema) {
+    List<Object> key = Arrays.asList(avroSchema, inputSchema);
+    RecordPlan plan = plans.get(key);
+    if (plan == null) {
+      plan = new RecordPlan(avroSchema, inputSchema);
+      plans.put(key, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Converts a value of a field to its Avro form.
+   */
+  private interface ValueConverter {
+    @Nullable
+    Object convert(@Nullable Object value);
+  }
+
+  /**
+   * Creates Avro records of one schema from StructuredRecords of one schema, matching the fields by name.
+   */
+  private final class RecordPlan {
+    private final Schema avroSchema;
+    // the name of the input field and the converter for it, at the position of each field of the Avro schema
+    private final String[] names;
+    private final ValueConverter[] converters;
+    private final boolean[] nullable;
+
+    private RecordPlan(Schema avroSchema, io.cdap.cdap.api.data.schema.Schema inputSchema) {
+      List<Schema.Field> fields = avroSchema.getFields();
+      this.avroSchema = avroSchema;
+      this.names = new String[fields.size()];
+      this.converters = new ValueConverter[fields.size()];
+      this.nullable = new boolean[fields.size()];
+      for (Schema.Field field : fields) {
+        String fieldName = field.name();
+        io.cdap.cdap.api.data.schema.Schema.Field schemaField = inputSchema.getField(fieldName);
+        if (schemaField == null) {
+          throw new IllegalArgumentException("Input record does not contain the " + fieldName + " field.");
+        }
+        names[field.pos()] = fieldName;
+        converters[field.pos()] = compile(schemaField.getSchema(), field.schema());
+        nullable[field.pos()] = acceptsNull(field.schema());
+      }
+    }
+
+    private GenericRecord convert(StructuredRecord record) {
+      GenericData.Record result = new GenericData.Record(avroSchema);
+      for (int i = 0; i < names.length; i++) {
+        Object value;
+        try {
+          value = converters[i].convert(record.get(names[i]));
+        } catch (RuntimeException e) {
+          throw new IllegalArgumentException(
+            String.format("Error converting field '%s': %s", names[i], e.getMessage()), e);
+        }
+        if (value == null && !nullable[i]) {
+          throw new IllegalArgumentException(String.format("Field '%s' does not accept null values.", names[i]));
+        }
+        result.put(i, value);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Compiles the conversion of values of the input schema to the Avro schema. Values are converted the way
+   * {@link RecordConverter#convertField(Object, io.cdap.cdap.api.data.schema.Schema)} converts them, with the Avro
+   * schema supplying the schemas of nested records and enums.
+   */
+  private ValueConverter compile(io.cdap.cdap.api.data.schema.Schema schema, Schema avroSchema) {
+    switch (schema.getType()) {
+      case UNION:
+        return compileUnion(schema.getUnionSchemas(), avroSchema);
+      case NULL:
+        return value -> null;
+      default:
+        ValueConverter converter = compileNonNull(schema, avroSchema);
+        return value -> {
+          if (value == null) {
+            throw new NullPointerException("Found a null value for a non-nullable field.");
+          }
+          return converter.convert(value);
+        };
+    }
+  }
+
+  /**
+   * Converts values with the first member of the union that can convert them. Nulls, and values that no member can
+   * convert, are kept as nulls if the union is nullable.
+   */
+  private ValueConverter compileUnion(List<io.cdap.cdap.api.data.schema.Schema> schemas, Schema avroSchema) {
+    boolean isNullable = false;
+    List<ValueConverter> members = new ArrayList<>(schemas.size());
+    for (io.cdap.cdap.api.data.schema.Schema member : schemas) {
+      if (member.getType() == io.cdap.cdap.api.data.schema.Schema.Type.NULL) {
+        isNullable = true;
+      } else {
+        members.add(compileNonNull(member, avroSchema));
+      }
+    }
+    boolean nullable = isNullable;
+    return value -> {
+      if (value == null && nullable) {
+        return null;
+      }
+      for (ValueConverter member : members) {
+        try {
+          return member.convert(value);
+        } catch (Exception e) {
+          // if we couldn't convert, move to the next possibility
+        }
+      }
+      if (nullable) {
+        return null;
+      }
+      throw new UnexpectedFormatException("unable to determine union type.");
+    };
+  }
+
+  private ValueConverter compileNonNull(io.cdap.cdap.api.data.schema.Schema schema, Schema avroSchema) {
+    switch (schema.getType()) {
+      case RECORD:
+        return new NestedRecordConverter(schema, getMember(avroSchema, Schema.Type.RECORD, schema.getRecordName()));
+      case ARRAY:
+        ValueConverter element = compile(schema.getComponentSchema(),
+                                         getMember(avroSchema, Schema.Type.ARRAY, null).getElementType());
+        return values -> {
+          if (values instanceof Collection) {
+            Collection<?> collection = (Collection<?>) values;
+            List<Object> output = new ArrayList<>(collection.size());
+            for (Object value : collection) {
+              output.add(element.convert(value));
+            }
+            return output;
+          }
+          int length = Array.getLength(values);
+          List<Object> output = new ArrayList<>(length);
+          for (int i = 0; i < length; i++) {
+            output.add(element.convert(Array.get(values, i)));
+          }
+          return output;
+        };
+      case MAP:
+        Map.Entry<io.cdap.cdap.api.data.schema.Schema, io.cdap.cdap.api.data.schema.Schema> mapSchema =
+          schema.getMapSchema();
+        // Avro map keys are always strings
+        ValueConverter key = compile(mapSchema.getKey(), Schema.create(Schema.Type.STRING));
+        ValueConverter value = compile(mapSchema.getValue(),
+                                       getMember(avroSchema, Schema.Type.MAP, null).getValueType());
+        return map -> {
+          Map<?, ?> entries = (Map<?, ?>) map;
+          Map<Object, Object> converted = new HashMap<>((int) (entries.size() / 0.75f) + 1);
+          for (Map.Entry<?, ?> entry : entries.entrySet()) {
+            converted.put(key.convert(entry.getKey()), value.convert(entry.getValue()));
+          }
+          return converted;
+        };
+      case STRING:
+        return Object::toString;
+      case ENUM:
+        Schema enumSchema = getMember(avroSchema, Schema.Type.ENUM, null);
+        if (enumSchema.getType() != Schema.Type.ENUM) {
+          return Object::toString;
+        }
+        return symbol -> new GenericData.EnumSymbol(enumSchema, symbol.toString());
+      case BYTES:
+        return this::convertBytes;
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BOOLEAN:
+        return field -> field;
+      default:
+        throw new UnexpectedFormatException("field type " + schema.getType() + " is not supported.");
+    }
+  }
+
+  /**
+   * Returns the member of an Avro union with the given type, and the given name if there are several, or the schema
+   * itself if it is not a union.
+   */
+  private static Schema getMember(Schema avroSchema, Schema.Type type, @Nullable String name) {
+    if (avroSchema.getType() != Schema.Type.UNION) {
       return avroSchema;
     }
+    Schema match = null;
+    for (Schema member : avroSchema.getTypes()) {
+      if (member.getType() == type) {
+        if (name == null || name.equals(member.getName())) {
+          return member;
+        }
+        match = match == null ? member : match;
+      }
+    }
+    if (match == null) {
+      throw new UnexpectedFormatException(String.format("Type %s is not in the union %s.", type, avroSchema));
+    }
+    return match;
+  }
+
+  private static boolean acceptsNull(Schema avroSchema) {
+    if (avroSchema.getType() == Schema.Type.NULL) {
+      return true;
+    }
+    if (avroSchema.getType() == Schema.Type.UNION) {
+      for (Schema member : avroSchema.getTypes()) {
+        if (member.getType() == Schema.Type.NULL) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Converts nested records. The plan is compiled when the first record arrives, so that recursive schemas do not
+   * compile forever, and records whose schema differs from the declared one get a plan of their own.
+   */
+  private final class NestedRecordConverter implements ValueConverter {
+    private final io.cdap.cdap.api.data.schema.Schema schema;
+    private final Schema avroSchema;
+    private RecordPlan plan;
+
+    private NestedRecordConverter(io.cdap.cdap.api.data.schema.Schema schema, Schema avroSchema) {
+      this.schema = schema;
+      this.avroSchema = avroSchema;
+    }
+
+    @Override
+    public Object convert(Object value) {
+      StructuredRecord record = (StructuredRecord) value;
+      if (record.getSchema() != schema) {
+        return getPlan(avroSchema, record.getSchema()).convert(record);
+      }
+      if (plan == null) {
+        plan = getPlan(avroSchema, schema);
+      }
+      return plan.convert(record);
+    }
   }
 }
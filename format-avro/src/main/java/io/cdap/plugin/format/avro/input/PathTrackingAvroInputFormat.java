@@ -88,10 +88,10 @@ public class PathTrackingAvroInputFormat extends PathTrackingInputFormat {
       // set the schema based on the schema of the record
       if (schema == null) {
         if (pathField == null) {
-          schema = Schema.parseJson(genericRecord.getSchema().toString());
+          schema = recordTransformer.convertSchema(genericRecord.getSchema());
         } else {
           // if there is a path field, add the path as a field in the schema
-          Schema schemaWithoutPath = Schema.parseJson(genericRecord.getSchema().toString());
+          Schema schemaWithoutPath = recordTransformer.convertSchema(genericRecord.getSchema());
           List<Schema.Field> fields = new ArrayList<>(schemaWithoutPath.getFields().size() + 1);
           fields.addAll(schemaWithoutPath.getFields());
           fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
@@ -19,6 +19,7 @@ package io.cdap.plugin.format.avro.output;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.plugin.common.SchemaCache;
 import io.cdap.plugin.format.avro.StructuredToAvroTransformer;
 import io.cdap.plugin.format.output.DelegatingOutputFormat;
 import org.apache.avro.generic.GenericRecord;
@@ -47,7 +48,7 @@ public class StructuredAvroOutputFormat extends DelegatingOutputFormat<AvroKey<G
     TaskAttemptContext context) throws IOException {
 
     Configuration hConf = context.getConfiguration();
-    Schema schema = Schema.parseJson(hConf.get(AvroOutputFormatProvider.SCHEMA_KEY));
+    Schema schema = SchemaCache.parseJson(hConf.get(AvroOutputFormatProvider.SCHEMA_KEY));
     StructuredToAvroTransformer transformer = new StructuredToAvroTransformer(schema);
     return record -> {
       try {
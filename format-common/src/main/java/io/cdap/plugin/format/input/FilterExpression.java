@@ -0,0 +1,375 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A condition on the top level fields of records, which columnar formats translate into the predicates their readers
+ * use to skip data by column statistics.
+ *
+ * An expression compares fields with literals, and combines comparisons with 'and', 'or', 'not' and parentheses, for
+ * example {@code country = 'US' and (age >= 18 or verified = true)}. The comparison operators are =, !=, <, <=, > and
+ * >=, and 'is null' and 'is not null' test for missing values. Numbers are compared to int, long, float and double
+ * fields, including logical types stored as ints or longs, quoted strings to string fields, and true or false to
+ * boolean fields, which only support = and !=.
+ */
+public abstract class FilterExpression {
+
+  /**
+   * Comparison operators.
+   */
+  public enum Operator {
+    EQ, NOT_EQ, LT, LT_EQ, GT, GT_EQ
+  }
+
+  /**
+   * Visits the nodes of an expression. Implementations decide whether and in which order to visit the operands of
+   * 'and', 'or' and 'not'.
+   *
+   * @param <T> type of the result
+   */
+  public interface Visitor<T> {
+
+    T visitAnd(FilterExpression left, FilterExpression right);
+
+    T visitOr(FilterExpression left, FilterExpression right);
+
+    T visitNot(FilterExpression operand);
+
+    T visitComparison(Comparison comparison);
+  }
+
+  private FilterExpression() {
+    // only the nested classes extend this
+  }
+
+  public abstract <T> T accept(Visitor<T> visitor);
+
+  /**
+   * Parses a filter expression.
+   *
+   * @throws IllegalArgumentException if the expression is invalid
+   */
+  public static FilterExpression parse(String filter) {
+    Parser parser = new Parser(filter, tokenize(filter));
+    FilterExpression expression = parser.parseOr();
+    if (parser.pos < parser.tokens.size()) {
+      throw new IllegalArgumentException(String.format("Unexpected '%s' in filter '%s'.",
+                                                       parser.tokens.get(parser.pos), filter));
+    }
+    return expression;
+  }
+
+  /**
+   * Comparison of a field with a literal, or a null test if the literal is null.
+   */
+  public static final class Comparison extends FilterExpression {
+    private final String field;
+    private final Operator operator;
+    @Nullable
+    private final String literal;
+
+    private Comparison(String field, Operator operator, @Nullable String literal) {
+      this.field = field;
+      this.operator = operator;
+      this.literal = literal;
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public Operator getOperator() {
+      return operator;
+    }
+
+    /**
+     * Returns whether this tests the field for null, with {@link Operator#EQ} for 'is null' and
+     * {@link Operator#NOT_EQ} for 'is not null'.
+     */
+    public boolean isNullTest() {
+      return literal == null;
+    }
+
+    /**
+     * Returns the schema of the compared field without its null branch.
+     *
+     * @throws IllegalArgumentException if the field is not in the record schema, or cannot be compared
+     */
+    public Schema getFieldSchema(Schema recordSchema) {
+      Schema.Field schemaField = recordSchema.getField(field);
+      if (schemaField == null) {
+        throw new IllegalArgumentException(String.format("Filter field '%s' is not in the schema.", field));
+      }
+      Schema fieldSchema = schemaField.getSchema().isNullable() ?
+        schemaField.getSchema().getNonNullable() : schemaField.getSchema();
+      switch (fieldSchema.getType()) {
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+        case STRING:
+          return fieldSchema;
+        case BOOLEAN:
+          if (operator != Operator.EQ && operator != Operator.NOT_EQ) {
+            throw new IllegalArgumentException(
+              String.format("Boolean field '%s' can only be compared with = or !=.", field));
+          }
+          return fieldSchema;
+        default:
+          throw new IllegalArgumentException(String.format("Field '%s' of type '%s' cannot be used in a filter.",
+                                                           field, fieldSchema.getType()));
+      }
+    }
+
+    /**
+     * Returns the literal as an Integer, Long, Float, Double, String or Boolean, depending on the type of the field,
+     * or null for null tests.
+     *
+     * @throws IllegalArgumentException if the field is not in the record schema, or the literal does not match its
+     *   type
+     */
+    @Nullable
+    public Object getValue(Schema recordSchema) {
+      Schema fieldSchema = getFieldSchema(recordSchema);
+      if (literal == null) {
+        return null;
+      }
+      try {
+        switch (fieldSchema.getType()) {
+          case INT:
+            return Integer.valueOf(literal);
+          case LONG:
+            return Long.valueOf(literal);
+          case FLOAT:
+            return Float.valueOf(literal);
+          case DOUBLE:
+            return Double.valueOf(literal);
+          case STRING:
+            if (!literal.startsWith("'")) {
+              throw new IllegalArgumentException(String.format("Value '%s' for string field '%s' must be quoted.",
+                                                               literal, field));
+            }
+            return literal.substring(1);
+          default:
+            if (!literal.equalsIgnoreCase("true") && !literal.equalsIgnoreCase("false")) {
+              throw new IllegalArgumentException(
+                String.format("Value '%s' for boolean field '%s' must be true or false.", literal, field));
+            }
+            return Boolean.valueOf(literal);
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(String.format("Value '%s' for field '%s' is not a valid %s.",
+                                                         literal, field, fieldSchema.getType()), e);
+      }
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitComparison(this);
+    }
+  }
+
+  private static final class And extends FilterExpression {
+    private final FilterExpression left;
+    private final FilterExpression right;
+
+    private And(FilterExpression left, FilterExpression right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitAnd(left, right);
+    }
+  }
+
+  private static final class Or extends FilterExpression {
+    private final FilterExpression left;
+    private final FilterExpression right;
+
+    private Or(FilterExpression left, FilterExpression right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitOr(left, right);
+    }
+  }
+
+  private static final class Not extends FilterExpression {
+    private final FilterExpression operand;
+
+    private Not(FilterExpression operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitNot(operand);
+    }
+  }
+
+  private static List<String> tokenize(String filter) {
+    List<String> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < filter.length()) {
+      char c = filter.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '(' || c == ')') {
+        tokens.add(String.valueOf(c));
+        i++;
+      } else if (c == '\'') {
+        // strings keep their opening quote, so they can be told apart from identifiers
+        StringBuilder value = new StringBuilder("'");
+        i++;
+        while (true) {
+          if (i >= filter.length()) {
+            throw new IllegalArgumentException(String.format("Unterminated string in filter '%s'.", filter));
+          }
+          if (filter.charAt(i) == '\'') {
+            if (i + 1 < filter.length() && filter.charAt(i + 1) == '\'') {
+              value.append('\'');
+              i += 2;
+              continue;
+            }
+            i++;
+            break;
+          }
+          value.append(filter.charAt(i++));
+        }
+        tokens.add(value.toString());
+      } else if ("=!<>".indexOf(c) >= 0) {
+        int start = i++;
+        if (i < filter.length() && (filter.charAt(i) == '=' || c == '<' && filter.charAt(i) == '>')) {
+          i++;
+        }
+        tokens.add(filter.substring(start, i));
+      } else {
+        int start = i;
+        while (i < filter.length() && !Character.isWhitespace(filter.charAt(i))
+          && "()'=!<>".indexOf(filter.charAt(i)) < 0) {
+          i++;
+        }
+        tokens.add(filter.substring(start, i));
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Recursive descent parser over the tokens, with 'or' binding weaker than 'and', and 'and' weaker than 'not'.
+   */
+  private static final class Parser {
+    private final String filter;
+    private final List<String> tokens;
+    private int pos;
+
+    private Parser(String filter, List<String> tokens) {
+      this.filter = filter;
+      this.tokens = tokens;
+    }
+
+    private FilterExpression parseOr() {
+      FilterExpression expression = parseAnd();
+      while (accept("or")) {
+        expression = new Or(expression, parseAnd());
+      }
+      return expression;
+    }
+
+    private FilterExpression parseAnd() {
+      FilterExpression expression = parseNot();
+      while (accept("and")) {
+        expression = new And(expression, parseNot());
+      }
+      return expression;
+    }
+
+    private FilterExpression parseNot() {
+      if (accept("not")) {
+        return new Not(parseNot());
+      }
+      if (accept("(")) {
+        FilterExpression expression = parseOr();
+        expect(")");
+        return expression;
+      }
+      return parseComparison();
+    }
+
+    private FilterExpression parseComparison() {
+      String field = next("a field name");
+      if (accept("is")) {
+        boolean not = accept("not");
+        expect("null");
+        return new Comparison(field, not ? Operator.NOT_EQ : Operator.EQ, null);
+      }
+      String operator = next("a comparison operator");
+      switch (operator) {
+        case "=":
+        case "==":
+          return new Comparison(field, Operator.EQ, next("a value"));
+        case "!=":
+        case "<>":
+          return new Comparison(field, Operator.NOT_EQ, next("a value"));
+        case "<":
+          return new Comparison(field, Operator.LT, next("a value"));
+        case "<=":
+          return new Comparison(field, Operator.LT_EQ, next("a value"));
+        case ">":
+          return new Comparison(field, Operator.GT, next("a value"));
+        case ">=":
+          return new Comparison(field, Operator.GT_EQ, next("a value"));
+        default:
+          throw new IllegalArgumentException(String.format("Unknown comparison operator '%s' in filter '%s'.",
+                                                           operator, filter));
+      }
+    }
+
+    private boolean accept(String keyword) {
+      if (pos < tokens.size() && tokens.get(pos).equalsIgnoreCase(keyword)) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String keyword) {
+      if (!accept(keyword)) {
+        throw new IllegalArgumentException(String.format("Expected '%s' in filter '%s' but found '%s'.", keyword,
+                                                         filter, pos < tokens.size() ? tokens.get(pos) : "the end"));
+      }
+    }
+
+    private String next(String expected) {
+      if (pos >= tokens.size()) {
+        throw new IllegalArgumentException(String.format("Expected %s at the end of filter '%s'.", expected, filter));
+      }
+      return tokens.get(pos++);
+    }
+  }
+}
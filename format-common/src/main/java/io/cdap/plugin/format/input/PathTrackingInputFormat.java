@@ -18,6 +18,7 @@ package io.cdap.plugin.format.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.SchemaCache;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
@@ -67,7 +68,7 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
     boolean userFilenameOnly = hConf.getBoolean(FILENAME_ONLY, false);
     String path = userFilenameOnly ? fileSplit.getPath().getName() : fileSplit.getPath().toUri().toString();
     String schema = hConf.get(SCHEMA);
-    Schema parsedSchema = schema == null ? null : Schema.parseJson(schema);
+    Schema parsedSchema = schema == null ? null : SchemaCache.parseJson(schema);
 
     RecordReader<NullWritable, StructuredRecord.Builder> delegate = createRecordReader(fileSplit, context,
                                                                                        pathField, parsedSchema);
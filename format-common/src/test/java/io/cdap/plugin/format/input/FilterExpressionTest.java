@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FilterExpression}.
+ */
+public class FilterExpressionTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("age", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("country", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("verified", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("payload", Schema.of(Schema.Type.BYTES)));
+
+  /**
+   * Prints expressions with explicit parentheses and typed values, to check how they were parsed.
+   */
+  private static final class Printer implements FilterExpression.Visitor<String> {
+
+    @Override
+    public String visitAnd(FilterExpression left, FilterExpression right) {
+      return "(" + left.accept(this) + " AND " + right.accept(this) + ")";
+    }
+
+    @Override
+    public String visitOr(FilterExpression left, FilterExpression right) {
+      return "(" + left.accept(this) + " OR " + right.accept(this) + ")";
+    }
+
+    @Override
+    public String visitNot(FilterExpression operand) {
+      return "NOT " + operand.accept(this);
+    }
+
+    @Override
+    public String visitComparison(FilterExpression.Comparison comparison) {
+      Object value = comparison.getValue(SCHEMA);
+      String printed = value == null ? "null" : value.getClass().getSimpleName() + ":" + value;
+      return comparison.getField() + " " + comparison.getOperator() + " " + printed;
+    }
+  }
+
+  private static String print(String filter) {
+    return FilterExpression.parse(filter).accept(new Printer());
+  }
+
+  @Test
+  public void testPrecedence() {
+    Assert.assertEquals("((id GT Long:5 AND age LT_EQ Integer:30) OR NOT country EQ String:US)",
+                        print("id > 5 and age <= 30 or not country = 'US'"));
+    Assert.assertEquals("(id GT_EQ Long:5 AND (score LT Double:1.5 OR verified NOT_EQ Boolean:true))",
+                        print("id>=5 AND (score<1.5 OR verified<>TRUE)"));
+  }
+
+  @Test
+  public void testNullTestsAndStrings() {
+    Assert.assertEquals("(age EQ null AND country NOT_EQ null)", print("age is null and country is not null"));
+    Assert.assertEquals("country EQ String:it's = (not) a keyword", print("country == 'it''s = (not) a keyword'"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownField() {
+    print("missing = 1");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() {
+    print("payload = 'abc'");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBooleanOrdering() {
+    print("verified < true");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnquotedString() {
+    print("country = US");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumber() {
+    print("age = 1.5");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnbalancedParentheses() {
+    FilterExpression.parse("(id = 1 or id = 2");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTrailingTokens() {
+    FilterExpression.parse("id = 1 id = 2");
+  }
+}
@@ -19,6 +19,7 @@ package io.cdap.plugin.format.delimited.input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.common.batch.JobUtils;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -43,6 +44,16 @@ public class CombineDelimitedInputFormat extends CombineFileInputFormat<NullWrit
                                               CombineDelimitedInputFormat.super::getSplits);
   }
 
+  /**
+   * Files with quoted values are not split, since a split could start inside a quoted value that spans several
+   * lines, and there is no way to tell from the middle of a file.
+   */
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    return !context.getConfiguration().getBoolean(PathTrackingDelimitedInputFormat.ENABLE_QUOTED_VALUES, false)
+      && super.isSplitable(context, file);
+  }
+
   /**
    * Creates a RecordReader that delegates to some other RecordReader for each path in the input split.
    */
@@ -48,6 +48,9 @@ public class DelimitedConfig extends PathTrackingConfig {
   public static final Map<String, PluginPropertyField> DELIMITED_FIELDS;
   private static final String SKIP_HEADER_DESC = "Whether to skip the first line of each file. " +
     "Default value is false.";
+  private static final String ENABLE_QUOTED_VALUES_DESC = "Whether to treat content between double quotes as a " +
+    "value, which may contain the delimiter, line breaks and double quotes written as two double quotes. Files are " +
+    "not split when enabled. Default value is false.";
   private static final String DELIMITER = "delimiter";
   private static final String FORMAT = "format";
 
@@ -55,6 +58,8 @@ public class DelimitedConfig extends PathTrackingConfig {
     Map<String, PluginPropertyField> fields = new HashMap<>(FIELDS);
     fields.put("skipHeader", new PluginPropertyField("skipHeader", SKIP_HEADER_DESC,
                                                      "boolean", false, true));
+    fields.put("enableQuotedValues", new PluginPropertyField("enableQuotedValues", ENABLE_QUOTED_VALUES_DESC,
+                                                             "boolean", false, true));
     DELIMITED_FIELDS = Collections.unmodifiableMap(fields);
   }
 
@@ -63,10 +68,19 @@ public class DelimitedConfig extends PathTrackingConfig {
   @Description(SKIP_HEADER_DESC)
   protected Boolean skipHeader;
 
+  @Macro
+  @Nullable
+  @Description(ENABLE_QUOTED_VALUES_DESC)
+  protected Boolean enableQuotedValues;
+
   public boolean getSkipHeader() {
     return skipHeader == null ? false : skipHeader;
   }
 
+  public boolean getEnableQuotedValues() {
+    return enableQuotedValues == null ? false : enableQuotedValues;
+  }
+
   @Nullable
   @Override
   public Schema getSchema() {
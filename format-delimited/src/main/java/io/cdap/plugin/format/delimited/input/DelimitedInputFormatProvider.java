@@ -76,6 +76,8 @@ public class DelimitedInputFormatProvider extends PathTrackingInputFormatProvide
   protected void addFormatProperties(Map<String, String> properties) {
     properties.put(PathTrackingDelimitedInputFormat.DELIMITER, conf.delimiter == null ? "," : conf.delimiter);
     properties.put(PathTrackingDelimitedInputFormat.SKIP_HEADER, String.valueOf(conf.getSkipHeader()));
+    properties.put(PathTrackingDelimitedInputFormat.ENABLE_QUOTED_VALUES,
+                   String.valueOf(conf.getEnableQuotedValues()));
   }
 
   /**
@@ -0,0 +1,354 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.RecordAccessor;
+import io.cdap.plugin.common.SchemaValidator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * Parses delimited lines into records directly from the UTF-8 bytes of the line. Fields are located by matching the
+ * bytes of the delimiter, which is safe because no UTF-8 sequence contains the encoding of another character.
+ * Unquoted string, int, long and boolean fields are converted from the bytes of the field, without going through the
+ * whole line as a String; all other fields are converted from a String as
+ * {@link StructuredRecord.Builder#convertAndSet} would.
+ *
+ * If quoted values are enabled, fields may be enclosed in double quotes as described in RFC 4180. A quoted field may
+ * contain the delimiter, line breaks, and double quotes written as two double quotes. A record whose quoted field
+ * is still open at the end of a line continues on the next line, and parsing resumes inside that field rather than
+ * at the start of the record. Line breaks inside quoted fields are read as {@code \n}, since the line reader does
+ * not return the line terminator. An empty field is read as null, except that an empty quoted string field is read
+ * as the empty string.
+ *
+ * Instances are reused for every line and are not thread safe.
+ */
+final class DelimitedRecordParser {
+  private static final byte QUOTE = '"';
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+
+  private final byte[] delimiter;
+  private final boolean quotedValues;
+  private final RecordAccessor fields;
+  // whether the field can be converted from bytes, which is not the case for logical types and complex types
+  private final boolean[] fromBytes;
+  // line being parsed, which is either the buffer of the line reader or a record spanning several lines
+  private byte[] data;
+  private int length;
+  private byte[] multiLine;
+  // the value of the last quoted field, without the quotes
+  private byte[] unquoted;
+  private int unquotedLength;
+  // record being parsed, the next field to set and the position to continue from, which is inside the last field if
+  // inQuotedField is set because the data ended inside its quotes
+  private StructuredRecord.Builder builder;
+  private int field;
+  private int pos;
+  private boolean inQuotedField;
+
+  /**
+   * Supplies the lines following the current one, for records with a quoted field spanning several lines.
+   */
+  interface LineReader {
+
+    /**
+     * Returns the next line, or null if there are no more lines. The returned text may be reused by later calls.
+     */
+    @Nullable
+    Text nextLine() throws IOException;
+  }
+
+  DelimitedRecordParser(String delimiter, boolean quotedValues, Schema schema) {
+    this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+    this.quotedValues = quotedValues;
+    this.fields = RecordAccessor.of(schema);
+    this.fromBytes = new boolean[fields.size()];
+    for (int i = 0; i < fromBytes.length; i++) {
+      switch (fields.getType(i)) {
+        case STRING:
+        case INT:
+        case LONG:
+        case BOOLEAN:
+          fromBytes[i] = fields.getLogicalType(i) == null;
+          break;
+        default:
+          fromBytes[i] = false;
+      }
+    }
+    this.multiLine = new byte[0];
+    this.unquoted = new byte[64];
+  }
+
+  /**
+   * Parses a line, reading further lines if the record continues on them.
+   *
+   * @throws IOException if the line has more fields than the schema, or ends inside a quoted field
+   */
+  StructuredRecord.Builder parse(Text line, LineReader lineReader) throws IOException {
+    data = line.getBytes();
+    length = line.getLength();
+    builder = StructuredRecord.builder(fields.getSchema());
+    field = 0;
+    pos = 0;
+    inQuotedField = false;
+    while (true) {
+      if (parseRecord()) {
+        return builder;
+      }
+      // a quoted field is still open, so the record continues on the next line. The line reader may reuse the buffer
+      // of the current line for the next one, so the current line is copied first.
+      if (data != multiLine) {
+        multiLine = multiLine.length < length ? new byte[2 * length] : multiLine;
+        System.arraycopy(data, 0, multiLine, 0, length);
+        data = multiLine;
+      }
+      Text next = lineReader.nextLine();
+      if (next == null) {
+        throw new IOException("Found a quoted value that is not terminated before the end of the input.");
+      }
+      int combined = length + 1 + next.getLength();
+      if (multiLine.length < combined) {
+        multiLine = Arrays.copyOf(multiLine, Math.max(combined, 2 * multiLine.length));
+      }
+      multiLine[length] = '\n';
+      System.arraycopy(next.getBytes(), 0, multiLine, length + 1, next.getLength());
+      data = multiLine;
+      length = combined;
+    }
+  }
+
+  /**
+   * Parses the current data into the record from where the previous call stopped.
+   *
+   * @return whether the record is complete, which is not the case if the data ends inside a quoted field
+   */
+  private boolean parseRecord() throws IOException {
+    while (true) {
+      int end;
+      int next;
+      if (inQuotedField || quotedValues && pos < length && data[pos] == QUOTE) {
+        // a field left open at the end of the previous line is continued after what was already read of it
+        if (!inQuotedField) {
+          unquotedLength = 0;
+        }
+        end = unquote(inQuotedField ? pos : pos + 1);
+        if (end < 0) {
+          inQuotedField = true;
+          pos = length;
+          return false;
+        }
+        inQuotedField = false;
+        next = end == length ? -1 : end + delimiter.length;
+        if (field < fields.size()) {
+          setField(field, unquoted, 0, unquotedLength, true);
+        }
+      } else {
+        end = indexOfDelimiter(pos);
+        next = end < 0 ? -1 : end + delimiter.length;
+        end = end < 0 ? length : end;
+        if (field < fields.size()) {
+          setField(field, data, pos, end - pos, false);
+        }
+      }
+      if (field >= fields.size()) {
+        throw tooManyFields(countFields(pos) + field);
+      }
+      field++;
+      if (next < 0) {
+        return true;
+      }
+      pos = next;
+    }
+  }
+
+  /**
+   * Reads a quoted field from inside its quotes into {@link #unquoted}, after what was read of it so far. Anything
+   * between the closing quote and the next delimiter is kept as part of the value.
+   *
+   * @return the index of the delimiter after the field, the length of the data if the field is the last one, or -1 if
+   *         the data ends inside the quotes
+   */
+  private int unquote(int pos) {
+    boolean inQuotes = true;
+    while (pos < length) {
+      byte b = data[pos];
+      if (inQuotes) {
+        if (b == QUOTE) {
+          if (pos + 1 < length && data[pos + 1] == QUOTE) {
+            append(QUOTE);
+            pos += 2;
+            continue;
+          }
+          inQuotes = false;
+        } else {
+          append(b);
+        }
+        pos++;
+      } else if (matchesDelimiter(pos)) {
+        return pos;
+      } else {
+        append(b);
+        pos++;
+      }
+    }
+    return inQuotes ? -1 : length;
+  }
+
+  private void append(byte b) {
+    if (unquotedLength == unquoted.length) {
+      unquoted = Arrays.copyOf(unquoted, 2 * unquoted.length);
+    }
+    unquoted[unquotedLength++] = b;
+  }
+
+  private int indexOfDelimiter(int from) {
+    for (int i = from; i <= length - delimiter.length; i++) {
+      if (matchesDelimiter(i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matchesDelimiter(int pos) {
+    if (pos > length - delimiter.length) {
+      return false;
+    }
+    for (int i = 0; i < delimiter.length; i++) {
+      if (data[pos + i] != delimiter[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Counts the fields from the given position to the end of the data, for the error message about extra fields.
+   */
+  private int countFields(int pos) {
+    int count = 1;
+    for (int i = indexOfDelimiter(pos); i >= 0; i = indexOfDelimiter(i + delimiter.length)) {
+      count++;
+    }
+    return count;
+  }
+
+  private void setField(int field, byte[] bytes, int start, int len, boolean quoted) {
+    String name = fields.getName(field);
+    if (len == 0) {
+      // only a quoted string field can hold the empty string, there is no empty value of the other types
+      builder.set(name, quoted && fromBytes[field] && fields.getType(field) == Schema.Type.STRING ? "" : null);
+      return;
+    }
+    if (fromBytes[field]) {
+      switch (fields.getType(field)) {
+        case STRING:
+          builder.set(name, new String(bytes, start, len, StandardCharsets.UTF_8));
+          return;
+        case BOOLEAN:
+          // same as Boolean.parseBoolean, which is what convertAndSet uses
+          builder.set(name, equalsIgnoreCase(bytes, start, len, TRUE));
+          return;
+        case INT:
+          long intValue = parseLong(bytes, start, len);
+          if (intValue >= Integer.MIN_VALUE && intValue <= Integer.MAX_VALUE) {
+            builder.set(name, (int) intValue);
+            return;
+          }
+          break;
+        case LONG:
+          long longValue = parseLong(bytes, start, len);
+          if (longValue != Long.MIN_VALUE) {
+            builder.set(name, longValue);
+            return;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    // anything that could not be converted from bytes, including invalid numbers, so that errors are unchanged
+    String value = new String(bytes, start, len, StandardCharsets.UTF_8);
+    //Ensure if date time field, value is in correct format
+    SchemaValidator.validateDateTimeField(fields.getField(field).getSchema(), name, value);
+    builder.convertAndSet(name, value);
+  }
+
+  /**
+   * Parses a decimal number with an optional sign, returning {@link Long#MIN_VALUE} if the bytes are not one or
+   * the number does not fit in a long without being {@link Long#MIN_VALUE}.
+   */
+  private static long parseLong(byte[] bytes, int start, int len) {
+    int i = start;
+    int end = start + len;
+    boolean negative = false;
+    if (bytes[i] == '-' || bytes[i] == '+') {
+      negative = bytes[i] == '-';
+      i++;
+    }
+    // at most 18 digits always fit, longer numbers go through Long.parseLong
+    if (i == end || end - i > 18) {
+      return Long.MIN_VALUE;
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  private static boolean equalsIgnoreCase(byte[] bytes, int start, int len, byte[] lowerCase) {
+    if (len != lowerCase.length) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      byte b = bytes[start + i];
+      if (b != lowerCase[i] && b + ('a' - 'A') != lowerCase[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private IOException tooManyFields(int numDataFields) {
+    Schema schema = fields.getSchema();
+    int numSchemaFields = fields.size();
+    String message = String.format("Found a row with %d fields when the schema only contains %d field%s.",
+                                   numDataFields, numSchemaFields, numSchemaFields == 1 ? "" : "s");
+    // special error handling for the case when the user most likely set the schema to delimited
+    // when they meant to use 'text'.
+    Schema.Field bodyField = schema.getField("body");
+    if (bodyField != null) {
+      Schema bodySchema = bodyField.getSchema();
+      bodySchema = bodySchema.isNullable() ? bodySchema.getNonNullable() : bodySchema;
+      if (bodySchema.getType() == Schema.Type.STRING) {
+        return new IOException(message + " Did you mean to use the 'text' format?");
+      }
+    }
+    return new IOException(message + " Check that the schema contains the right number of fields.");
+  }
+}
@@ -70,13 +70,16 @@ public class CSVOutputFormatProvider extends AbstractOutputFormatProvider {
 
   @Override
   public Map<String, String> getOutputFormatConfiguration() {
-    return StructuredDelimitedOutputFormat.getConfiguration(",", conf.shouldWriteHeader());
+    return StructuredDelimitedOutputFormat.getConfiguration(",", conf.shouldWriteHeader(), conf.shouldQuoteValues());
   }
 
   private static PluginClass getPluginClass() {
     Map<String, PluginPropertyField> properties = new HashMap<>();
     properties.put("writeHeader", new PluginPropertyField("writeHeader", DelimitedOutputFormatProvider.Conf.HEADER_DESC,
                                                           "boolean", false, true));
+    properties.put("enableQuotedValues",
+                   new PluginPropertyField("enableQuotedValues", DelimitedOutputFormatProvider.Conf.QUOTED_VALUES_DESC,
+                                           "boolean", false, true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC, CSVOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
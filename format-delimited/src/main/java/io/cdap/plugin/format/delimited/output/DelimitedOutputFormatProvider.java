@@ -77,7 +77,8 @@ public class DelimitedOutputFormatProvider extends AbstractOutputFormatProvider
     if (conf.containsMacro("delimiter")) {
       return Collections.emptyMap();
     }
-    return StructuredDelimitedOutputFormat.getConfiguration(conf.delimiter, conf.shouldWriteHeader());
+    return StructuredDelimitedOutputFormat.getConfiguration(conf.delimiter, conf.shouldWriteHeader(),
+                                                            conf.shouldQuoteValues());
   }
 
   /**
@@ -101,6 +102,8 @@ public class DelimitedOutputFormatProvider extends AbstractOutputFormatProvider
     Map<String, PluginPropertyField> properties = new HashMap<>();
     properties.put("delimiter", new PluginPropertyField("delimiter", Conf.DELIMITER_DESC, "string", false, true));
     properties.put("writeHeader", new PluginPropertyField("writeHeader", Conf.HEADER_DESC, "boolean", false, true));
+    properties.put("enableQuotedValues", new PluginPropertyField("enableQuotedValues", Conf.QUOTED_VALUES_DESC,
+                                                                 "boolean", false, true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC,
                            DelimitedOutputFormatProvider.class.getName(), "conf", properties);
   }
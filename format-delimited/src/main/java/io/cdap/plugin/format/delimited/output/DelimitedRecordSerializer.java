@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.plugin.common.RecordAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Serializes records as delimited lines into a reusable UTF-8 byte buffer, without building a String for the line.
+ * String, int, long and boolean values are encoded straight into the buffer. Other values are written the same way
+ * {@link StructuredRecordStringConverter#toDelimitedString} writes them, so the output does not change.
+ *
+ * If quoted values are enabled, values containing the delimiter, double quotes or line breaks are enclosed in double
+ * quotes and their double quotes are doubled, as described in RFC 4180. Empty values are then written as {@code ""},
+ * so that they can be told apart from null values, which are written as nothing.
+ *
+ * Instances are reused for every record and are not thread safe.
+ */
+final class DelimitedRecordSerializer {
+  private static final byte QUOTE = '"';
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] FALSE = "false".getBytes(StandardCharsets.UTF_8);
+
+  private final String delimiterString;
+  private final byte[] delimiter;
+  private final boolean quoteValues;
+  private byte[] buffer;
+  private int length;
+  // resolved again whenever the schema of the records changes
+  private Schema schema;
+  private RecordAccessor fields;
+  private Schema[] fieldSchemas;
+
+  DelimitedRecordSerializer(String delimiter, boolean quoteValues) {
+    this.delimiterString = delimiter;
+    this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+    this.quoteValues = quoteValues;
+    this.buffer = new byte[1024];
+  }
+
+  /**
+   * Serializes the field names of the schema as a header line, replacing the current content of the buffer.
+   */
+  void serializeHeader(Schema schema) {
+    length = 0;
+    boolean first = true;
+    for (Schema.Field field : schema.getFields()) {
+      if (!first) {
+        write(delimiter);
+      }
+      first = false;
+      int start = length;
+      writeString(field.getName());
+      quoteIfNeeded(start);
+    }
+  }
+
+  /**
+   * Serializes the record, replacing the current content of the buffer.
+   */
+  void serialize(StructuredRecord record) {
+    if (record.getSchema() != schema) {
+      schema = record.getSchema();
+      fields = RecordAccessor.of(schema);
+      fieldSchemas = new Schema[fields.size()];
+    }
+    length = 0;
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        write(delimiter);
+      }
+      Object value = fields.get(record, i);
+      // null values are written as nothing
+      if (value == null) {
+        continue;
+      }
+      int start = length;
+      writeValue(i, value);
+      quoteIfNeeded(start);
+    }
+  }
+
+  /**
+   * Returns the buffer holding the last serialized line, which is only valid up to {@link #getLength()}.
+   */
+  byte[] getBytes() {
+    return buffer;
+  }
+
+  int getLength() {
+    return length;
+  }
+
+  private void writeValue(int field, Object value) {
+    if (fields.getLogicalType(field) == null) {
+      switch (fields.getType(field)) {
+        case STRING:
+          writeString(value.toString());
+          return;
+        case INT:
+        case LONG:
+          writeLong(((Number) value).longValue());
+          return;
+        case BOOLEAN:
+          write((Boolean) value ? TRUE : FALSE);
+          return;
+        case FLOAT:
+        case DOUBLE:
+          writeString(value.toString());
+          return;
+        default:
+          break;
+      }
+    }
+    // bytes, enums and logical types are rare enough to go through the converter, which keeps their format
+    if (fieldSchemas[field] == null) {
+      fieldSchemas[field] = Schema.recordOf("field", fields.getField(field));
+    }
+    StructuredRecord single = StructuredRecord.builder(fieldSchemas[field]).set(fields.getName(field), value).build();
+    writeString(StructuredRecordStringConverter.toDelimitedString(single, delimiterString));
+  }
+
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeString(Long.toString(value));
+      return;
+    }
+    ensureCapacity(length + 20);
+    if (value < 0) {
+      buffer[length++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    int pos = length + digits;
+    do {
+      buffer[--pos] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+    length += digits;
+  }
+
+  /**
+   * Encodes the string as UTF-8 into the buffer. Unpaired surrogates are written as '?', like String.getBytes does.
+   */
+  private void writeString(String value) {
+    int chars = value.length();
+    // a char takes at most three bytes, a surrogate pair four
+    ensureCapacity(length + 3 * chars);
+    for (int i = 0; i < chars; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer[length++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[length++] = (byte) (0xc0 | (c >> 6));
+        buffer[length++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          buffer[length++] = (byte) (0xf0 | (codePoint >> 18));
+          buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else {
+          buffer[length++] = '?';
+        }
+      } else {
+        buffer[length++] = (byte) (0xe0 | (c >> 12));
+        buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buffer[length++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+  }
+
+  private void write(byte[] bytes) {
+    ensureCapacity(length + bytes.length);
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  /**
+   * Encloses the value written since the given position in quotes if it needs them, doubling its quotes in place.
+   */
+  private void quoteIfNeeded(int start) {
+    if (!quoteValues) {
+      return;
+    }
+    if (length == start) {
+      ensureCapacity(length + 2);
+      buffer[length++] = QUOTE;
+      buffer[length++] = QUOTE;
+      return;
+    }
+    int quotes = 0;
+    boolean needsQuotes = false;
+    for (int i = start; i < length; i++) {
+      byte b = buffer[i];
+      if (b == QUOTE) {
+        quotes++;
+        needsQuotes = true;
+      } else if (b == '\n' || b == '\r' || (b == delimiter[0] && matchesDelimiter(i))) {
+        needsQuotes = true;
+      }
+    }
+    if (!needsQuotes) {
+      return;
+    }
+    int end = length + quotes + 2;
+    ensureCapacity(end);
+    // copy backwards, so that the value can be shifted within the buffer
+    int dst = end - 1;
+    buffer[dst--] = QUOTE;
+    for (int src = length - 1; src >= start; src--) {
+      buffer[dst--] = buffer[src];
+      if (buffer[src] == QUOTE) {
+        buffer[dst--] = QUOTE;
+      }
+    }
+    buffer[start] = QUOTE;
+    length = end;
+  }
+
+  private boolean matchesDelimiter(int pos) {
+    if (pos + delimiter.length > length) {
+      return false;
+    }
+    for (int i = 1; i < delimiter.length; i++) {
+      if (buffer[pos + i] != delimiter[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (buffer.length < capacity) {
+      buffer = Arrays.copyOf(buffer, Math.max(capacity, 2 * buffer.length));
+    }
+  }
+}
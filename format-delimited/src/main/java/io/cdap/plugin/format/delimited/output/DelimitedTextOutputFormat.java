@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.output;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Text output format that writes lines through a large buffer, so that writing many short lines does not turn into
+ * many small writes to the file system stream. Files are created and compressed the same way as
+ * {@link TextOutputFormat} does.
+ */
+class DelimitedTextOutputFormat extends TextOutputFormat<NullWritable, Text> {
+  static final String BUFFER_SIZE_KEY = "delimited.write.buffer.size";
+  static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  @Override
+  public RecordWriter<NullWritable, Text> getRecordWriter(TaskAttemptContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    int bufferSize = conf.getInt(BUFFER_SIZE_KEY, DEFAULT_BUFFER_SIZE);
+    CompressionCodec codec = null;
+    String extension = "";
+    if (getCompressOutput(job)) {
+      Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(job, GzipCodec.class);
+      codec = ReflectionUtils.newInstance(codecClass, conf);
+      extension = codec.getDefaultExtension();
+    }
+    Path file = getDefaultWorkFile(job, extension);
+    FileSystem fs = file.getFileSystem(conf);
+    OutputStream out = fs.create(file, false);
+    if (codec != null) {
+      out = codec.createOutputStream(out);
+    }
+    return new LineRecordWriter<>(new DataOutputStream(new BufferedOutputStream(out, bufferSize)));
+  }
+}
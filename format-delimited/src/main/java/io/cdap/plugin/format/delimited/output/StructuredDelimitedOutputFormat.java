@@ -17,16 +17,13 @@
 package io.cdap.plugin.format.delimited.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.format.output.DelegatingOutputFormat;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -34,17 +31,18 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 /**
- * Converts StructuredRecord into string before delegating to TextOutputFormat.
+ * Serializes StructuredRecord into delimited UTF-8 bytes before delegating to a TextOutputFormat. The bytes and the
+ * Text holding them are reused for every record.
  */
 public class StructuredDelimitedOutputFormat extends DelegatingOutputFormat<NullWritable, Text> {
   static final String DELIMITER_KEY = "delimiter";
   static final String HEADER_KEY = "write.header";
+  static final String QUOTE_VALUES_KEY = "quote.values";
 
-  static Map<String, String> getConfiguration(String delimiter, boolean writeHeader) {
+  static Map<String, String> getConfiguration(String delimiter, boolean writeHeader, boolean quoteValues) {
     // base64 encode the delimiter to deal with some common delimiters that are illegal XML characters.
     // most control characters fall into this category.
     // trying to set it in the Hadoop conf will cause parse errors
@@ -52,19 +50,24 @@ public class StructuredDelimitedOutputFormat extends DelegatingOutputFormat<Null
     Map<String, String> configs = new HashMap<>();
     configs.put(DELIMITER_KEY, encoded);
     configs.put(HEADER_KEY, String.valueOf(writeHeader));
+    configs.put(QUOTE_VALUES_KEY, String.valueOf(quoteValues));
     return Collections.unmodifiableMap(configs);
   }
 
   @Override
   protected OutputFormat<NullWritable, Text> createDelegate() {
-    return new TextOutputFormat<>();
+    return new DelimitedTextOutputFormat();
   }
 
   @Override
   protected Function<StructuredRecord, KeyValue<NullWritable, Text>> getConversion(TaskAttemptContext context) {
-    String delimiter = getDelimiter(context.getConfiguration());
-    return record -> new KeyValue<>(NullWritable.get(),
-                                    new Text(StructuredRecordStringConverter.toDelimitedString(record, delimiter)));
+    DelimitedRecordSerializer serializer = createSerializer(context.getConfiguration());
+    Text text = new Text();
+    return record -> {
+      serializer.serialize(record);
+      text.set(serializer.getBytes(), 0, serializer.getLength());
+      return new KeyValue<>(NullWritable.get(), text);
+    };
   }
 
   @Nullable
@@ -75,14 +78,18 @@ public class StructuredDelimitedOutputFormat extends DelegatingOutputFormat<Null
     if (!writeHeader) {
       return null;
     }
-    String delimiter = getDelimiter(hConf);
-    return record -> new KeyValue<>(NullWritable.get(), new Text(record.getSchema().getFields().stream()
-                                                                   .map(Schema.Field::getName)
-                                                                   .collect(Collectors.joining(delimiter))));
+    DelimitedRecordSerializer serializer = createSerializer(hConf);
+    return record -> {
+      serializer.serializeHeader(record.getSchema());
+      Text header = new Text();
+      header.set(serializer.getBytes(), 0, serializer.getLength());
+      return new KeyValue<>(NullWritable.get(), header);
+    };
   }
 
-  private String getDelimiter(Configuration hConf) {
+  private DelimitedRecordSerializer createSerializer(Configuration hConf) {
     String encodedDelimiter = hConf.get(DELIMITER_KEY);
-    return new String(Base64.getDecoder().decode(encodedDelimiter), StandardCharsets.UTF_8);
+    String delimiter = new String(Base64.getDecoder().decode(encodedDelimiter), StandardCharsets.UTF_8);
+    return new DelimitedRecordSerializer(delimiter, hConf.getBoolean(QUOTE_VALUES_KEY, false));
   }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Tests for {@link DelimitedRecordParser}.
+ */
+public class DelimitedRecordParserTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("active", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+
+  @Test
+  public void testUnquoted() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(",", false, SCHEMA);
+    StructuredRecord record = parse(parser, "-12,héllo,42,TRUE,1.5");
+    Assert.assertEquals(-12L, (long) record.get("id"));
+    Assert.assertEquals("héllo", record.get("name"));
+    Assert.assertEquals(42, (int) record.get("count"));
+    Assert.assertTrue(record.get("active"));
+    Assert.assertEquals(1.5d, record.get("price"), 0d);
+
+    // quotes are part of the value unless quoted values are enabled
+    record = parse(parser, "9223372036854775807,\"a\",,false");
+    Assert.assertEquals(Long.MAX_VALUE, (long) record.get("id"));
+    Assert.assertEquals("\"a\"", record.get("name"));
+    Assert.assertNull(record.get("count"));
+    Assert.assertFalse(record.get("active"));
+    Assert.assertNull(record.get("price"));
+  }
+
+  @Test
+  public void testMultiCharacterDelimiter() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser("::", false, SCHEMA);
+    StructuredRecord record = parse(parser, "1::a:b::3");
+    Assert.assertEquals(1L, (long) record.get("id"));
+    Assert.assertEquals("a:b", record.get("name"));
+    Assert.assertEquals(3, (int) record.get("count"));
+  }
+
+  @Test
+  public void testQuoted() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(",", true, SCHEMA);
+    StructuredRecord record = parse(parser, "\"1\",\"a, \"\"b\"\"\",\"\",true");
+    Assert.assertEquals(1L, (long) record.get("id"));
+    Assert.assertEquals("a, \"b\"", record.get("name"));
+    Assert.assertNull(record.get("count"));
+    Assert.assertTrue(record.get("active"));
+  }
+
+  @Test
+  public void testQuotedMultiLine() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(",", true, SCHEMA);
+    StructuredRecord record = parse(parser, "1,\"first", "second,", "third\",3", "2,next");
+    Assert.assertEquals(1L, (long) record.get("id"));
+    Assert.assertEquals("first\nsecond,\nthird", record.get("name"));
+    Assert.assertEquals(3, (int) record.get("count"));
+  }
+
+  @Test
+  public void testQuotedEmpty() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(",", true, SCHEMA);
+    // a quoted empty string stays a string, while empty fields of other types have no value either way
+    StructuredRecord record = parse(parser, "1,\"\",,\"\",\"\"");
+    Assert.assertEquals(1L, (long) record.get("id"));
+    Assert.assertEquals("", record.get("name"));
+    Assert.assertNull(record.get("count"));
+    Assert.assertNull(record.get("active"));
+    Assert.assertNull(record.get("price"));
+
+    record = parse(parser, "1,,2");
+    Assert.assertNull(record.get("name"));
+    Assert.assertEquals(2, (int) record.get("count"));
+  }
+
+  @Test
+  public void testQuotedManyLines() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(",", true, SCHEMA);
+    // lines ending in an escaped quote must not close the field when parsing continues on the next line
+    String[] rest = new String[1000];
+    StringBuilder expected = new StringBuilder("line0");
+    for (int i = 1; i < rest.length; i++) {
+      rest[i - 1] = "line" + i + (i % 100 == 0 ? "\"\"" : "");
+      expected.append("\nline").append(i).append(i % 100 == 0 ? "\"" : "");
+    }
+    rest[rest.length - 1] = "end\",7";
+    expected.append("\nend");
+    StructuredRecord record = parse(parser, "1,\"line0", rest);
+    Assert.assertEquals(1L, (long) record.get("id"));
+    Assert.assertEquals(expected.toString(), record.get("name"));
+    Assert.assertEquals(7, (int) record.get("count"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnterminatedQuote() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(",", true, SCHEMA);
+    parse(parser, "1,\"never closed");
+  }
+
+  @Test
+  public void testTooManyFields() {
+    DelimitedRecordParser parser = new DelimitedRecordParser(",", false, SCHEMA);
+    try {
+      parse(parser, "1,a,2,true,1.0,extra,more");
+      Assert.fail("Expected an error for a row with too many fields.");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Found a row with 7 fields when the schema only contains 5 fields."));
+    }
+  }
+
+  /**
+   * Parses the first line, reading the following lines through a single reused Text like a line record reader does.
+   */
+  private static StructuredRecord parse(DelimitedRecordParser parser, String first, String... rest) throws IOException {
+    Text text = new Text(first);
+    Iterator<String> lines = Arrays.asList(rest).iterator();
+    return parser.parse(text, () -> {
+      if (!lines.hasNext()) {
+        return null;
+      }
+      text.set(lines.next());
+      return text;
+    }).build();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Tests for {@link DelimitedRecordSerializer}.
+ */
+public class DelimitedRecordSerializerTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("active", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("day", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))));
+
+  @Test
+  public void testSameAsStringConverter() {
+    DelimitedRecordSerializer serializer = new DelimitedRecordSerializer("::", false);
+    StructuredRecord[] records = {
+      StructuredRecord.builder(SCHEMA).set("id", Long.MIN_VALUE).set("name", "héllo 😀")
+        .set("count", -42).set("active", true).set("price", 1.5d).setDate("day", LocalDate.of(2021, 3, 4)).build(),
+      StructuredRecord.builder(SCHEMA).set("id", 0L).set("name", "a::b").set("active", false).build(),
+      StructuredRecord.builder(SCHEMA).set("id", 1234567890123L).set("count", Integer.MAX_VALUE).build()
+    };
+    for (StructuredRecord record : records) {
+      serializer.serialize(record);
+      Assert.assertEquals(StructuredRecordStringConverter.toDelimitedString(record, "::"), toString(serializer));
+    }
+  }
+
+  @Test
+  public void testQuotedValues() {
+    DelimitedRecordSerializer serializer = new DelimitedRecordSerializer(",", true);
+    serializer.serialize(StructuredRecord.builder(SCHEMA).set("id", 1L).set("name", "say \"hi\", bye").build());
+    Assert.assertEquals("1,\"say \"\"hi\"\", bye\",,,,", toString(serializer));
+
+    serializer.serialize(StructuredRecord.builder(SCHEMA).set("id", 2L).set("name", "two\nlines").build());
+    Assert.assertEquals("2,\"two\nlines\",,,,", toString(serializer));
+
+    serializer.serialize(StructuredRecord.builder(SCHEMA).set("id", 3L).set("name", "plain").build());
+    Assert.assertEquals("3,plain,,,,", toString(serializer));
+
+    // an empty string is quoted, so that it is read back as an empty string rather than as null
+    serializer.serialize(StructuredRecord.builder(SCHEMA).set("id", 4L).set("name", "").build());
+    Assert.assertEquals("4,\"\",,,,", toString(serializer));
+
+    // without quoting, empty strings and nulls are both written as nothing
+    serializer = new DelimitedRecordSerializer(",", false);
+    serializer.serialize(StructuredRecord.builder(SCHEMA).set("id", 4L).set("name", "").build());
+    Assert.assertEquals("4,,,,,", toString(serializer));
+  }
+
+  @Test
+  public void testHeader() {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("a,b", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+    DelimitedRecordSerializer serializer = new DelimitedRecordSerializer(",", false);
+    serializer.serializeHeader(schema);
+    Assert.assertEquals("a,b,c", toString(serializer));
+
+    serializer = new DelimitedRecordSerializer(",", true);
+    serializer.serializeHeader(schema);
+    Assert.assertEquals("\"a,b\",c", toString(serializer));
+  }
+
+  private static String toString(DelimitedRecordSerializer serializer) {
+    return new String(serializer.getBytes(), 0, serializer.getLength(), StandardCharsets.UTF_8);
+  }
+}
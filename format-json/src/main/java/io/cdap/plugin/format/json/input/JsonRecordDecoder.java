@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.plugin.common.SchemaValidator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes JSON objects into records of a schema while streaming over the UTF-8 bytes of the line. Values are read
+ * with the token types the schema expects and set on the builder directly, and keys that are not in the schema are
+ * skipped without being decoded, so unused parts of wide objects cost little more than scanning their bytes.
+ *
+ * Booleans, numbers, strings and records, arrays and string keyed maps of them are decoded while streaming. Values of
+ * other schemas, such as logical types, bytes, enums and unions, are rare in JSON files and are decoded by
+ * {@link StructuredRecordStringConverter}, so that their JSON representation stays the same.
+ *
+ * A null value for a field that is not nullable is left unset, so the builder fails when it is built unless the field
+ * is set later, as the path field is.
+ *
+ * Instances are reused for every line and are not thread safe.
+ */
+final class JsonRecordDecoder {
+  private static final JsonParser PARSER = new JsonParser();
+
+  private final Schema schema;
+  private final Utf8Reader utf8Reader = new Utf8Reader();
+  // whether values of a schema can be decoded while streaming
+  private final Map<Schema, Boolean> streamable = new IdentityHashMap<>();
+  // record schemas holding only one field, for the values that go through the converter
+  private final Map<Schema.Field, Schema> singleFieldSchemas = new IdentityHashMap<>();
+
+  JsonRecordDecoder(Schema schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Decodes the JSON object on the line into a builder for the schema.
+   *
+   * @throws IOException if the line is not a JSON object that matches the schema
+   */
+  StructuredRecord.Builder decode(Text line) throws IOException {
+    utf8Reader.reset(line.getBytes(), line.getLength());
+    try (JsonReader reader = new JsonReader(utf8Reader)) {
+      return decodeRecord(reader, schema);
+    } catch (IllegalStateException | NumberFormatException e) {
+      throw new IOException("Unable to decode JSON record: " + e.getMessage(), e);
+    }
+  }
+
+  private StructuredRecord.Builder decodeRecord(JsonReader reader, Schema recordSchema) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(recordSchema);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      Schema.Field field = recordSchema.getField(reader.nextName());
+      if (field == null) {
+        reader.skipValue();
+        continue;
+      }
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        if (field.getSchema().isNullable()) {
+          builder.set(field.getName(), null);
+        }
+        continue;
+      }
+      builder.set(field.getName(), isStreamable(field.getSchema()) ?
+        decodeValue(reader, field.getSchema()) : decodeWithConverter(reader, field));
+    }
+    reader.endObject();
+    return builder;
+  }
+
+  /**
+   * Decodes a value of a schema that {@link #isStreamable(Schema) is streamable}.
+   */
+  private Object decodeValue(JsonReader reader, Schema valueSchema) throws IOException {
+    if (valueSchema.isNullable()) {
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        return null;
+      }
+      valueSchema = valueSchema.getNonNullable();
+    }
+    switch (valueSchema.getType()) {
+      case BOOLEAN:
+        return reader.nextBoolean();
+      case INT:
+        return reader.nextInt();
+      case LONG:
+        return reader.nextLong();
+      case FLOAT:
+        return (float) reader.nextDouble();
+      case DOUBLE:
+        return reader.nextDouble();
+      case STRING:
+        return reader.nextString();
+      case RECORD:
+        return decodeRecord(reader, valueSchema).build();
+      case ARRAY:
+        List<Object> list = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          list.add(decodeValue(reader, valueSchema.getComponentSchema()));
+        }
+        reader.endArray();
+        return list;
+      case MAP:
+        Map<String, Object> map = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+          map.put(reader.nextName(), decodeValue(reader, valueSchema.getMapSchema().getValue()));
+        }
+        reader.endObject();
+        return map;
+      default:
+        // not reached, isStreamable only allows the types above
+        throw new IllegalStateException("Unexpected schema type " + valueSchema.getType());
+    }
+  }
+
+  /**
+   * Decodes the value of the field through the converter, by wrapping it in an object with only that field.
+   */
+  private Object decodeWithConverter(JsonReader reader, Schema.Field field) throws IOException {
+    JsonElement element = PARSER.parse(reader);
+    JsonObject object = new JsonObject();
+    object.add(field.getName(), element);
+    Schema singleFieldSchema = singleFieldSchemas.computeIfAbsent(field, f -> Schema.recordOf("singleField", f));
+    Object value = StructuredRecordStringConverter.fromJsonString(object.toString(), singleFieldSchema)
+      .get(field.getName());
+    if (value != null) {
+      //Ensure if date time field, value is in correct format
+      SchemaValidator.validateDateTimeField(field.getSchema(), field.getName(), value);
+    }
+    return value;
+  }
+
+  private boolean isStreamable(Schema valueSchema) {
+    Boolean result = streamable.get(valueSchema);
+    if (result == null) {
+      result = checkStreamable(valueSchema);
+      streamable.put(valueSchema, result);
+    }
+    return result;
+  }
+
+  private boolean checkStreamable(Schema valueSchema) {
+    Schema nonNullable = valueSchema.isNullable() ? valueSchema.getNonNullable() : valueSchema;
+    if (nonNullable.getLogicalType() != null) {
+      return false;
+    }
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+        return true;
+      case RECORD:
+        // records decide for each of their fields when they are decoded
+        return true;
+      case ARRAY:
+        return isStreamable(nonNullable.getComponentSchema());
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = nonNullable.getMapSchema();
+        return mapSchema.getKey().getType() == Schema.Type.STRING && mapSchema.getKey().getLogicalType() == null
+          && isStreamable(mapSchema.getValue());
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Reader that decodes UTF-8 bytes as they are read, reused for every line. Malformed bytes are replaced like
+   * {@link Text#toString()} does.
+   */
+  private static final class Utf8Reader extends Reader {
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // for reads of a single char, which cannot hold both halves of a surrogate pair
+    private final CharBuffer pair = CharBuffer.allocate(2);
+    private ByteBuffer input;
+    private int pending;
+
+    void reset(byte[] bytes, int length) {
+      input = ByteBuffer.wrap(bytes, 0, length);
+      decoder.reset();
+      pending = -1;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      int read = 0;
+      if (pending >= 0) {
+        chars[offset++] = (char) pending;
+        pending = -1;
+        read++;
+        length--;
+      }
+      if (length == 0 || !input.hasRemaining()) {
+        return read == 0 ? -1 : read;
+      }
+      if (length == 1) {
+        pair.clear();
+        decoder.decode(input, pair, true);
+        pair.flip();
+        chars[offset] = pair.get();
+        pending = pair.hasRemaining() ? pair.get() : -1;
+        return read + 1;
+      }
+      CharBuffer out = CharBuffer.wrap(chars, offset, length);
+      decoder.decode(input, out, true);
+      return read + out.position() - offset;
+    }
+
+    @Override
+    public void close() {
+      // nothing to release, the bytes belong to the line
+    }
+  }
+}
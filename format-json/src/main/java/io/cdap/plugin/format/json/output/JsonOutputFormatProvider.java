@@ -17,16 +17,21 @@
 package io.cdap.plugin.format.json.output;
 
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingOutputFormat;
 import io.cdap.plugin.format.output.AbstractOutputFormatProvider;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Output format plugin for json.
@@ -38,20 +43,71 @@ public class JsonOutputFormatProvider extends AbstractOutputFormatProvider {
   public static final PluginClass PLUGIN_CLASS = getPluginClass();
   static final String NAME = "json";
   static final String DESC = "Plugin for writing files in json format.";
+  private final Conf conf;
+
+  public JsonOutputFormatProvider(Conf conf) {
+    this.conf = conf;
+  }
 
   @Override
   public String getOutputFormatClassName() {
     return StructuredJsonOutputFormat.class.getName();
   }
 
+  @Override
+  public void validate(FormatContext context) {
+    try {
+      conf.validate();
+    } catch (IllegalArgumentException e) {
+      context.getFailureCollector().addFailure(e.getMessage(), "Set the compression codec to 'gzip' or 'none'.")
+        .withConfigProperty("compressionCodec");
+    }
+  }
+
   @Override
   public Map<String, String> getOutputFormatConfiguration() {
-    return Collections.emptyMap();
+    conf.validate();
+    Map<String, String> configuration = new HashMap<>();
+    if (conf.compressionCodec != null && !"none".equalsIgnoreCase(conf.compressionCodec)) {
+      configuration.put(FileOutputFormat.COMPRESS, "true");
+      configuration.put(FileOutputFormat.COMPRESS_CODEC, GzipCodec.class.getName());
+    }
+    return configuration;
+  }
+
+  /**
+   * Configuration for the output format plugin.
+   */
+  public static class Conf extends PluginConfig {
+    private static final String CODEC_DESC =
+      "Compression codec to use when writing data. Must be 'gzip' or 'none'. Files are compressed as they are written.";
+
+    @Macro
+    @Nullable
+    @Description(CODEC_DESC)
+    private String compressionCodec;
+
+    public Conf() {
+    }
+
+    Conf(@Nullable String compressionCodec) {
+      this.compressionCodec = compressionCodec;
+    }
+
+    private void validate() {
+      if (containsMacro("compressionCodec") || compressionCodec == null || "none".equalsIgnoreCase(compressionCodec)
+        || "gzip".equalsIgnoreCase(compressionCodec)) {
+        return;
+      }
+      throw new IllegalArgumentException("Unsupported compression codec " + compressionCodec);
+    }
   }
 
   private static PluginClass getPluginClass() {
     Map<String, PluginPropertyField> properties = new HashMap<>();
+    properties.put("compressionCodec",
+                   new PluginPropertyField("compressionCodec", Conf.CODEC_DESC, "string", false, true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC, JsonOutputFormatProvider.class.getName(),
-                           null, properties);
+                           "conf", properties);
   }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.output;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes records as newline delimited JSON, streaming each field through one {@link JsonWriter} into the output
+ * stream instead of building a String per record.
+ *
+ * Booleans, ints, longs, doubles, strings, and records, arrays and string keyed maps of them are written while
+ * streaming. Values of other schemas, such as logical types, bytes, floats, enums and unions, are written the way
+ * {@link StructuredRecordStringConverter} writes them, one field at a time, so that their JSON representation stays
+ * the same.
+ */
+class JsonRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+  private static final Gson GSON = new Gson();
+  private static final JsonParser PARSER = new JsonParser();
+
+  private final Writer out;
+  private final JsonWriter jsonWriter;
+  // whether values of a schema can be written while streaming
+  private final Map<Schema, Boolean> streamable = new IdentityHashMap<>();
+  // record schemas holding only one field, for the values that go through the converter
+  private final Map<Schema.Field, Schema> singleFieldSchemas = new IdentityHashMap<>();
+
+  JsonRecordWriter(OutputStream out) {
+    this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    this.jsonWriter = new JsonWriter(this.out);
+    // lenient to allow one top level value per line
+    this.jsonWriter.setLenient(true);
+  }
+
+  @Override
+  public void write(NullWritable key, StructuredRecord record) throws IOException {
+    writeRecord(record);
+    // the json writer does not buffer, so the line break can go to the underlying writer
+    out.write('\n');
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    // closing the json writer fails if no record was written, so only flush it and close the stream underneath
+    jsonWriter.flush();
+    out.close();
+  }
+
+  private void writeRecord(StructuredRecord record) throws IOException {
+    jsonWriter.beginObject();
+    for (Schema.Field field : record.getSchema().getFields()) {
+      String name = field.getName();
+      Object value = record.get(name);
+      jsonWriter.name(name);
+      if (value == null) {
+        jsonWriter.nullValue();
+      } else if (isStreamable(field.getSchema())) {
+        writeValue(field.getSchema(), value);
+      } else {
+        writeWithConverter(field, value);
+      }
+    }
+    jsonWriter.endObject();
+  }
+
+  /**
+   * Writes a value of a schema that {@link #isStreamable(Schema) is streamable}.
+   */
+  private void writeValue(Schema valueSchema, Object value) throws IOException {
+    if (value == null) {
+      jsonWriter.nullValue();
+      return;
+    }
+    Schema nonNullable = valueSchema.isNullable() ? valueSchema.getNonNullable() : valueSchema;
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+        jsonWriter.value((Boolean) value);
+        break;
+      case INT:
+      case LONG:
+        jsonWriter.value(((Number) value).longValue());
+        break;
+      case DOUBLE:
+        jsonWriter.value(((Number) value).doubleValue());
+        break;
+      case STRING:
+        jsonWriter.value(value.toString());
+        break;
+      case RECORD:
+        writeRecord((StructuredRecord) value);
+        break;
+      case ARRAY:
+        Schema componentSchema = nonNullable.getComponentSchema();
+        jsonWriter.beginArray();
+        if (value instanceof Collection) {
+          for (Object element : (Collection<?>) value) {
+            writeValue(componentSchema, element);
+          }
+        } else {
+          for (int i = 0; i < Array.getLength(value); i++) {
+            writeValue(componentSchema, Array.get(value, i));
+          }
+        }
+        jsonWriter.endArray();
+        break;
+      case MAP:
+        Schema valuesSchema = nonNullable.getMapSchema().getValue();
+        jsonWriter.beginObject();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          jsonWriter.name(entry.getKey().toString());
+          writeValue(valuesSchema, entry.getValue());
+        }
+        jsonWriter.endObject();
+        break;
+      default:
+        // not reached, isStreamable only allows the types above
+        throw new IllegalStateException("Unexpected schema type " + nonNullable.getType());
+    }
+  }
+
+  /**
+   * Writes the value of the field as the converter does, by converting a record with only that field.
+   */
+  private void writeWithConverter(Schema.Field field, Object value) throws IOException {
+    Schema singleFieldSchema = singleFieldSchemas.computeIfAbsent(field, f -> Schema.recordOf("singleField", f));
+    StructuredRecord single = StructuredRecord.builder(singleFieldSchema).set(field.getName(), value).build();
+    String json = StructuredRecordStringConverter.toJsonString(single);
+    GSON.toJson(PARSER.parse(json).getAsJsonObject().get(field.getName()), jsonWriter);
+  }
+
+  private boolean isStreamable(Schema valueSchema) {
+    Boolean result = streamable.get(valueSchema);
+    if (result == null) {
+      result = checkStreamable(valueSchema);
+      streamable.put(valueSchema, result);
+    }
+    return result;
+  }
+
+  private boolean checkStreamable(Schema valueSchema) {
+    Schema nonNullable = valueSchema.isNullable() ? valueSchema.getNonNullable() : valueSchema;
+    if (nonNullable.getLogicalType() != null) {
+      return false;
+    }
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case DOUBLE:
+      case STRING:
+        return true;
+      case RECORD:
+        // records decide for each of their fields when they are written
+        return true;
+      case ARRAY:
+        return isStreamable(nonNullable.getComponentSchema());
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = nonNullable.getMapSchema();
+        return mapSchema.getKey().getType() == Schema.Type.STRING && mapSchema.getKey().getLogicalType() == null
+          && isStreamable(mapSchema.getValue());
+      default:
+        return false;
+    }
+  }
+}
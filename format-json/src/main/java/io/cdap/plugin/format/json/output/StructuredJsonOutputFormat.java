@@ -17,37 +17,46 @@
 package io.cdap.plugin.format.json.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
-import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.util.function.Function;
+import java.io.OutputStream;
 
 /**
- * Converts StructuredRecord into string before delegating to TextOutputFormat.
+ * Writes StructuredRecords as newline delimited JSON, streaming them into a buffered file stream. Files are created,
+ * compressed and committed the same way as with TextOutputFormat, so output compression, such as gzip, is streamed
+ * as the records are written.
  */
-public class StructuredJsonOutputFormat extends DelegatingOutputFormat<NullWritable, Text> {
+public class StructuredJsonOutputFormat extends FileOutputFormat<NullWritable, StructuredRecord> {
+  static final String BUFFER_SIZE_KEY = "json.write.buffer.size";
+  static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
 
   @Override
-  protected OutputFormat<NullWritable, Text> createDelegate() {
-    return new TextOutputFormat<>();
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    CompressionCodec codec = null;
+    String extension = "";
+    if (getCompressOutput(job)) {
+      Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(job, GzipCodec.class);
+      codec = ReflectionUtils.newInstance(codecClass, conf);
+      extension = codec.getDefaultExtension();
+    }
+    Path file = getDefaultWorkFile(job, extension);
+    FileSystem fs = file.getFileSystem(conf);
+    OutputStream out = fs.create(file, false);
+    if (codec != null) {
+      out = codec.createOutputStream(out);
+    }
+    return new JsonRecordWriter(new BufferedOutputStream(out, conf.getInt(BUFFER_SIZE_KEY, DEFAULT_BUFFER_SIZE)));
   }
-
-  @Override
-  protected Function<StructuredRecord, KeyValue<NullWritable, Text>> getConversion(TaskAttemptContext context) {
-    return record -> {
-      try {
-        return new KeyValue<>(NullWritable.get(), new Text(StructuredRecordStringConverter.toJsonString(record)));
-      } catch (IOException e) {
-        throw new RuntimeException("Unable to convert record into a json object", e);
-      }
-    };
-  }
-
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link JsonRecordDecoder}.
+ */
+public class JsonRecordDecoderTest {
+  private static final Schema INNER = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("active", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.of(Schema.Type.INT)))),
+    Schema.Field.of("inner", Schema.nullableOf(INNER)),
+    Schema.Field.of("updated", Schema.nullableOf(Schema.of(Schema.LogicalType.DATETIME))));
+
+  @Test
+  public void testDecode() throws IOException {
+    String json = "{\"id\":1,\"unused\":{\"deep\":[1,2,{\"a\":null}]},\"name\":\"héllo\",\"score\":2.5," +
+      "\"active\":true,\"tags\":[\"a\",\"b\"],\"counts\":{\"k\":3},\"inner\":{\"x\":4,\"z\":\"skip\"}," +
+      "\"updated\":\"2021-03-04T05:06:07\"}";
+    JsonRecordDecoder decoder = new JsonRecordDecoder(SCHEMA);
+    StructuredRecord record = decoder.decode(new Text(json)).build();
+
+    Assert.assertEquals(1L, (long) record.get("id"));
+    Assert.assertEquals("héllo", record.get("name"));
+    Assert.assertEquals(2.5d, record.<Double>get("score"), 0d);
+    Assert.assertTrue(record.get("active"));
+    Assert.assertEquals(Arrays.asList("a", "b"), record.get("tags"));
+    Assert.assertEquals(Collections.singletonMap("k", 3), record.get("counts"));
+    StructuredRecord inner = record.get("inner");
+    Assert.assertEquals(4, (int) inner.get("x"));
+    Assert.assertNull(inner.get("y"));
+    Assert.assertEquals(LocalDateTime.of(2021, 3, 4, 5, 6, 7), record.getDateTime("updated"));
+    Assert.assertEquals(StructuredRecordStringConverter.fromJsonString(json, SCHEMA), record);
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    JsonRecordDecoder decoder = new JsonRecordDecoder(SCHEMA);
+    Text text = new Text("{\"id\":1,\"name\":\"a much longer name than the next one\"}");
+    Assert.assertEquals("a much longer name than the next one", decoder.decode(text).build().get("name"));
+    text.set("{\"id\":2,\"name\":null}");
+    StructuredRecord record = decoder.decode(text).build();
+    Assert.assertEquals(2L, (long) record.get("id"));
+    Assert.assertNull(record.get("name"));
+  }
+
+  @Test
+  public void testMissingNonNullableField() throws IOException {
+    JsonRecordDecoder decoder = new JsonRecordDecoder(SCHEMA);
+    StructuredRecord.Builder builder = decoder.decode(new Text("{\"id\":null,\"name\":\"a\"}"));
+    try {
+      builder.build();
+      Assert.fail("Expected the record to fail without an id.");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    // a value set later, like the path field, completes the record
+    Assert.assertEquals(5L, (long) builder.set("id", 5L).build().get("id"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testWrongType() throws IOException {
+    new JsonRecordDecoder(SCHEMA).decode(new Text("{\"id\":\"not a number\"}"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAnObject() throws IOException {
+    new JsonRecordDecoder(SCHEMA).decode(new Text("[1, 2]"));
+  }
+}
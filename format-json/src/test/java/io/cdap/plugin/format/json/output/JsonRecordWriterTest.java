@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link JsonRecordWriter}.
+ */
+public class JsonRecordWriterTest {
+  private static final Schema INNER = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("active", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.of(Schema.Type.INT)))),
+    Schema.Field.of("inner", Schema.nullableOf(INNER)),
+    Schema.Field.of("updated", Schema.nullableOf(Schema.of(Schema.LogicalType.DATETIME))));
+
+  @Test
+  public void testSameAsStringConverter() throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    records.add(StructuredRecord.builder(SCHEMA)
+                  .set("id", 1L)
+                  .set("name", "quote \" and\nline break, héllo")
+                  .set("score", 2.5d)
+                  .set("active", true)
+                  .set("tags", Arrays.asList("a", "b"))
+                  .set("counts", Collections.singletonMap("k", 3))
+                  .set("inner", StructuredRecord.builder(INNER).set("x", 4).build())
+                  .setDateTime("updated", LocalDateTime.of(2021, 3, 4, 5, 6, 7))
+                  .build());
+    records.add(StructuredRecord.builder(SCHEMA).set("id", 2L).set("tags", new String[] {"c"}).build());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    JsonRecordWriter writer = new JsonRecordWriter(bytes);
+    StringBuilder expected = new StringBuilder();
+    for (StructuredRecord record : records) {
+      writer.write(NullWritable.get(), record);
+      expected.append(StructuredRecordStringConverter.toJsonString(record)).append('\n');
+    }
+    writer.close(null);
+
+    Assert.assertEquals(expected.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testNoRecords() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    JsonRecordWriter writer = new JsonRecordWriter(bytes);
+    writer.close(null);
+
+    Assert.assertEquals(0, bytes.size());
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.format.StructuredRecordStringConverter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests for {@link StructuredJsonOutputFormat} and the configuration that {@link JsonOutputFormatProvider} sets for it.
+ */
+public class StructuredJsonOutputFormatTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  @Test
+  public void testOutputFormatConfiguration() {
+    Assert.assertEquals(Collections.emptyMap(), getOutputFormatConfiguration(null));
+    Assert.assertEquals(Collections.emptyMap(), getOutputFormatConfiguration("none"));
+
+    Map<String, String> configuration = getOutputFormatConfiguration("GZIP");
+    Assert.assertEquals(2, configuration.size());
+    Assert.assertEquals("true", configuration.get(FileOutputFormat.COMPRESS));
+    Assert.assertEquals(GzipCodec.class.getName(), configuration.get(FileOutputFormat.COMPRESS_CODEC));
+
+    try {
+      getOutputFormatConfiguration("snappy");
+      Assert.fail("Expected an unsupported compression codec to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testGzipOutput() throws Exception {
+    Configuration conf = new Configuration();
+    for (Map.Entry<String, String> property : getOutputFormatConfiguration("gzip").entrySet()) {
+      conf.set(property.getKey(), property.getValue());
+    }
+    File outputDir = new File(TEMP_FOLDER.newFolder(), "output");
+    Job job = Job.getInstance(conf);
+    FileOutputFormat.setOutputPath(job, new Path(outputDir.toURI()));
+    TaskAttemptContext context = new TaskAttemptContextImpl(job.getConfiguration(), new TaskAttemptID());
+
+    StringBuilder expected = new StringBuilder();
+    RecordWriter<NullWritable, StructuredRecord> writer = new StructuredJsonOutputFormat().getRecordWriter(context);
+    for (int i = 0; i < 100; i++) {
+      StructuredRecord record = StructuredRecord.builder(SCHEMA)
+        .set("id", (long) i)
+        .set("name", i % 3 == 0 ? null : "name " + i)
+        .build();
+      writer.write(NullWritable.get(), record);
+      expected.append(StructuredRecordStringConverter.toJsonString(record)).append('\n');
+    }
+    writer.close(context);
+
+    List<File> files;
+    try (Stream<java.nio.file.Path> paths = Files.walk(outputDir.toPath())) {
+      files = paths.map(java.nio.file.Path::toFile)
+        .filter(file -> file.getName().startsWith("part-"))
+        .collect(Collectors.toList());
+    }
+    Assert.assertEquals(1, files.size());
+    Assert.assertTrue(files.get(0).getName().endsWith(".gz"));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new FileInputStream(files.get(0)))) {
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        bytes.write(buffer, 0, read);
+      }
+    }
+    Assert.assertEquals(expected.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  private static Map<String, String> getOutputFormatConfiguration(String compressionCodec) {
+    return new JsonOutputFormatProvider(new JsonOutputFormatProvider.Conf(compressionCodec))
+      .getOutputFormatConfiguration();
+  }
+}
@@ -21,6 +21,7 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
 import io.cdap.plugin.common.HiveSchemaConverter;
+import io.cdap.plugin.common.RecordAccessor;
 import io.cdap.plugin.common.RecordConverter;
 import org.apache.hadoop.io.BooleanWritable;
 import org.apache.hadoop.io.BytesWritable;
@@ -35,14 +36,20 @@ import org.apache.orc.mapred.OrcStruct;
 
 import java.nio.ByteBuffer;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
- * Creates ORCStruct records from StructuredRecords
+ * Creates ORCStruct records from StructuredRecords.
+ * The ORC sink no longer uses this class, it writes row batches through
+ * {@link io.cdap.plugin.format.orc.output.StructuredOrcOutputFormat} instead.
  */
+@Deprecated
 public class StructuredToOrcTransformer extends RecordConverter<StructuredRecord, OrcStruct> {
   private final Map<Schema, TypeDescription> schemaCache = new HashMap<>();
+  // type and field accessor for the schema of the last record, since consecutive records usually share a schema
+  private Schema lastSchema;
+  private TypeDescription orcSchema;
+  private RecordAccessor accessor;
 
   public OrcStruct transform(StructuredRecord input) {
     return transform(input, input.getSchema());
@@ -50,51 +57,46 @@ public class StructuredToOrcTransformer extends RecordConverter<StructuredRecord
 
   @Override
   public OrcStruct transform(StructuredRecord input, Schema schema) {
-    List<Schema.Field> fields = input.getSchema().getFields();
-    OrcStruct orcRecord = parseOrcSchema(input.getSchema());
-    //populate ORC struct orcRecord object
-    for (int i = 0; i < fields.size(); i++) {
-      Schema.Field field = fields.get(i);
+    Schema inputSchema = input.getSchema();
+    if (inputSchema != lastSchema) {
+      orcSchema = parseOrcSchema(inputSchema);
+      accessor = RecordAccessor.of(inputSchema);
+      lastSchema = inputSchema;
+    }
+    OrcStruct orcRecord = (OrcStruct) OrcStruct.createValue(orcSchema);
+    //populate ORC struct orcRecord object, whose fields are in the same order as the schema fields
+    for (int i = 0; i < accessor.size(); i++) {
       try {
-        WritableComparable writable = convertToWritable(field, input);
-        orcRecord.setFieldValue(fields.get(i).getName(), writable);
+        orcRecord.setFieldValue(i, convertToWritable(i, input));
       } catch (UnsupportedTypeException e) {
-        throw new IllegalArgumentException(String.format("%s is not a supported type", field.getName()), e);
+        throw new IllegalArgumentException(String.format("%s is not a supported type", accessor.getName(i)), e);
       }
     }
     return orcRecord;
   }
 
-  private OrcStruct parseOrcSchema(Schema inputSchema) {
-    OrcStruct orcRecord;
-    if (schemaCache.containsKey(inputSchema)) {
-      TypeDescription schema = schemaCache.get(inputSchema);
-      orcRecord = (OrcStruct) OrcStruct.createValue(schema);
-    } else {
+  private TypeDescription parseOrcSchema(Schema inputSchema) {
+    TypeDescription schema = schemaCache.get(inputSchema);
+    if (schema == null) {
       StringBuilder builder = new StringBuilder();
       try {
         HiveSchemaConverter.appendType(builder, inputSchema);
       } catch (UnsupportedTypeException e) {
         throw new IllegalArgumentException(String.format("Not a valid Schema %s", inputSchema), e);
       }
-      TypeDescription schema = TypeDescription.fromString(builder.toString());
-      orcRecord = (OrcStruct) OrcStruct.createValue(schema);
+      schema = TypeDescription.fromString(builder.toString());
       schemaCache.put(inputSchema, schema);
     }
-    return orcRecord;
+    return schema;
   }
 
-  private WritableComparable convertToWritable(Schema.Field field, StructuredRecord input)
+  private WritableComparable convertToWritable(int position, StructuredRecord input)
     throws UnsupportedTypeException {
-    Object fieldVal = input.get(field.getName());
-    Schema fieldSchema = field.getSchema();
-    Schema.Type fieldType = fieldSchema.getType();
-    if (fieldSchema.isNullable()) {
-      if (fieldVal == null) {
-        return null;
-      }
-      fieldType = fieldSchema.getNonNullable().getType();
+    Object fieldVal = accessor.get(input, position);
+    if (fieldVal == null && accessor.isNullable(position)) {
+      return null;
     }
+    Schema.Type fieldType = accessor.getType(position);
     switch (fieldType) {
       case NULL:
         return null;
@@ -120,7 +122,7 @@ public class StructuredToOrcTransformer extends RecordConverter<StructuredRecord
         }
       default:
         throw new UnsupportedTypeException(String.format("Type '%s' of field '%s' is currently not supported in ORC",
-                                                         fieldType.name(), field.getName()));
+                                                         fieldType.name(), accessor.getName(position)));
     }
   }
 
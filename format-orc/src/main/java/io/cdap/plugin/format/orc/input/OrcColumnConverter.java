@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.orc.TypeDescription;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the values of one column of a {@link org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch} as the
+ * values of a field of a StructuredRecord.
+ *
+ * Converters are chosen once for the schema of the field and the type of the column, so reading a value only indexes
+ * into the arrays of the column vector.
+ */
+abstract class OrcColumnConverter {
+
+  /**
+   * Returns the value of the column at the given row, or null if it is null.
+   */
+  @Nullable
+  final Object get(ColumnVector vector, int row) {
+    // repeating vectors only hold the value of their first row
+    int index = vector.isRepeating ? 0 : row;
+    if (!vector.noNulls && vector.isNull[index]) {
+      return null;
+    }
+    return convert(vector, index);
+  }
+
+  /**
+   * Converts the non-null value at the given index of the vector.
+   */
+  protected abstract Object convert(ColumnVector vector, int index);
+
+  /**
+   * Returns the converter that reads columns of the given ORC type as values of the given schema.
+   *
+   * @throws IllegalArgumentException if columns of the type cannot be read as the schema
+   */
+  static OrcColumnConverter of(String name, Schema schema, TypeDescription type) {
+    Schema nonNullable = schema.isNullable() ? schema.getNonNullable() : schema;
+    TypeDescription.Category category = type.getCategory();
+    Schema.LogicalType logicalType = nonNullable.getLogicalType();
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+        if (category == TypeDescription.Category.BOOLEAN) {
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              return ((LongColumnVector) vector).vector[index] != 0;
+            }
+          };
+        }
+        break;
+      case INT:
+        if (isIntegral(category) && category != TypeDescription.Category.LONG
+          || category == TypeDescription.Category.DATE) {
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              return (int) ((LongColumnVector) vector).vector[index];
+            }
+          };
+        }
+        break;
+      case LONG:
+        if (category == TypeDescription.Category.TIMESTAMP) {
+          boolean millis = logicalType == Schema.LogicalType.TIMESTAMP_MILLIS;
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              TimestampColumnVector timestamps = (TimestampColumnVector) vector;
+              // the time holds the milliseconds, and the nanos all of the fraction of the second
+              long time = timestamps.time[index];
+              return millis ? time : Math.floorDiv(time, 1000L) * 1000000L + timestamps.nanos[index] / 1000;
+            }
+          };
+        }
+        if (isIntegral(category) || category == TypeDescription.Category.DATE) {
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              return ((LongColumnVector) vector).vector[index];
+            }
+          };
+        }
+        break;
+      case FLOAT:
+        if (category == TypeDescription.Category.FLOAT || category == TypeDescription.Category.DOUBLE) {
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              return (float) ((DoubleColumnVector) vector).vector[index];
+            }
+          };
+        }
+        break;
+      case DOUBLE:
+        if (category == TypeDescription.Category.FLOAT || category == TypeDescription.Category.DOUBLE) {
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              return ((DoubleColumnVector) vector).vector[index];
+            }
+          };
+        }
+        break;
+      case STRING:
+      case ENUM:
+        if (category == TypeDescription.Category.STRING || category == TypeDescription.Category.CHAR
+          || category == TypeDescription.Category.VARCHAR) {
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              BytesColumnVector bytes = (BytesColumnVector) vector;
+              return new String(bytes.vector[index], bytes.start[index], bytes.length[index], StandardCharsets.UTF_8);
+            }
+          };
+        }
+        break;
+      case BYTES:
+        if (logicalType == Schema.LogicalType.DECIMAL && category == TypeDescription.Category.DECIMAL) {
+          int scale = nonNullable.getScale();
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              // decimals are stored normalized, without trailing zeros
+              BigDecimal decimal = ((DecimalColumnVector) vector).vector[index].getHiveDecimal().bigDecimalValue();
+              return ByteBuffer.wrap(decimal.setScale(scale).unscaledValue().toByteArray());
+            }
+          };
+        }
+        // the orc sink writes decimals as binary columns holding the unscaled value
+        if (category == TypeDescription.Category.BINARY) {
+          return new OrcColumnConverter() {
+            @Override
+            protected Object convert(ColumnVector vector, int index) {
+              // the vector points into buffers that are reused for the next batch
+              BytesColumnVector bytes = (BytesColumnVector) vector;
+              int start = bytes.start[index];
+              return ByteBuffer.wrap(Arrays.copyOfRange(bytes.vector[index], start, start + bytes.length[index]));
+            }
+          };
+        }
+        break;
+      case ARRAY:
+        if (category == TypeDescription.Category.LIST) {
+          return new ListConverter(of(name, nonNullable.getComponentSchema(), type.getChildren().get(0)));
+        }
+        break;
+      case MAP:
+        if (category == TypeDescription.Category.MAP) {
+          Map.Entry<Schema, Schema> mapSchema = nonNullable.getMapSchema();
+          return new MapConverter(of(name, mapSchema.getKey(), type.getChildren().get(0)),
+                                  of(name, mapSchema.getValue(), type.getChildren().get(1)));
+        }
+        break;
+      case RECORD:
+        if (category == TypeDescription.Category.STRUCT) {
+          return new StructConverter(nonNullable, type);
+        }
+        break;
+    }
+    throw new IllegalArgumentException(String.format("Field '%s' of type '%s' cannot be read from ORC type '%s'.",
+                                                     name, nonNullable.getDisplayName(), type));
+  }
+
+  private static boolean isIntegral(TypeDescription.Category category) {
+    return category == TypeDescription.Category.BYTE || category == TypeDescription.Category.SHORT
+      || category == TypeDescription.Category.INT || category == TypeDescription.Category.LONG;
+  }
+
+  /**
+   * Reads lists, which are stored as ranges of the child vector.
+   */
+  private static final class ListConverter extends OrcColumnConverter {
+    private final OrcColumnConverter element;
+
+    private ListConverter(OrcColumnConverter element) {
+      this.element = element;
+    }
+
+    @Override
+    protected Object convert(ColumnVector vector, int index) {
+      ListColumnVector list = (ListColumnVector) vector;
+      int offset = (int) list.offsets[index];
+      int length = (int) list.lengths[index];
+      List<Object> values = new ArrayList<>(length);
+      for (int i = offset; i < offset + length; i++) {
+        values.add(element.get(list.child, i));
+      }
+      return values;
+    }
+  }
+
+  /**
+   * Reads maps, which are stored as ranges of the key and value vectors.
+   */
+  private static final class MapConverter extends OrcColumnConverter {
+    private final OrcColumnConverter key;
+    private final OrcColumnConverter value;
+
+    private MapConverter(OrcColumnConverter key, OrcColumnConverter value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    protected Object convert(ColumnVector vector, int index) {
+      MapColumnVector map = (MapColumnVector) vector;
+      int offset = (int) map.offsets[index];
+      int length = (int) map.lengths[index];
+      Map<Object, Object> values = new HashMap<>((int) (length / 0.75f) + 1);
+      for (int i = offset; i < offset + length; i++) {
+        values.put(key.get(map.keys, i), value.get(map.values, i));
+      }
+      return values;
+    }
+  }
+
+  /**
+   * Reads structs into records, matching the fields of the record to the fields of the struct by name. Fields that
+   * are not in the struct are left null.
+   */
+  private static final class StructConverter extends OrcColumnConverter {
+    private final Schema schema;
+    private final String[] names;
+    private final int[] children;
+    private final OrcColumnConverter[] converters;
+
+    private StructConverter(Schema schema, TypeDescription type) {
+      this.schema = schema;
+      List<Schema.Field> fields = schema.getFields();
+      this.names = new String[fields.size()];
+      this.children = new int[fields.size()];
+      this.converters = new OrcColumnConverter[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        Schema.Field field = fields.get(i);
+        names[i] = field.getName();
+        children[i] = type.getFieldNames().indexOf(field.getName());
+        if (children[i] >= 0) {
+          converters[i] = of(field.getName(), field.getSchema(), type.getChildren().get(children[i]));
+        } else if (!field.getSchema().isNullable()) {
+          throw new IllegalArgumentException(String.format("Non-nullable field '%s' is not in the ORC type '%s'.",
+                                                           field.getName(), type));
+        }
+      }
+    }
+
+    @Override
+    protected Object convert(ColumnVector vector, int index) {
+      StructColumnVector struct = (StructColumnVector) vector;
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < names.length; i++) {
+        if (converters[i] != null) {
+          Object value = converters[i].get(struct.fields[children[i]], index);
+          if (value != null) {
+            builder.set(names[i], value);
+          }
+        }
+      }
+      return builder.build();
+    }
+  }
+}
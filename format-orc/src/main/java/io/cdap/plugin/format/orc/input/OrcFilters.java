@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Compiles {@link FilterExpression filter expressions} for ORC files.
+ *
+ * ORC uses a {@link SearchArgument} to skip the stripes and row groups whose column statistics cannot match, but
+ * still returns every row of the groups it reads, so the rows are also tested against the expression after they are
+ * read. Rows with a null value match != and 'is null', and no other comparison, like they do for parquet.
+ */
+final class OrcFilters {
+
+  private OrcFilters() {
+    // no-op
+  }
+
+  /**
+   * Compiles the expression into a search argument for records of the given schema.
+   *
+   * @throws IllegalArgumentException if the expression does not match the schema
+   */
+  static SearchArgument toSearchArgument(FilterExpression expression, Schema schema) {
+    SearchArgument.Builder builder = SearchArgumentFactory.newBuilder();
+    expression.accept(new SearchArgumentCompiler(builder, schema));
+    return builder.build();
+  }
+
+  /**
+   * Compiles the expression into a test of the field values of a row, in the order of the fields of the schema.
+   *
+   * @throws IllegalArgumentException if the expression does not match the schema
+   */
+  static Predicate<Object[]> toRowFilter(FilterExpression expression, Schema schema) {
+    return expression.accept(new RowFilterCompiler(schema));
+  }
+
+  /**
+   * Adds the nodes of an expression to a search argument builder. The builder has no greater than or not equal
+   * leaves, so they are built as the negation of less than or equal, less than, and equal.
+   *
+   * ORC evaluates a leaf on a row group with nulls as YES_NULL or NO_NULL, and negating it keeps the null, so a
+   * negated leaf would skip groups whose null rows the row filter keeps. Negations are therefore pushed down to the
+   * comparisons, and a comparison that matches nulls is built as its leaf or 'is null'.
+   */
+  private static final class SearchArgumentCompiler implements FilterExpression.Visitor<Void> {
+    private final SearchArgument.Builder builder;
+    private final Schema schema;
+    // whether the node being visited is under an odd number of 'not's
+    private boolean negated;
+
+    private SearchArgumentCompiler(SearchArgument.Builder builder, Schema schema) {
+      this.builder = builder;
+      this.schema = schema;
+    }
+
+    @Override
+    public Void visitAnd(FilterExpression left, FilterExpression right) {
+      // not (a and b) is (not a) or (not b)
+      if (negated) {
+        builder.startOr();
+      } else {
+        builder.startAnd();
+      }
+      left.accept(this);
+      right.accept(this);
+      builder.end();
+      return null;
+    }
+
+    @Override
+    public Void visitOr(FilterExpression left, FilterExpression right) {
+      // not (a or b) is (not a) and (not b)
+      if (negated) {
+        builder.startAnd();
+      } else {
+        builder.startOr();
+      }
+      left.accept(this);
+      right.accept(this);
+      builder.end();
+      return null;
+    }
+
+    @Override
+    public Void visitNot(FilterExpression operand) {
+      negated = !negated;
+      operand.accept(this);
+      negated = !negated;
+      return null;
+    }
+
+    @Override
+    public Void visitComparison(FilterExpression.Comparison comparison) {
+      String name = comparison.getField();
+      PredicateLeaf.Type type;
+      Object value = comparison.getValue(schema);
+      switch (comparison.getFieldSchema(schema).getType()) {
+        case INT:
+        case LONG:
+          // all integer columns are compared as longs
+          type = PredicateLeaf.Type.LONG;
+          value = value == null ? null : ((Number) value).longValue();
+          break;
+        case FLOAT:
+        case DOUBLE:
+          // and all floating point columns as doubles
+          type = PredicateLeaf.Type.FLOAT;
+          value = value == null ? null : ((Number) value).doubleValue();
+          break;
+        case STRING:
+          type = PredicateLeaf.Type.STRING;
+          break;
+        default:
+          type = PredicateLeaf.Type.BOOLEAN;
+          break;
+      }
+
+      FilterExpression.Operator operator = comparison.getOperator();
+      if (comparison.isNullTest()) {
+        boolean isNull = operator == FilterExpression.Operator.EQ ^ negated;
+        if (!isNull) {
+          builder.startNot();
+        }
+        builder.isNull(name, type);
+        if (!isNull) {
+          builder.end();
+        }
+        return null;
+      }
+
+      // rows with a null value only match !=, and so match the negation of any other comparison
+      boolean matchesNull = operator == FilterExpression.Operator.NOT_EQ ^ negated;
+      if (negated) {
+        operator = negate(operator);
+      }
+      if (matchesNull) {
+        builder.startOr();
+      }
+      boolean negatedLeaf = operator == FilterExpression.Operator.NOT_EQ || operator == FilterExpression.Operator.GT
+        || operator == FilterExpression.Operator.GT_EQ;
+      if (negatedLeaf) {
+        builder.startNot();
+      }
+      if (operator == FilterExpression.Operator.EQ || operator == FilterExpression.Operator.NOT_EQ) {
+        builder.equals(name, type, value);
+      } else if (operator == FilterExpression.Operator.LT || operator == FilterExpression.Operator.GT_EQ) {
+        builder.lessThan(name, type, value);
+      } else {
+        builder.lessThanEquals(name, type, value);
+      }
+      if (negatedLeaf) {
+        builder.end();
+      }
+      if (matchesNull) {
+        builder.isNull(name, type);
+        builder.end();
+      }
+      return null;
+    }
+
+    private static FilterExpression.Operator negate(FilterExpression.Operator operator) {
+      switch (operator) {
+        case EQ:
+          return FilterExpression.Operator.NOT_EQ;
+        case NOT_EQ:
+          return FilterExpression.Operator.EQ;
+        case LT:
+          return FilterExpression.Operator.GT_EQ;
+        case LT_EQ:
+          return FilterExpression.Operator.GT;
+        case GT:
+          return FilterExpression.Operator.LT_EQ;
+        default:
+          return FilterExpression.Operator.LT;
+      }
+    }
+  }
+
+  /**
+   * Builds a test of the field values of a row from the nodes of an expression.
+   */
+  private static final class RowFilterCompiler implements FilterExpression.Visitor<Predicate<Object[]>> {
+    private final Schema schema;
+
+    private RowFilterCompiler(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public Predicate<Object[]> visitAnd(FilterExpression left, FilterExpression right) {
+      return left.accept(this).and(right.accept(this));
+    }
+
+    @Override
+    public Predicate<Object[]> visitOr(FilterExpression left, FilterExpression right) {
+      return left.accept(this).or(right.accept(this));
+    }
+
+    @Override
+    public Predicate<Object[]> visitNot(FilterExpression operand) {
+      return operand.accept(this).negate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Predicate<Object[]> visitComparison(FilterExpression.Comparison comparison) {
+      Comparable<Object> value = (Comparable<Object>) comparison.getValue(schema);
+      int position = indexOf(schema.getFields(), comparison.getField());
+      switch (comparison.getOperator()) {
+        case EQ:
+          return value == null ? row -> row[position] == null : row -> value.equals(row[position]);
+        case NOT_EQ:
+          return value == null ? row -> row[position] != null : row -> !value.equals(row[position]);
+        case LT:
+          return row -> row[position] != null && value.compareTo(row[position]) > 0;
+        case LT_EQ:
+          return row -> row[position] != null && value.compareTo(row[position]) >= 0;
+        case GT:
+          return row -> row[position] != null && value.compareTo(row[position]) < 0;
+        default:
+          return row -> row[position] != null && value.compareTo(row[position]) <= 0;
+      }
+    }
+
+    private static int indexOf(List<Schema.Field> fields, String name) {
+      for (int i = 0; i < fields.size(); i++) {
+        if (fields.get(i).getName().equals(name)) {
+          return i;
+        }
+      }
+      // cannot happen, since getting the value checks that the field exists
+      throw new IllegalArgumentException(String.format("Filter field '%s' is not in the schema.", name));
+    }
+  }
+}
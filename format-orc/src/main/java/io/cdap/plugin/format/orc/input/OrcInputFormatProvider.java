@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.validation.FormatContext;
+import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
+import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.FilterExpression;
+import io.cdap.plugin.format.input.PathTrackingConfig;
+import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Provides and sets up configuration for an orc input format.
+ */
+@Plugin(type = ValidatingInputFormat.PLUGIN_TYPE)
+@Name(OrcInputFormatProvider.NAME)
+@Description(OrcInputFormatProvider.DESC)
+public class OrcInputFormatProvider extends PathTrackingInputFormatProvider<OrcInputFormatProvider.Conf> {
+  static final String NAME = "orc";
+  static final String DESC = "Plugin for reading files in orc format.";
+  static final String FILTER_DESC = "Condition that records must meet to be read, such as " +
+    "\"country = 'US' and age >= 18\". It compares top level fields of the schema with numbers, quoted strings, " +
+    "true or false using =, !=, <, <=, > and >=, tests for nulls with 'is null' and 'is not null', and combines " +
+    "conditions with 'and', 'or', 'not' and parentheses. Stripes and row groups whose column statistics cannot meet " +
+    "the condition are skipped. Requires a schema.";
+  public static final PluginClass PLUGIN_CLASS;
+
+  static {
+    Map<String, PluginPropertyField> fields = new HashMap<>(PathTrackingConfig.FIELDS);
+    fields.put("filter", new PluginPropertyField("filter", FILTER_DESC, "string", false, true));
+    PLUGIN_CLASS = new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC,
+                                   OrcInputFormatProvider.class.getName(), "conf",
+                                   Collections.unmodifiableMap(fields));
+  }
+
+  public OrcInputFormatProvider(OrcInputFormatProvider.Conf conf) {
+    super(conf);
+  }
+
+  @Override
+  public String getInputFormatClassName() {
+    return CombineOrcInputFormat.class.getName();
+  }
+
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    if (!Strings.isNullOrEmpty(conf.filter)) {
+      properties.put(PathTrackingOrcInputFormat.FILTER, conf.filter);
+    }
+  }
+
+  @Override
+  public void validate(FormatContext context) {
+    super.validate(context);
+    if (conf.containsMacro("filter") || Strings.isNullOrEmpty(conf.filter)
+      || conf.containsMacro(PathTrackingConfig.NAME_SCHEMA)) {
+      return;
+    }
+    FailureCollector collector = context.getFailureCollector();
+    // the filter is compiled against the configured schema when reading, not the one inferred from the files
+    Schema schema = conf.getSchema();
+    if (schema == null) {
+      collector.addFailure("A filter cannot be used without a schema.", "Schema must be specified.")
+        .withConfigProperty(PathTrackingConfig.NAME_SCHEMA);
+      return;
+    }
+    try {
+      FilterExpression expression = FilterExpression.parse(conf.filter);
+      OrcFilters.toSearchArgument(expression, schema);
+    } catch (IllegalArgumentException e) {
+      collector.addFailure("Invalid filter: " + e.getMessage(), null).withConfigProperty("filter");
+    }
+  }
+
+  @Nullable
+  @Override
+  public Schema getSchema(FormatContext context) {
+    if (conf.containsMacro(PathTrackingConfig.NAME_SCHEMA) || !Strings.isNullOrEmpty(conf.schema)) {
+      return super.getSchema(context);
+    }
+    try {
+      return getDefaultSchema(context);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid schema: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Extract schema from the type stored in the file footer
+   *
+   * @param context {@link FormatContext}
+   * @return {@link Schema}
+   * @throws IOException raised when error occurs during schema extraction
+   */
+  @Nullable
+  public Schema getDefaultSchema(FormatContext context) throws IOException {
+    String filePath = conf.getProperties().getProperties().getOrDefault("path", null);
+    try {
+      Job job = JobUtils.createInstance();
+      Configuration hconf = job.getConfiguration();
+      // set entries here, before FileSystem is used
+      for (Map.Entry<String, String> entry : conf.getFileSystemProperties().entrySet()) {
+        hconf.set(entry.getKey(), entry.getValue());
+      }
+      Path file = conf.getFilePathForSchemaGeneration(filePath, "orc", hconf);
+      Reader reader = OrcFile.createReader(file, OrcFile.readerOptions(hconf));
+      return OrcSchemaConverter.toSchema(reader.getSchema(), conf.getPathField());
+    } catch (IOException | IllegalArgumentException e) {
+      context.getFailureCollector().addFailure("Schema error", e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Common config for ORC format
+   */
+  public static class Conf extends PathTrackingConfig {
+
+    @Macro
+    @Nullable
+    @Description(NAME_SCHEMA)
+    public String schema;
+
+    @Macro
+    @Nullable
+    @Description(FILTER_DESC)
+    public String filter;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.orc.TypeDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Derives the schema of records read from an ORC file from the type of the file. Every ORC column can contain nulls,
+ * so all fields are nullable.
+ */
+final class OrcSchemaConverter {
+
+  private OrcSchemaConverter() {
+    // no-op
+  }
+
+  /**
+   * Returns the record schema for the struct type of a file, with a non-nullable string path field at the end if
+   * one is given.
+   *
+   * @throws IllegalArgumentException if the file contains unions, which are not supported
+   */
+  static Schema toSchema(TypeDescription type, @Nullable String pathField) {
+    if (type.getCategory() != TypeDescription.Category.STRUCT) {
+      throw new IllegalArgumentException("ORC files must contain structs, but found " + type);
+    }
+    List<Schema.Field> fields = toFields(type, "record");
+    if (pathField != null) {
+      fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
+    }
+    return Schema.recordOf("record", fields);
+  }
+
+  private static List<Schema.Field> toFields(TypeDescription type, String recordName) {
+    List<String> names = type.getFieldNames();
+    List<TypeDescription> children = type.getChildren();
+    List<Schema.Field> fields = new ArrayList<>(names.size() + 1);
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.get(i);
+      fields.add(Schema.Field.of(name, Schema.nullableOf(toSchema(children.get(i), recordName + "_" + name))));
+    }
+    return fields;
+  }
+
+  private static Schema toSchema(TypeDescription type, String name) {
+    switch (type.getCategory()) {
+      case BOOLEAN:
+        return Schema.of(Schema.Type.BOOLEAN);
+      case BYTE:
+      case SHORT:
+      case INT:
+        return Schema.of(Schema.Type.INT);
+      case LONG:
+        return Schema.of(Schema.Type.LONG);
+      case FLOAT:
+        return Schema.of(Schema.Type.FLOAT);
+      case DOUBLE:
+        return Schema.of(Schema.Type.DOUBLE);
+      case STRING:
+      case CHAR:
+      case VARCHAR:
+        return Schema.of(Schema.Type.STRING);
+      case BINARY:
+        return Schema.of(Schema.Type.BYTES);
+      case DATE:
+        return Schema.of(Schema.LogicalType.DATE);
+      case TIMESTAMP:
+        return Schema.of(Schema.LogicalType.TIMESTAMP_MICROS);
+      case DECIMAL:
+        return Schema.decimalOf(type.getPrecision(), type.getScale());
+      case LIST:
+        return Schema.arrayOf(Schema.nullableOf(toSchema(type.getChildren().get(0), name)));
+      case MAP:
+        // ORC map keys are never null
+        return Schema.mapOf(toSchema(type.getChildren().get(0), name + "_key"),
+                            Schema.nullableOf(toSchema(type.getChildren().get(1), name + "_value")));
+      case STRUCT:
+        return Schema.recordOf(name, toFields(type, name));
+      default:
+        throw new IllegalArgumentException(String.format("Field '%s' has type '%s', which is not supported.",
+                                                         name, type));
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.TypeDescription;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * ORC format that tracks which file each record was read from.
+ */
+public class PathTrackingOrcInputFormat extends PathTrackingInputFormat {
+  static final String FILTER = "orc.filter.expression";
+  static final String BATCH_SIZE = "orc.row.batch.size";
+
+  @Override
+  protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
+                                                                                    TaskAttemptContext context,
+                                                                                    @Nullable String pathField,
+                                                                                    @Nullable Schema schema) {
+    String filter = context.getConfiguration().get(FILTER);
+    FilterExpression expression = null;
+    if (filter != null && !filter.trim().isEmpty()) {
+      if (schema == null) {
+        throw new IllegalArgumentException("A schema is required to filter orc records.");
+      }
+      expression = FilterExpression.parse(filter);
+    }
+    return new OrcRecordReader(schema, pathField, expression);
+  }
+
+  /**
+   * Reads the rows of a file in batches of column vectors, and builds records from them one row at a time.
+   *
+   * Only the columns of the fields in the schema are read. If there is a filter, the stripes and row groups whose
+   * statistics cannot match it are skipped, and the rows of the others that do not match it are dropped.
+   */
+  static class OrcRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+    private final String pathField;
+    private final FilterExpression expression;
+    private Schema schema;
+    private org.apache.orc.RecordReader rows;
+    private VectorizedRowBatch batch;
+    // for each field of the schema, its name, the column it is read from and the converter that reads it
+    private String[] names;
+    private int[] columns;
+    private OrcColumnConverter[] converters;
+    // the field values of the current row
+    private Object[] values;
+    private Predicate<Object[]> rowFilter;
+    private int row;
+
+    OrcRecordReader(@Nullable Schema schema, @Nullable String pathField, @Nullable FilterExpression expression) {
+      this.schema = schema;
+      this.pathField = pathField;
+      this.expression = expression;
+    }
+
+    @Override
+    public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException {
+      FileSplit split = (FileSplit) inputSplit;
+      Configuration conf = context.getConfiguration();
+      Reader reader = OrcFile.createReader(split.getPath(), OrcFile.readerOptions(conf));
+      TypeDescription fileType = reader.getSchema();
+      if (schema == null) {
+        schema = OrcSchemaConverter.toSchema(fileType, pathField);
+      }
+
+      List<Schema.Field> fields = schema.getFields();
+      List<String> fileFields = fileType.getFieldNames();
+      names = new String[fields.size()];
+      columns = new int[fields.size()];
+      converters = new OrcColumnConverter[fields.size()];
+      values = new Object[fields.size()];
+      // column ids are assigned in pre-order, so each top level column is followed by the ones nested in it
+      boolean[] include = new boolean[fileType.getMaximumId() + 1];
+      include[0] = true;
+      String[] columnNames = new String[fileType.getMaximumId() + 1];
+      for (int i = 0; i < fields.size(); i++) {
+        Schema.Field field = fields.get(i);
+        names[i] = field.getName();
+        columns[i] = fileFields.indexOf(field.getName());
+        if (field.getName().equals(pathField)) {
+          continue;
+        }
+        if (columns[i] < 0) {
+          if (!field.getSchema().isNullable()) {
+            throw new IllegalArgumentException(String.format("Non-nullable field '%s' is not in file '%s'.",
+                                                             field.getName(), split.getPath()));
+          }
+          continue;
+        }
+        TypeDescription columnType = fileType.getChildren().get(columns[i]);
+        converters[i] = OrcColumnConverter.of(field.getName(), field.getSchema(), columnType);
+        for (int id = columnType.getId(); id <= columnType.getMaximumId(); id++) {
+          include[id] = true;
+        }
+        columnNames[columnType.getId()] = field.getName();
+      }
+
+      Reader.Options options = new Reader.Options()
+        .range(split.getStart(), split.getLength())
+        .include(include);
+      if (expression != null) {
+        options.searchArgument(OrcFilters.toSearchArgument(expression, schema), columnNames);
+        rowFilter = OrcFilters.toRowFilter(expression, schema);
+      }
+      rows = reader.rows(options);
+      batch = fileType.createRowBatch(conf.getInt(BATCH_SIZE, VectorizedRowBatch.DEFAULT_SIZE));
+      row = batch.size;
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException {
+      while (true) {
+        if (++row >= batch.size) {
+          if (!rows.nextBatch(batch)) {
+            return false;
+          }
+          row = 0;
+          if (batch.size == 0) {
+            continue;
+          }
+        }
+        for (int i = 0; i < converters.length; i++) {
+          values[i] = converters[i] == null ? null : converters[i].get(batch.cols[columns[i]], row);
+        }
+        if (rowFilter == null || rowFilter.test(values)) {
+          return true;
+        }
+      }
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+      return NullWritable.get();
+    }
+
+    @Override
+    public StructuredRecord.Builder getCurrentValue() {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < names.length; i++) {
+        if (values[i] != null) {
+          builder.set(names[i], values[i]);
+        }
+      }
+      return builder;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      return rows.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (rows != null) {
+        rows.close();
+      }
+    }
+  }
+}
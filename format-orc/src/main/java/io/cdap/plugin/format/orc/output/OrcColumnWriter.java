@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.orc.TypeDescription;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Writes the values of a field of StructuredRecords into one column of a
+ * {@link org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch}.
+ *
+ * Writers are chosen once for the ORC type of the column, so writing a value only stores it into the arrays of the
+ * column vector, without creating a writable for it.
+ */
+abstract class OrcColumnWriter {
+
+  /**
+   * Sets the value of the column at the given row, which may be null.
+   */
+  final void set(ColumnVector vector, int row, @Nullable Object value) {
+    if (value == null) {
+      vector.noNulls = false;
+      vector.isNull[row] = true;
+      return;
+    }
+    vector.isNull[row] = false;
+    write(vector, row, value);
+  }
+
+  /**
+   * Stores a non-null value at the given row of the vector.
+   */
+  protected abstract void write(ColumnVector vector, int row, Object value);
+
+  /**
+   * Returns the writer for columns of the given ORC type.
+   *
+   * @throws IllegalArgumentException if the type cannot be written from StructuredRecord values
+   */
+  static OrcColumnWriter of(TypeDescription type) {
+    switch (type.getCategory()) {
+      case BOOLEAN:
+        return new OrcColumnWriter() {
+          @Override
+          protected void write(ColumnVector vector, int row, Object value) {
+            ((LongColumnVector) vector).vector[row] = (Boolean) value ? 1 : 0;
+          }
+        };
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+      case DATE:
+        return new OrcColumnWriter() {
+          @Override
+          protected void write(ColumnVector vector, int row, Object value) {
+            ((LongColumnVector) vector).vector[row] = ((Number) value).longValue();
+          }
+        };
+      case FLOAT:
+      case DOUBLE:
+        return new OrcColumnWriter() {
+          @Override
+          protected void write(ColumnVector vector, int row, Object value) {
+            ((DoubleColumnVector) vector).vector[row] = ((Number) value).doubleValue();
+          }
+        };
+      case STRING:
+      case CHAR:
+      case VARCHAR:
+        return new OrcColumnWriter() {
+          @Override
+          protected void write(ColumnVector vector, int row, Object value) {
+            // the encoded bytes belong to the vector, so they can be referenced instead of copied
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+          }
+        };
+      case BINARY:
+        return new OrcColumnWriter() {
+          @Override
+          protected void write(ColumnVector vector, int row, Object value) {
+            // the bytes of the record are copied, since the caller may reuse them before the batch is written
+            BytesColumnVector bytes = (BytesColumnVector) vector;
+            if (value instanceof byte[]) {
+              bytes.setVal(row, (byte[]) value, 0, ((byte[]) value).length);
+              return;
+            }
+            ByteBuffer buffer = (ByteBuffer) value;
+            if (buffer.hasArray()) {
+              bytes.setVal(row, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+              byte[] copy = new byte[buffer.remaining()];
+              buffer.duplicate().get(copy);
+              bytes.setRef(row, copy, 0, copy.length);
+            }
+          }
+        };
+      case LIST:
+        return new ListWriter(of(type.getChildren().get(0)));
+      case MAP:
+        return new MapWriter(of(type.getChildren().get(0)), of(type.getChildren().get(1)));
+      case STRUCT:
+        return new StructWriter(type);
+      default:
+        throw new IllegalArgumentException(String.format("ORC type '%s' cannot be written.", type));
+    }
+  }
+
+  /**
+   * Writes collections and arrays as ranges of the child vector, which grows as elements are added.
+   */
+  private static final class ListWriter extends OrcColumnWriter {
+    private final OrcColumnWriter element;
+
+    private ListWriter(OrcColumnWriter element) {
+      this.element = element;
+    }
+
+    @Override
+    protected void write(ColumnVector vector, int row, Object value) {
+      ListColumnVector list = (ListColumnVector) vector;
+      int size = value instanceof Collection ? ((Collection<?>) value).size() : Array.getLength(value);
+      int offset = list.childCount;
+      list.offsets[row] = offset;
+      list.lengths[row] = size;
+      list.childCount += size;
+      list.child.ensureSize(list.childCount, offset != 0);
+      if (value instanceof Collection) {
+        int index = offset;
+        for (Object item : (Collection<?>) value) {
+          element.set(list.child, index++, item);
+        }
+      } else {
+        for (int i = 0; i < size; i++) {
+          element.set(list.child, offset + i, Array.get(value, i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes maps as ranges of the key and value vectors, which grow as entries are added.
+   */
+  private static final class MapWriter extends OrcColumnWriter {
+    private final OrcColumnWriter key;
+    private final OrcColumnWriter value;
+
+    private MapWriter(OrcColumnWriter key, OrcColumnWriter value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    protected void write(ColumnVector vector, int row, Object mapValue) {
+      MapColumnVector map = (MapColumnVector) vector;
+      Map<?, ?> entries = (Map<?, ?>) mapValue;
+      int offset = map.childCount;
+      map.offsets[row] = offset;
+      map.lengths[row] = entries.size();
+      map.childCount += entries.size();
+      map.keys.ensureSize(map.childCount, offset != 0);
+      map.values.ensureSize(map.childCount, offset != 0);
+      int index = offset;
+      for (Map.Entry<?, ?> entry : entries.entrySet()) {
+        key.set(map.keys, index, entry.getKey());
+        value.set(map.values, index, entry.getValue());
+        index++;
+      }
+    }
+  }
+
+  /**
+   * Writes records into the field vectors of a struct, reading each field of the struct by name.
+   */
+  static final class StructWriter extends OrcColumnWriter {
+    private final String[] names;
+    private final OrcColumnWriter[] fields;
+
+    StructWriter(TypeDescription type) {
+      List<String> fieldNames = type.getFieldNames();
+      List<TypeDescription> children = type.getChildren();
+      this.names = fieldNames.toArray(new String[fieldNames.size()]);
+      this.fields = new OrcColumnWriter[names.length];
+      for (int i = 0; i < names.length; i++) {
+        fields[i] = of(children.get(i));
+      }
+    }
+
+    @Override
+    protected void write(ColumnVector vector, int row, Object value) {
+      writeFields(((StructColumnVector) vector).fields, row, (StructuredRecord) value);
+    }
+
+    /**
+     * Writes the fields of a record into the given vectors, which are the fields of a struct vector, or the columns
+     * of a batch for top level records.
+     */
+    void writeFields(ColumnVector[] columns, int row, StructuredRecord record) {
+      for (int i = 0; i < names.length; i++) {
+        fields[i].set(columns[i], row, record.get(names[i]));
+      }
+    }
+  }
+}
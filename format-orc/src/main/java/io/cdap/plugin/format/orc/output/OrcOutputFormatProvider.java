@@ -16,6 +16,9 @@
 
 package io.cdap.plugin.format.orc.output;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
@@ -30,7 +33,9 @@ import io.cdap.plugin.format.output.AbstractOutputFormatProvider;
 import org.apache.orc.CompressionKind;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -48,8 +53,10 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
   private static final String SNAPPY_CODEC = "SNAPPY";
   private static final String ZLIB_CODEC = "ZLIB";
   private static final String COMPRESS_SIZE = "orc.compress.size";
+  private static final String STRIPE_SIZE = "orc.stripe.size";
   private static final String ROW_INDEX_STRIDE = "orc.row.index.stride";
   private static final String CREATE_INDEX = "orc.create.index";
+  private static final String BLOOM_FILTER_COLUMNS = "orc.bloom.filter.columns";
   private final Conf conf;
 
   public OrcOutputFormatProvider(Conf conf) {
@@ -64,7 +71,7 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
   @Override
   public Map<String, String> getOutputFormatConfiguration() {
     Map<String, String> configuration = new HashMap<>();
-    configuration.put("orc.mapred.output.schema", parseOrcSchema(conf.schema));
+    configuration.put(StructuredOrcOutputFormat.SCHEMA_KEY, parseOrcSchema(conf.schema));
 
     if (conf.compressionCodec != null && !conf.compressionCodec.equalsIgnoreCase("None")) {
       try {
@@ -77,15 +84,19 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
       if (conf.compressionChunkSize != null) {
         configuration.put(COMPRESS_SIZE, String.valueOf(conf.compressionChunkSize));
       }
-      if (conf.stripeSize != null) {
-        configuration.put(COMPRESS_SIZE, String.valueOf(conf.stripeSize.toString()));
-      }
-      if (conf.indexStride != null) {
-        configuration.put(ROW_INDEX_STRIDE, String.valueOf(conf.indexStride));
-      }
-      if (conf.createIndex != null) {
-        configuration.put(CREATE_INDEX, String.valueOf(conf.createIndex));
-      }
+    }
+    // the layout of the file does not depend on compression
+    if (conf.stripeSize != null) {
+      configuration.put(STRIPE_SIZE, String.valueOf(conf.stripeSize));
+    }
+    if (conf.indexStride != null) {
+      configuration.put(ROW_INDEX_STRIDE, String.valueOf(conf.indexStride));
+    }
+    if (conf.createIndex != null) {
+      configuration.put(CREATE_INDEX, String.valueOf(conf.createIndex));
+    }
+    if (!Strings.isNullOrEmpty(conf.bloomFilterColumns)) {
+      configuration.put(BLOOM_FILTER_COLUMNS, parseBloomFilterColumns(conf.bloomFilterColumns, conf.schema));
     }
     return configuration;
   }
@@ -102,6 +113,9 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     private static final String INDEX_STRIDE_DESC =
       "Number of rows between index entries. The value must be at least 1000.";
     private static final String INDEX_CREATE_DESC = "Whether to create inline indexes.";
+    private static final String BLOOM_FILTER_COLUMNS_DESC =
+      "Comma separated list of top level fields to write bloom filters for. Readers use the bloom filters to skip " +
+        "row groups that cannot contain the values a filter compares the fields with.";
 
     @Macro
     @Description(SCHEMA_DESC)
@@ -131,6 +145,47 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     @Nullable
     @Description(INDEX_CREATE_DESC)
     private Boolean createIndex;
+
+    @Macro
+    @Nullable
+    @Description(BLOOM_FILTER_COLUMNS_DESC)
+    private String bloomFilterColumns;
+
+    public Conf() {
+    }
+
+    @VisibleForTesting
+    Conf(String schema, @Nullable String compressionCodec, @Nullable Long compressionChunkSize,
+         @Nullable Long stripeSize, @Nullable Long indexStride, @Nullable Boolean createIndex,
+         @Nullable String bloomFilterColumns) {
+      this.schema = schema;
+      this.compressionCodec = compressionCodec;
+      this.compressionChunkSize = compressionChunkSize;
+      this.stripeSize = stripeSize;
+      this.indexStride = indexStride;
+      this.createIndex = createIndex;
+      this.bloomFilterColumns = bloomFilterColumns;
+    }
+  }
+
+  /**
+   * Checks that the bloom filter columns are fields of the schema, and joins them the way ORC expects them.
+   */
+  private static String parseBloomFilterColumns(String columns, String configuredSchema) {
+    io.cdap.cdap.api.data.schema.Schema schema;
+    try {
+      schema = io.cdap.cdap.api.data.schema.Schema.parseJson(configuredSchema);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(String.format("%s is not a valid schema", configuredSchema), e);
+    }
+    List<String> names = new ArrayList<>();
+    for (String column : Splitter.on(',').trimResults().omitEmptyStrings().split(columns)) {
+      if (schema.getField(column) == null) {
+        throw new IllegalArgumentException(String.format("Bloom filter column '%s' is not in the schema.", column));
+      }
+      names.add(column);
+    }
+    return String.join(",", names);
   }
 
   private static String parseOrcSchema(String configuredSchema) {
@@ -157,6 +212,9 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     properties.put("indexStride", new PluginPropertyField("indexStride", Conf.INDEX_STRIDE_DESC, "long", false, true));
     properties.put("createIndex",
                    new PluginPropertyField("createIndex", Conf.INDEX_CREATE_DESC, "boolean", false, true));
+    properties.put("bloomFilterColumns",
+                   new PluginPropertyField("bloomFilterColumns", Conf.BLOOM_FILTER_COLUMNS_DESC, "string", false,
+                                           true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC, OrcOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
@@ -18,29 +18,87 @@ package io.cdap.plugin.format.orc.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.plugin.format.orc.StructuredToOrcTransformer;
 import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.orc.mapred.OrcStruct;
-import org.apache.orc.mapreduce.OrcOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
 
+import java.io.IOException;
 import java.util.function.Function;
 
 /**
- * Converts StructuredRecord into OrcStruct before delegating to OrcOutputFormat.
+ * Writes StructuredRecords to ORC files by filling the column vectors of row batches directly from the record values,
+ * and handing each full batch to the ORC writer.
  */
-public class StructuredOrcOutputFormat extends DelegatingOutputFormat<NullWritable, OrcStruct> {
+public class StructuredOrcOutputFormat extends DelegatingOutputFormat<NullWritable, StructuredRecord> {
+  static final String SCHEMA_KEY = "orc.mapred.output.schema";
+  static final String BATCH_SIZE = "orc.row.batch.size";
+  private static final String EXTENSION = ".orc";
 
   @Override
-  protected OutputFormat<NullWritable, OrcStruct> createDelegate() {
-    return new OrcOutputFormat<>();
+  protected OutputFormat<NullWritable, StructuredRecord> createDelegate() {
+    return new FileOutputFormat<NullWritable, StructuredRecord>() {
+      @Override
+      public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context)
+        throws IOException {
+        Configuration conf = context.getConfiguration();
+        TypeDescription schema = TypeDescription.fromString(conf.get(SCHEMA_KEY));
+        // the writer options take the stripe size, compression, index stride and bloom filters from the configuration
+        Writer writer = OrcFile.createWriter(getDefaultWorkFile(context, EXTENSION),
+                                             OrcFile.writerOptions(conf).setSchema(schema));
+        return new BatchingRecordWriter(writer, conf.getInt(BATCH_SIZE, VectorizedRowBatch.DEFAULT_SIZE));
+      }
+    };
   }
 
   @Override
-  protected Function<StructuredRecord, KeyValue<NullWritable, OrcStruct>> getConversion(TaskAttemptContext context) {
-    StructuredToOrcTransformer transformer = new StructuredToOrcTransformer();
-    return record -> new KeyValue<>(NullWritable.get(), transformer.transform(record));
+  protected Function<StructuredRecord, KeyValue<NullWritable, StructuredRecord>> getConversion(
+    TaskAttemptContext context) {
+    return record -> new KeyValue<>(NullWritable.get(), record);
+  }
+
+  /**
+   * Adds records to a row batch, and writes the batch out whenever it is full.
+   */
+  static class BatchingRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+    private final Writer writer;
+    private final VectorizedRowBatch batch;
+    private final OrcColumnWriter.StructWriter columns;
+
+    BatchingRecordWriter(Writer writer, int batchSize) {
+      this.writer = writer;
+      this.batch = writer.getSchema().createRowBatch(batchSize);
+      // resetting initializes the buffers that string and binary values are copied into
+      this.batch.reset();
+      this.columns = new OrcColumnWriter.StructWriter(writer.getSchema());
+    }
+
+    @Override
+    public void write(NullWritable key, StructuredRecord record) throws IOException {
+      columns.writeFields(batch.cols, batch.size++, record);
+      if (batch.size == batch.getMaxSize()) {
+        flush();
+      }
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      if (batch.size > 0) {
+        flush();
+      }
+      writer.close();
+    }
+
+    private void flush() throws IOException {
+      writer.addRowBatch(batch);
+      batch.reset();
+    }
   }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Tests for {@link OrcFilters}.
+ */
+public class OrcFiltersTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  private static final List<String> FILTERS = Arrays.asList(
+    "x = 5", "x != 5", "x < 5", "x <= 5", "x > 5", "x >= 5", "x is null", "x is not null",
+    "not x = 5", "not x != 5", "not x < 5", "not x <= 5", "not x > 5", "not x >= 5", "not x is null",
+    "not (x > 5 and s = 'a')", "not (x < 5 or s != 'a')", "not not x != 5", "x != 5 and s = 'a'");
+
+  private static final List<List<Object[]>> GROUPS = Arrays.asList(
+    rows(row(5L, "a"), row(5L, "a")),
+    rows(row(5L, "a"), row(null, "a")),
+    rows(row(null, null), row(null, "a")),
+    rows(row(1L, "b"), row(9L, null)),
+    rows(row(6L, "a"), row(null, null), row(7L, "b")),
+    rows(row(1L, "a"), row(2L, "a"), row(null, "a")));
+
+  @Test
+  public void testSearchArgumentKeepsGroupsWithMatchingRows() {
+    for (String filter : FILTERS) {
+      FilterExpression expression = FilterExpression.parse(filter);
+      SearchArgument searchArgument = OrcFilters.toSearchArgument(expression, SCHEMA);
+      Predicate<Object[]> rowFilter = OrcFilters.toRowFilter(expression, SCHEMA);
+      for (List<Object[]> group : GROUPS) {
+        if (group.stream().anyMatch(rowFilter)) {
+          Assert.assertTrue(String.format("'%s' skipped a group with matching rows: %s", filter, print(group)),
+                            isNeeded(searchArgument, group));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSearchArgumentSkipsGroups() {
+    // the non-null values are all 5, and only != keeps the null rows
+    List<Object[]> group = rows(row(5L, "a"), row(null, "a"));
+    Assert.assertTrue(isNeeded(OrcFilters.toSearchArgument(FilterExpression.parse("x != 5"), SCHEMA), group));
+    Assert.assertTrue(isNeeded(OrcFilters.toSearchArgument(FilterExpression.parse("not x <= 5"), SCHEMA), group));
+    Assert.assertFalse(isNeeded(OrcFilters.toSearchArgument(FilterExpression.parse("x > 5"), SCHEMA), group));
+    Assert.assertFalse(isNeeded(OrcFilters.toSearchArgument(FilterExpression.parse("x < 5"), SCHEMA), group));
+    Assert.assertFalse(isNeeded(OrcFilters.toSearchArgument(FilterExpression.parse("x is not null and s != 'a'"),
+                                                            SCHEMA), group));
+
+    group = rows(row(1L, "a"), row(2L, "b"));
+    Assert.assertFalse(isNeeded(OrcFilters.toSearchArgument(FilterExpression.parse("x is null"), SCHEMA), group));
+    Assert.assertFalse(isNeeded(OrcFilters.toSearchArgument(FilterExpression.parse("not x <= 2"), SCHEMA), group));
+  }
+
+  @Test
+  public void testRowFilter() {
+    Object[] nullRow = row(null, "a");
+    Assert.assertTrue(OrcFilters.toRowFilter(FilterExpression.parse("x != 5"), SCHEMA).test(nullRow));
+    Assert.assertTrue(OrcFilters.toRowFilter(FilterExpression.parse("not x > 5"), SCHEMA).test(nullRow));
+    Assert.assertFalse(OrcFilters.toRowFilter(FilterExpression.parse("x > 5"), SCHEMA).test(nullRow));
+    Assert.assertFalse(OrcFilters.toRowFilter(FilterExpression.parse("x = 5"), SCHEMA).test(nullRow));
+    Assert.assertTrue(OrcFilters.toRowFilter(FilterExpression.parse("x >= 5 and s = 'a'"), SCHEMA)
+                        .test(row(5L, "a")));
+    Assert.assertFalse(OrcFilters.toRowFilter(FilterExpression.parse("x >= 5 and s = 'a'"), SCHEMA)
+                         .test(row(4L, "a")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownField() {
+    OrcFilters.toSearchArgument(FilterExpression.parse("y = 5"), SCHEMA);
+  }
+
+  /**
+   * Evaluates the search argument the way ORC does for a row group, with the truth value of each leaf computed from
+   * the values of the group, and a null flag if the column has nulls.
+   */
+  private static boolean isNeeded(SearchArgument searchArgument, List<Object[]> group) {
+    List<PredicateLeaf> leaves = searchArgument.getLeaves();
+    SearchArgument.TruthValue[] values = new SearchArgument.TruthValue[leaves.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = evaluate(leaves.get(i), group);
+    }
+    return searchArgument.evaluate(values).isNeeded();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SearchArgument.TruthValue evaluate(PredicateLeaf leaf, List<Object[]> group) {
+    int position = "x".equals(leaf.getColumnName()) ? 0 : 1;
+    boolean hasNull = false;
+    boolean anyTrue = false;
+    boolean anyFalse = false;
+    for (Object[] row : group) {
+      Comparable<Object> value = (Comparable<Object>) row[position];
+      if (leaf.getOperator() == PredicateLeaf.Operator.IS_NULL) {
+        anyTrue |= value == null;
+        anyFalse |= value != null;
+        continue;
+      }
+      if (value == null) {
+        hasNull = true;
+        continue;
+      }
+      int compared = value.compareTo(leaf.getLiteral());
+      boolean result;
+      switch (leaf.getOperator()) {
+        case EQUALS:
+          result = compared == 0;
+          break;
+        case LESS_THAN:
+          result = compared < 0;
+          break;
+        case LESS_THAN_EQUALS:
+          result = compared <= 0;
+          break;
+        default:
+          throw new IllegalStateException("Unexpected leaf " + leaf);
+      }
+      anyTrue |= result;
+      anyFalse |= !result;
+    }
+    if (!anyTrue && !anyFalse) {
+      return SearchArgument.TruthValue.NULL;
+    }
+    if (anyTrue && anyFalse) {
+      return hasNull ? SearchArgument.TruthValue.YES_NO_NULL : SearchArgument.TruthValue.YES_NO;
+    }
+    if (anyTrue) {
+      return hasNull ? SearchArgument.TruthValue.YES_NULL : SearchArgument.TruthValue.YES;
+    }
+    return hasNull ? SearchArgument.TruthValue.NO_NULL : SearchArgument.TruthValue.NO;
+  }
+
+  private static Object[] row(Long x, String s) {
+    return new Object[] {x, s};
+  }
+
+  private static List<Object[]> rows(Object[]... rows) {
+    return new ArrayList<>(Arrays.asList(rows));
+  }
+
+  private static String print(List<Object[]> group) {
+    StringBuilder builder = new StringBuilder();
+    for (Object[] row : group) {
+      builder.append(Arrays.toString(row));
+    }
+    return builder.toString();
+  }
+}
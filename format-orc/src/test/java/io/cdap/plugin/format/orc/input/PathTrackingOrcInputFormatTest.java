@@ -0,0 +1,292 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link PathTrackingOrcInputFormat}, reading a file written with the ORC types that the orc sink does
+ * not write itself.
+ */
+public class PathTrackingOrcInputFormatTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final int ROWS = 5;
+  private static final String TYPE = "struct<id:bigint,name:string,score:double,created:date,updated:timestamp," +
+    "price:decimal(10,2),tags:array<string>,counts:map<string,int>,inner:struct<x:int,y:string>>";
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "record_inner",
+    Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  // the schema that is derived from the type of the file
+  private static final Schema FILE_SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("created", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+    Schema.Field.of("updated", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("price", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING))))),
+    Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.nullableOf(Schema.of(Schema.Type.INT))))),
+    Schema.Field.of("inner", Schema.nullableOf(INNER_SCHEMA)));
+
+  private static Path path;
+
+  @BeforeClass
+  public static void writeFile() throws Exception {
+    path = new Path(new File(TEMP_FOLDER.newFolder(), "records.orc").toURI());
+    TypeDescription type = TypeDescription.fromString(TYPE);
+    VectorizedRowBatch batch = type.createRowBatch();
+    ListColumnVector tags = (ListColumnVector) batch.cols[6];
+    MapColumnVector counts = (MapColumnVector) batch.cols[7];
+    StructColumnVector inner = (StructColumnVector) batch.cols[8];
+    for (int i = 0; i < ROWS; i++) {
+      ((LongColumnVector) batch.cols[0]).vector[i] = i;
+      if (i == 2) {
+        setNull(batch.cols[1], i);
+      } else {
+        setString(batch.cols[1], i, "n" + i);
+      }
+      if (i == 3) {
+        setNull(batch.cols[2], i);
+      } else {
+        ((DoubleColumnVector) batch.cols[2]).vector[i] = i * 1.5d;
+      }
+      ((LongColumnVector) batch.cols[3]).vector[i] = 18000 + i;
+      Timestamp timestamp = new Timestamp((1600000000L + i) * 1000L);
+      timestamp.setNanos(123456000);
+      ((TimestampColumnVector) batch.cols[4]).set(i, timestamp);
+      if (i == 4) {
+        setNull(batch.cols[5], i);
+      } else {
+        // decimals are stored without trailing zeros, and must be read back with the scale of the schema
+        ((DecimalColumnVector) batch.cols[5]).set(i, HiveDecimal.create(new BigDecimal(i + ".50")));
+      }
+
+      if (i == 1) {
+        setNull(tags, i);
+      } else {
+        tags.offsets[i] = tags.childCount;
+        tags.lengths[i] = i;
+        for (int j = 0; j < i; j++) {
+          setString(tags.child, tags.childCount++, "t" + j);
+        }
+      }
+      if (i == 0) {
+        setNull(counts, i);
+      } else {
+        counts.offsets[i] = counts.childCount;
+        counts.lengths[i] = 1;
+        setString(counts.keys, counts.childCount, "k");
+        ((LongColumnVector) counts.values).vector[counts.childCount++] = i;
+      }
+      ((LongColumnVector) inner.fields[0]).vector[i] = i;
+      if (i % 2 == 0) {
+        setNull(inner.fields[1], i);
+      } else {
+        setString(inner.fields[1], i, "y" + i);
+      }
+    }
+    batch.size = ROWS;
+
+    Configuration conf = new Configuration();
+    Writer writer = OrcFile.createWriter(path, OrcFile.writerOptions(conf).setSchema(type));
+    writer.addRowBatch(batch);
+    writer.close();
+  }
+
+  @Test
+  public void testSchemaFromFile() throws Exception {
+    Reader reader = OrcFile.createReader(path, OrcFile.readerOptions(new Configuration()));
+    Assert.assertEquals(FILE_SCHEMA, OrcSchemaConverter.toSchema(reader.getSchema(), null));
+
+    Schema withPath = OrcSchemaConverter.toSchema(reader.getSchema(), "file");
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), withPath.getField("file").getSchema());
+  }
+
+  @Test
+  public void testReadWithoutSchema() throws Exception {
+    List<StructuredRecord> expected = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      expected.add(expected(FILE_SCHEMA, i));
+    }
+    Assert.assertEquals(expected, read(null, null));
+  }
+
+  @Test
+  public void testReadProjectedSchema() throws Exception {
+    Schema innerSchema = Schema.recordOf("inner", Schema.Field.of("x", Schema.of(Schema.Type.LONG)));
+    Schema schema = Schema.recordOf(
+      "projected",
+      Schema.Field.of("price", Schema.nullableOf(Schema.decimalOf(10, 2))),
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("updated", Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS)),
+      Schema.Field.of("inner", innerSchema),
+      Schema.Field.of("extra", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    List<StructuredRecord> expected = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema)
+        .set("id", (long) i)
+        .set("updated", (1600000000L + i) * 1000L + 123L)
+        .set("inner", StructuredRecord.builder(innerSchema).set("x", (long) i).build());
+      if (i != 4) {
+        builder.set("price", decimal(i));
+      }
+      expected.add(builder.build());
+    }
+    Assert.assertEquals(expected, read(schema, null));
+  }
+
+  @Test
+  public void testFilter() throws Exception {
+    // rows with a null value match != and the negation of other comparisons
+    Assert.assertEquals(Arrays.asList(0L, 2L, 3L, 4L), readIds("name != 'n1'"));
+    Assert.assertEquals(Arrays.asList(0L, 1L, 3L), readIds("not score > 2"));
+    Assert.assertEquals(Arrays.asList(1L, 4L), readIds("score >= 1.5 and name is not null"));
+    Assert.assertEquals(Arrays.asList(2L, 3L), readIds("id = 3 or name is null"));
+    Assert.assertEquals(Collections.emptyList(), readIds("id > 10"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterRequiresSchema() throws Exception {
+    read(null, "id = 1");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingNonNullableField() throws Exception {
+    read(Schema.recordOf("record", Schema.Field.of("missing", Schema.of(Schema.Type.STRING))), null);
+  }
+
+  private static List<Long> readIds(String filter) throws Exception {
+    List<Long> ids = new ArrayList<>();
+    for (StructuredRecord record : read(FILE_SCHEMA, filter)) {
+      ids.add(record.get("id"));
+    }
+    return ids;
+  }
+
+  private static StructuredRecord expected(Schema schema, int i) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema)
+      .set("id", (long) i)
+      .set("created", 18000 + i)
+      .set("updated", (1600000000L + i) * 1000000L + 123456L)
+      .set("inner", StructuredRecord.builder(INNER_SCHEMA).set("x", i).set("y", i % 2 == 0 ? null : "y" + i).build());
+    if (i != 2) {
+      builder.set("name", "n" + i);
+    }
+    if (i != 3) {
+      builder.set("score", i * 1.5d);
+    }
+    if (i != 4) {
+      builder.set("price", decimal(i));
+    }
+    if (i != 1) {
+      List<String> tags = new ArrayList<>();
+      for (int j = 0; j < i; j++) {
+        tags.add("t" + j);
+      }
+      builder.set("tags", tags);
+    }
+    if (i != 0) {
+      builder.set("counts", Collections.singletonMap("k", i));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reads the file in batches of two rows, so that records are built from several batches.
+   */
+  private static List<StructuredRecord> read(@Nullable Schema schema, @Nullable String filter) throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(PathTrackingOrcInputFormat.BATCH_SIZE, 2);
+    if (schema != null) {
+      conf.set("schema", schema.toString());
+    }
+    if (filter != null) {
+      conf.set(PathTrackingOrcInputFormat.FILTER, filter);
+    }
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    FileSplit split = new FileSplit(path, 0, new File(path.toUri()).length(), new String[0]);
+    List<StructuredRecord> records = new ArrayList<>();
+    try (RecordReader<NullWritable, StructuredRecord> reader =
+           new PathTrackingOrcInputFormat().createRecordReader(split, context)) {
+      reader.initialize(split, context);
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue());
+      }
+    }
+    return records;
+  }
+
+  private static ByteBuffer decimal(int i) {
+    return ByteBuffer.wrap(new BigDecimal(i + ".50").unscaledValue().toByteArray());
+  }
+
+  private static void setNull(ColumnVector vector, int row) {
+    vector.noNulls = false;
+    vector.isNull[row] = true;
+  }
+
+  private static void setString(ColumnVector vector, int row, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.orc.input.PathTrackingOrcInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.TypeDescription;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link StructuredOrcOutputFormat}, writing records and reading them back with the orc input format.
+ */
+public class StructuredOrcOutputFormatTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("values", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.INT)))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("flag", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("score", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("payload", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING))))),
+    Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.nullableOf(Schema.of(Schema.Type.LONG))))),
+    Schema.Field.of("matrix", Schema.arrayOf(Schema.arrayOf(Schema.of(Schema.Type.INT)))),
+    Schema.Field.of("inner", Schema.nullableOf(INNER_SCHEMA)));
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<StructuredRecord> written = new ArrayList<>();
+    List<StructuredRecord> expected = new ArrayList<>();
+    // more records than fit in a batch, so that lists and maps continue in a new batch
+    for (int i = 0; i < 10; i++) {
+      written.add(record(i, i % 4 == 1));
+      expected.add(record(i, false));
+    }
+    Path path = new Path(new File(TEMP_FOLDER.newFolder(), "records.orc").toURI());
+    Configuration conf = new Configuration();
+    write(path, conf, written, 3);
+
+    Assert.assertEquals(expected, read(path));
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    Path path = new Path(new File(TEMP_FOLDER.newFolder(), "records.orc").toURI());
+    write(path, new Configuration(), new ArrayList<>(), 3);
+
+    Assert.assertEquals(new ArrayList<>(), read(path));
+  }
+
+  @Test
+  public void testLayoutProperties() throws Exception {
+    OrcOutputFormatProvider provider = new OrcOutputFormatProvider(
+      new OrcOutputFormatProvider.Conf(SCHEMA.toString(), "zlib", null, 1048576L, 2000L, true, "id, name"));
+    Map<String, String> properties = provider.getOutputFormatConfiguration();
+    Assert.assertEquals("ZLIB", properties.get("orc.compress"));
+    Assert.assertEquals("1048576", properties.get("orc.stripe.size"));
+    Assert.assertEquals("2000", properties.get("orc.row.index.stride"));
+    Assert.assertEquals("true", properties.get("orc.create.index"));
+    Assert.assertEquals("id,name", properties.get("orc.bloom.filter.columns"));
+
+    // the writer takes the layout from the configuration
+    Configuration conf = new Configuration();
+    for (Map.Entry<String, String> property : properties.entrySet()) {
+      conf.set(property.getKey(), property.getValue());
+    }
+    Path path = new Path(new File(TEMP_FOLDER.newFolder(), "records.orc").toURI());
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      records.add(record(i, false));
+    }
+    write(path, conf, records, 4);
+
+    Reader reader = OrcFile.createReader(path, OrcFile.readerOptions(conf));
+    Assert.assertEquals(2000, reader.getRowIndexStride());
+    Assert.assertEquals(CompressionKind.ZLIB, reader.getCompressionKind());
+    Assert.assertEquals(10, reader.getNumberOfRows());
+    Assert.assertEquals(records, read(path));
+  }
+
+  @Test
+  public void testLayoutIndependentOfCompression() {
+    Map<String, String> properties = new OrcOutputFormatProvider(
+      new OrcOutputFormatProvider.Conf(SCHEMA.toString(), null, null, 1048576L, 5000L, false, null))
+      .getOutputFormatConfiguration();
+    Assert.assertNull(properties.get("orc.compress"));
+    Assert.assertEquals("1048576", properties.get("orc.stripe.size"));
+    Assert.assertEquals("5000", properties.get("orc.row.index.stride"));
+    Assert.assertEquals("false", properties.get("orc.create.index"));
+    Assert.assertNull(properties.get("orc.bloom.filter.columns"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownBloomFilterColumn() {
+    new OrcOutputFormatProvider(new OrcOutputFormatProvider.Conf(SCHEMA.toString(), null, null, null, null, null,
+                                                                 "id,unknown"))
+      .getOutputFormatConfiguration();
+  }
+
+  /**
+   * Returns a record with a different mix of null and non-null values for each index. Collections are given as
+   * arrays instead of lists if asked, which the writer also accepts.
+   */
+  private static StructuredRecord record(int i, boolean arrays) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA)
+      .set("id", (long) i)
+      .set("score", i / 2f);
+    if (i % 3 != 0) {
+      builder.set("name", "name " + i);
+    }
+    if (i % 2 == 0) {
+      builder.set("flag", i % 4 == 0);
+    }
+    if (i % 5 != 0) {
+      builder.set("payload", ByteBuffer.wrap(new byte[] {(byte) i, 1, 2}));
+    }
+    if (i != 3) {
+      // lists of different lengths, with nulls in them
+      List<String> tags = new ArrayList<>();
+      for (int j = 0; j < i % 4; j++) {
+        tags.add(j == 1 ? null : "tag" + j);
+      }
+      builder.set("tags", arrays ? tags.toArray(new String[0]) : tags);
+    }
+    if (i % 4 != 2) {
+      Map<String, Long> counts = new HashMap<>();
+      for (int j = 0; j < i % 3; j++) {
+        counts.put("k" + j, j == 0 ? null : (long) i * j);
+      }
+      builder.set("counts", counts);
+    }
+    List<List<Integer>> matrix = new ArrayList<>();
+    for (int j = 0; j < i % 3; j++) {
+      matrix.add(Arrays.asList(i, j));
+    }
+    builder.set("matrix", matrix);
+    if (i != 7) {
+      StructuredRecord.Builder inner = StructuredRecord.builder(INNER_SCHEMA).set("x", i);
+      if (i % 2 == 1) {
+        inner.set("values", arrays ? new int[] {i, i + 1} : Arrays.asList(i, i + 1));
+      }
+      builder.set("inner", inner.build());
+    }
+    return builder.build();
+  }
+
+  private static void write(Path path, Configuration conf, List<StructuredRecord> records,
+                            int batchSize) throws Exception {
+    String type = new OrcOutputFormatProvider(
+      new OrcOutputFormatProvider.Conf(SCHEMA.toString(), null, null, null, null, null, null))
+      .getOutputFormatConfiguration().get(StructuredOrcOutputFormat.SCHEMA_KEY);
+    StructuredOrcOutputFormat.BatchingRecordWriter writer = new StructuredOrcOutputFormat.BatchingRecordWriter(
+      OrcFile.createWriter(path, OrcFile.writerOptions(conf).setSchema(TypeDescription.fromString(type))),
+      batchSize);
+    for (StructuredRecord record : records) {
+      writer.write(NullWritable.get(), record);
+    }
+    writer.close(null);
+  }
+
+  private static List<StructuredRecord> read(Path path) throws Exception {
+    Configuration conf = new Configuration();
+    conf.set("schema", SCHEMA.toString());
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    FileSplit split = new FileSplit(path, 0, new File(path.toUri()).length(), new String[0]);
+    List<StructuredRecord> records = new ArrayList<>();
+    try (RecordReader<NullWritable, StructuredRecord> reader =
+           new PathTrackingOrcInputFormat().createRecordReader(split, context)) {
+      reader.initialize(split, context);
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue());
+      }
+    }
+    return records;
+  }
+}
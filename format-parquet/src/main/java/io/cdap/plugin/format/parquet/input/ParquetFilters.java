@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+
+/**
+ * Compiles {@link FilterExpression filter expressions} into Parquet {@link FilterPredicate FilterPredicates}, which
+ * Parquet uses to skip row groups whose column statistics cannot match, and to drop the rows that do not match from
+ * the ones it reads.
+ */
+final class ParquetFilters {
+
+  private ParquetFilters() {
+    // no-op
+  }
+
+  /**
+   * Compiles the filter expression for records of the given schema.
+   *
+   * @throws IllegalArgumentException if the expression is invalid or does not match the schema
+   */
+  static FilterPredicate parse(String filter, Schema schema) {
+    return FilterExpression.parse(filter).accept(new Compiler(schema));
+  }
+
+  /**
+   * Translates each node of an expression into the matching predicate.
+   */
+  private static final class Compiler implements FilterExpression.Visitor<FilterPredicate> {
+    private final Schema schema;
+
+    private Compiler(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public FilterPredicate visitAnd(FilterExpression left, FilterExpression right) {
+      return FilterApi.and(left.accept(this), right.accept(this));
+    }
+
+    @Override
+    public FilterPredicate visitOr(FilterExpression left, FilterExpression right) {
+      return FilterApi.or(left.accept(this), right.accept(this));
+    }
+
+    @Override
+    public FilterPredicate visitNot(FilterExpression operand) {
+      return FilterApi.not(operand.accept(this));
+    }
+
+    @Override
+    public FilterPredicate visitComparison(FilterExpression.Comparison comparison) {
+      String name = comparison.getField();
+      Object value = comparison.getValue(schema);
+      switch (comparison.getFieldSchema(schema).getType()) {
+        case INT:
+          return compare(FilterApi.intColumn(name), comparison.getOperator(), (Integer) value);
+        case LONG:
+          return compare(FilterApi.longColumn(name), comparison.getOperator(), (Long) value);
+        case FLOAT:
+          return compare(FilterApi.floatColumn(name), comparison.getOperator(), (Float) value);
+        case DOUBLE:
+          return compare(FilterApi.doubleColumn(name), comparison.getOperator(), (Double) value);
+        case STRING:
+          return compare(FilterApi.binaryColumn(name), comparison.getOperator(),
+                         value == null ? null : Binary.fromString((String) value));
+        default:
+          // booleans, which can only be compared for equality
+          Operators.BooleanColumn column = FilterApi.booleanColumn(name);
+          return comparison.getOperator() == FilterExpression.Operator.EQ ?
+            FilterApi.eq(column, (Boolean) value) : FilterApi.notEq(column, (Boolean) value);
+      }
+    }
+
+    private <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt>
+    FilterPredicate compare(C column, FilterExpression.Operator operator, T value) {
+      switch (operator) {
+        case EQ:
+          return FilterApi.eq(column, value);
+        case NOT_EQ:
+          return FilterApi.notEq(column, value);
+        case LT:
+          return FilterApi.lt(column, value);
+        case LT_EQ:
+          return FilterApi.ltEq(column, value);
+        case GT:
+          return FilterApi.gt(column, value);
+        default:
+          return FilterApi.gtEq(column, value);
+      }
+    }
+  }
+}
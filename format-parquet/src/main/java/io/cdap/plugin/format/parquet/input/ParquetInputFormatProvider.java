@@ -23,6 +23,8 @@ import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
 import io.cdap.plugin.common.batch.JobUtils;
@@ -36,6 +38,8 @@ import org.apache.parquet.avro.AvroParquetReader;
 import org.apache.parquet.hadoop.ParquetReader;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -48,9 +52,20 @@ import javax.annotation.Nullable;
 public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<ParquetInputFormatProvider.Conf> {
   static final String NAME = "parquet";
   static final String DESC = "Plugin for reading files in text format.";
-  public static final PluginClass PLUGIN_CLASS =
-    new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, ParquetInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+  static final String FILTER_DESC = "Condition that records must meet to be read, such as " +
+    "\"country = 'US' and age >= 18\". It compares top level fields of the schema with numbers, quoted strings, " +
+    "true or false using =, !=, <, <=, > and >=, tests for nulls with 'is null' and 'is not null', and combines " +
+    "conditions with 'and', 'or', 'not' and parentheses. Row groups whose column statistics cannot meet the " +
+    "condition are skipped. Requires a schema.";
+  public static final PluginClass PLUGIN_CLASS;
+
+  static {
+    Map<String, PluginPropertyField> fields = new HashMap<>(PathTrackingConfig.FIELDS);
+    fields.put("filter", new PluginPropertyField("filter", FILTER_DESC, "string", false, true));
+    PLUGIN_CLASS = new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC,
+                                   ParquetInputFormatProvider.class.getName(), "conf",
+                                   Collections.unmodifiableMap(fields));
+  }
 
   public ParquetInputFormatProvider(ParquetInputFormatProvider.Conf conf) {
     super(conf);
@@ -67,6 +82,31 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
     if (schema != null) {
       properties.put("parquet.avro.read.schema", schema.toString());
     }
+    if (!Strings.isNullOrEmpty(conf.filter)) {
+      properties.put(PathTrackingParquetInputFormat.FILTER, conf.filter);
+    }
+  }
+
+  @Override
+  public void validate(FormatContext context) {
+    super.validate(context);
+    if (conf.containsMacro("filter") || Strings.isNullOrEmpty(conf.filter)
+      || conf.containsMacro(PathTrackingConfig.NAME_SCHEMA)) {
+      return;
+    }
+    FailureCollector collector = context.getFailureCollector();
+    // the filter is compiled against the configured schema when reading, not the one inferred from the files
+    Schema schema = conf.getSchema();
+    if (schema == null) {
+      collector.addFailure("A filter cannot be used without a schema.", "Schema must be specified.")
+        .withConfigProperty(PathTrackingConfig.NAME_SCHEMA);
+      return;
+    }
+    try {
+      ParquetFilters.parse(conf.filter, schema);
+    } catch (IllegalArgumentException e) {
+      collector.addFailure("Invalid filter: " + e.getMessage(), null).withConfigProperty("filter");
+    }
   }
 
   @Nullable
@@ -122,5 +162,10 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
     @Nullable
     @Description(NAME_SCHEMA)
     public String schema;
+
+    @Macro
+    @Nullable
+    @Description(FILTER_DESC)
+    public String filter;
   }
 }
@@ -26,7 +26,7 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
-import org.apache.parquet.avro.AvroParquetInputFormat;
+import org.apache.parquet.filter2.compat.FilterCompat;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -37,6 +37,9 @@ import javax.annotation.Nullable;
  * Parquet format that tracks which file each record was read from.
  */
 public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
+  static final String FILTER = "parquet.filter.expression";
+  // whether records are built directly from parquet instead of going through Avro, when the schema is known
+  static final String STRUCTURED_READER_ENABLED = "parquet.structured.reader.enabled";
 
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
@@ -44,11 +47,67 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema)
     throws IOException, InterruptedException {
-    RecordReader<Void, GenericRecord> delegate = (new AvroParquetInputFormat<GenericRecord>())
-      .createRecordReader(split, context);
+    String filter = context.getConfiguration().get(FILTER);
+    FilterCompat.Filter recordFilter = FilterCompat.NOOP;
+    if (filter != null && !filter.trim().isEmpty()) {
+      if (schema == null) {
+        throw new IllegalArgumentException("A schema is required to filter parquet records.");
+      }
+      recordFilter = FilterCompat.get(ParquetFilters.parse(filter, schema));
+    }
+    // only the columns in the schema are read, and row groups that cannot match the filter are skipped
+    if (schema != null && context.getConfiguration().getBoolean(STRUCTURED_READER_ENABLED, true)
+      && StructuredRecordConverter.canRead(schema)) {
+      StructuredReadSupport readSupport = new StructuredReadSupport(schema, pathField);
+      return new StructuredParquetRecordReader(
+        new org.apache.parquet.hadoop.ParquetRecordReader<>(readSupport, recordFilter));
+    }
+    RecordReader<Void, GenericRecord> delegate =
+      new org.apache.parquet.hadoop.ParquetRecordReader<>(new ProjectingAvroReadSupport(), recordFilter);
     return new ParquetRecordReader(delegate, schema, pathField);
   }
 
+  /**
+   * Passes on the records built by the {@link StructuredReadSupport}.
+   */
+  static class StructuredParquetRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+    private final RecordReader<Void, StructuredRecord.Builder> delegate;
+
+    StructuredParquetRecordReader(RecordReader<Void, StructuredRecord.Builder> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+      delegate.initialize(split, context);
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      return delegate.nextKeyValue();
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+      return NullWritable.get();
+    }
+
+    @Override
+    public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
+      return delegate.getCurrentValue();
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      return delegate.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
   /**
    * Transforms GenericRecords into StructuredRecord.
    */
@@ -88,10 +147,10 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
       // set the schema based on the schema of the record
       if (schema == null) {
         if (pathField == null) {
-          schema = Schema.parseJson(genericRecord.getSchema().toString());
+          schema = recordTransformer.convertSchema(genericRecord.getSchema());
         } else {
           // if there is a path field, add the path as a field in the schema
-          Schema schemaWithoutPath = Schema.parseJson(genericRecord.getSchema().toString());
+          Schema schemaWithoutPath = recordTransformer.convertSchema(genericRecord.getSchema());
           List<Schema.Field> fields = new ArrayList<>(schemaWithoutPath.getFields().size() + 1);
           fields.addAll(schemaWithoutPath.getFields());
           fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
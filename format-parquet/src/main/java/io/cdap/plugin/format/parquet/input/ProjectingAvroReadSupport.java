@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Avro read support that only requests the top level columns of the file that are in the Avro read schema, so that
+ * the column chunks of other columns are neither read nor decompressed. Without a projection, every column of the
+ * file is read and converted, and then dropped by the record converter.
+ *
+ * Fields of the read schema that are not in the file, like the path field, are left out of the projection and
+ * filled in by the record converter as before. If a projection is set explicitly, or the read schema and the file
+ * have no column in common, the columns are requested as Avro does by default.
+ */
+class ProjectingAvroReadSupport extends AvroReadSupport<GenericRecord> {
+
+  @Override
+  public ReadContext init(InitContext context) {
+    ReadContext readContext = super.init(context);
+    Configuration conf = context.getConfiguration();
+    String readSchema = conf.get(AVRO_READ_SCHEMA);
+    if (readSchema == null || conf.get(AVRO_REQUESTED_PROJECTION) != null) {
+      return readContext;
+    }
+
+    Set<String> names = new HashSet<>();
+    for (Schema.Field field : new Schema.Parser().parse(readSchema).getFields()) {
+      names.add(field.name());
+    }
+    MessageType fileSchema = context.getFileSchema();
+    MessageType requestedSchema = project(fileSchema, names);
+    if (requestedSchema == fileSchema) {
+      return readContext;
+    }
+    return new ReadContext(requestedSchema, readContext.getReadSupportMetadata());
+  }
+
+  /**
+   * Returns the schema with only the top level columns of the file that have one of the given names, or the file
+   * schema itself if that would keep all or none of its columns.
+   */
+  static MessageType project(MessageType fileSchema, Set<String> names) {
+    List<Type> columns = new ArrayList<>();
+    for (Type column : fileSchema.getFields()) {
+      if (names.contains(column.getName())) {
+        columns.add(column);
+      }
+    }
+    if (columns.isEmpty() || columns.size() == fileSchema.getFieldCount()) {
+      return fileSchema;
+    }
+    return new MessageType(fileSchema.getName(), columns);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Read support that materializes parquet rows directly into {@link StructuredRecord.Builder StructuredRecord
+ * Builders} of the given schema, using a {@link StructuredRecordConverter}. Only the top level columns that are in the
+ * schema are read. The path field is left out, so that it can be set by the caller.
+ */
+class StructuredReadSupport extends ReadSupport<StructuredRecord.Builder> {
+  private final Schema schema;
+  private final String pathField;
+
+  StructuredReadSupport(Schema schema, @Nullable String pathField) {
+    this.schema = schema;
+    this.pathField = pathField;
+  }
+
+  @Override
+  public ReadContext init(InitContext context) {
+    Set<String> names = new HashSet<>();
+    for (Schema.Field field : schema.getFields()) {
+      if (!field.getName().equals(pathField)) {
+        names.add(field.getName());
+      }
+    }
+    return new ReadContext(ProjectingAvroReadSupport.project(context.getFileSchema(), names));
+  }
+
+  @Override
+  public RecordMaterializer<StructuredRecord.Builder> prepareForRead(Configuration configuration,
+                                                                     Map<String, String> keyValueMetaData,
+                                                                     MessageType fileSchema,
+                                                                     ReadContext readContext) {
+    return new StructuredRecordMaterializer(new StructuredRecordConverter(readContext.getRequestedSchema(), schema));
+  }
+
+  /**
+   * Materializer that hands out the builder of the record the converter read last.
+   */
+  private static final class StructuredRecordMaterializer extends RecordMaterializer<StructuredRecord.Builder> {
+    private final StructuredRecordConverter root;
+
+    private StructuredRecordMaterializer(StructuredRecordConverter root) {
+      this.root = root;
+    }
+
+    @Override
+    public StructuredRecord.Builder getCurrentRecord() {
+      return root.getCurrentRecord();
+    }
+
+    @Override
+    public GroupConverter getRootConverter() {
+      return root;
+    }
+  }
+}
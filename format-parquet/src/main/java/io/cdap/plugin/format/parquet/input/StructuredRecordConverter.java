@@ -0,0 +1,567 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.parquet.avro.NoOpConverter;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * Materializes the values of a parquet group directly into a {@link StructuredRecord}, without going through an Avro
+ * GenericRecord first.
+ *
+ * Values are stored the way {@link io.cdap.plugin.format.avro.AvroToStructuredTransformer} stores the values it
+ * reads from Avro records: dates, times and timestamps as ints and longs, decimals and bytes as ByteBuffers, and
+ * arrays and maps as lists and hash maps. In addition, timestamps annotated as milliseconds in the file are converted
+ * to microseconds when the schema expects microseconds, and decimals stored as ints or longs are read as their
+ * unscaled bytes. This version of parquet has no annotation for timestamps in microseconds, so other timestamps are
+ * read as they are stored, like the Avro path reads them. Columns of the file that are not in the schema are ignored,
+ * and fields of the schema that are not in the file are left null.
+ */
+class StructuredRecordConverter extends GroupConverter {
+  // see http://stackoverflow.com/questions/466321/convert-unix-timestamp-to-julian
+  // it's 2440587.5, rounding up to compatible with Hive
+  private static final int JULIAN_DAY_OF_EPOCH = 2440588;
+  private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+  private final Schema schema;
+  private final Converter[] converters;
+  @Nullable
+  private final Consumer<Object> parent;
+  private StructuredRecord.Builder builder;
+
+  StructuredRecordConverter(GroupType parquetSchema, Schema schema) {
+    this(parquetSchema, schema, null);
+  }
+
+  private StructuredRecordConverter(GroupType parquetSchema, Schema schema, @Nullable Consumer<Object> parent) {
+    this.schema = schema;
+    this.parent = parent;
+    this.converters = new Converter[parquetSchema.getFieldCount()];
+    int index = 0;
+    for (Type parquetField : parquetSchema.getFields()) {
+      Schema.Field field = schema.getField(parquetField.getName());
+      if (field == null) {
+        converters[index++] = NoOpConverter.INSTANCE;
+        continue;
+      }
+      String name = field.getName();
+      converters[index++] = newConverter(name, nonNullable(field.getSchema()), parquetField,
+                                         value -> builder.set(name, value));
+    }
+  }
+
+  /**
+   * Returns whether records of the schema can be read by this converter. Unions other than nullable types are not
+   * supported.
+   */
+  static boolean canRead(Schema schema) {
+    Schema nonNullable = nonNullable(schema);
+    switch (nonNullable.getType()) {
+      case NULL:
+      case UNION:
+        return false;
+      case RECORD:
+        for (Schema.Field field : nonNullable.getFields()) {
+          if (!canRead(field.getSchema())) {
+            return false;
+          }
+        }
+        return true;
+      case ARRAY:
+        return canRead(nonNullable.getComponentSchema());
+      case MAP:
+        return canRead(nonNullable.getMapSchema().getKey()) && canRead(nonNullable.getMapSchema().getValue());
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Returns the builder of the record that was read last.
+   */
+  StructuredRecord.Builder getCurrentRecord() {
+    return builder;
+  }
+
+  @Override
+  public Converter getConverter(int fieldIndex) {
+    return converters[fieldIndex];
+  }
+
+  @Override
+  public void start() {
+    builder = StructuredRecord.builder(schema);
+  }
+
+  @Override
+  public void end() {
+    if (parent != null) {
+      parent.accept(builder.build());
+    }
+  }
+
+  private static Schema nonNullable(Schema schema) {
+    return schema.isNullable() ? schema.getNonNullable() : schema;
+  }
+
+  private static Converter newConverter(String name, Schema schema, Type type, Consumer<Object> parent) {
+    Schema.Type schemaType = schema.getType();
+    boolean group = schemaType == Schema.Type.RECORD || schemaType == Schema.Type.ARRAY
+      || schemaType == Schema.Type.MAP;
+    if (group == type.isPrimitive()) {
+      throw new IllegalArgumentException(String.format("Field '%s' of type '%s' cannot be read from parquet type '%s'.",
+                                                       name, schemaType, type));
+    }
+
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == Schema.LogicalType.DECIMAL) {
+      return new DecimalConverter(parent);
+    }
+    if (logicalType == Schema.LogicalType.DATETIME) {
+      return new StringConverter(parent, true);
+    }
+    if (logicalType == Schema.LogicalType.TIMESTAMP_MICROS || logicalType == Schema.LogicalType.TIMESTAMP_MILLIS
+      || schemaType == Schema.Type.LONG
+      && type.asPrimitiveType().getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT96) {
+      return new TimestampConverter(parent, type, logicalType != Schema.LogicalType.TIMESTAMP_MILLIS);
+    }
+
+    switch (schemaType) {
+      case BOOLEAN:
+        return new BooleanConverter(parent);
+      case INT:
+        return new IntConverter(parent);
+      case LONG:
+        return new LongConverter(parent);
+      case FLOAT:
+        return new FloatConverter(parent);
+      case DOUBLE:
+        return new DoubleConverter(parent);
+      case BYTES:
+        return new BytesConverter(parent);
+      case STRING:
+      case ENUM:
+        return new StringConverter(parent, false);
+      case RECORD:
+        return new StructuredRecordConverter(type.asGroupType(), schema, parent);
+      case ARRAY:
+        return new ArrayConverter(name, type.asGroupType(), schema.getComponentSchema(), parent);
+      case MAP:
+        return new MapConverter(name, type.asGroupType(), schema.getMapSchema(), parent);
+      default:
+        throw new IllegalArgumentException(String.format("Field '%s' of type '%s' cannot be read from parquet.",
+                                                         name, schemaType));
+    }
+  }
+
+  private static final class BooleanConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+
+    private BooleanConverter(Consumer<Object> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void addBoolean(boolean value) {
+      parent.accept(value);
+    }
+  }
+
+  private static final class IntConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+
+    private IntConverter(Consumer<Object> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void addInt(int value) {
+      parent.accept(value);
+    }
+  }
+
+  private static final class LongConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+
+    private LongConverter(Consumer<Object> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void addInt(int value) {
+      parent.accept((long) value);
+    }
+
+    @Override
+    public void addLong(long value) {
+      parent.accept(value);
+    }
+  }
+
+  private static final class FloatConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+
+    private FloatConverter(Consumer<Object> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void addInt(int value) {
+      parent.accept((float) value);
+    }
+
+    @Override
+    public void addLong(long value) {
+      parent.accept((float) value);
+    }
+
+    @Override
+    public void addFloat(float value) {
+      parent.accept(value);
+    }
+  }
+
+  private static final class DoubleConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+
+    private DoubleConverter(Consumer<Object> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void addInt(int value) {
+      parent.accept((double) value);
+    }
+
+    @Override
+    public void addLong(long value) {
+      parent.accept((double) value);
+    }
+
+    @Override
+    public void addFloat(float value) {
+      parent.accept((double) value);
+    }
+
+    @Override
+    public void addDouble(double value) {
+      parent.accept(value);
+    }
+  }
+
+  private static final class BytesConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+
+    private BytesConverter(Consumer<Object> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      parent.accept(ByteBuffer.wrap(value.getBytes()));
+    }
+  }
+
+  /**
+   * Reads strings, decoding each entry of a dictionary once instead of once per value.
+   */
+  private static final class StringConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+    private final boolean dateTime;
+    private String[] dictionary;
+
+    private StringConverter(Consumer<Object> parent, boolean dateTime) {
+      this.parent = parent;
+      this.dateTime = dateTime;
+    }
+
+    @Override
+    public boolean hasDictionarySupport() {
+      return true;
+    }
+
+    @Override
+    public void setDictionary(Dictionary dictionary) {
+      this.dictionary = new String[dictionary.getMaxId() + 1];
+      for (int i = 0; i <= dictionary.getMaxId(); i++) {
+        this.dictionary[i] = decode(dictionary.decodeToBinary(i));
+      }
+    }
+
+    @Override
+    public void addValueFromDictionary(int dictionaryId) {
+      parent.accept(dictionary[dictionaryId]);
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      parent.accept(decode(value));
+    }
+
+    private String decode(Binary value) {
+      String decoded = value.toStringUsingUTF8();
+      if (dateTime) {
+        try {
+          LocalDateTime.parse(decoded);
+        } catch (DateTimeParseException exception) {
+          throw new UnexpectedFormatException(
+            String.format("Datetime value '%s' is not in ISO-8601 format.", decoded), exception);
+        }
+      }
+      return decoded;
+    }
+  }
+
+  /**
+   * Reads timestamps stored as longs, and int96 timestamps as written by Hive and Impala.
+   */
+  private static final class TimestampConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+    private final boolean micros;
+    private final long multiplier;
+
+    private TimestampConverter(Consumer<Object> parent, Type type, boolean micros) {
+      this.parent = parent;
+      this.micros = micros;
+      this.multiplier = micros && type.getOriginalType() == OriginalType.TIMESTAMP_MILLIS ? 1000L : 1L;
+    }
+
+    @Override
+    public void addLong(long value) {
+      parent.accept(value * multiplier);
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      // this logic is taken from Spark's ParquetRowConverter
+      ByteBuffer buf = value.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+      long timeOfDayNanos = buf.getLong();
+      int julianDay = buf.getInt();
+      long seconds = (julianDay - JULIAN_DAY_OF_EPOCH) * SECONDS_PER_DAY;
+      long rawTime = TimeUnit.SECONDS.toMicros(seconds) + TimeUnit.NANOSECONDS.toMicros(timeOfDayNanos);
+      parent.accept(micros ? rawTime : TimeUnit.MICROSECONDS.toMillis(rawTime));
+    }
+  }
+
+  /**
+   * Reads the unscaled value of decimals stored as binaries, fixed length binaries, ints or longs.
+   */
+  private static final class DecimalConverter extends PrimitiveConverter {
+    private final Consumer<Object> parent;
+
+    private DecimalConverter(Consumer<Object> parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      parent.accept(ByteBuffer.wrap(value.getBytes()));
+    }
+
+    @Override
+    public void addInt(int value) {
+      addLong(value);
+    }
+
+    @Override
+    public void addLong(long value) {
+      parent.accept(ByteBuffer.wrap(BigInteger.valueOf(value).toByteArray()));
+    }
+  }
+
+  /**
+   * Converter for a list, following the same backward-compatibility rules as the Avro converter.
+   *
+   * <pre>
+   *   optional group the_list (LIST) { <-- this layer
+   *     repeated group array {
+   *       optional (type) element;
+   *     }
+   *   }
+   * </pre>
+   */
+  private static final class ArrayConverter extends GroupConverter {
+    private final Consumer<Object> parent;
+    private final Converter converter;
+    private List<Object> values;
+
+    private ArrayConverter(String name, GroupType type, Schema elementSchema, Consumer<Object> parent) {
+      this.parent = parent;
+      Schema nonNullElementSchema = nonNullable(elementSchema);
+      Type repeatedType = type.getType(0);
+      if (isElementType(repeatedType, nonNullElementSchema)) {
+        // the element type is the repeated type (and required)
+        converter = newConverter(name, nonNullElementSchema, repeatedType, value -> values.add(value));
+      } else {
+        // the element is wrapped in a synthetic group and may be optional
+        converter = new ElementConverter(name, repeatedType.asGroupType(), nonNullElementSchema);
+      }
+    }
+
+    /**
+     * Returns whether the repeated type is the element type rather than a synthetic group wrapping it, as decided by
+     * {@code AvroIndexedRecordConverter.AvroArrayConverter}.
+     */
+    private static boolean isElementType(Type repeatedType, Schema elementSchema) {
+      if (repeatedType.isPrimitive() || repeatedType.asGroupType().getFieldCount() > 1) {
+        return true;
+      }
+      return elementSchema.getType() == Schema.Type.RECORD && elementSchema.getFields().size() == 1
+        && elementSchema.getFields().get(0).getName().equals(repeatedType.asGroupType().getFieldName(0));
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return converter;
+    }
+
+    @Override
+    public void start() {
+      values = new ArrayList<>();
+    }
+
+    @Override
+    public void end() {
+      parent.accept(values);
+    }
+
+    /**
+     * Converter for list elements wrapped in a synthetic group.
+     */
+    private final class ElementConverter extends GroupConverter {
+      private final Converter elementConverter;
+      private Object element;
+
+      private ElementConverter(String name, GroupType repeatedType, Schema elementSchema) {
+        this.elementConverter = newConverter(name, elementSchema, repeatedType.getType(0),
+                                             value -> element = value);
+      }
+
+      @Override
+      public Converter getConverter(int fieldIndex) {
+        return elementConverter;
+      }
+
+      @Override
+      public void start() {
+        element = null;
+      }
+
+      @Override
+      public void end() {
+        values.add(element);
+      }
+    }
+  }
+
+  /**
+   * Converter for a map.
+   *
+   * <pre>
+   *   optional group the_map (MAP) { <-- this layer
+   *     repeated group key_value {
+   *       required binary key (UTF8);
+   *       optional (type) value;
+   *     }
+   *   }
+   * </pre>
+   */
+  private static final class MapConverter extends GroupConverter {
+    private final Consumer<Object> parent;
+    private final Converter keyValueConverter;
+    private Map<Object, Object> map;
+
+    private MapConverter(String name, GroupType type, Map.Entry<Schema, Schema> mapSchema, Consumer<Object> parent) {
+      this.parent = parent;
+      this.keyValueConverter = new KeyValueConverter(name, type.getType(0).asGroupType(), mapSchema);
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+      return keyValueConverter;
+    }
+
+    @Override
+    public void start() {
+      map = new HashMap<>();
+    }
+
+    @Override
+    public void end() {
+      parent.accept(map);
+    }
+
+    private final class KeyValueConverter extends GroupConverter {
+      private final Converter keyConverter;
+      private final Converter valueConverter;
+      private Object key;
+      private Object value;
+
+      private KeyValueConverter(String name, GroupType keyValueType, Map.Entry<Schema, Schema> mapSchema) {
+        this.keyConverter = newConverter(name, nonNullable(mapSchema.getKey()), keyValueType.getType(0),
+                                         key -> this.key = key);
+        this.valueConverter = newConverter(name, nonNullable(mapSchema.getValue()), keyValueType.getType(1),
+                                           value -> this.value = value);
+      }
+
+      @Override
+      public Converter getConverter(int fieldIndex) {
+        if (fieldIndex == 0) {
+          return keyConverter;
+        } else if (fieldIndex == 1) {
+          return valueConverter;
+        }
+        throw new IllegalArgumentException("only the key (0) and value (1) fields expected: " + fieldIndex);
+      }
+
+      @Override
+      public void start() {
+        key = null;
+        value = null;
+      }
+
+      @Override
+      public void end() {
+        map.put(key, value);
+      }
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.format.parquet.output;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
@@ -29,6 +30,7 @@ import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingOutputFormat;
 import io.cdap.plugin.format.output.AbstractOutputFormatProvider;
 import org.apache.parquet.format.CompressionCodec;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -79,6 +81,18 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
         throw new IllegalArgumentException("Unsupported compression codec " + conf.compressionCodec, e);
       }
     }
+    if (conf.rowGroupSize != null) {
+      configuration.put(ParquetOutputFormat.BLOCK_SIZE, String.valueOf(conf.rowGroupSize));
+    }
+    if (conf.pageSize != null) {
+      configuration.put(ParquetOutputFormat.PAGE_SIZE, String.valueOf(conf.pageSize));
+    }
+    if (conf.dictionaryPageSize != null) {
+      configuration.put(ParquetOutputFormat.DICTIONARY_PAGE_SIZE, String.valueOf(conf.dictionaryPageSize));
+    }
+    if (conf.enableDictionary != null) {
+      configuration.put(ParquetOutputFormat.ENABLE_DICTIONARY, String.valueOf(conf.enableDictionary));
+    }
     return configuration;
   }
 
@@ -89,6 +103,15 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
     private static final String SCHEMA_DESC = "Schema of the data to write.";
     private static final String CODEC_DESC =
       "Compression codec to use when writing data. Must be 'snappy', 'gzip', or 'none'.";
+    private static final String ROW_GROUP_SIZE_DESC = "Size in bytes of the row groups, which are buffered in " +
+      "memory before they are written. Larger row groups compress better, smaller ones let readers skip more data " +
+      "using the column statistics of each row group. Defaults to 134217728 (128 MB).";
+    private static final String PAGE_SIZE_DESC = "Size in bytes of the pages the columns of a row group are " +
+      "split into. Pages are the unit of compression and encoding. Defaults to 1048576 (1 MB).";
+    private static final String DICTIONARY_PAGE_SIZE_DESC = "Maximum size in bytes of the dictionary of a column " +
+      "in a row group. Columns whose dictionary grows larger fall back to plain encoding. Defaults to 1048576 (1 MB).";
+    private static final String ENABLE_DICTIONARY_DESC = "Whether to dictionary encode columns. Dictionary encoding " +
+      "makes columns with few distinct values much smaller. Defaults to true.";
 
     @Macro
     @Description(SCHEMA_DESC)
@@ -99,7 +122,45 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
     @Description(CODEC_DESC)
     private String compressionCodec;
 
+    @Macro
+    @Nullable
+    @Description(ROW_GROUP_SIZE_DESC)
+    private Long rowGroupSize;
+
+    @Macro
+    @Nullable
+    @Description(PAGE_SIZE_DESC)
+    private Integer pageSize;
+
+    @Macro
+    @Nullable
+    @Description(DICTIONARY_PAGE_SIZE_DESC)
+    private Integer dictionaryPageSize;
+
+    @Macro
+    @Nullable
+    @Description(ENABLE_DICTIONARY_DESC)
+    private Boolean enableDictionary;
+
+    public Conf() {
+    }
+
+    @VisibleForTesting
+    Conf(String schema, @Nullable String compressionCodec, @Nullable Long rowGroupSize, @Nullable Integer pageSize,
+         @Nullable Integer dictionaryPageSize, @Nullable Boolean enableDictionary) {
+      this.schema = schema;
+      this.compressionCodec = compressionCodec;
+      this.rowGroupSize = rowGroupSize;
+      this.pageSize = pageSize;
+      this.dictionaryPageSize = dictionaryPageSize;
+      this.enableDictionary = enableDictionary;
+    }
+
     private void validate() {
+      validatePositive("rowGroupSize", rowGroupSize);
+      validatePositive("pageSize", pageSize);
+      validatePositive("dictionaryPageSize", dictionaryPageSize);
+
       if (containsMacro("schema")) {
         return;
       }
@@ -114,6 +175,13 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
         throw new IllegalArgumentException("Unable to parse output schema: " + e.getMessage(), e);
       }
     }
+
+    private void validatePositive(String name, @Nullable Number size) {
+      if (!containsMacro(name) && size != null && size.longValue() <= 0) {
+        throw new IllegalArgumentException(String.format("Invalid %s %s. It must be a positive number of bytes.",
+                                                         name, size));
+      }
+    }
   }
 
   private static PluginClass getPluginClass() {
@@ -121,6 +189,13 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
     properties.put("schema", new PluginPropertyField("schema", Conf.SCHEMA_DESC, "string", true, true));
     properties.put("compressionCodec",
                    new PluginPropertyField("compressionCodec", Conf.CODEC_DESC, "string", false, true));
+    properties.put("rowGroupSize",
+                   new PluginPropertyField("rowGroupSize", Conf.ROW_GROUP_SIZE_DESC, "long", false, true));
+    properties.put("pageSize", new PluginPropertyField("pageSize", Conf.PAGE_SIZE_DESC, "int", false, true));
+    properties.put("dictionaryPageSize",
+                   new PluginPropertyField("dictionaryPageSize", Conf.DICTIONARY_PAGE_SIZE_DESC, "int", false, true));
+    properties.put("enableDictionary",
+                   new PluginPropertyField("enableDictionary", Conf.ENABLE_DICTIONARY_DESC, "boolean", false, true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC, ParquetOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.SchemaCache;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroSchemaConverter;
+import org.apache.parquet.avro.AvroWriteSupport;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes StructuredRecords to parquet without copying them into Avro GenericRecords first.
+ *
+ * The parquet schema is derived from the Avro form of the record schema the same way the Avro write support derives
+ * it, and the Avro schema is stored in the file metadata, so the files are laid out and read back exactly like the
+ * ones written through Avro.
+ */
+class StructuredWriteSupport extends WriteSupport<StructuredRecord> {
+  // file metadata key the Avro read support takes the Avro schema from
+  private static final String AVRO_SCHEMA_METADATA_KEY = "parquet.avro.schema";
+
+  private Schema schema;
+  private MessageType parquetSchema;
+  private boolean oldListStructure;
+  private RecordConsumer consumer;
+
+  @Override
+  public WriteContext init(Configuration configuration) {
+    String schemaJson = configuration.get(ParquetOutputFormatProvider.SCHEMA_KEY);
+    try {
+      schema = SchemaCache.parseJson(schemaJson);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to parse output schema: " + e.getMessage(), e);
+    }
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(schemaJson);
+    parquetSchema = new AvroSchemaConverter(configuration).convert(avroSchema);
+    oldListStructure = configuration.getBoolean(AvroWriteSupport.WRITE_OLD_LIST_STRUCTURE, true);
+    return new WriteContext(parquetSchema,
+                            Collections.singletonMap(AVRO_SCHEMA_METADATA_KEY, avroSchema.toString()));
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer recordConsumer) {
+    this.consumer = recordConsumer;
+  }
+
+  @Override
+  public void write(StructuredRecord record) {
+    consumer.startMessage();
+    writeFields(parquetSchema, schema, record);
+    consumer.endMessage();
+  }
+
+  private void writeFields(GroupType type, Schema recordSchema, StructuredRecord record) {
+    int index = 0;
+    for (Schema.Field field : recordSchema.getFields()) {
+      Schema fieldSchema = field.getSchema();
+      if (fieldSchema.getType() == Schema.Type.NULL) {
+        // null fields are not in the parquet schema
+        continue;
+      }
+      Type fieldType = type.getType(index);
+      Object value = record.get(field.getName());
+      if (value != null) {
+        consumer.startField(fieldType.getName(), index);
+        writeValue(fieldType, fieldSchema, value);
+        consumer.endField(fieldType.getName(), index);
+      } else if (record.getSchema().getField(field.getName()) == null) {
+        throw new IllegalArgumentException("Input record does not contain the " + field.getName() + " field.");
+      } else if (fieldType.isRepetition(Type.Repetition.REQUIRED)) {
+        throw new IllegalArgumentException("Null-value for required field: " + field.getName());
+      }
+      index++;
+    }
+  }
+
+  private void writeValue(Type type, Schema valueSchema, Object value) {
+    Schema nonNullable = valueSchema.isNullable() ? valueSchema.getNonNullable() : valueSchema;
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+        consumer.addBoolean((Boolean) value);
+        break;
+      case INT:
+        consumer.addInteger(((Number) value).intValue());
+        break;
+      case LONG:
+        consumer.addLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+        consumer.addFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        consumer.addDouble(((Number) value).doubleValue());
+        break;
+      case STRING:
+      case ENUM:
+        consumer.addBinary(Binary.fromString(value.toString()));
+        break;
+      case BYTES:
+        if (value instanceof ByteBuffer) {
+          consumer.addBinary(Binary.fromReusedByteBuffer((ByteBuffer) value));
+        } else {
+          consumer.addBinary(Binary.fromReusedByteArray((byte[]) value));
+        }
+        break;
+      case RECORD:
+        consumer.startGroup();
+        writeFields(type.asGroupType(), nonNullable, (StructuredRecord) value);
+        consumer.endGroup();
+        break;
+      case ARRAY:
+        writeArray(type.asGroupType(), nonNullable.getComponentSchema(), value);
+        break;
+      case MAP:
+        writeMap(type.asGroupType(), nonNullable.getMapSchema().getValue(), (Map<?, ?>) value);
+        break;
+      case UNION:
+        writeUnion(type.asGroupType(), nonNullable.getUnionSchemas(), value);
+        break;
+      default:
+        throw new IllegalArgumentException("Cannot write values of type " + nonNullable.getType() + " to parquet.");
+    }
+  }
+
+  private void writeArray(GroupType type, Schema componentSchema, Object value) {
+    int size = value instanceof Collection ? ((Collection<?>) value).size() : Array.getLength(value);
+    consumer.startGroup();
+    if (size > 0) {
+      Type repeatedType = type.getType(0);
+      consumer.startField(repeatedType.getName(), 0);
+      int index = 0;
+      if (value instanceof Collection) {
+        for (Object element : (Collection<?>) value) {
+          writeElement(repeatedType, componentSchema, element, index++);
+        }
+      } else {
+        for (; index < size; index++) {
+          writeElement(repeatedType, componentSchema, Array.get(value, index), index);
+        }
+      }
+      consumer.endField(repeatedType.getName(), 0);
+    }
+    consumer.endGroup();
+  }
+
+  private void writeElement(Type repeatedType, Schema componentSchema, Object element, int index) {
+    if (oldListStructure) {
+      // the repeated field is the element, so it cannot be null
+      if (element == null) {
+        throw new IllegalArgumentException(
+          String.format("Array contains a null element at %d. Set %s=false to turn on support for arrays with null " +
+                          "elements.", index, AvroWriteSupport.WRITE_OLD_LIST_STRUCTURE));
+      }
+      writeValue(repeatedType, componentSchema, element);
+      return;
+    }
+    // the repeated field is a group holding an optional element
+    Type elementType = repeatedType.asGroupType().getType(0);
+    consumer.startGroup();
+    if (element != null) {
+      consumer.startField(elementType.getName(), 0);
+      writeValue(elementType, componentSchema, element);
+      consumer.endField(elementType.getName(), 0);
+    } else if (elementType.isRepetition(Type.Repetition.REQUIRED)) {
+      throw new IllegalArgumentException("Array contains a null element at " + index + " of a non-nullable type.");
+    }
+    consumer.endGroup();
+  }
+
+  private void writeMap(GroupType type, Schema valueSchema, Map<?, ?> map) {
+    consumer.startGroup();
+    if (!map.isEmpty()) {
+      GroupType keyValueType = type.getType(0).asGroupType();
+      Type keyType = keyValueType.getType(0);
+      Type valueType = keyValueType.getType(1);
+      consumer.startField(keyValueType.getName(), 0);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        consumer.startGroup();
+        consumer.startField(keyType.getName(), 0);
+        consumer.addBinary(Binary.fromString(entry.getKey().toString()));
+        consumer.endField(keyType.getName(), 0);
+        if (entry.getValue() != null) {
+          consumer.startField(valueType.getName(), 1);
+          writeValue(valueType, valueSchema, entry.getValue());
+          consumer.endField(valueType.getName(), 1);
+        } else if (valueType.isRepetition(Type.Repetition.REQUIRED)) {
+          throw new IllegalArgumentException("Map contains a null value for key " + entry.getKey() +
+                                               " of a non-nullable type.");
+        }
+        consumer.endGroup();
+      }
+      consumer.endField(keyValueType.getName(), 0);
+    }
+    consumer.endGroup();
+  }
+
+  /**
+   * Writes a value of a union of several non-null types, as a group with one field per type, in which only the
+   * field of the type the value belongs to is set.
+   */
+  private void writeUnion(GroupType type, List<Schema> unionSchemas, Object value) {
+    int index = 0;
+    for (Schema memberSchema : unionSchemas) {
+      if (memberSchema.getType() == Schema.Type.NULL) {
+        // nulls have no field in the group
+        continue;
+      }
+      if (matches(memberSchema, value)) {
+        Type memberType = type.getType(index);
+        consumer.startGroup();
+        consumer.startField(memberType.getName(), index);
+        writeValue(memberType, memberSchema, value);
+        consumer.endField(memberType.getName(), index);
+        consumer.endGroup();
+        return;
+      }
+      index++;
+    }
+    throw new IllegalArgumentException(String.format("Value of class %s does not match any type of the union %s.",
+                                                     value.getClass().getName(), unionSchemas));
+  }
+
+  /**
+   * Returns whether the value belongs to the schema, deciding the way Avro resolves unions: by the class of the value
+   * and, for records, by the record name.
+   */
+  private static boolean matches(Schema schema, Object value) {
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return value instanceof Boolean;
+      case INT:
+        return value instanceof Integer;
+      case LONG:
+        return value instanceof Long;
+      case FLOAT:
+        return value instanceof Float;
+      case DOUBLE:
+        return value instanceof Double;
+      case STRING:
+        return value instanceof CharSequence;
+      case ENUM:
+        return value instanceof CharSequence && schema.getEnumValues().contains(value.toString());
+      case BYTES:
+        return value instanceof ByteBuffer || value instanceof byte[];
+      case RECORD:
+        return value instanceof StructuredRecord
+          && schema.getRecordName().equals(((StructuredRecord) value).getSchema().getRecordName());
+      case ARRAY:
+        return value instanceof Collection || value.getClass().isArray() && !(value instanceof byte[]);
+      case MAP:
+        return value instanceof Map;
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParquetFilters}.
+ */
+public class ParquetFiltersTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("age", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("ratio", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("country", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("verified", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("payload", Schema.of(Schema.Type.BYTES)));
+
+  private static final Operators.LongColumn ID = FilterApi.longColumn("id");
+  private static final Operators.IntColumn AGE = FilterApi.intColumn("age");
+  private static final Operators.FloatColumn RATIO = FilterApi.floatColumn("ratio");
+  private static final Operators.DoubleColumn SCORE = FilterApi.doubleColumn("score");
+  private static final Operators.BinaryColumn COUNTRY = FilterApi.binaryColumn("country");
+  private static final Operators.BooleanColumn VERIFIED = FilterApi.booleanColumn("verified");
+
+  @Test
+  public void testOperators() {
+    assertCompiles(FilterApi.eq(ID, 5L), "id = 5");
+    assertCompiles(FilterApi.notEq(ID, 5L), "id != 5");
+    assertCompiles(FilterApi.lt(ID, 5L), "id < 5");
+    assertCompiles(FilterApi.ltEq(ID, 5L), "id <= 5");
+    assertCompiles(FilterApi.gt(ID, 5L), "id > 5");
+    assertCompiles(FilterApi.gtEq(ID, 5L), "id >= 5");
+  }
+
+  @Test
+  public void testTypes() {
+    assertCompiles(FilterApi.gt(AGE, 30), "age > 30");
+    assertCompiles(FilterApi.ltEq(RATIO, 0.5f), "ratio <= 0.5");
+    assertCompiles(FilterApi.gtEq(SCORE, 1.5d), "score >= 1.5");
+    assertCompiles(FilterApi.lt(COUNTRY, Binary.fromString("US")), "country < 'US'");
+    assertCompiles(FilterApi.eq(COUNTRY, Binary.fromString("it's")), "country = 'it''s'");
+    assertCompiles(FilterApi.eq(VERIFIED, true), "verified = true");
+    assertCompiles(FilterApi.notEq(VERIFIED, false), "verified != FALSE");
+  }
+
+  @Test
+  public void testNullTests() {
+    assertCompiles(FilterApi.eq(AGE, null), "age is null");
+    assertCompiles(FilterApi.notEq(COUNTRY, null), "country is not null");
+    assertCompiles(FilterApi.eq(SCORE, null), "score is null");
+  }
+
+  @Test
+  public void testLogicalOperators() {
+    assertCompiles(FilterApi.or(FilterApi.and(FilterApi.gt(ID, 5L), FilterApi.ltEq(AGE, 30)),
+                                FilterApi.not(FilterApi.eq(COUNTRY, Binary.fromString("US")))),
+                   "id > 5 and age <= 30 or not country = 'US'");
+    assertCompiles(FilterApi.and(FilterApi.gtEq(ID, 5L),
+                                 FilterApi.or(FilterApi.lt(SCORE, 1.5d), FilterApi.notEq(VERIFIED, true))),
+                   "id >= 5 and (score < 1.5 or verified <> true)");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBooleanOrdering() {
+    ParquetFilters.parse("verified < true", SCHEMA);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnquotedString() {
+    ParquetFilters.parse("country = US", SCHEMA);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownField() {
+    ParquetFilters.parse("missing = 1", SCHEMA);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() {
+    ParquetFilters.parse("payload = 'abc'", SCHEMA);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumber() {
+    ParquetFilters.parse("age = 1.5", SCHEMA);
+  }
+
+  private static void assertCompiles(FilterPredicate expected, String filter) {
+    Assert.assertEquals(expected, ParquetFilters.parse(filter, SCHEMA));
+  }
+}
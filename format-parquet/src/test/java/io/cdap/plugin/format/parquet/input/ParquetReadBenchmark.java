@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a parquet file into StructuredRecords through Avro GenericRecords, as the source used to, with
+ * building the records directly through the {@link StructuredReadSupport}.
+ *
+ * Run with: java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main ParquetReadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParquetReadBenchmark {
+  private static final int RECORDS = 100000;
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("country", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("created", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("updated", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("price", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))));
+
+  private File dir;
+  private Path path;
+  private Configuration conf;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("parquet-benchmark").toFile();
+    path = new Path(new File(dir, "records.parquet").toURI());
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(SCHEMA.toString());
+    try (ParquetWriter<GenericRecord> writer = AvroParquetWriter.<GenericRecord>builder(path)
+      .withSchema(avroSchema)
+      .build()) {
+      for (int i = 0; i < RECORDS; i++) {
+        GenericRecord record = new GenericData.Record(avroSchema);
+        record.put("id", (long) i);
+        record.put("name", i % 10 == 0 ? null : "name " + i);
+        record.put("country", i % 3 == 0 ? "US" : "CA");
+        record.put("score", i * 0.5d);
+        record.put("created", 18000 + i % 365);
+        record.put("updated", 1600000000000000L + i);
+        record.put("price", ByteBuffer.wrap(new byte[] {(byte) (i % 100), (byte) i}));
+        record.put("tags", Arrays.asList("a", "b" + i % 5));
+        writer.write(record);
+      }
+    }
+    conf = new Configuration();
+    AvroReadSupport.setAvroReadSchema(conf, avroSchema);
+  }
+
+  @TearDown
+  public void tearDown() {
+    new File(dir, "records.parquet").delete();
+    dir.delete();
+  }
+
+  @Benchmark
+  public void readThroughAvro(Blackhole blackhole) throws IOException {
+    AvroToStructuredTransformer transformer = new AvroToStructuredTransformer();
+    try (ParquetReader<GenericRecord> reader =
+           ParquetReader.builder(new ProjectingAvroReadSupport(), path).withConf(conf).build()) {
+      GenericRecord record;
+      while ((record = reader.read()) != null) {
+        blackhole.consume(transformer.transform(record, SCHEMA, null).build());
+      }
+    }
+  }
+
+  @Benchmark
+  public void readStructured(Blackhole blackhole) throws IOException {
+    try (ParquetReader<StructuredRecord.Builder> reader =
+           ParquetReader.builder(new StructuredReadSupport(SCHEMA, null), path).withConf(conf).build()) {
+      StructuredRecord.Builder builder;
+      while ((builder = reader.read()) != null) {
+        blackhole.consume(builder.build());
+      }
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests that reading a parquet file through the {@link StructuredReadSupport} gives the same records as reading it
+ * through Avro GenericRecords and converting them with the {@link AvroToStructuredTransformer}.
+ */
+public class StructuredReadSupportTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema POINT_SCHEMA = Schema.recordOf(
+    "point",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("label", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("point", Schema.nullableOf(POINT_SCHEMA)));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("flag", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("ratio", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("payload", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("created", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("opened", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MILLIS))),
+    Schema.Field.of("closed", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MICROS))),
+    Schema.Field.of("updated", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("deleted", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS))),
+    Schema.Field.of("local", Schema.nullableOf(Schema.of(Schema.LogicalType.DATETIME))),
+    Schema.Field.of("price", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.nullableOf(Schema.of(Schema.Type.LONG))))),
+    Schema.Field.of("points", Schema.arrayOf(POINT_SCHEMA)),
+    Schema.Field.of("named", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING), POINT_SCHEMA))),
+    Schema.Field.of("inner", Schema.nullableOf(INNER_SCHEMA)));
+  private static final int RECORDS = 20;
+
+  private static Path path;
+
+  @BeforeClass
+  public static void writeFile() throws IOException {
+    path = new Path(new File(TEMP_FOLDER.newFolder(), "records.parquet").toURI());
+    org.apache.avro.Schema avroSchema = toAvro(SCHEMA);
+    org.apache.avro.Schema pointSchema = toAvro(POINT_SCHEMA);
+    org.apache.avro.Schema innerSchema = toAvro(INNER_SCHEMA);
+    try (ParquetWriter<GenericRecord> writer = AvroParquetWriter.<GenericRecord>builder(path)
+      .withSchema(avroSchema)
+      .build()) {
+      for (int i = 0; i < RECORDS; i++) {
+        // every nullable field is null in some of the records
+        boolean nulls = i % 4 == 3;
+        GenericRecord record = new GenericData.Record(avroSchema);
+        record.put("id", (long) i);
+        record.put("flag", nulls ? null : i % 2 == 0);
+        record.put("count", nulls ? null : i * 7);
+        record.put("ratio", i / 4f);
+        record.put("score", nulls ? null : i * 0.5d);
+        record.put("name", nulls ? null : "name " + i);
+        record.put("payload", nulls ? null : ByteBuffer.wrap(new byte[] {(byte) i, 0, (byte) -i}));
+        record.put("created", 18000 + i);
+        record.put("opened", nulls ? null : 3600000 + i);
+        record.put("closed", nulls ? null : 3600000000L + i);
+        record.put("updated", nulls ? null : 1600000000000000L + i);
+        record.put("deleted", nulls ? null : 1600000000000L + i);
+        record.put("local", nulls ? null : "2021-01-0" + (i % 9 + 1) + "T10:15:30");
+        record.put("price", nulls ? null : ByteBuffer.wrap(new byte[] {(byte) (i % 100), (byte) i}));
+        List<String> tags = new ArrayList<>();
+        for (int j = 0; j < i % 3; j++) {
+          tags.add("tag" + j);
+        }
+        record.put("tags", nulls ? null : tags);
+        Map<String, Long> counts = new HashMap<>();
+        for (int j = 0; j < i % 4; j++) {
+          counts.put("k" + j, j == 1 ? null : (long) i * j);
+        }
+        record.put("counts", nulls ? null : counts);
+        List<GenericRecord> points = new ArrayList<>();
+        for (int j = 0; j < i % 3; j++) {
+          points.add(point(pointSchema, j, j == 1 ? null : "p" + j));
+        }
+        record.put("points", points);
+        record.put("named", nulls ? null : Collections.singletonMap("n" + i, point(pointSchema, i, null)));
+        if (!nulls) {
+          GenericRecord inner = new GenericData.Record(innerSchema);
+          inner.put("id", (long) -i);
+          inner.put("point", i % 2 == 0 ? null : point(pointSchema, -i, "inner"));
+          record.put("inner", inner);
+        }
+        writer.write(record);
+      }
+    }
+  }
+
+  @Test
+  public void testSameAsAvro() throws IOException {
+    List<StructuredRecord> structured = readStructured(SCHEMA);
+    Assert.assertEquals(RECORDS, structured.size());
+    Assert.assertEquals(readThroughAvro(SCHEMA), structured);
+  }
+
+  @Test
+  public void testProjectedSameAsAvro() throws IOException {
+    Schema projected = Schema.recordOf(
+      "record",
+      Schema.Field.of("inner", Schema.nullableOf(INNER_SCHEMA)),
+      Schema.Field.of("updated", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+      Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                               Schema.nullableOf(Schema.of(Schema.Type.LONG))))),
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+    List<StructuredRecord> structured = readStructured(projected);
+    Assert.assertEquals(RECORDS, structured.size());
+    Assert.assertEquals(readThroughAvro(projected), structured);
+  }
+
+  private static GenericRecord point(org.apache.avro.Schema schema, int x, String label) {
+    GenericRecord point = new GenericData.Record(schema);
+    point.put("x", x);
+    point.put("label", label);
+    return point;
+  }
+
+  private static org.apache.avro.Schema toAvro(Schema schema) {
+    return new org.apache.avro.Schema.Parser().parse(schema.toString());
+  }
+
+  private static List<StructuredRecord> readThroughAvro(Schema schema) throws IOException {
+    Configuration conf = new Configuration();
+    AvroReadSupport.setAvroReadSchema(conf, toAvro(schema));
+    AvroToStructuredTransformer transformer = new AvroToStructuredTransformer();
+    List<StructuredRecord> records = new ArrayList<>();
+    try (ParquetReader<GenericRecord> reader =
+           ParquetReader.builder(new ProjectingAvroReadSupport(), path).withConf(conf).build()) {
+      GenericRecord record;
+      while ((record = reader.read()) != null) {
+        records.add(transformer.transform(record, schema, null).build());
+      }
+    }
+    return records;
+  }
+
+  private static List<StructuredRecord> readStructured(Schema schema) throws IOException {
+    List<StructuredRecord> records = new ArrayList<>();
+    try (ParquetReader<StructuredRecord.Builder> reader =
+           ParquetReader.builder(new StructuredReadSupport(schema, null), path).withConf(new Configuration()).build()) {
+      StructuredRecord.Builder builder;
+      while ((builder = reader.read()) != null) {
+        records.add(builder.build());
+      }
+    }
+    return records;
+  }
+}
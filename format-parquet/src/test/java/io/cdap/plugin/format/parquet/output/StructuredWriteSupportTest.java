@@ -0,0 +1,371 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroWriteSupport;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.page.PageReader;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link StructuredWriteSupport}, writing records and reading them back through Avro.
+ */
+public class StructuredWriteSupportTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("label", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema POINT_SCHEMA = Schema.recordOf(
+    "point",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("y", Schema.of(Schema.Type.INT)));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("flag", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("ratio", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("country", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("payload", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("created", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("updated", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("local", Schema.nullableOf(Schema.of(Schema.LogicalType.DATETIME))),
+    Schema.Field.of("price", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.nullableOf(Schema.of(Schema.Type.LONG))))),
+    Schema.Field.of("matrix", Schema.arrayOf(Schema.arrayOf(Schema.of(Schema.Type.INT)))),
+    Schema.Field.of("points", Schema.arrayOf(POINT_SCHEMA)),
+    Schema.Field.of("inner", Schema.nullableOf(INNER_SCHEMA)));
+
+  private static final Schema A_SCHEMA = Schema.recordOf("a", Schema.Field.of("value", Schema.of(Schema.Type.INT)));
+  private static final Schema B_SCHEMA = Schema.recordOf("b", Schema.Field.of("value", Schema.of(Schema.Type.INT)));
+  private static final Schema UNION_SCHEMA = Schema.recordOf(
+    "union",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("value", Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.INT),
+                                            Schema.of(Schema.Type.LONG), Schema.of(Schema.Type.DOUBLE),
+                                            Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.BYTES),
+                                            A_SCHEMA, B_SCHEMA)));
+
+  private static final Schema NULL_ELEMENTS_SCHEMA = Schema.recordOf(
+    "nulls",
+    Schema.Field.of("values", Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING)))));
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<StructuredRecord> written = new ArrayList<>();
+    List<StructuredRecord> expected = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      // arrays and byte arrays are accepted in place of lists and byte buffers
+      written.add(record(i, i % 3 == 1));
+      expected.add(record(i, false));
+    }
+    Path path = newPath();
+    write(path, SCHEMA, new Configuration(), written);
+
+    Assert.assertEquals(expected, read(path, SCHEMA));
+  }
+
+  @Test
+  public void testUnion() throws Exception {
+    Object[] values = {null, 1, 2L, 3.5d, "four", ByteBuffer.wrap(new byte[] {5}),
+      StructuredRecord.builder(A_SCHEMA).set("value", 6).build(),
+      StructuredRecord.builder(B_SCHEMA).set("value", 7).build(), new byte[] {8}};
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < values.length; i++) {
+      records.add(StructuredRecord.builder(UNION_SCHEMA).set("id", i).set("value", values[i]).build());
+    }
+    Path path = newPath();
+    write(path, UNION_SCHEMA, new Configuration(), records);
+
+    // the union is read as the Avro value of the member that was written
+    List<Object> read = new ArrayList<>();
+    try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(path).build()) {
+      GenericRecord record;
+      while ((record = reader.read()) != null) {
+        read.add(record.get("value"));
+      }
+    }
+    Assert.assertEquals(values.length, read.size());
+    Assert.assertNull(read.get(0));
+    Assert.assertEquals(1, read.get(1));
+    Assert.assertEquals(2L, read.get(2));
+    Assert.assertEquals(3.5d, read.get(3));
+    Assert.assertEquals("four", read.get(4).toString());
+    Assert.assertEquals(ByteBuffer.wrap(new byte[] {5}), read.get(5));
+    // records of the same shape are told apart by their name
+    Assert.assertEquals("a", ((GenericRecord) read.get(6)).getSchema().getName());
+    Assert.assertEquals(6, ((GenericRecord) read.get(6)).get("value"));
+    Assert.assertEquals("b", ((GenericRecord) read.get(7)).getSchema().getName());
+    Assert.assertEquals(7, ((GenericRecord) read.get(7)).get("value"));
+    Assert.assertEquals(ByteBuffer.wrap(new byte[] {8}), read.get(8));
+  }
+
+  @Test
+  public void testUnionWithoutMatchingType() throws Exception {
+    StructuredRecord record = StructuredRecord.builder(UNION_SCHEMA).set("id", 0).set("value", 1f).build();
+    try {
+      write(newPath(), UNION_SCHEMA, new Configuration(), Arrays.asList(record));
+      Assert.fail("A float should not match any type of the union");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testNullArrayElements() throws Exception {
+    StructuredRecord record = StructuredRecord.builder(NULL_ELEMENTS_SCHEMA)
+      .set("values", Arrays.asList("a", null, "c"))
+      .build();
+    try {
+      write(newPath(), NULL_ELEMENTS_SCHEMA, new Configuration(), Arrays.asList(record));
+      Assert.fail("Arrays with null elements should not be writable with the old list structure");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    Configuration conf = new Configuration();
+    conf.setBoolean(AvroWriteSupport.WRITE_OLD_LIST_STRUCTURE, false);
+    Path path = newPath();
+    write(path, NULL_ELEMENTS_SCHEMA, conf, Arrays.asList(record));
+    Assert.assertEquals(Arrays.asList(record), read(path, NULL_ELEMENTS_SCHEMA));
+  }
+
+  @Test
+  public void testLayoutProperties() throws Exception {
+    Map<String, String> properties = new ParquetOutputFormatProvider(
+      new ParquetOutputFormatProvider.Conf(SCHEMA.toString(), "snappy", 4096L, 512, 64, true))
+      .getOutputFormatConfiguration();
+    Assert.assertEquals("SNAPPY", properties.get("parquet.compression"));
+    Assert.assertEquals("4096", properties.get(ParquetOutputFormat.BLOCK_SIZE));
+    Assert.assertEquals("512", properties.get(ParquetOutputFormat.PAGE_SIZE));
+    Assert.assertEquals("64", properties.get(ParquetOutputFormat.DICTIONARY_PAGE_SIZE));
+    Assert.assertEquals("true", properties.get(ParquetOutputFormat.ENABLE_DICTIONARY));
+
+    properties = new ParquetOutputFormatProvider(
+      new ParquetOutputFormatProvider.Conf(SCHEMA.toString(), null, null, null, null, false))
+      .getOutputFormatConfiguration();
+    Assert.assertNull(properties.get("parquet.compression"));
+    Assert.assertNull(properties.get(ParquetOutputFormat.BLOCK_SIZE));
+    Assert.assertNull(properties.get(ParquetOutputFormat.PAGE_SIZE));
+    Assert.assertNull(properties.get(ParquetOutputFormat.DICTIONARY_PAGE_SIZE));
+    Assert.assertEquals("false", properties.get(ParquetOutputFormat.ENABLE_DICTIONARY));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPageSize() {
+    new ParquetOutputFormatProvider(new ParquetOutputFormatProvider.Conf(SCHEMA.toString(), null, null, 0, null, null))
+      .getOutputFormatConfiguration();
+  }
+
+  @Test
+  public void testRowGroupSize() throws Exception {
+    List<StructuredRecord> records = records(1000);
+    ParquetMetadata small = footer(writeWithLayout(4096L, null, null, null, records));
+    ParquetMetadata large = footer(writeWithLayout(null, null, null, null, records));
+    Assert.assertTrue(small.getBlocks().size() > 1);
+    Assert.assertEquals(1, large.getBlocks().size());
+  }
+
+  @Test
+  public void testPageSize() throws Exception {
+    List<StructuredRecord> records = records(1000);
+    Assert.assertTrue(countPages(writeWithLayout(null, 512, null, false, records), "name") > 1);
+    Assert.assertEquals(1, countPages(writeWithLayout(null, null, null, false, records), "name"));
+  }
+
+  @Test
+  public void testDictionary() throws Exception {
+    List<StructuredRecord> records = records(1000);
+    ParquetMetadata plain = footer(writeWithLayout(null, null, null, false, records));
+    Assert.assertFalse(encodings(plain, "country").contains(Encoding.PLAIN_DICTIONARY));
+    Assert.assertFalse(encodings(plain, "name").contains(Encoding.PLAIN_DICTIONARY));
+
+    // a column whose dictionary outgrows the dictionary page size falls back to plain encoding, the others do not
+    ParquetMetadata dictionary = footer(writeWithLayout(null, null, 64, true, records));
+    Assert.assertTrue(encodings(dictionary, "country").contains(Encoding.PLAIN_DICTIONARY));
+    Assert.assertFalse(encodings(dictionary, "name").contains(Encoding.PLAIN_DICTIONARY));
+
+    ParquetMetadata large = footer(writeWithLayout(null, null, null, true, records));
+    Assert.assertTrue(encodings(large, "country").contains(Encoding.PLAIN_DICTIONARY));
+    Assert.assertTrue(encodings(large, "name").contains(Encoding.PLAIN_DICTIONARY));
+  }
+
+  /**
+   * Returns a record with a different mix of null and non-null values for each index. Collections and bytes are
+   * given as arrays if asked, which the write support also accepts.
+   */
+  private static StructuredRecord record(int i, boolean arrays) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA)
+      .set("id", (long) i)
+      .set("count", i * 3)
+      .set("ratio", i / 4f)
+      .set("country", i % 3 == 0 ? "US" : "CA")
+      .set("created", 18000 + i);
+    boolean nulls = i % 4 == 3;
+    if (!nulls) {
+      byte[] payload = {(byte) i, 0, (byte) -i};
+      byte[] price = {(byte) (i % 100), (byte) i};
+      builder.set("flag", i % 2 == 0)
+        .set("score", i * 0.5d)
+        .set("name", "name " + i)
+        .set("payload", arrays ? payload : ByteBuffer.wrap(payload))
+        .set("updated", 1600000000000000L + i)
+        .set("local", "2021-01-0" + (i % 9 + 1) + "T10:15:30")
+        .set("price", arrays ? price : ByteBuffer.wrap(price))
+        .set("inner", StructuredRecord.builder(INNER_SCHEMA).set("x", i).set("label", i % 2 == 0 ? null : "l" + i)
+          .build());
+      List<String> tags = new ArrayList<>();
+      for (int j = 0; j < i % 3; j++) {
+        tags.add("tag" + j);
+      }
+      builder.set("tags", arrays ? tags.toArray(new String[0]) : tags);
+      Map<String, Long> counts = new HashMap<>();
+      for (int j = 0; j < i % 4; j++) {
+        counts.put("k" + j, j == 1 ? null : (long) i * j);
+      }
+      builder.set("counts", counts);
+    }
+    List<List<Integer>> matrix = new ArrayList<>();
+    int[][] matrixArray = new int[i % 3][];
+    List<StructuredRecord> points = new ArrayList<>();
+    for (int j = 0; j < i % 3; j++) {
+      matrix.add(Arrays.asList(i, j));
+      matrixArray[j] = new int[] {i, j};
+      points.add(StructuredRecord.builder(POINT_SCHEMA).set("x", i).set("y", j).build());
+    }
+    builder.set("matrix", arrays ? matrixArray : matrix);
+    builder.set("points", arrays ? points.toArray(new StructuredRecord[0]) : points);
+    return builder.build();
+  }
+
+  private static List<StructuredRecord> records(int count) {
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      records.add(record(i, false));
+    }
+    return records;
+  }
+
+  private static Path newPath() throws IOException {
+    return new Path(new File(TEMP_FOLDER.newFolder(), "records.parquet").toURI());
+  }
+
+  private static Path writeWithLayout(Long rowGroupSize, Integer pageSize, Integer dictionaryPageSize,
+                                      Boolean enableDictionary, List<StructuredRecord> records) throws Exception {
+    Map<String, String> properties = new ParquetOutputFormatProvider(
+      new ParquetOutputFormatProvider.Conf(SCHEMA.toString(), null, rowGroupSize, pageSize, dictionaryPageSize,
+                                           enableDictionary))
+      .getOutputFormatConfiguration();
+    Configuration conf = new Configuration();
+    for (Map.Entry<String, String> property : properties.entrySet()) {
+      conf.set(property.getKey(), property.getValue());
+    }
+    Path path = newPath();
+    write(path, SCHEMA, conf, records);
+    return path;
+  }
+
+  private static void write(Path path, Schema schema, Configuration conf,
+                            List<StructuredRecord> records) throws Exception {
+    conf.set(ParquetOutputFormatProvider.SCHEMA_KEY, schema.toString());
+    RecordWriter<Void, StructuredRecord> writer = new ParquetOutputFormat<>(new StructuredWriteSupport())
+      .getRecordWriter(conf, path, CompressionCodecName.UNCOMPRESSED);
+    for (StructuredRecord record : records) {
+      writer.write(null, record);
+    }
+    writer.close(null);
+  }
+
+  private static List<StructuredRecord> read(Path path, Schema schema) throws IOException {
+    AvroToStructuredTransformer transformer = new AvroToStructuredTransformer();
+    List<StructuredRecord> records = new ArrayList<>();
+    try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(path).build()) {
+      GenericRecord record;
+      while ((record = reader.read()) != null) {
+        records.add(transformer.transform(record, schema));
+      }
+    }
+    return records;
+  }
+
+  private static ParquetMetadata footer(Path path) throws IOException {
+    return ParquetFileReader.readFooter(new Configuration(), path);
+  }
+
+  private static Set<Encoding> encodings(ParquetMetadata footer, String column) {
+    for (ColumnChunkMetaData chunk : footer.getBlocks().get(0).getColumns()) {
+      if (chunk.getPath().toDotString().equals(column)) {
+        return chunk.getEncodings();
+      }
+    }
+    throw new IllegalArgumentException("No column " + column);
+  }
+
+  private static int countPages(Path path, String column) throws IOException {
+    Configuration conf = new Configuration();
+    ParquetMetadata footer = footer(path);
+    List<BlockMetaData> blocks = footer.getBlocks();
+    Assert.assertEquals(1, blocks.size());
+    ColumnDescriptor descriptor = footer.getFileMetaData().getSchema().getColumnDescription(new String[] {column});
+    try (ParquetFileReader reader = new ParquetFileReader(conf, path, blocks, Arrays.asList(descriptor))) {
+      PageReadStore rowGroup = reader.readNextRowGroup();
+      PageReader pages = rowGroup.getPageReader(descriptor);
+      int count = 0;
+      while (pages.readPage() != null) {
+        count++;
+      }
+      return count;
+    }
+  }
+}
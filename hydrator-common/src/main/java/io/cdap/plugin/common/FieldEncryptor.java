@@ -21,20 +21,34 @@ import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.commons.codec.binary.Hex;
 
 import java.io.InputStream;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
-import javax.crypto.BadPaddingException;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 
 /**
  * Encrypts and decrypts fields based on their schema.
+ *
+ * The cipher and key are loaded once in {@link #initialize()} and reused for every field. In GCM mode, a random
+ * initialization vector is generated for every value and stored in front of the encrypted bytes, since a GCM
+ * initialization vector must never be reused with the same key.
  */
 public abstract class FieldEncryptor {
+  private static final int GCM_IV_LENGTH = 12;
+  private static final int GCM_TAG_LENGTH_BITS = 128;
   private final KeystoreConf conf;
   private int mode;
   private Cipher cipher;
+  private Key key;
+  private boolean gcm;
+  private SecureRandom random;
+  // reusable buffers for the bytes of primitive values and for decrypted bytes
+  private final byte[] primitiveBuffer = new byte[Bytes.SIZEOF_LONG];
+  private byte[] outputBuffer = new byte[0];
 
   public FieldEncryptor(KeystoreConf conf, int mode) {
     this.mode = mode;
@@ -46,9 +60,16 @@ public abstract class FieldEncryptor {
     try (InputStream keystoreStream = getKeystoreInputStream(conf.getKeystorePath())) {
       keystore.load(keystoreStream, conf.getKeystorePassword().toCharArray());
     }
-    Key key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
+    key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
     cipher = Cipher.getInstance(conf.getTransformation());
-    if (conf.getIvHex() != null) {
+    gcm = isGcm(conf.getTransformation());
+    if (gcm) {
+      if (conf.getIvHex() != null) {
+        throw new IllegalArgumentException("An initialization vector must not be given for GCM mode. " +
+                                             "A random one is generated for every value.");
+      }
+      random = new SecureRandom();
+    } else if (conf.getIvHex() != null) {
       byte[] ivBytes = Hex.decodeHex(conf.getIvHex().toCharArray());
       IvParameterSpec ivParameterSpec = new IvParameterSpec(ivBytes);
       cipher.init(mode, key, ivParameterSpec);
@@ -59,61 +80,95 @@ public abstract class FieldEncryptor {
 
   public abstract InputStream getKeystoreInputStream(String keystorePath) throws Exception;
 
-  public byte[] encrypt(Object fieldVal, Schema fieldSchema) throws BadPaddingException, IllegalBlockSizeException {
+  public byte[] encrypt(Object fieldVal, Schema fieldSchema) throws GeneralSecurityException {
     if (fieldVal == null) {
       return null;
     }
 
     Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-    byte[] fieldBytes;
+    byte[] fieldBytes = primitiveBuffer;
+    int length;
     switch (fieldType) {
       case INT:
-        fieldBytes = Bytes.toBytes((int) fieldVal);
+        length = Bytes.putInt(fieldBytes, 0, (int) fieldVal);
         break;
       case LONG:
-        fieldBytes = Bytes.toBytes((long) fieldVal);
+        length = Bytes.putLong(fieldBytes, 0, (long) fieldVal);
         break;
       case FLOAT:
-        fieldBytes = Bytes.toBytes((float) fieldVal);
+        length = Bytes.putFloat(fieldBytes, 0, (float) fieldVal);
         break;
       case DOUBLE:
-        fieldBytes = Bytes.toBytes((double) fieldVal);
+        length = Bytes.putDouble(fieldBytes, 0, (double) fieldVal);
         break;
       case STRING:
         fieldBytes = Bytes.toBytes((String) fieldVal);
+        length = fieldBytes.length;
         break;
       case BYTES:
         fieldBytes = (byte[]) fieldVal;
+        length = fieldBytes.length;
         break;
       default:
         throw new IllegalArgumentException("field type " + fieldType + " is not supported.");
     }
-    return cipher.doFinal(fieldBytes);
+
+    int offset = 0;
+    byte[] iv = null;
+    if (gcm) {
+      iv = new byte[GCM_IV_LENGTH];
+      random.nextBytes(iv);
+      cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv));
+      offset = GCM_IV_LENGTH;
+    }
+    // encrypt straight into the array that is returned
+    byte[] encrypted = new byte[offset + cipher.getOutputSize(length)];
+    if (iv != null) {
+      System.arraycopy(iv, 0, encrypted, 0, iv.length);
+    }
+    int written = offset + cipher.doFinal(fieldBytes, 0, length, encrypted, offset);
+    return written == encrypted.length ? encrypted : Arrays.copyOf(encrypted, written);
   }
 
-  public Object decrypt(byte[] fieldBytes, Schema fieldSchema) throws BadPaddingException, IllegalBlockSizeException {
+  public Object decrypt(byte[] fieldBytes, Schema fieldSchema) throws GeneralSecurityException {
     if (fieldBytes == null) {
       return null;
     }
 
     Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-    fieldBytes = cipher.doFinal(fieldBytes);
+    int offset = 0;
+    if (gcm) {
+      if (fieldBytes.length < GCM_IV_LENGTH) {
+        throw new IllegalArgumentException("Encrypted value is too short to contain an initialization vector.");
+      }
+      cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_LENGTH_BITS, fieldBytes, 0, GCM_IV_LENGTH));
+      offset = GCM_IV_LENGTH;
+    }
+    int outputSize = cipher.getOutputSize(fieldBytes.length - offset);
+    if (outputBuffer.length < outputSize) {
+      outputBuffer = new byte[outputSize];
+    }
+    int length = cipher.doFinal(fieldBytes, offset, fieldBytes.length - offset, outputBuffer, 0);
     switch (fieldType) {
       case INT:
-        return Bytes.toInt(fieldBytes);
+        return Bytes.toInt(outputBuffer, 0, length);
       case LONG:
-        return Bytes.toLong(fieldBytes);
+        return Bytes.toLong(outputBuffer, 0, length);
       case FLOAT:
-        return Bytes.toFloat(fieldBytes);
+        return Bytes.toFloat(outputBuffer, 0);
       case DOUBLE:
-        return Bytes.toDouble(fieldBytes);
+        return Bytes.toDouble(outputBuffer, 0);
       case STRING:
-        return Bytes.toString(fieldBytes);
+        return Bytes.toString(outputBuffer, 0, length);
       case BYTES:
-        return fieldBytes;
+        return Arrays.copyOf(outputBuffer, length);
       default:
         throw new IllegalArgumentException("field type " + fieldType + " is not supported.");
     }
   }
 
+  private static boolean isGcm(String transformation) {
+    String[] parts = transformation.split("/");
+    return parts.length > 1 && "GCM".equalsIgnoreCase(parts[1].trim());
+  }
 }
@@ -27,12 +27,14 @@ import javax.annotation.Nullable;
  * Config for keystore properties.
  */
 public class KeystoreConf extends PluginConfig {
-  @Description("Transformation algorithm, mode, and padding, separated by slashes; for example: AES/CBC/PKCS5Padding")
+  @Description("Transformation algorithm, mode, and padding, separated by slashes; for example: AES/CBC/PKCS5Padding. " +
+    "In GCM mode, for example AES/GCM/NoPadding, a random initialization vector is generated for every value " +
+    "and stored in front of the encrypted value.")
   @Macro
   private String transformation;
 
   @Nullable
-  @Description("Initialization vector if using CBC mode")
+  @Description("Initialization vector if using CBC mode. Must not be set when using GCM mode.")
   @Macro
   private String ivHex;
 
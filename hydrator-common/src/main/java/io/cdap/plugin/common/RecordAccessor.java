@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Accesses the fields of records of one schema by position. The name, nullability and effective type of each field
+ * are resolved once when the accessor is created, so code that handles every field of every record does not look
+ * fields up by name in the schema or unwrap nullable unions for each value. Accessors are immutable and can be
+ * shared between threads; create one per schema and keep it for as long as records of that schema arrive.
+ *
+ * {@link StructuredRecord} only stores values by name, so the getters and setters still pass the field name to the
+ * record; the position saves the schema lookup and the per-value type checks around it.
+ */
+public final class RecordAccessor {
+  private final Schema schema;
+  private final Schema.Field[] fields;
+  private final String[] names;
+  private final Schema[] schemas;
+  private final Schema.Type[] types;
+  private final Schema.LogicalType[] logicalTypes;
+  private final boolean[] nullable;
+  private final Map<String, Integer> positions;
+
+  private RecordAccessor(Schema schema) {
+    List<Schema.Field> schemaFields = schema.getFields();
+    if (schemaFields == null) {
+      throw new IllegalArgumentException(String.format("Schema '%s' is not a record schema.", schema));
+    }
+    int size = schemaFields.size();
+    this.schema = schema;
+    this.fields = schemaFields.toArray(new Schema.Field[size]);
+    this.names = new String[size];
+    this.schemas = new Schema[size];
+    this.types = new Schema.Type[size];
+    this.logicalTypes = new Schema.LogicalType[size];
+    this.nullable = new boolean[size];
+    this.positions = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      Schema fieldSchema = fields[i].getSchema();
+      names[i] = fields[i].getName();
+      nullable[i] = fieldSchema.isNullable();
+      schemas[i] = nullable[i] ? fieldSchema.getNonNullable() : fieldSchema;
+      types[i] = schemas[i].getType();
+      logicalTypes[i] = schemas[i].getLogicalType();
+      positions.put(names[i], i);
+    }
+  }
+
+  /**
+   * Creates an accessor for records of the given record schema.
+   *
+   * @throws IllegalArgumentException if the schema is not a record schema
+   */
+  public static RecordAccessor of(Schema schema) {
+    return new RecordAccessor(schema);
+  }
+
+  /**
+   * Returns the schema the accessor was created for.
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns the number of fields in the schema.
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Returns the position of the field with the given name, or -1 if the schema has no such field.
+   */
+  public int indexOf(String name) {
+    Integer position = positions.get(name);
+    return position == null ? -1 : position;
+  }
+
+  public Schema.Field getField(int position) {
+    return fields[position];
+  }
+
+  public String getName(int position) {
+    return names[position];
+  }
+
+  /**
+   * Returns the schema of the field, without the null branch if the field is nullable.
+   */
+  public Schema getNonNullableSchema(int position) {
+    return schemas[position];
+  }
+
+  /**
+   * Returns the type of the field, ignoring the null branch if the field is nullable.
+   */
+  public Schema.Type getType(int position) {
+    return types[position];
+  }
+
+  /**
+   * Returns the logical type of the field, ignoring the null branch if the field is nullable.
+   */
+  @Nullable
+  public Schema.LogicalType getLogicalType(int position) {
+    return logicalTypes[position];
+  }
+
+  public boolean isNullable(int position) {
+    return nullable[position];
+  }
+
+  /**
+   * Returns the value of the field from a record of the accessor's schema.
+   */
+  @Nullable
+  public <T> T get(StructuredRecord record, int position) {
+    return record.get(names[position]);
+  }
+
+  /**
+   * Sets the value of the field in a builder for records of the accessor's schema.
+   */
+  public void set(StructuredRecord.Builder builder, int position, @Nullable Object value) {
+    builder.set(names[position], value);
+  }
+}
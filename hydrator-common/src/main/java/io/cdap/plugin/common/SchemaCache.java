@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread safe cache for parsing or converting schemas, for code that would otherwise parse the same schema
+ * once per split, per record or per row. Lookups first check the exact key object, which is cheap for callers that
+ * pass the same instance every time, and then keys equal to it, so that equal schemas from different sources share
+ * one parsed result. Parsed schemas are shared between callers and must not be modified.
+ *
+ * Hits on either level and misses are counted, so that callers with metrics can report them.
+ *
+ * @param <K> type of the schema or schema string to parse or convert
+ * @param <V> type of the parsed or converted schema
+ */
+public final class SchemaCache<K, V> {
+  private static final int DEFAULT_MAX_SIZE = 1000;
+  private static final SchemaCache<String, Schema> JSON = new SchemaCache<>(Schema::parseJson);
+
+  private final Loader<K, V> loader;
+  // weak keys are compared by identity
+  private final Cache<K, V> byIdentity;
+  private final Cache<K, V> byContent;
+  private final AtomicLong identityHits = new AtomicLong();
+  private final AtomicLong contentHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public SchemaCache(Loader<K, V> loader) {
+    this(loader, DEFAULT_MAX_SIZE);
+  }
+
+  public SchemaCache(Loader<K, V> loader, int maxSize) {
+    this.loader = loader;
+    this.byIdentity = CacheBuilder.newBuilder().weakKeys().maximumSize(maxSize).build();
+    this.byContent = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /**
+   * Parses a CDAP schema from its JSON representation through a cache shared by all plugins in the class loader.
+   *
+   * @throws IOException if the string is not a valid schema
+   */
+  public static Schema parseJson(String json) throws IOException {
+    return JSON.get(json);
+  }
+
+  /**
+   * Returns the cache behind {@link #parseJson(String)}, to read its hit counts.
+   */
+  public static SchemaCache<String, Schema> json() {
+    return JSON;
+  }
+
+  /**
+   * Returns the parsed or converted schema for the key, loading it if it is not cached.
+   *
+   * @throws IOException if the key could not be parsed or converted
+   */
+  public V get(K key) throws IOException {
+    V value = byIdentity.getIfPresent(key);
+    if (value != null) {
+      identityHits.incrementAndGet();
+      return value;
+    }
+    value = byContent.getIfPresent(key);
+    if (value != null) {
+      contentHits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+      value = loader.load(key);
+      byContent.put(key, value);
+    }
+    byIdentity.put(key, value);
+    return value;
+  }
+
+  /**
+   * Returns the number of lookups answered for the same key object as an earlier lookup.
+   */
+  public long getIdentityHits() {
+    return identityHits.get();
+  }
+
+  /**
+   * Returns the number of lookups answered for a key equal to, but not the same object as, an earlier one.
+   */
+  public long getContentHits() {
+    return contentHits.get();
+  }
+
+  /**
+   * Returns the number of lookups that had to parse or convert.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Parses or converts a schema.
+   *
+   * @param <K> type of the schema or schema string to parse or convert
+   * @param <V> type of the parsed or converted schema
+   */
+  @FunctionalInterface
+  public interface Loader<K, V> {
+    V load(K key) throws IOException;
+  }
+}
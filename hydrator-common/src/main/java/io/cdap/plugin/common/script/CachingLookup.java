@@ -16,45 +16,130 @@
 
 package io.cdap.plugin.common.script;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.cdap.cdap.etl.api.CacheConfig;
 import io.cdap.cdap.etl.api.Lookup;
+import io.cdap.cdap.etl.api.StageMetrics;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 
 /**
- * {@link Lookup} that provides caching over a delegate.
+ * {@link Lookup} that provides caching over a delegate. Keys without a value are cached as well, so that repeated
+ * lookups of missing keys do not reach the delegate either. Batch lookups read all keys that are not cached from the
+ * delegate in one batch.
+ *
+ * If a refresh interval is given, entries older than it are reloaded in the background the next time they are looked
+ * up, while the lookup is answered with the old value, so that lookups only wait for the delegate for keys that are
+ * not cached at all or have expired. Entries still expire after the expiry of the cache config. Background reloads
+ * call the delegate from another thread, concurrently with the caller and outside of any transaction it runs in, so
+ * refreshing is off unless asked for, and must only be used with delegates that allow it. Dataset backed lookups do
+ * not.
+ *
+ * If metrics are given, lookups answered by the cache are counted as {@code <prefix>.hits}, lookups that had to read
+ * from the delegate as {@code <prefix>.misses}, and the time spent reading from the delegate, including background
+ * reloads, as {@code <prefix>.load.millis}. The hit and miss counts assume the lookup is used by one thread at a time.
  *
  * @param <T> the type of object that will be returned for a lookup
  */
 public class CachingLookup<T> implements Lookup<T> {
+  // shared by all caching lookups, threads are only kept while reloads are running
+  private static final Executor REFRESH_EXECUTOR = Executors.newCachedThreadPool(
+    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("caching-lookup-refresh-%d").build());
 
   private final Lookup<T> delegate;
-  private final LoadingCache<String, T> cache;
+  private final LoadingCache<String, Optional<T>> cache;
+  private final AtomicLong loadedKeys;
+  private final StageMetrics metrics;
+  private final String hitsMetric;
+  private final String missesMetric;
+  private final String loadMillisMetric;
+
+  public CachingLookup(Lookup<T> delegate, CacheConfig cacheConfig) {
+    this(delegate, cacheConfig, 0, null, null);
+  }
+
+  /**
+   * @param delegate the lookup to cache
+   * @param cacheConfig the maximum size and expiry of the cache
+   * @param refreshSeconds the age in seconds after which entries are reloaded in the background, or 0 to only
+   *                       reload them when they expire. The delegate must be safe to call from another thread.
+   * @param metrics the metrics to count hits, misses and load time in, or null for none
+   * @param metricsPrefix the prefix of the metric names
+   */
+  public CachingLookup(Lookup<T> delegate, CacheConfig cacheConfig, long refreshSeconds,
+                       @Nullable StageMetrics metrics, @Nullable String metricsPrefix) {
+    this(delegate, cacheConfig, refreshSeconds, metrics, metricsPrefix, Ticker.systemTicker(), REFRESH_EXECUTOR);
+  }
 
-  public CachingLookup(final Lookup<T> delegate, CacheConfig cacheConfig) {
+  @VisibleForTesting
+  CachingLookup(final Lookup<T> delegate, CacheConfig cacheConfig, long refreshSeconds,
+                @Nullable StageMetrics metrics, @Nullable String metricsPrefix, Ticker ticker,
+                final Executor refreshExecutor) {
     this.delegate = delegate;
-    this.cache = CacheBuilder.newBuilder()
+    this.loadedKeys = new AtomicLong();
+    this.metrics = metrics;
+    this.hitsMetric = metricsPrefix + ".hits";
+    this.missesMetric = metricsPrefix + ".misses";
+    this.loadMillisMetric = metricsPrefix + ".load.millis";
+
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
       .maximumSize(cacheConfig.getMaxSize())
       .expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS)
-      .build(new CacheLoader<String, T>() {
-        @Override
-        public T load(String key) throws Exception {
-          return delegate.lookup(key);
-        }
-      });
+      .ticker(ticker)
+      .recordStats();
+    if (refreshSeconds > 0) {
+      builder.refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS);
+    }
+    this.cache = builder.build(new CacheLoader<String, Optional<T>>() {
+      @Override
+      public Optional<T> load(String key) {
+        loadedKeys.incrementAndGet();
+        return fetch(key);
+      }
+
+      @Override
+      public Map<String, Optional<T>> loadAll(Iterable<? extends String> keys) {
+        Set<String> keySet = ImmutableSet.copyOf(keys);
+        loadedKeys.addAndGet(keySet.size());
+        return fetch(keySet);
+      }
+
+      @Override
+      public ListenableFuture<Optional<T>> reload(final String key, Optional<T> oldValue) {
+        ListenableFutureTask<Optional<T>> task = ListenableFutureTask.create(() -> fetch(key));
+        refreshExecutor.execute(task);
+        return task;
+      }
+    });
   }
 
   @Override
   public T lookup(String key) {
-    return cache.getUnchecked(key);
+    long loaded = loadedKeys.get();
+    Optional<T> value = cache.getUnchecked(key);
+    boolean hit = loadedKeys.get() == loaded;
+    count(hit ? 1 : 0, hit ? 0 : 1);
+    return value.orNull();
   }
 
   @Override
@@ -64,15 +149,77 @@ public class CachingLookup<T> implements Lookup<T> {
 
   @Override
   public Map<String, T> lookup(Set<String> keys) {
-    ImmutableMap<String, T> cached = cache.getAllPresent(keys);
+    long loaded = loadedKeys.get();
+    Map<String, Optional<T>> values = getAll(keys);
+    int misses = (int) (loadedKeys.get() - loaded);
+    count(keys.size() - misses, misses);
+
+    ImmutableMap.Builder<String, T> result = ImmutableMap.builder();
+    for (Map.Entry<String, Optional<T>> entry : values.entrySet()) {
+      if (entry.getValue().isPresent()) {
+        result.put(entry.getKey(), entry.getValue().get());
+      }
+    }
+    return result.build();
+  }
 
-    Set<String> missingKeys = Sets.difference(keys, cached.keySet());
-    Map<String, T> missing = delegate.lookup(missingKeys);
-    cache.putAll(missing);
+  /**
+   * Reads the keys that are not cached yet from the delegate in one batch, for example the keys expected to be looked
+   * up, when the lookup is initialized. Prefetched keys are not counted as lookups.
+   */
+  public void prefetch(Set<String> keys) {
+    getAll(keys);
+  }
+
+  /**
+   * Returns the statistics of the cache, including the number of hits and misses and the average load time.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  private Map<String, Optional<T>> getAll(Set<String> keys) {
+    try {
+      return cache.getAll(keys);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private Optional<T> fetch(String key) {
+    long start = System.nanoTime();
+    T value = delegate.lookup(key);
+    countLoadTime(start);
+    return Optional.fromNullable(value);
+  }
+
+  private Map<String, Optional<T>> fetch(Set<String> keys) {
+    long start = System.nanoTime();
+    Map<String, T> found = delegate.lookup(keys);
+    countLoadTime(start);
+    // every key must have an entry, keys without a value are cached as absent
+    Map<String, Optional<T>> result = new HashMap<>();
+    for (String key : keys) {
+      result.put(key, Optional.fromNullable(found.get(key)));
+    }
+    return result;
+  }
+
+  private void count(int hits, int misses) {
+    if (metrics == null) {
+      return;
+    }
+    if (hits > 0) {
+      metrics.count(hitsMetric, hits);
+    }
+    if (misses > 0) {
+      metrics.count(missesMetric, misses);
+    }
+  }
 
-    return ImmutableMap.<String, T>builder()
-      .putAll(cached)
-      .putAll(missing)
-      .build();
+  private void countLoadTime(long startNanos) {
+    if (metrics != null) {
+      metrics.count(loadMillisMetric, (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
   }
 }
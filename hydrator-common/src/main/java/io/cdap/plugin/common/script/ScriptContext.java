@@ -22,6 +22,9 @@ import io.cdap.cdap.etl.api.LookupProvider;
 import io.cdap.cdap.etl.api.StageMetrics;
 import org.slf4j.Logger;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -37,9 +40,17 @@ public class ScriptContext {
 
   public ScriptContext(Logger logger, StageMetrics metrics, LookupProvider lookup, @Nullable LookupConfig lookupConfig,
                        JavaTypeConverters js, Arguments arguments) {
+    this(logger, metrics, lookup, lookupConfig, Collections.emptyMap(), js, arguments);
+  }
+
+  /**
+   * @param prefetchKeys the keys to read into the cache of each lookup table when {@link #prefetchLookups} is called
+   */
+  public ScriptContext(Logger logger, StageMetrics metrics, LookupProvider lookup, @Nullable LookupConfig lookupConfig,
+                       Map<String, Set<String>> prefetchKeys, JavaTypeConverters js, Arguments arguments) {
     this.logger = logger;
     this.metrics = metrics;
-    this.lookup = new ScriptLookupProvider(lookup, lookupConfig);
+    this.lookup = new ScriptLookupProvider(lookup, lookupConfig, prefetchKeys, metrics);
     this.js = js;
     this.arguments = arguments;
   }
@@ -56,6 +67,13 @@ public class ScriptContext {
     return lookup.provide(table, js);
   }
 
+  /**
+   * Reads the prefetch keys of the lookup tables into their caches, before the script looks any of them up.
+   */
+  public void prefetchLookups() {
+    lookup.prefetch(js);
+  }
+
   public Arguments getArguments() {
     return arguments;
   }
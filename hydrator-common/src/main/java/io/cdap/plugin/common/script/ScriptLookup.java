@@ -17,8 +17,10 @@ package io.cdap.plugin.common.script;
 
 import io.cdap.cdap.etl.api.Lookup;
 import io.cdap.cdap.etl.api.LookupTableConfig;
+import io.cdap.cdap.etl.api.StageMetrics;
 
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Provides JavaScript-friendly lookup functions.
@@ -28,11 +30,35 @@ public class ScriptLookup {
   private final Lookup<Object> delegate;
   private final JavaTypeConverters js;
   private final LookupTableConfig config;
+  @Nullable
+  private final CachingLookup<Object> cache;
 
   public ScriptLookup(Lookup<Object> delegate, LookupTableConfig config, JavaTypeConverters js) {
+    this(delegate, config, js, null, null);
+  }
+
+  /**
+   * @param metrics the metrics to count cache hits, misses and load time in, or null for none
+   * @param metricsPrefix the prefix of the metric names
+   */
+  public ScriptLookup(Lookup<Object> delegate, LookupTableConfig config, JavaTypeConverters js,
+                      @Nullable StageMetrics metrics, @Nullable String metricsPrefix) {
     this.config = config;
     this.js = js;
-    this.delegate = config.isCacheEnabled() ? new CachingLookup<>(delegate, config.getCacheConfig()) : delegate;
+    // no background refresh, datasets must be read in the transaction of the calling thread
+    this.cache = config.isCacheEnabled() ?
+      new CachingLookup<>(delegate, config.getCacheConfig(), 0, metrics, metricsPrefix) : null;
+    this.delegate = cache == null ? delegate : cache;
+  }
+
+  /**
+   * Reads the given keys into the cache in one batch, so that looking them up later does not reach the table. Does
+   * nothing if caching is not enabled.
+   */
+  public void prefetch(Set<String> keys) {
+    if (cache != null) {
+      cache.prefetch(keys);
+    }
   }
 
   public Object lookup(String key) {
@@ -19,6 +19,13 @@ import io.cdap.cdap.api.dataset.DatasetProperties;
 import io.cdap.cdap.etl.api.LookupConfig;
 import io.cdap.cdap.etl.api.LookupProvider;
 import io.cdap.cdap.etl.api.LookupTableConfig;
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * {@link LookupProvider} implementation.
@@ -27,14 +34,51 @@ public class ScriptLookupProvider {
 
   private final LookupProvider delegate;
   private final LookupConfig config;
+  private final Map<String, Set<String>> prefetchKeys;
+  @Nullable
+  private final StageMetrics metrics;
+  // the lookup of each table is kept, so that its cache lasts as long as the provider
+  private final Map<String, ScriptLookup> lookups;
 
   public ScriptLookupProvider(LookupProvider delegate, LookupConfig config) {
+    this(delegate, config, Collections.emptyMap(), null);
+  }
+
+  /**
+   * @param prefetchKeys the keys to read into the cache of each table when {@link #prefetch} is called
+   * @param metrics the metrics to count the cache hits, misses and load time of each table in, as
+   *                {@code lookup.<table>.hits}, {@code lookup.<table>.misses} and {@code lookup.<table>.load.millis},
+   *                or null for none
+   */
+  public ScriptLookupProvider(LookupProvider delegate, LookupConfig config, Map<String, Set<String>> prefetchKeys,
+                              @Nullable StageMetrics metrics) {
     this.delegate = delegate;
     this.config = config;
+    this.prefetchKeys = prefetchKeys;
+    this.metrics = metrics;
+    this.lookups = new HashMap<>();
   }
 
-  @SuppressWarnings("unchecked")
   public ScriptLookup provide(String table, JavaTypeConverters converters) {
+    ScriptLookup lookup = lookups.get(table);
+    if (lookup == null) {
+      lookup = create(table, converters);
+      lookups.put(table, lookup);
+    }
+    return lookup;
+  }
+
+  /**
+   * Reads the prefetch keys of each table into its cache. Keys of tables without caching are not read.
+   */
+  public void prefetch(JavaTypeConverters converters) {
+    for (Map.Entry<String, Set<String>> entry : prefetchKeys.entrySet()) {
+      provide(entry.getKey(), converters).prefetch(entry.getValue());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private ScriptLookup create(String table, JavaTypeConverters converters) {
     if (config == null) {
       throw new RuntimeException("Missing lookup configuration");
     }
@@ -45,6 +89,7 @@ public class ScriptLookupProvider {
     }
 
     DatasetProperties arguments = DatasetProperties.builder().addAll(tableConfig.getDatasetProperties()).build();
-    return new ScriptLookup(delegate.provide(table, arguments.getProperties()), tableConfig, converters);
+    return new ScriptLookup(delegate.provide(table, arguments.getProperties()), tableConfig, converters, metrics,
+                            "lookup." + table);
   }
 }
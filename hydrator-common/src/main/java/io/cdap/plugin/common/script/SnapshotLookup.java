@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common.script;
+
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.etl.api.CacheConfig;
+import io.cdap.cdap.etl.api.Lookup;
+import io.cdap.cdap.etl.api.StageMetrics;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Lookup} over a small, static lookup table that keeps every value read from its delegate for the lifetime
+ * of the lookup, so that each distinct key is read from the delegate at most once. Keys that have no value are
+ * remembered as well. Once the snapshot holds the maximum number of keys it stops growing, and keys that are not
+ * in it are read through a {@link CachingLookup} of the same size instead.
+ *
+ * If metrics are given, lookups answered by the snapshot are counted as {@code <prefix>.hits}, and all other
+ * lookups as {@code <prefix>.misses}.
+ *
+ * @param <T> the type of object that will be returned for a lookup
+ */
+public class SnapshotLookup<T> implements Lookup<T> {
+  // marks keys without a value in the snapshot, since the map cannot tell them apart from unknown keys
+  private static final Object ABSENT = new Object();
+
+  private final Lookup<T> delegate;
+  private final int maxSize;
+  private final Map<String, Object> snapshot;
+  private final StageMetrics metrics;
+  private final String hitsMetric;
+  private final String missesMetric;
+  private Lookup<T> overflow;
+
+  public SnapshotLookup(Lookup<T> delegate, int maxSize) {
+    this(delegate, maxSize, null, null);
+  }
+
+  public SnapshotLookup(Lookup<T> delegate, int maxSize, @Nullable StageMetrics metrics,
+                        @Nullable String metricsPrefix) {
+    this.delegate = delegate;
+    this.maxSize = maxSize;
+    this.snapshot = new HashMap<>();
+    this.metrics = metrics;
+    this.hitsMetric = metricsPrefix + ".hits";
+    this.missesMetric = metricsPrefix + ".misses";
+  }
+
+  @Override
+  public T lookup(String key) {
+    Object value = snapshot.get(key);
+    if (value != null) {
+      count(1, 0);
+      return value == ABSENT ? null : cast(value);
+    }
+    count(0, 1);
+    if (snapshot.size() >= maxSize) {
+      return getOverflow().lookup(key);
+    }
+    T loaded = delegate.lookup(key);
+    snapshot.put(key, loaded == null ? ABSENT : loaded);
+    return loaded;
+  }
+
+  @Override
+  public Map<String, T> lookup(String... keys) {
+    return lookup(ImmutableSet.copyOf(keys));
+  }
+
+  @Override
+  public Map<String, T> lookup(Set<String> keys) {
+    Map<String, T> result = new HashMap<>();
+    Set<String> missing = new HashSet<>();
+    for (String key : keys) {
+      Object value = snapshot.get(key);
+      if (value == null) {
+        missing.add(key);
+      } else if (value != ABSENT) {
+        result.put(key, cast(value));
+      }
+    }
+    count(keys.size() - missing.size(), missing.size());
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    // read all missing keys in one batch, and keep as many of them as fit
+    Map<String, T> loaded = snapshot.size() >= maxSize ? getOverflow().lookup(missing) : delegate.lookup(missing);
+    for (String key : missing) {
+      T value = loaded.get(key);
+      if (snapshot.size() < maxSize) {
+        snapshot.put(key, value == null ? ABSENT : value);
+      }
+      if (value != null) {
+        result.put(key, value);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of keys held in the snapshot.
+   */
+  public int size() {
+    return snapshot.size();
+  }
+
+  private Lookup<T> getOverflow() {
+    if (overflow == null) {
+      // the snapshot never expires, so neither do the values read past it
+      overflow = new CachingLookup<>(delegate, new CacheConfig(Integer.MAX_VALUE, maxSize));
+    }
+    return overflow;
+  }
+
+  private void count(int hits, int misses) {
+    if (metrics == null) {
+      return;
+    }
+    if (hits > 0) {
+      metrics.count(hitsMetric, hits);
+    }
+    if (misses > 0) {
+      metrics.count(missesMetric, misses);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T cast(Object value) {
+    return (T) value;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RecordAccessor}.
+ */
+public class RecordAccessorTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("date", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))));
+
+  @Test
+  public void testFields() {
+    RecordAccessor accessor = RecordAccessor.of(SCHEMA);
+    Assert.assertSame(SCHEMA, accessor.getSchema());
+    Assert.assertEquals(3, accessor.size());
+
+    Assert.assertEquals("id", accessor.getName(0));
+    Assert.assertEquals(Schema.Type.LONG, accessor.getType(0));
+    Assert.assertFalse(accessor.isNullable(0));
+    Assert.assertNull(accessor.getLogicalType(0));
+
+    Assert.assertEquals(SCHEMA.getField("name"), accessor.getField(1));
+    Assert.assertEquals(Schema.Type.STRING, accessor.getType(1));
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), accessor.getNonNullableSchema(1));
+    Assert.assertTrue(accessor.isNullable(1));
+
+    Assert.assertEquals(Schema.Type.INT, accessor.getType(2));
+    Assert.assertEquals(Schema.LogicalType.DATE, accessor.getLogicalType(2));
+
+    Assert.assertEquals(1, accessor.indexOf("name"));
+    Assert.assertEquals(-1, accessor.indexOf("missing"));
+  }
+
+  @Test
+  public void testGetAndSet() {
+    RecordAccessor accessor = RecordAccessor.of(SCHEMA);
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA);
+    accessor.set(builder, 0, 5L);
+    accessor.set(builder, 1, "foo");
+    StructuredRecord record = builder.build();
+
+    Assert.assertEquals(5L, accessor.<Long>get(record, 0).longValue());
+    Assert.assertEquals("foo", accessor.get(record, 1));
+    Assert.assertNull(accessor.get(record, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotRecord() {
+    RecordAccessor.of(Schema.of(Schema.Type.STRING));
+  }
+}
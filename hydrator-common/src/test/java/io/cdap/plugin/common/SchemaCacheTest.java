@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SchemaCache}.
+ */
+public class SchemaCacheTest {
+  private static final Schema SCHEMA = Schema.recordOf("record",
+                                                       Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                                       Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+
+  @Test
+  public void testIdentityAndContentHits() throws IOException {
+    AtomicInteger loads = new AtomicInteger();
+    SchemaCache<String, Schema> cache = new SchemaCache<>(json -> {
+      loads.incrementAndGet();
+      return Schema.parseJson(json);
+    });
+
+    String json = SCHEMA.toString();
+    Assert.assertEquals(SCHEMA, cache.get(json));
+    Schema parsed = cache.get(json);
+    // an equal string that is a different object
+    Assert.assertSame(parsed, cache.get(new String(json.toCharArray())));
+
+    Assert.assertEquals(1, loads.get());
+    Assert.assertEquals(1, cache.getMisses());
+    Assert.assertEquals(1, cache.getIdentityHits());
+    Assert.assertEquals(1, cache.getContentHits());
+  }
+
+  @Test
+  public void testParseJson() throws IOException {
+    Schema parsed = SchemaCache.parseJson(SCHEMA.toString());
+    Assert.assertEquals(SCHEMA, parsed);
+    Assert.assertSame(parsed, SchemaCache.parseJson(SCHEMA.toString()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidSchema() throws IOException {
+    SchemaCache.parseJson("{\"type\": \"record\"");
+  }
+
+  @Test
+  public void testBounded() throws IOException {
+    AtomicInteger loads = new AtomicInteger();
+    SchemaCache<Integer, String> cache = new SchemaCache<>(key -> {
+      loads.incrementAndGet();
+      return key.toString();
+    }, 10);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(Integer.toString(i), cache.get(i));
+    }
+    // the first keys were evicted, and are loaded again
+    Assert.assertEquals("0", cache.get(0));
+    Assert.assertEquals(101, loads.get());
+  }
+}
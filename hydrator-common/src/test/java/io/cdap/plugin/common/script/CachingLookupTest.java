@@ -17,6 +17,7 @@
 package io.cdap.plugin.common.script;
 
 import com.google.common.base.Predicates;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
@@ -25,9 +26,12 @@ import io.cdap.cdap.etl.api.Lookup;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -98,6 +102,125 @@ public class CachingLookupTest {
       lookup.lookup("foo1", "foo4", "foo2"));
   }
 
+  @Test
+  public void testMissingKeysCached() {
+    Map<String, String> backing = new HashMap<>();
+    backing.put("foo", "1");
+    CountingLookup<String> delegate = new CountingLookup<>(new MapLookup<>(backing));
+    CachingLookup<String> lookup = new CachingLookup<>(delegate, new CacheConfig(100, 10));
+
+    Assert.assertNull(lookup.lookup("bar"));
+    Assert.assertNull(lookup.lookup("bar"));
+    Assert.assertEquals(ImmutableMap.of("foo", "1"), lookup.lookup("foo", "bar"));
+    Assert.assertEquals(ImmutableMap.of("foo", "1"), lookup.lookup("foo", "bar"));
+    // one read for bar, and one batch for foo
+    Assert.assertEquals(2, delegate.reads);
+  }
+
+  @Test
+  public void testPrefetch() {
+    Map<String, String> backing = new HashMap<>();
+    for (int i = 1; i <= 10; i++) {
+      backing.put("foo" + i, Integer.toString(i));
+    }
+    CountingLookup<String> delegate = new CountingLookup<>(new MapLookup<>(backing));
+    CachingLookup<String> lookup = new CachingLookup<>(delegate, new CacheConfig(100, 100));
+
+    lookup.prefetch(ImmutableSet.of("foo1", "foo2", "foo3", "missing"));
+    Assert.assertEquals(1, delegate.reads);
+    Assert.assertEquals("1", lookup.lookup("foo1"));
+    Assert.assertNull(lookup.lookup("missing"));
+    Assert.assertEquals(ImmutableMap.of("foo2", "2", "foo3", "3"), lookup.lookup("foo2", "foo3"));
+    Assert.assertEquals(1, delegate.reads);
+    Assert.assertEquals(4, lookup.getStats().hitCount());
+  }
+
+  @Test
+  public void testRefresh() {
+    Map<String, String> backing = new HashMap<>();
+    backing.put("foo", "1");
+    FakeTicker ticker = new FakeTicker();
+    List<Runnable> reloads = new ArrayList<>();
+    CachingLookup<String> lookup = new CachingLookup<>(new MapLookup<>(backing), new CacheConfig(100, 10), 1, null,
+                                                       null, ticker, reloads::add);
+
+    Assert.assertEquals("1", lookup.lookup("foo"));
+    backing.put("foo", "2");
+    ticker.advance(500);
+    Assert.assertEquals("1", lookup.lookup("foo"));
+    Assert.assertTrue(reloads.isEmpty());
+
+    ticker.advance(600);
+    // the old value is served while the new one is read in the background
+    Assert.assertEquals("1", lookup.lookup("foo"));
+    Assert.assertEquals(1, reloads.size());
+    reloads.remove(0).run();
+    Assert.assertEquals("2", lookup.lookup("foo"));
+    Assert.assertTrue(reloads.isEmpty());
+  }
+
+  @Test
+  public void testNoRefreshByDefault() {
+    Map<String, String> backing = new HashMap<>();
+    backing.put("foo", "1");
+    FakeTicker ticker = new FakeTicker();
+    List<Runnable> reloads = new ArrayList<>();
+    CachingLookup<String> lookup = new CachingLookup<>(new MapLookup<>(backing), new CacheConfig(2, 10), 0, null,
+                                                       null, ticker, reloads::add);
+
+    Assert.assertEquals("1", lookup.lookup("foo"));
+    backing.put("foo", "2");
+    ticker.advance(1500);
+    Assert.assertEquals("1", lookup.lookup("foo"));
+    // entries are only read again, on the calling thread, once they expire
+    ticker.advance(600);
+    Assert.assertEquals("2", lookup.lookup("foo"));
+    Assert.assertTrue(reloads.isEmpty());
+  }
+
+  /**
+   * Ticker that only moves when told to.
+   */
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+
+  private static class CountingLookup<T> implements Lookup<T> {
+
+    private final Lookup<T> delegate;
+    private int reads;
+
+    CountingLookup(Lookup<T> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public T lookup(String key) {
+      reads++;
+      return delegate.lookup(key);
+    }
+
+    @Override
+    public Map<String, T> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, T> lookup(Set<String> keys) {
+      reads++;
+      return delegate.lookup(keys);
+    }
+  }
+
   private static class MapLookup<T> implements Lookup<T> {
 
     private final Map<String, T> backing;
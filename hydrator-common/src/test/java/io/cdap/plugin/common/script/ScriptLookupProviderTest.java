@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common.script;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.etl.api.CacheConfig;
+import io.cdap.cdap.etl.api.Lookup;
+import io.cdap.cdap.etl.api.LookupConfig;
+import io.cdap.cdap.etl.api.LookupProvider;
+import io.cdap.cdap.etl.api.LookupTableConfig;
+import io.cdap.cdap.etl.api.StageMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link ScriptLookupProvider}.
+ */
+public class ScriptLookupProviderTest {
+
+  @Test
+  public void testPrefetchAndMetrics() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("a", "1", "b", "2"));
+    LookupConfig lookupConfig = new LookupConfig(ImmutableMap.of(
+      "t", new LookupTableConfig(LookupTableConfig.TableType.DATASET, Collections.emptyMap(), true,
+                                 new CacheConfig(100, 10))));
+    Map<String, Integer> counts = new HashMap<>();
+    ScriptLookupProvider provider = new ScriptLookupProvider(provider(delegate), lookupConfig,
+                                                             ImmutableMap.of("t", ImmutableSet.of("a", "c")),
+                                                             metrics(counts));
+
+    provider.prefetch(null);
+    Assert.assertEquals(1, delegate.batches);
+    Assert.assertEquals(2, delegate.reads);
+    // prefetching is not counted as lookups
+    Assert.assertNull(counts.get("lookup.t.hits"));
+    Assert.assertNull(counts.get("lookup.t.misses"));
+
+    // the same lookup is handed out every time, so the prefetched keys, including the missing one, are cached
+    ScriptLookup lookup = provider.provide("t", null);
+    Assert.assertSame(lookup, provider.provide("t", null));
+    Assert.assertEquals("1", lookup.lookup("a"));
+    Assert.assertNull(lookup.lookup("c"));
+    Assert.assertEquals(2, delegate.reads);
+    Assert.assertEquals("2", lookup.lookup("b"));
+    Assert.assertEquals(3, delegate.reads);
+
+    Assert.assertEquals(2, (int) counts.get("lookup.t.hits"));
+    Assert.assertEquals(1, (int) counts.get("lookup.t.misses"));
+    Assert.assertTrue(counts.containsKey("lookup.t.load.millis"));
+  }
+
+  @Test
+  public void testPrefetchWithoutCache() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("a", "1"));
+    LookupConfig lookupConfig = new LookupConfig(ImmutableMap.of(
+      "t", new LookupTableConfig(LookupTableConfig.TableType.DATASET)));
+    ScriptLookupProvider provider = new ScriptLookupProvider(provider(delegate), lookupConfig,
+                                                             ImmutableMap.of("t", ImmutableSet.of("a")), null);
+
+    // there is no cache to read the keys into
+    provider.prefetch(null);
+    Assert.assertEquals(0, delegate.reads);
+    Assert.assertEquals("1", provider.provide("t", null).lookup("a"));
+    Assert.assertEquals("1", provider.provide("t", null).lookup("a"));
+    Assert.assertEquals(2, delegate.reads);
+  }
+
+  private static LookupProvider provider(Lookup<String> lookup) {
+    return new LookupProvider() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+        return (Lookup<T>) lookup;
+      }
+    };
+  }
+
+  private static StageMetrics metrics(Map<String, Integer> counts) {
+    return (StageMetrics) Proxy.newProxyInstance(
+      StageMetrics.class.getClassLoader(), new Class<?>[] {StageMetrics.class}, (proxy, method, args) -> {
+        if (method.getName().equals("count")) {
+          counts.merge((String) args[0], (Integer) args[1], Integer::sum);
+        }
+        return null;
+      });
+  }
+
+  private static class CountingLookup implements Lookup<String> {
+    private final Map<String, String> values;
+    private int reads;
+    private int batches;
+
+    CountingLookup(Map<String, String> values) {
+      this.values = values;
+    }
+
+    @Override
+    public String lookup(String key) {
+      reads++;
+      return values.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      batches++;
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        reads++;
+        if (values.containsKey(key)) {
+          result.put(key, values.get(key));
+        }
+      }
+      return result;
+    }
+  }
+}
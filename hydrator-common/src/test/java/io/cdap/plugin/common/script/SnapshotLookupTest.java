@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.common.script;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.etl.api.Lookup;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link SnapshotLookup}.
+ */
+public class SnapshotLookupTest {
+
+  @Test
+  public void testReadsEachKeyOnce() {
+    Map<String, String> backing = new HashMap<>();
+    backing.put("foo", "1");
+    CountingLookup delegate = new CountingLookup(backing);
+    SnapshotLookup<String> lookup = new SnapshotLookup<>(delegate, 10);
+
+    Assert.assertEquals("1", lookup.lookup("foo"));
+    Assert.assertNull(lookup.lookup("bar"));
+
+    // values, and keys without values, are served from the snapshot from now on
+    backing.put("foo", "2");
+    backing.put("bar", "3");
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("1", lookup.lookup("foo"));
+      Assert.assertNull(lookup.lookup("bar"));
+    }
+    Assert.assertEquals(2, delegate.reads);
+    Assert.assertEquals(2, lookup.size());
+  }
+
+  @Test
+  public void testBatch() {
+    Map<String, String> backing = new HashMap<>();
+    for (int i = 1; i <= 10; i++) {
+      backing.put("foo" + i, Integer.toString(i));
+    }
+    CountingLookup delegate = new CountingLookup(backing);
+    SnapshotLookup<String> lookup = new SnapshotLookup<>(delegate, 10);
+
+    Assert.assertEquals("1", lookup.lookup("foo1"));
+    Assert.assertEquals(ImmutableMap.of("foo1", "1", "foo2", "2", "foo4", "4"),
+                        lookup.lookup("foo1", "foo4", "foo2", "missing"));
+    // only the keys that were not in the snapshot yet are read, in one batch
+    Assert.assertEquals(2, delegate.reads);
+    Assert.assertEquals(ImmutableMap.of("foo2", "2", "foo4", "4"), lookup.lookup("foo4", "foo2", "missing"));
+    Assert.assertEquals(2, delegate.reads);
+  }
+
+  @Test
+  public void testOverflow() {
+    Map<String, String> backing = new HashMap<>();
+    for (int i = 1; i <= 100; i++) {
+      backing.put("foo" + i, Integer.toString(i));
+    }
+    CountingLookup delegate = new CountingLookup(backing);
+    SnapshotLookup<String> lookup = new SnapshotLookup<>(delegate, 10);
+
+    for (int i = 1; i <= 100; i++) {
+      Assert.assertEquals(Integer.toString(i), lookup.lookup("foo" + i));
+    }
+    Assert.assertNull(lookup.lookup("missing"));
+    Assert.assertEquals(10, lookup.size());
+
+    // the first keys are still served from the snapshot
+    int reads = delegate.reads;
+    backing.put("foo1", "changed");
+    Assert.assertEquals("1", lookup.lookup("foo1"));
+    Assert.assertEquals("10", lookup.lookup("foo10"));
+    Assert.assertEquals(reads, delegate.reads);
+  }
+
+  private static class CountingLookup implements Lookup<String> {
+
+    private final Map<String, String> backing;
+    private int reads;
+
+    CountingLookup(Map<String, String> backing) {
+      this.backing = backing;
+    }
+
+    @Override
+    public String lookup(String key) {
+      reads++;
+      return backing.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      reads++;
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        if (backing.containsKey(key)) {
+          result.put(key, backing.get(key));
+        }
+      }
+      return result;
+    }
+  }
+}
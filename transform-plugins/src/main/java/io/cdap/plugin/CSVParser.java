@@ -81,6 +81,9 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
   // List of fields specified in the schema.
   private List<Field> fields;
 
+  // Fields of the output schema by position.
+  private RecordAccessor outputFields;
+
   // Format of CSV.
   private CSVFormat csvFormat = CSVFormat.DEFAULT;
 
@@ -187,6 +190,8 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
     } catch (IOException e) {
       throw new IllegalArgumentException("Format of schema specified is invalid. Please check the format.");
     }
+
+    outputFields = RecordAccessor.of(outSchema);
   }
 
   @Override
@@ -200,8 +205,7 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
         emitter.emit(createStructuredRecord(null, in));
       } else {
         org.apache.commons.csv.CSVParser parser = org.apache.commons.csv.CSVParser.parse(body, csvFormat);
-        List<CSVRecord> records = parser.getRecords();
-        for (CSVRecord record : records) {
+        for (CSVRecord record : parser.getRecords()) {
           emitter.emit(createStructuredRecord(record, in));
         }
       }
@@ -213,35 +217,33 @@ public final class CSVParser extends Transform<StructuredRecord, StructuredRecor
   private StructuredRecord createStructuredRecord(@Nullable CSVRecord record, StructuredRecord in) {
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
     int i = 0;
-    for (Field field : fields) {
-      String name = field.getName();
+    for (int j = 0; j < outputFields.size(); j++) {
+      String name = outputFields.getName(j);
       // If the field specified in the output field is present in the input, then
       // it's directly copied into the output, else field is parsed in from the CSV parser.
       // If the input record is null, propagate all supplied input fields and null other fields
       // assumed to be CSV-parsed fields
-      if (in.get(name) != null) {
-        builder.set(name, in.get(name));
+      Object inputValue = in.get(name);
+      if (inputValue != null) {
+        builder.set(name, inputValue);
       } else if (record == null) {
         builder.set(name, null);
       } else {
         String val = record.get(i);
-        Schema fieldSchema = field.getSchema();
 
         if (val.isEmpty()) {
-          boolean isNullable = fieldSchema.isNullable();
-          Schema.Type fieldType = isNullable ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
           // if the field is a string or a nullable string, set the value to the empty string
-          if (fieldType == Schema.Type.STRING) {
-            builder.set(field.getName(), "");
-          } else if (!isNullable) {
+          if (outputFields.getType(j) == Schema.Type.STRING) {
+            builder.set(name, "");
+          } else if (!outputFields.isNullable(j)) {
             // otherwise, error out
             throw new IllegalArgumentException(String.format(
               "Field #%d (named '%s') is of non-nullable type '%s', " +
                 "but was parsed as an empty string for CSV record '%s'",
-              i, field.getName(), field.getSchema().getType(), record));
+              i, name, outputFields.getField(j).getSchema().getType(), record));
           }
         } else {
-          builder.convertAndSet(field.getName(), val);
+          builder.convertAndSet(name, val);
         }
         ++i;
       }
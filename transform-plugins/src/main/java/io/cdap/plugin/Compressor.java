@@ -18,6 +18,7 @@ package io.cdap.plugin;
 
 import com.google.common.collect.Maps;
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.common.Bytes;
@@ -35,17 +36,14 @@ import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xerial.snappy.Snappy;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 import javax.annotation.Nullable;
 
 /**
@@ -67,6 +65,16 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
 
   private final Map<String, CompressorType> compMap = Maps.newTreeMap();
 
+  // Compresses the field values, reusing the codec state across records.
+  private FieldCompressor compressor;
+
+  // Fields to copy for the last seen input schema, with their input types and how to compress them,
+  // or null to pass them through
+  private Schema inSchema;
+  private String[] fieldNames;
+  private Schema.Type[] inFieldTypes;
+  private CompressorType[] compressorTypes;
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Compressor(Config config) {
     this.config = config;
@@ -133,6 +141,7 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
 
     pipelineConfigurer.getStageConfigurer().setOutputSchema(outputSchema);
     validateInputSchema(pipelineConfigurer.getStageConfigurer().getInputSchema(), collector);
+    config.validate(collector);
   }
 
   @Override
@@ -158,118 +167,100 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     } catch (IOException e) {
       throw new IllegalArgumentException("Format of schema specified is invalid. Please check the format.");
     }
+
+    FailureCollector collector = context.getFailureCollector();
+    config.validate(collector);
+    collector.getOrThrowException();
+    compressor = new FieldCompressor(config.getZstdLevel(), config.readZstdDictionary());
+  }
+
+  @Override
+  public void destroy() {
+    if (compressor != null) {
+      compressor.close();
+    }
   }
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
+    if (in.getSchema() != inSchema) {
+      resolveFields(in.getSchema());
+    }
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-
-    Schema inSchema = in.getSchema();
-    List<Field> inFields = inSchema.getFields();
-
-    // Iterate through input fields. Check if field name is present 
-    // in the fields that need to be compressed, if it's not then write
-    // to output as it is. 
-    for (Field field : inFields) {
-      String name = field.getName();
-
-      // Check if output schema also have the same field name. If it's not 
-      // then continue.
-      if (!outSchemaMap.containsKey(name)) {
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      CompressorType type = compressorTypes[i];
+      if (type == null) {
+        builder.set(name, in.get(name));
         continue;
       }
 
-      Schema.Type outFieldType = outSchemaMap.get(name);
-
-      // Check if the input field name is configured to be compressed. If the field is not
-      // present or is defined as none, then pass through the field as is. 
-      if (!compMap.containsKey(name) || compMap.get(name) == CompressorType.NONE) {
-        builder.set(name, in.get(name));
-      } else {
-        // Now, the input field could be of type String or byte[], so transform everything
-        // to byte[] 
-        byte[] obj = new byte[0];
-        if (field.getSchema().getType() == Schema.Type.BYTES) {
-          obj = in.get(name);
-        } else if (field.getSchema().getType() == Schema.Type.STRING) {
-          obj = Bytes.toBytes((String) in.get(name));
-        }
-
-        // Now, based on the compressor type configured for the field - compress the byte[] of the
-        // value.
-        byte[] outValue = new byte[0];
-        CompressorType type = compMap.get(name);
-        if (type == CompressorType.SNAPPY) {
-          outValue = Snappy.compress(obj);
-        } else if (type == CompressorType.ZIP) {
-          outValue = zip(obj);
-        } else if (type == CompressorType.GZIP) {
-          outValue = gzip(obj);
-        }
-
-        // Depending on the output field type, either convert it to 
-        // Bytes or to String. 
-        if (outFieldType == Schema.Type.BYTES) {
-          if (outValue != null) {
-            builder.set(name, outValue);
-          }
-        } else {
-          LOG.warn("Output field '" + name + "' is not of BYTES. In order to emit compressed data, you should set " +
-                     "it to type BYTES.");
-        }
+      // Now, the input field could be of type String or byte[], so transform everything
+      // to byte[]
+      byte[] obj = new byte[0];
+      if (inFieldTypes[i] == Schema.Type.BYTES) {
+        obj = in.get(name);
+      } else if (inFieldTypes[i] == Schema.Type.STRING) {
+        obj = Bytes.toBytes((String) in.get(name));
+      }
+      byte[] outValue = compress(type, obj);
+      if (outValue != null) {
+        builder.set(name, outValue);
       }
     }
     emitter.emit(builder.build());
   }
 
-  private static byte[] gzip(byte[] input) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    GZIPOutputStream gzip = null;
-    try {
-      gzip = new GZIPOutputStream(out);
-      gzip.write(input, 0, input.length);
-    } catch (IOException e) {
-      // These are all in memory operations, so this should not happen. 
-      // But, if it happens then we just return null. Logging anything 
-      // here can be noise.
-      return null;
-    } finally {
-      if (gzip != null) {
-        try {
-          gzip.close();
-        } catch (IOException e) {
-          return null;
-        }
+  /**
+   * Resolves which fields of the input schema are copied to the output, and how each of them is compressed.
+   * Fields that are not in the output schema, or that are compressed into a field that is not of type bytes, are
+   * dropped. Fields that are not configured to be compressed, or are configured as none, are passed through as is.
+   */
+  private void resolveFields(Schema schema) {
+    inSchema = schema;
+    List<Field> fields = new ArrayList<>();
+    for (Field field : schema.getFields()) {
+      String name = field.getName();
+      if (!outSchemaMap.containsKey(name)) {
+        continue;
       }
+      CompressorType type = compMap.get(name);
+      if (type != null && type != CompressorType.NONE && outSchemaMap.get(name) != Schema.Type.BYTES) {
+        // the compressed value cannot be emitted, so leave the field out
+        LOG.warn("Output field '" + name + "' is not of BYTES. In order to emit compressed data, you should set " +
+                   "it to type BYTES.");
+        continue;
+      }
+      fields.add(field);
+    }
+    fieldNames = new String[fields.size()];
+    inFieldTypes = new Schema.Type[fields.size()];
+    compressorTypes = new CompressorType[fields.size()];
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fields.get(i).getName();
+      CompressorType type = compMap.get(name);
+      fieldNames[i] = name;
+      inFieldTypes[i] = fields.get(i).getSchema().getType();
+      compressorTypes[i] = type == CompressorType.NONE ? null : type;
     }
-
-    return out.toByteArray();
   }
 
-  private byte[] zip(byte[] input) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    ZipOutputStream zos = new ZipOutputStream(out);
-    try {
-      zos.setLevel(9);
-      zos.putNextEntry(new ZipEntry("c"));
-      zos.write(input, 0, input.length);
-      zos.finish();
-    } catch (IOException e) {
-      // These are all in memory operations, so this should not happen. 
-      // But, if it happens then we just return null. Logging anything 
-      // here can be noise. 
-      return null;
-    } finally {
-      try {
-        if (zos != null) {
-          zos.close();
-        }
-      } catch (IOException e) {
-        return null;
-      }
+  @Nullable
+  private byte[] compress(CompressorType type, byte[] value) throws IOException {
+    switch (type) {
+      case SNAPPY:
+        return compressor.snappy(value);
+      case ZIP:
+        return compressor.zip(value);
+      case GZIP:
+        return compressor.gzip(value);
+      case LZ4:
+        return compressor.lz4(value);
+      case ZSTD:
+        return compressor.zstd(value);
+      default:
+        return new byte[0];
     }
-
-    return out.toByteArray();
   }
 
   /**
@@ -279,6 +270,8 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     SNAPPY("SNAPPY"),
     ZIP("ZIP"),
     GZIP("GZIP"),
+    LZ4("LZ4"),
+    ZSTD("ZSTD"),
     NONE("NONE");
 
     private String type;
@@ -356,7 +349,11 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
   public static class Config extends PluginConfig {
     private static final String NAME_COMPRESSOR = "compressor";
     private static final String NAME_SCHEMA = "schema";
+    private static final String NAME_ZSTD_LEVEL = "zstdLevel";
+    private static final String NAME_ZSTD_DICTIONARY = "zstdDictionary";
     private static final String SEPARATOR = ":";
+    private static final int DEFAULT_ZSTD_LEVEL = 3;
+    private static final int MAX_ZSTD_LEVEL = 22;
 
     @Name(NAME_COMPRESSOR)
     @Description("Specify the field and compression type combination. " +
@@ -367,9 +364,47 @@ public final class Compressor extends Transform<StructuredRecord, StructuredReco
     @Description("Specifies the output schema")
     private final String schema;
 
+    @Name(NAME_ZSTD_LEVEL)
+    @Description("Compression level used for fields compressed with ZSTD, from 1 (fastest) to 22 (smallest). " +
+      "Defaults to 3.")
+    @Macro
+    @Nullable
+    private final Integer zstdLevel;
+
+    @Name(NAME_ZSTD_DICTIONARY)
+    @Description("Path to a Zstandard dictionary used for fields compressed with ZSTD. A dictionary trained on " +
+      "sample values greatly improves the compression of small values. The same dictionary must be used " +
+      "to decompress the values.")
+    @Macro
+    @Nullable
+    private final String zstdDictionary;
+
     public Config(String compressor, String schema) {
+      this(compressor, schema, null, null);
+    }
+
+    public Config(String compressor, String schema, @Nullable Integer zstdLevel, @Nullable String zstdDictionary) {
       this.compressor = compressor;
       this.schema = schema;
+      this.zstdLevel = zstdLevel;
+      this.zstdDictionary = zstdDictionary;
+    }
+
+    private int getZstdLevel() {
+      return zstdLevel == null ? DEFAULT_ZSTD_LEVEL : zstdLevel;
+    }
+
+    @Nullable
+    private byte[] readZstdDictionary() throws IOException {
+      return zstdDictionary == null || zstdDictionary.isEmpty() ? null : Files.readAllBytes(Paths.get(zstdDictionary));
+    }
+
+    private void validate(FailureCollector collector) {
+      if (!containsMacro(NAME_ZSTD_LEVEL) && zstdLevel != null && (zstdLevel < 1 || zstdLevel > MAX_ZSTD_LEVEL)) {
+        collector.addFailure(String.format("Invalid Zstandard compression level '%d'.", zstdLevel),
+                             String.format("Specify a level between 1 and %d.", MAX_ZSTD_LEVEL))
+          .withConfigProperty(NAME_ZSTD_LEVEL);
+      }
     }
   }
 }
@@ -33,9 +33,6 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
-import org.apache.commons.codec.binary.Base32;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.binary.Hex;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -57,14 +54,17 @@ public final class Decoder extends Transform<StructuredRecord, StructuredRecord>
   private final Config config;
   // Mapping of input field to decoder type.
   private final Map<String, DecoderType> decodeMap = new TreeMap<>();
-  // Decoder handlers.
-  private final Base64 base64Decoder = new Base64();
-  private final Base32 base32Decoder = new Base32();
-  private final Hex hexDecoder = new Hex();
+  // Decodes the field values, reusing its buffers across records.
+  private final FieldCodec codec = new FieldCodec();
   // Output Field name to type map
   private final Map<String, Schema.Type> outSchemaMap = new HashMap<>();
   // Output Schema associated with transform output.
   private Schema outSchema;
+  // Fields to copy for the last seen input schema, with the scheme to decode them with or null to pass them through
+  private Schema inSchema;
+  private String[] fieldNames;
+  private FieldCodec.Scheme[] schemes;
+  private Schema.Type[] outFieldTypes;
 
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Decoder(Config config) {
@@ -153,60 +153,55 @@ public final class Decoder extends Transform<StructuredRecord, StructuredRecord>
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
+    if (in.getSchema() != inSchema) {
+      resolveFields(in.getSchema());
+    }
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-    Schema inSchema = in.getSchema();
-    List<Field> inFields = inSchema.getFields();
-    // Iterate through input fields. Check if field name is present
-    // in the fields that need to be decoded, if it's not then write
-    // to output as it is.
-    for (Field field : inFields) {
-      String name = field.getName();
-
-      // Check if the output schema has the field, if it's not there
-      // then skip and move to processing the next field.
-      if (!outSchemaMap.containsKey(name)) {
-        continue;
-      }
-      Schema.Type outFieldType = outSchemaMap.get(name);
-
-      // Check if the input field name is configured to be decoded. If the field is not
-      // present or is defined as none, then pass through the field as is.
-      if (!decodeMap.containsKey(name) || decodeMap.get(name) == DecoderType.NONE) {
-        builder.set(name, in.get(name));
-      } else {
-        // Now, the input field could be of type String or byte[], so transform everything
-        // to byte[]
-        byte[] obj = new byte[0];
-        if (field.getSchema().getType() == Schema.Type.STRING) {
-          obj = ((String) in.get(name)).getBytes();
-        } else if (field.getSchema().getType() == Schema.Type.BYTES) {
-          obj = in.get(name);
-        }
-
-        // Now, based on the decode type configured for the field - decode the byte[] of the
-        // value.
-        byte[] outValue = new byte[0];
-        DecoderType type = decodeMap.get(name);
-        if (type == DecoderType.STRING_BASE32 || type == DecoderType.BASE32) {
-          outValue = base32Decoder.decode(obj);
-        } else if (type == DecoderType.STRING_BASE64 || type == DecoderType.BASE64) {
-          outValue = base64Decoder.decode(obj);
-        } else if (type == DecoderType.HEX) {
-          outValue = hexDecoder.decode(obj);
-        }
-
-        // Depending on the output field type, either convert it to
-        // Bytes or to String.
-        if (outFieldType == Schema.Type.BYTES) {
-          builder.set(name, outValue);
-        } else if (outFieldType == Schema.Type.STRING) {
-          builder.set(name, new String(outValue, "UTF-8"));
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      FieldCodec.Scheme scheme = schemes[i];
+      Object value = in.get(name);
+      if (scheme == null) {
+        builder.set(name, value);
+      } else if (value != null) {
+        // The input field could be a String or byte[]. Depending on the output field type,
+        // either emit the decoded value as Bytes or as a String.
+        codec.decode(scheme, value);
+        if (outFieldTypes[i] == Schema.Type.BYTES) {
+          builder.set(name, codec.getBytes());
+        } else if (outFieldTypes[i] == Schema.Type.STRING) {
+          builder.set(name, codec.getString());
         }
       }
     }
     emitter.emit(builder.build());
   }
 
+  /**
+   * Resolves which fields of the input schema are copied to the output, and which of those are decoded.
+   * Fields that are not in the output schema are dropped, and fields that are not configured to be decoded,
+   * or are configured as none, are passed through as is.
+   */
+  private void resolveFields(Schema schema) {
+    inSchema = schema;
+    List<String> names = new ArrayList<>();
+    for (Field field : schema.getFields()) {
+      if (outSchemaMap.containsKey(field.getName())) {
+        names.add(field.getName());
+      }
+    }
+    fieldNames = names.toArray(new String[0]);
+    schemes = new FieldCodec.Scheme[fieldNames.length];
+    outFieldTypes = new Schema.Type[fieldNames.length];
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      if (decodeMap.containsKey(name) && decodeMap.get(name) != DecoderType.NONE) {
+        schemes[i] = decodeMap.get(name).getScheme();
+      }
+      outFieldTypes[i] = outSchemaMap.get(name);
+    }
+  }
+
   private void parseConfiguration(String config, FailureCollector collector) {
     String[] mappings = config.split(",");
     for (String mapping : mappings) {
@@ -263,22 +258,31 @@ public final class Decoder extends Transform<StructuredRecord, StructuredRecord>
    * Defines decoding types supported.
    */
   private enum DecoderType {
-    BASE64("BASE64"),
-    BASE32("BASE32"),
-    STRING_BASE32("STRING_BASE32"),
-    STRING_BASE64("STRING_BASE64"),
-    HEX("HEX"),
-    NONE("NONE");
+    BASE64("BASE64", FieldCodec.Scheme.BASE64),
+    BASE64_URL("BASE64_URL", FieldCodec.Scheme.BASE64_URL),
+    BASE32("BASE32", FieldCodec.Scheme.BASE32),
+    STRING_BASE32("STRING_BASE32", FieldCodec.Scheme.BASE32),
+    STRING_BASE64("STRING_BASE64", FieldCodec.Scheme.BASE64),
+    STRING_BASE64_URL("STRING_BASE64_URL", FieldCodec.Scheme.BASE64_URL),
+    HEX("HEX", FieldCodec.Scheme.HEX),
+    NONE("NONE", null);
 
     private String type;
+    private FieldCodec.Scheme scheme;
 
-    DecoderType(String type) {
+    DecoderType(String type, @Nullable FieldCodec.Scheme scheme) {
       this.type = type;
+      this.scheme = scheme;
     }
 
     String getType() {
       return type;
     }
+
+    @Nullable
+    FieldCodec.Scheme getScheme() {
+      return scheme;
+    }
   }
 
   /**
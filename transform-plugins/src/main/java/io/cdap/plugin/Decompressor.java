@@ -17,6 +17,7 @@
 package io.cdap.plugin;
 
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.format.StructuredRecord;
@@ -33,20 +34,17 @@ import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xerial.snappy.Snappy;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import javax.annotation.Nullable;
 
 /**
@@ -68,6 +66,15 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
   // Map of field to decompressor type.
   private final Map<String, DecompressorType> deCompMap = new TreeMap<>();
 
+  // Decompresses the field values, reusing the codec state across records.
+  private FieldDecompressor decompressor;
+
+  // Fields to copy for the last seen input schema, with how to decompress them or null to pass them through
+  private Schema inSchema;
+  private String[] fieldNames;
+  private Schema.Type[] outFieldTypes;
+  private DecompressorType[] decompressorTypes;
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Decompressor(Config config) {
     this.config = config;
@@ -154,115 +161,122 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
       throw new IllegalArgumentException("Format of schema specified is invalid. Please check the format." +
                                            e.getMessage());
     }
+    decompressor = new FieldDecompressor(config.readZstdDictionary());
+  }
+
+  @Override
+  public void destroy() {
+    if (decompressor != null) {
+      decompressor.close();
+    }
   }
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
+    if (in.getSchema() != inSchema) {
+      resolveFields(in.getSchema());
+    }
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      DecompressorType type = decompressorTypes[i];
+      if (type == null) {
+        builder.set(name, in.get(name));
+        continue;
+      }
 
-    Schema inSchema = in.getSchema();
-    List<Field> inFields = inSchema.getFields();
+      // Depending on the output field type, either convert it to
+      // Bytes or to String.
+      byte[] outValue = decompress(type, in.get(name));
+      if (outValue != null) {
+        if (outFieldTypes[i] == Schema.Type.BYTES) {
+          builder.set(name, outValue);
+        } else if (outFieldTypes[i] == Schema.Type.STRING) {
+          builder.set(name, new String(outValue, StandardCharsets.UTF_8));
+        }
+      }
+    }
+    emitter.emit(builder.build());
+  }
 
-    // Iterate through input fields. Check if field name is present
-    // in the fields that need to be decompressed, if it's not then write
-    // to output as it is.
-    for (Field field : inFields) {
+  /**
+   * Resolves which fields of the input schema are copied to the output, and which of those are decompressed.
+   * Fields that are not in the output schema are dropped, and fields that are not configured to be decompressed,
+   * or are configured as none, are passed through as is. A field to decompress that is not of type bytes ends the
+   * fields that are copied.
+   */
+  private void resolveFields(Schema schema) {
+    inSchema = schema;
+    List<Field> fields = new ArrayList<>();
+    for (Field field : schema.getFields()) {
       String name = field.getName();
-
-      // Check if output schema also have the same field name. If it's not
-      // then continue.
       if (!outSchemaMap.containsKey(name)) {
         continue;
       }
-
-      Schema.Type outFieldType = outSchemaMap.get(name);
-
-      // Check if the input field name is configured to be encoded. If the field is not
-      // present or is defined as none, then pass through the field as is.
-      if (!deCompMap.containsKey(name) || deCompMap.get(name) == DecompressorType.NONE) {
-        builder.set(name, in.get(name));
-      } else {
-        // Now, the input field should be of type byte[]
-        byte[] obj = new byte[0];
-        if (field.getSchema().getType() == Schema.Type.BYTES) {
-          obj = in.get(name);
-        } else {
-          LOG.error("Input field '" + name + "' should be of type BYTES to decompress. It is currently of type " +
-                      "'" + field.getSchema().getType().toString() + "'");
-          break;
-        }
-
-        // Now, based on the encode type configured for the field - encode the byte[] of the
-        // value.
-        byte[] outValue = new byte[0];
-        DecompressorType type = deCompMap.get(name);
-        if (type == DecompressorType.SNAPPY) {
-          outValue = Snappy.uncompress(obj);
-        } else if (type == DecompressorType.ZIP) {
-          outValue = unzip(obj);
-        } else if (type == DecompressorType.GZIP) {
-          outValue = ungzip(obj);
-        }
-
-        // Depending on the output field type, either convert it to
-        // Bytes or to String.
-        if (outValue != null) {
-          if (outFieldType == Schema.Type.BYTES) {
-            builder.set(name, outValue);
-          } else if (outFieldType == Schema.Type.STRING) {
-            builder.set(name, new String(outValue, "UTF-8"));
-          }
-        }
+      DecompressorType type = deCompMap.get(name);
+      if (type != null && type != DecompressorType.NONE && field.getSchema().getType() != Schema.Type.BYTES) {
+        LOG.error("Input field '" + name + "' should be of type BYTES to decompress. It is currently of type " +
+                    "'" + field.getSchema().getType().toString() + "'");
+        break;
       }
+      fields.add(field);
+    }
+    fieldNames = new String[fields.size()];
+    outFieldTypes = new Schema.Type[fields.size()];
+    decompressorTypes = new DecompressorType[fields.size()];
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fields.get(i).getName();
+      DecompressorType type = deCompMap.get(name);
+      fieldNames[i] = name;
+      outFieldTypes[i] = outSchemaMap.get(name);
+      decompressorTypes[i] = type == DecompressorType.NONE ? null : type;
+    }
+  }
+
+  @Nullable
+  private byte[] decompress(DecompressorType type, byte[] value) throws IOException {
+    switch (type) {
+      case SNAPPY:
+        return decompressor.snappy(value);
+      case ZIP:
+        return unzip(value);
+      case GZIP:
+        return ungzip(value);
+      case LZ4:
+        return decompressor.lz4(value);
+      case ZSTD:
+        return decompressor.zstd(value);
+      case AUTO:
+        return decompressor.auto(value);
+      default:
+        return new byte[0];
     }
-    emitter.emit(builder.build());
   }
 
   /**
-   * Decompresses using GZIP Algorithm. 
+   * Decompresses using GZIP Algorithm.
    */
+  @Nullable
   private byte[] ungzip(byte[] body) {
-    ByteArrayInputStream bytein = new ByteArrayInputStream(body);
-    try (GZIPInputStream gzin = new GZIPInputStream(bytein);
-         ByteArrayOutputStream byteout = new ByteArrayOutputStream()) {
-      int res = 0;
-      byte buf[] = new byte[1024];
-      while (res >= 0) {
-        res = gzin.read(buf, 0, buf.length);
-        if (res > 0) {
-          byteout.write(buf, 0, res);
-        }
-      }
-      byte uncompressed[] = byteout.toByteArray();
-      return uncompressed;
+    try {
+      return decompressor.gzip(body);
     } catch (IOException e) {
-      // Most of operations here are in memory. So, we shouldn't get here.
-      // Logging here is not an option.
+      // Corrupt input is emitted as a null value, as it always has been.
+      return null;
     }
-    return null;
   }
 
   /**
    * Decompresses using ZIP Algorithm.
    */
-  private byte[] unzip(byte[] body)  {
-    ZipEntry ze;
-    byte buf[] = new byte[1024];
-    try (ByteArrayOutputStream bao = new ByteArrayOutputStream();
-         ByteArrayInputStream bytein = new ByteArrayInputStream(body);
-         ZipInputStream zis = new ZipInputStream(bytein)) {
-      while ((ze = zis.getNextEntry()) != null) {
-        int l = 0;
-        while ((l = zis.read(buf)) > 0) {
-          bao.write(buf, 0, l);
-        }
-      }
-      return bao.toByteArray();
+  @Nullable
+  private byte[] unzip(byte[] body) {
+    try {
+      return decompressor.zip(body);
     } catch (IOException e) {
-      // Most of operations here are in memory. So, we shouldn't get here.
-      // Logging here is not an option.       
+      // Corrupt input is emitted as a null value, as it always has been.
+      return null;
     }
-    return null;
   }
 
   /**
@@ -272,6 +286,9 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     SNAPPY("SNAPPY"),
     ZIP("ZIP"),
     GZIP("GZIP"),
+    LZ4("LZ4"),
+    ZSTD("ZSTD"),
+    AUTO("AUTO"),
     NONE("NONE");
 
     private String type;
@@ -343,6 +360,7 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
   public static class Config extends PluginConfig {
     private static final String NAME_DECOMPRESSOR = "decompressor";
     private static final String NAME_SCHEMA = "schema";
+    private static final String NAME_ZSTD_DICTIONARY = "zstdDictionary";
     private static final String SEPARATOR = ":";
 
     @Name(NAME_DECOMPRESSOR)
@@ -354,9 +372,26 @@ public final class Decompressor extends Transform<StructuredRecord, StructuredRe
     @Description("Specifies the output schema")
     private final String schema;
 
+    @Name(NAME_ZSTD_DICTIONARY)
+    @Description("Path to the Zstandard dictionary the ZSTD fields were compressed with. Only needed if the " +
+      "values were compressed using a dictionary.")
+    @Macro
+    @Nullable
+    private final String zstdDictionary;
+
     public Config(String decompressor, String schema) {
+      this(decompressor, schema, null);
+    }
+
+    public Config(String decompressor, String schema, @Nullable String zstdDictionary) {
       this.decompressor = decompressor;
       this.schema = schema;
+      this.zstdDictionary = zstdDictionary;
+    }
+
+    @Nullable
+    private byte[] readZstdDictionary() throws IOException {
+      return zstdDictionary == null || zstdDictionary.isEmpty() ? null : Files.readAllBytes(Paths.get(zstdDictionary));
     }
 
     private Schema getSchema(FailureCollector collector) {
@@ -58,6 +58,13 @@ public final class Decryptor extends Transform<StructuredRecord, StructuredRecor
   private Set<String> decryptFields;
   private Schema schema;
   private FieldEncryptor fieldEncryptor;
+  // field names for the last seen input schema, with the output schemas, types and nullability of the fields
+  // to decrypt
+  private Schema inputSchema;
+  private String[] fieldNames;
+  private Schema[] targetSchemas;
+  private Schema.Type[] fieldTypes;
+  private boolean[] nullable;
 
   public Decryptor(Conf conf) {
     this.conf = conf;
@@ -111,31 +118,47 @@ public final class Decryptor extends Transform<StructuredRecord, StructuredRecor
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
+    if (in.getSchema() != inputSchema) {
+      resolveFields(in.getSchema());
+    }
     StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (Field field : in.getSchema().getFields()) {
-      if (decryptFields.contains(field.getName())) {
-        Schema fieldSchema = field.getSchema();
-        Schema targetSchema = schema.getField(field.getName()).getSchema();
-        Object val = in.get(field.getName());
-        if (fieldSchema.isNullable() && val == null) {
-          recordBuilder.set(field.getName(), null);
-        } else {
-          Schema.Type fieldType =
-            fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-          if (fieldType != Schema.Type.BYTES) {
-            throw new IllegalArgumentException(String.format(
-              "Cannot decrypt field '%s' because it is of type '%s' instead of bytes.",
-              field.getName(), fieldType));
-          }
-          recordBuilder.set(field.getName(), fieldEncryptor.decrypt((byte[]) val, targetSchema));
-        }
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      Object val = in.get(name);
+      if (targetSchemas[i] == null) {
+        recordBuilder.set(name, val);
+      } else if (nullable[i] && val == null) {
+        recordBuilder.set(name, null);
       } else {
-        recordBuilder.set(field.getName(), in.get(field.getName()));
+        if (fieldTypes[i] != Schema.Type.BYTES) {
+          throw new IllegalArgumentException(String.format(
+            "Cannot decrypt field '%s' because it is of type '%s' instead of bytes.", name, fieldTypes[i]));
+        }
+        recordBuilder.set(name, fieldEncryptor.decrypt((byte[]) val, targetSchemas[i]));
       }
     }
     emitter.emit(recordBuilder.build());
   }
 
+  private void resolveFields(Schema inSchema) {
+    inputSchema = inSchema;
+    List<Field> fields = inSchema.getFields();
+    fieldNames = new String[fields.size()];
+    targetSchemas = new Schema[fields.size()];
+    fieldTypes = new Schema.Type[fields.size()];
+    nullable = new boolean[fields.size()];
+    for (int i = 0; i < fieldNames.length; i++) {
+      Field field = fields.get(i);
+      Schema fieldSchema = field.getSchema();
+      fieldNames[i] = field.getName();
+      if (decryptFields.contains(field.getName())) {
+        targetSchemas[i] = schema.getField(field.getName()).getSchema();
+        nullable[i] = fieldSchema.isNullable();
+        fieldTypes[i] = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+      }
+    }
+  }
+
   private void validateDecryptFields(FailureCollector collector, @Nullable Schema inputSchema) {
     if (inputSchema == null) {
       return;
@@ -31,9 +31,6 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
-import org.apache.commons.codec.binary.Base32;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Encodes the input fields as BASE64, BASE32 or HEX.
@@ -61,10 +59,14 @@ public final class Encoder extends Transform<StructuredRecord, StructuredRecord>
   // Mapping of input field to encoder type. 
   private final Map<String, EncodeType> encodeMap = new TreeMap<>();
 
-  // Encoder handlers.
-  private final Base64 base64Encoder = new Base64();
-  private final Base32 base32Encoder = new Base32();
-  private final Hex hexEncoder = new Hex();
+  // Encodes the field values, reusing its buffers across records.
+  private final FieldCodec codec = new FieldCodec();
+
+  // Fields to copy for the last seen input schema, with the scheme to encode them with or null to pass them through
+  private Schema inSchema;
+  private String[] fieldNames;
+  private FieldCodec.Scheme[] schemes;
+  private Schema.Type[] outFieldTypes;
 
   // Output Field name to type map
   private final Map<String, Schema.Type> outSchemaMap = new HashMap<>();
@@ -179,87 +181,84 @@ public final class Encoder extends Transform<StructuredRecord, StructuredRecord>
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
+    if (in.getSchema() != inSchema) {
+      resolveFields(in.getSchema());
+    }
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-
-    Schema inSchema = in.getSchema();
-    List<Field> inFields = inSchema.getFields();
-
-    // Iterate through input fields. Check if field name is present 
-    // in the fields that need to be encoded, if it's not then write 
-    // to output as it is. 
-    for (Field field : inFields) {
-      String name = field.getName();
-
-      // Check if output schema also have the same field name. If it's not 
-      // then throw an exception. 
-      if (!outSchemaMap.containsKey(name)) {
-        continue;
-      }
-
-      Schema.Type outFieldType = outSchemaMap.get(name);
-
-      // Check if the input field name is configured to be encoded. If the field is not 
-      // present or is defined as none, then pass through the field as is. 
-      if (!encodeMap.containsKey(name) || encodeMap.get(name) == EncodeType.NONE) {
-        builder.set(name, in.get(name));
-      } else {
-        // Now, the input field could be of type String or byte[], so transform everything
-        // to byte[] 
-        byte[] obj = new byte[0];
-        if (field.getSchema().getType() == Schema.Type.STRING) {
-          obj = ((String) in.get(name)).getBytes();
-        } else if (field.getSchema().getType() == Schema.Type.BYTES) {
-          obj = in.get(name);
-        }
-
-        // Now, based on the encode type configured for the field - encode the byte[] of the 
-        // value.
-        byte[] outValue = new byte[0];
-        EncodeType type = encodeMap.get(name);
-        if (type == EncodeType.STRING_BASE32) {
-          outValue = base32Encoder.encodeAsString(obj).getBytes();
-        } else if (type == EncodeType.BASE32) {
-          outValue = base32Encoder.encode(obj);
-        } else if (type == EncodeType.STRING_BASE64) {
-          outValue = base64Encoder.encodeAsString(obj).getBytes();
-        } else if (type == EncodeType.BASE64) {
-          outValue = base64Encoder.encode(obj);
-        } else if (type == EncodeType.HEX) {
-          outValue = hexEncoder.encode(obj);
-        }
-
-        // Depending on the output field type, either convert it to 
-        // Bytes or to String. 
-        if (outFieldType == Schema.Type.BYTES) {
-          builder.set(name, outValue);
-        } else if (outFieldType == Schema.Type.STRING) {
-          builder.set(name, new String(outValue, "UTF-8"));
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      FieldCodec.Scheme scheme = schemes[i];
+      Object value = in.get(name);
+      if (scheme == null) {
+        builder.set(name, value);
+      } else if (value != null) {
+        // The input field could be a String or byte[]. Depending on the output field type,
+        // either emit the encoded value as Bytes or as a String.
+        codec.encode(scheme, value);
+        if (outFieldTypes[i] == Schema.Type.BYTES) {
+          builder.set(name, codec.getBytes());
+        } else if (outFieldTypes[i] == Schema.Type.STRING) {
+          builder.set(name, codec.getString());
         }
       }
     }
     emitter.emit(builder.build());
   }
 
+  /**
+   * Resolves which fields of the input schema are copied to the output, and which of those are encoded.
+   * Fields that are not in the output schema are dropped, and fields that are not configured to be encoded,
+   * or are configured as none, are passed through as is.
+   */
+  private void resolveFields(Schema schema) {
+    inSchema = schema;
+    List<String> names = new ArrayList<>();
+    for (Field field : schema.getFields()) {
+      if (outSchemaMap.containsKey(field.getName())) {
+        names.add(field.getName());
+      }
+    }
+    fieldNames = names.toArray(new String[0]);
+    schemes = new FieldCodec.Scheme[fieldNames.length];
+    outFieldTypes = new Schema.Type[fieldNames.length];
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      if (encodeMap.containsKey(name) && encodeMap.get(name) != EncodeType.NONE) {
+        schemes[i] = encodeMap.get(name).getScheme();
+      }
+      outFieldTypes[i] = outSchemaMap.get(name);
+    }
+  }
+
   /**
    * Defines encoding types supported.  
    */
   private enum EncodeType {
-    STRING_BASE64("STRING_BASE64"),
-    STRING_BASE32("STRING_BASE32"),
-    BASE64("BASE64"),
-    BASE32("BASE32"),
-    HEX("HEX"),
-    NONE("NONE");
+    STRING_BASE64("STRING_BASE64", FieldCodec.Scheme.BASE64),
+    STRING_BASE64_URL("STRING_BASE64_URL", FieldCodec.Scheme.BASE64_URL),
+    STRING_BASE32("STRING_BASE32", FieldCodec.Scheme.BASE32),
+    BASE64("BASE64", FieldCodec.Scheme.BASE64),
+    BASE64_URL("BASE64_URL", FieldCodec.Scheme.BASE64_URL),
+    BASE32("BASE32", FieldCodec.Scheme.BASE32),
+    HEX("HEX", FieldCodec.Scheme.HEX),
+    NONE("NONE", null);
 
     private String type;
+    private FieldCodec.Scheme scheme;
 
-    EncodeType(String type) {
+    EncodeType(String type, @Nullable FieldCodec.Scheme scheme) {
       this.type = type;
+      this.scheme = scheme;
     }
 
     String getType() {
       return type;
     }
+
+    @Nullable
+    FieldCodec.Scheme getScheme() {
+      return scheme;
+    }
   }
 
   /**
@@ -55,6 +55,11 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
   private final Conf conf;
   private Set<String> encryptFields;
   private FieldEncryptor fieldEncryptor;
+  // output schema, field names and the schemas of the fields to encrypt for the last seen input schema
+  private Schema inputSchema;
+  private Schema outputSchema;
+  private String[] fieldNames;
+  private Schema[] encryptSchemas;
 
   public Encryptor(Conf conf) {
     this.conf = conf;
@@ -102,18 +107,35 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    Schema schema = getOutputSchema(in.getSchema());
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (Field field : in.getSchema().getFields()) {
-      if (encryptFields.contains(field.getName())) {
-        recordBuilder.set(field.getName(), fieldEncryptor.encrypt(in.get(field.getName()), field.getSchema()));
+    if (in.getSchema() != inputSchema) {
+      resolveFields(in.getSchema());
+    }
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(outputSchema);
+    for (int i = 0; i < fieldNames.length; i++) {
+      String name = fieldNames[i];
+      if (encryptSchemas[i] == null) {
+        recordBuilder.set(name, in.get(name));
       } else {
-        recordBuilder.set(field.getName(), in.get(field.getName()));
+        recordBuilder.set(name, fieldEncryptor.encrypt(in.get(name), encryptSchemas[i]));
       }
     }
     emitter.emit(recordBuilder.build());
   }
 
+  private void resolveFields(Schema schema) {
+    inputSchema = schema;
+    outputSchema = getOutputSchema(schema);
+    List<Field> fields = schema.getFields();
+    fieldNames = new String[fields.size()];
+    encryptSchemas = new Schema[fields.size()];
+    for (int i = 0; i < fieldNames.length; i++) {
+      fieldNames[i] = fields.get(i).getName();
+      if (encryptFields.contains(fieldNames[i])) {
+        encryptSchemas[i] = fields.get(i).getSchema();
+      }
+    }
+  }
+
   private Schema getOutputSchema(Schema schema) {
     List<Field> outputFields = new ArrayList<>();
     for (Schema.Field field : schema.getFields()) {
@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import io.cdap.cdap.api.common.Bytes;
+import org.apache.commons.codec.DecoderException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes and decodes field values as Base64, Base32 or Hex text. Values are encoded from and decoded into buffers
+ * that are reused across values, so the only allocation per value is the array or string handed to the output
+ * record. String values are read as UTF-8. Instances are not thread safe.
+ *
+ * Output is the same as the commons-codec {@code Base64}, {@code Base32} and {@code Hex} codecs, and decoding is
+ * just as lenient: characters outside of the alphabet are skipped and decoding stops at the first pad character.
+ */
+final class FieldCodec {
+
+  /**
+   * Binary-to-text encoding schemes.
+   */
+  enum Scheme {
+    BASE64,
+    // RFC 4648 URL and filename safe alphabet, without padding
+    BASE64_URL,
+    BASE32,
+    HEX
+  }
+
+  private static final byte PAD = '=';
+  private static final byte[] BASE64_ALPHABET =
+    ascii("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/");
+  private static final byte[] BASE64_URL_ALPHABET =
+    ascii("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_");
+  private static final byte[] BASE32_ALPHABET = ascii("ABCDEFGHIJKLMNOPQRSTUVWXYZ234567");
+  private static final byte[] HEX_ALPHABET = ascii("0123456789abcdef");
+
+  // map each ASCII character to its value, or -1 if it is not part of the alphabet.
+  // Both Base64 alphabets decode with the same table, and Base32 and Hex are case insensitive.
+  private static final byte[] BASE64_DECODE = decodeTable(BASE64_ALPHABET, BASE64_URL_ALPHABET);
+  private static final byte[] BASE32_DECODE = decodeTable(BASE32_ALPHABET, ascii("abcdefghijklmnopqrstuvwxyz234567"));
+  private static final byte[] HEX_DECODE = decodeTable(HEX_ALPHABET, ascii("0123456789ABCDEF"));
+
+  // holds the UTF-8 bytes of string values, and the result of the last encode or decode
+  private byte[] input = new byte[256];
+  private byte[] output = new byte[256];
+  private int outputLength;
+
+  /**
+   * Encodes the value, which must be a string, byte array or byte buffer. The result can be read with
+   * {@link #getBytes()} or {@link #getString()}.
+   */
+  void encode(Scheme scheme, Object value) {
+    if (value instanceof String) {
+      int length = toUtf8((String) value);
+      encode(scheme, input, 0, length);
+    } else if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      if (buffer.hasArray()) {
+        encode(scheme, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      } else {
+        byte[] bytes = Bytes.toBytes(buffer);
+        encode(scheme, bytes, 0, bytes.length);
+      }
+    } else {
+      byte[] bytes = (byte[]) value;
+      encode(scheme, bytes, 0, bytes.length);
+    }
+  }
+
+  /**
+   * Decodes the value, which must be a string, byte array or byte buffer holding encoded text. The result can
+   * be read with {@link #getBytes()} or {@link #getString()}.
+   *
+   * @throws DecoderException if the value is not valid hex
+   */
+  void decode(Scheme scheme, Object value) throws DecoderException {
+    if (value instanceof String) {
+      int length = toUtf8((String) value);
+      decode(scheme, input, 0, length);
+    } else if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      if (buffer.hasArray()) {
+        decode(scheme, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      } else {
+        byte[] bytes = Bytes.toBytes(buffer);
+        decode(scheme, bytes, 0, bytes.length);
+      }
+    } else {
+      byte[] bytes = (byte[]) value;
+      decode(scheme, bytes, 0, bytes.length);
+    }
+  }
+
+  /**
+   * Returns a copy of the last encoded or decoded value.
+   */
+  byte[] getBytes() {
+    return Arrays.copyOf(output, outputLength);
+  }
+
+  /**
+   * Returns the last encoded or decoded value as a UTF-8 string.
+   */
+  String getString() {
+    return new String(output, 0, outputLength, StandardCharsets.UTF_8);
+  }
+
+  private void encode(Scheme scheme, byte[] src, int offset, int length) {
+    switch (scheme) {
+      case BASE64:
+        outputLength = encodeBase64(src, offset, length, BASE64_ALPHABET, true);
+        break;
+      case BASE64_URL:
+        outputLength = encodeBase64(src, offset, length, BASE64_URL_ALPHABET, false);
+        break;
+      case BASE32:
+        outputLength = encodeBase32(src, offset, length);
+        break;
+      case HEX:
+        outputLength = encodeHex(src, offset, length);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported encoding scheme " + scheme);
+    }
+  }
+
+  private void decode(Scheme scheme, byte[] src, int offset, int length) throws DecoderException {
+    switch (scheme) {
+      case BASE64:
+      case BASE64_URL:
+        outputLength = decodeBits(src, offset, length, BASE64_DECODE, 6);
+        break;
+      case BASE32:
+        outputLength = decodeBits(src, offset, length, BASE32_DECODE, 5);
+        break;
+      case HEX:
+        outputLength = decodeHex(src, offset, length);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported encoding scheme " + scheme);
+    }
+  }
+
+  private int encodeBase64(byte[] src, int offset, int length, byte[] alphabet, boolean pad) {
+    ensureOutputCapacity((length + 2) / 3 * 4);
+    byte[] out = output;
+    int end = offset + length - length % 3;
+    int pos = 0;
+    for (int i = offset; i < end; i += 3) {
+      int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+      out[pos++] = alphabet[bits >>> 18];
+      out[pos++] = alphabet[(bits >>> 12) & 0x3f];
+      out[pos++] = alphabet[(bits >>> 6) & 0x3f];
+      out[pos++] = alphabet[bits & 0x3f];
+    }
+    int remaining = length % 3;
+    if (remaining > 0) {
+      int bits = (src[end] & 0xff) << 16 | (remaining == 2 ? (src[end + 1] & 0xff) << 8 : 0);
+      out[pos++] = alphabet[bits >>> 18];
+      out[pos++] = alphabet[(bits >>> 12) & 0x3f];
+      if (remaining == 2) {
+        out[pos++] = alphabet[(bits >>> 6) & 0x3f];
+      }
+      if (pad) {
+        out[pos++] = PAD;
+        if (remaining == 1) {
+          out[pos++] = PAD;
+        }
+      }
+    }
+    return pos;
+  }
+
+  private int encodeBase32(byte[] src, int offset, int length) {
+    ensureOutputCapacity((length + 4) / 5 * 8);
+    byte[] out = output;
+    int end = offset + length;
+    int pos = 0;
+    for (int i = offset; i < end; i += 5) {
+      int count = Math.min(5, end - i);
+      long bits = 0;
+      for (int j = 0; j < 5; j++) {
+        bits = bits << 8 | (j < count ? src[i + j] & 0xff : 0);
+      }
+      // each input byte contributes to ceil(8 * count / 5) output characters, the rest is padding
+      int chars = (count * 8 + 4) / 5;
+      for (int j = 0; j < 8; j++) {
+        out[pos++] = j < chars ? BASE32_ALPHABET[(int) (bits >>> (35 - 5 * j)) & 0x1f] : PAD;
+      }
+    }
+    return pos;
+  }
+
+  private int encodeHex(byte[] src, int offset, int length) {
+    ensureOutputCapacity(length * 2);
+    byte[] out = output;
+    int pos = 0;
+    for (int i = offset; i < offset + length; i++) {
+      out[pos++] = HEX_ALPHABET[(src[i] >> 4) & 0x0f];
+      out[pos++] = HEX_ALPHABET[src[i] & 0x0f];
+    }
+    return pos;
+  }
+
+  /**
+   * Decodes text where each character holds the given number of bits, skipping characters that are not in the
+   * alphabet and stopping at the first pad character. Trailing bits that do not make up a full byte are dropped.
+   */
+  private int decodeBits(byte[] src, int offset, int length, byte[] table, int bitsPerChar) {
+    ensureOutputCapacity(length * bitsPerChar / 8);
+    byte[] out = output;
+    int pos = 0;
+    int bits = 0;
+    int bitCount = 0;
+    for (int i = offset; i < offset + length; i++) {
+      byte b = src[i];
+      if (b == PAD) {
+        break;
+      }
+      int value = b < 0 ? -1 : table[b];
+      if (value < 0) {
+        continue;
+      }
+      bits = bits << bitsPerChar | value;
+      bitCount += bitsPerChar;
+      if (bitCount >= 8) {
+        bitCount -= 8;
+        out[pos++] = (byte) (bits >>> bitCount);
+      }
+    }
+    return pos;
+  }
+
+  private int decodeHex(byte[] src, int offset, int length) throws DecoderException {
+    if ((length & 1) != 0) {
+      throw new DecoderException("Odd number of characters.");
+    }
+    ensureOutputCapacity(length / 2);
+    byte[] out = output;
+    int pos = 0;
+    for (int i = offset; i < offset + length; i += 2) {
+      out[pos++] = (byte) (hexDigit(src[i], i - offset) << 4 | hexDigit(src[i + 1], i + 1 - offset));
+    }
+    return pos;
+  }
+
+  private static int hexDigit(byte b, int index) throws DecoderException {
+    int digit = b < 0 ? -1 : HEX_DECODE[b];
+    if (digit < 0) {
+      throw new DecoderException("Illegal hexadecimal character " + (char) (b & 0xff) + " at index " + index);
+    }
+    return digit;
+  }
+
+  private int toUtf8(String value) {
+    if (input.length < Utf8.maxEncodedLength(value)) {
+      input = new byte[Utf8.maxEncodedLength(value)];
+    }
+    return Utf8.encode(value, input);
+  }
+
+  private void ensureOutputCapacity(int capacity) {
+    if (output.length < capacity) {
+      output = new byte[Math.max(capacity, output.length * 2)];
+    }
+  }
+
+  private static byte[] decodeTable(byte[]... alphabets) {
+    byte[] table = new byte[128];
+    Arrays.fill(table, (byte) -1);
+    for (byte[] alphabet : alphabets) {
+      for (int i = 0; i < alphabet.length; i++) {
+        table[alphabet[i]] = (byte) i;
+      }
+    }
+    return table;
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
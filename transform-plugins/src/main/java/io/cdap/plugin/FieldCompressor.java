@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+import org.xerial.snappy.Snappy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+/**
+ * Compresses field values. The deflaters, codec contexts and output buffer are created once and reused for every
+ * value, so small values are not dominated by object churn. Instances are not thread safe.
+ */
+final class FieldCompressor implements Closeable {
+  static final int GZIP_MAGIC = 0x8b1f;
+  static final int ZIP_LOCAL_HEADER = 0x04034b50;
+  static final int ZIP_CENTRAL_HEADER = 0x02014b50;
+  static final int ZIP_END_HEADER = 0x06054b50;
+  static final int LZ4_MAGIC = 0x184D2204;
+  static final int ZSTD_MAGIC = 0xFD2FB528;
+
+  // gzip header with no optional fields and no modification time. The OS byte is 0 (FAT), as GZIPOutputStream
+  // wrote it before Java 16; newer versions write 255 (unknown). Readers ignore it either way.
+  private static final byte[] GZIP_HEADER = {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED,
+    0, 0, 0, 0, 0, 0, 0};
+  private static final int ZIP_LOCAL_HEADER_SIZE = 30;
+  private static final int ZIP_CENTRAL_HEADER_SIZE = 46;
+  private static final int ZIP_END_HEADER_SIZE = 22;
+  // name of the single entry in zip compressed values
+  private static final byte ZIP_ENTRY_NAME = 'c';
+  // 1980-01-01 in MS-DOS date format
+  private static final int ZIP_DOS_DATE = 0x21;
+  // frame version 01, independent blocks, content size present
+  private static final int LZ4_FRAME_FLAGS = 0x68;
+  private static final int LZ4_MAX_BLOCK_SIZE_CODE = 7;
+
+  private final Deflater zipDeflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+  private final Deflater gzipDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+  private final CRC32 crc = new CRC32();
+  private final int zstdLevel;
+  @Nullable
+  private final byte[] zstdDictionary;
+  private LZ4Compressor lz4;
+  private XXHash32 xxHash32;
+  private ZstdCompressCtx zstd;
+  private byte[] buffer = new byte[1024];
+
+  FieldCompressor(int zstdLevel, @Nullable byte[] zstdDictionary) {
+    this.zstdLevel = zstdLevel;
+    this.zstdDictionary = zstdDictionary;
+  }
+
+  byte[] snappy(byte[] input) throws IOException {
+    ensureCapacity(Snappy.maxCompressedLength(input.length));
+    int length = Snappy.compress(input, 0, input.length, buffer, 0);
+    return Arrays.copyOf(buffer, length);
+  }
+
+  byte[] gzip(byte[] input) {
+    ensureCapacity(GZIP_HEADER.length);
+    System.arraycopy(GZIP_HEADER, 0, buffer, 0, GZIP_HEADER.length);
+    int pos = deflate(gzipDeflater, input, GZIP_HEADER.length);
+    crc.reset();
+    crc.update(input, 0, input.length);
+    ensureCapacity(pos + 8);
+    pos = putInt(buffer, pos, (int) crc.getValue());
+    pos = putInt(buffer, pos, input.length);
+    return Arrays.copyOf(buffer, pos);
+  }
+
+  /**
+   * Compresses the input into a zip archive holding a single entry.
+   */
+  byte[] zip(byte[] input) {
+    int dataOffset = ZIP_LOCAL_HEADER_SIZE + 1;
+    ensureCapacity(dataOffset);
+    int dataEnd = deflate(zipDeflater, input, dataOffset);
+    int compressedSize = dataEnd - dataOffset;
+    crc.reset();
+    crc.update(input, 0, input.length);
+    int crcValue = (int) crc.getValue();
+
+    // local file header
+    int pos = putInt(buffer, 0, ZIP_LOCAL_HEADER);
+    pos = putShort(buffer, pos, 20);
+    pos = putShort(buffer, pos, 0);
+    pos = putShort(buffer, pos, Deflater.DEFLATED);
+    pos = putShort(buffer, pos, 0);
+    pos = putShort(buffer, pos, ZIP_DOS_DATE);
+    pos = putInt(buffer, pos, crcValue);
+    pos = putInt(buffer, pos, compressedSize);
+    pos = putInt(buffer, pos, input.length);
+    pos = putShort(buffer, pos, 1);
+    pos = putShort(buffer, pos, 0);
+    buffer[pos] = ZIP_ENTRY_NAME;
+
+    // central directory
+    ensureCapacity(dataEnd + ZIP_CENTRAL_HEADER_SIZE + 1 + ZIP_END_HEADER_SIZE);
+    pos = putInt(buffer, dataEnd, ZIP_CENTRAL_HEADER);
+    pos = putShort(buffer, pos, 20);
+    pos = putShort(buffer, pos, 20);
+    pos = putShort(buffer, pos, 0);
+    pos = putShort(buffer, pos, Deflater.DEFLATED);
+    pos = putShort(buffer, pos, 0);
+    pos = putShort(buffer, pos, ZIP_DOS_DATE);
+    pos = putInt(buffer, pos, crcValue);
+    pos = putInt(buffer, pos, compressedSize);
+    pos = putInt(buffer, pos, input.length);
+    pos = putShort(buffer, pos, 1);
+    // extra field, comment, disk number and internal attributes
+    for (int i = 0; i < 4; i++) {
+      pos = putShort(buffer, pos, 0);
+    }
+    // external attributes and offset of the local header
+    pos = putInt(buffer, pos, 0);
+    pos = putInt(buffer, pos, 0);
+    buffer[pos++] = ZIP_ENTRY_NAME;
+
+    // end of central directory
+    pos = putInt(buffer, pos, ZIP_END_HEADER);
+    pos = putShort(buffer, pos, 0);
+    pos = putShort(buffer, pos, 0);
+    pos = putShort(buffer, pos, 1);
+    pos = putShort(buffer, pos, 1);
+    pos = putInt(buffer, pos, ZIP_CENTRAL_HEADER_SIZE + 1);
+    pos = putInt(buffer, pos, dataEnd);
+    pos = putShort(buffer, pos, 0);
+    return Arrays.copyOf(buffer, pos);
+  }
+
+  /**
+   * Compresses the input into a single LZ4 frame, with independent blocks and the content size in the header.
+   */
+  byte[] lz4(byte[] input) {
+    if (lz4 == null) {
+      lz4 = LZ4Factory.fastestInstance().fastCompressor();
+      xxHash32 = XXHashFactory.fastestInstance().hash32();
+    }
+    // use the smallest block size that fits the value, readers allocate buffers of that size
+    int blockSizeCode = 4;
+    while (blockSizeCode < LZ4_MAX_BLOCK_SIZE_CODE && input.length > lz4BlockSize(blockSizeCode)) {
+      blockSizeCode++;
+    }
+    int blockSize = lz4BlockSize(blockSizeCode);
+    int blocks = Math.max(1, (input.length + blockSize - 1) / blockSize);
+    ensureCapacity(19 + blocks * (4 + lz4.maxCompressedLength(Math.min(blockSize, input.length))) + 4);
+
+    int pos = putInt(buffer, 0, LZ4_MAGIC);
+    buffer[pos++] = LZ4_FRAME_FLAGS;
+    buffer[pos++] = (byte) (blockSizeCode << 4);
+    pos = putInt(buffer, pos, input.length);
+    pos = putInt(buffer, pos, 0);
+    buffer[pos] = (byte) (xxHash32.hash(buffer, 4, pos - 4, 0) >> 8);
+    pos++;
+
+    for (int offset = 0; offset < input.length; offset += blockSize) {
+      int length = Math.min(blockSize, input.length - offset);
+      int compressed = lz4.compress(input, offset, length, buffer, pos + 4, buffer.length - pos - 4);
+      if (compressed >= length) {
+        // incompressible, store the block as is
+        putInt(buffer, pos, length | 0x80000000);
+        System.arraycopy(input, offset, buffer, pos + 4, length);
+        pos += 4 + length;
+      } else {
+        putInt(buffer, pos, compressed);
+        pos += 4 + compressed;
+      }
+    }
+    pos = putInt(buffer, pos, 0);
+    return Arrays.copyOf(buffer, pos);
+  }
+
+  byte[] zstd(byte[] input) {
+    if (zstd == null) {
+      zstd = new ZstdCompressCtx();
+      zstd.setLevel(zstdLevel);
+      if (zstdDictionary != null) {
+        zstd.loadDict(zstdDictionary);
+      }
+    }
+    ensureCapacity((int) Zstd.compressBound(input.length));
+    int length = zstd.compressByteArray(buffer, 0, buffer.length, input, 0, input.length);
+    return Arrays.copyOf(buffer, length);
+  }
+
+  @Override
+  public void close() {
+    zipDeflater.end();
+    gzipDeflater.end();
+    if (zstd != null) {
+      zstd.close();
+    }
+  }
+
+  /**
+   * Deflates the input into the buffer, starting at the given offset.
+   *
+   * @return the end of the deflated data in the buffer
+   */
+  private int deflate(Deflater deflater, byte[] input, int offset) {
+    ensureCapacity(offset + input.length / 2 + 64);
+    deflater.setInput(input);
+    deflater.finish();
+    int pos = offset;
+    while (!deflater.finished()) {
+      if (pos == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      pos += deflater.deflate(buffer, pos, buffer.length - pos);
+    }
+    deflater.reset();
+    return pos;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (buffer.length < capacity) {
+      buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+    }
+  }
+
+  static int lz4BlockSize(int blockSizeCode) {
+    return 1 << (8 + 2 * blockSizeCode);
+  }
+
+  private static int putShort(byte[] buf, int pos, int value) {
+    buf[pos] = (byte) value;
+    buf[pos + 1] = (byte) (value >> 8);
+    return pos + 2;
+  }
+
+  private static int putInt(byte[] buf, int pos, int value) {
+    buf[pos] = (byte) value;
+    buf[pos + 1] = (byte) (value >> 8);
+    buf[pos + 2] = (byte) (value >> 16);
+    buf[pos + 3] = (byte) (value >> 24);
+    return pos + 4;
+  }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdInputStream;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.xerial.snappy.Snappy;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import javax.annotation.Nullable;
+
+/**
+ * Decompresses field values produced by {@link FieldCompressor}, or by any other writer of the same formats.
+ * The inflater, codec contexts and scratch buffer are created once and reused for every value.
+ * Instances are not thread safe.
+ */
+final class FieldDecompressor implements Closeable {
+  private static final int GZIP_FHCRC = 2;
+  private static final int GZIP_FEXTRA = 4;
+  private static final int GZIP_FNAME = 8;
+  private static final int GZIP_FCOMMENT = 16;
+  private static final int ZIP_DATA_DESCRIPTOR = 0x08074b50;
+  private static final int ZIP_ENCRYPTED = 1;
+  private static final int ZIP_HAS_DATA_DESCRIPTOR = 8;
+  // size in a local header whose real value is in the zip64 extra field
+  private static final int ZIP64_SIZE = 0xFFFFFFFF;
+  private static final int ZIP_STORED = 0;
+  private static final int ZIP_DEFLATED = 8;
+  private static final int LZ4_BLOCK_INDEPENDENCE = 0x20;
+  private static final int LZ4_BLOCK_CHECKSUM = 0x10;
+  private static final int LZ4_CONTENT_SIZE = 0x08;
+  private static final int LZ4_CONTENT_CHECKSUM = 0x04;
+  private static final int LZ4_DICT_ID = 0x01;
+  // Upper bounds of how many bytes each compressed byte can decompress to, used to reject content sizes in headers
+  // that the input cannot hold, before allocating for them. A snappy copy of 64 bytes takes 3 bytes, an lz4 match
+  // takes at least one byte per 255 bytes, and a zstd block of at most 128 KiB takes at least 4 bytes.
+  private static final long SNAPPY_MAX_RATIO = 22;
+  private static final long LZ4_MAX_RATIO = 255;
+  private static final long ZSTD_MAX_RATIO = 32768;
+
+  private final Inflater inflater = new Inflater(true);
+  private final CRC32 crc = new CRC32();
+  @Nullable
+  private final byte[] zstdDictionary;
+  private LZ4SafeDecompressor lz4;
+  private ZstdDecompressCtx zstd;
+  private byte[] buffer = new byte[1024];
+
+  FieldDecompressor(@Nullable byte[] zstdDictionary) {
+    this.zstdDictionary = zstdDictionary;
+  }
+
+  byte[] snappy(byte[] input) throws IOException {
+    int size = Snappy.uncompressedLength(input);
+    if (size < 0 || size > input.length * SNAPPY_MAX_RATIO) {
+      throw new IOException("Snappy uncompressed length " + size + " is larger than the input can hold");
+    }
+    byte[] output = new byte[size];
+    Snappy.uncompress(input, 0, input.length, output, 0);
+    return output;
+  }
+
+  /**
+   * Decompresses all gzip members in the input.
+   */
+  byte[] gzip(byte[] input) throws IOException {
+    int pos = 0;
+    int length = 0;
+    do {
+      if (input.length - pos < 18 || getShort(input, pos) != FieldCompressor.GZIP_MAGIC) {
+        throw new ZipException("Not in GZIP format");
+      }
+      if (input[pos + 2] != 8) {
+        throw new ZipException("Unsupported compression method");
+      }
+      int flags = input[pos + 3];
+      pos += 10;
+      if ((flags & GZIP_FEXTRA) != 0) {
+        pos += 2 + getShort(input, pos);
+      }
+      if ((flags & GZIP_FNAME) != 0) {
+        pos = skipZeroTerminated(input, pos);
+      }
+      if ((flags & GZIP_FCOMMENT) != 0) {
+        pos = skipZeroTerminated(input, pos);
+      }
+      if ((flags & GZIP_FHCRC) != 0) {
+        pos += 2;
+      }
+      if (pos > input.length) {
+        throw new ZipException("Corrupt GZIP header");
+      }
+      int start = length;
+      pos = inflate(input, pos, input.length - pos, start);
+      length = start + inflater.getTotalOut();
+      if (input.length - pos < 8) {
+        throw new ZipException("Corrupt GZIP trailer");
+      }
+      crc.reset();
+      crc.update(buffer, start, length - start);
+      if (getInt(input, pos) != (int) crc.getValue() || getInt(input, pos + 4) != length - start) {
+        throw new ZipException("Corrupt GZIP trailer");
+      }
+      pos += 8;
+    } while (input.length - pos >= 2 && getShort(input, pos) == FieldCompressor.GZIP_MAGIC);
+    return Arrays.copyOf(buffer, length);
+  }
+
+  /**
+   * Decompresses and concatenates all entries of the zip archive in the input. The archive is read front to back
+   * through its local headers only, the central directory is not consulted. This covers what {@link FieldCompressor}
+   * and {@link java.util.zip.ZipOutputStream} write, but entries that are encrypted, that use zip64 sizes or that
+   * are stored with their size in a trailing data descriptor are rejected.
+   */
+  byte[] zip(byte[] input) throws IOException {
+    int pos = 0;
+    int length = 0;
+    while (input.length - pos >= 30 && getInt(input, pos) == FieldCompressor.ZIP_LOCAL_HEADER) {
+      int flags = getShort(input, pos + 6);
+      int method = getShort(input, pos + 8);
+      int compressedSize = getInt(input, pos + 18);
+      if ((flags & ZIP_ENCRYPTED) != 0) {
+        throw new ZipException("Encrypted zip entries are not supported");
+      }
+      if (compressedSize == ZIP64_SIZE || getInt(input, pos + 22) == ZIP64_SIZE) {
+        throw new ZipException("Zip64 entries are not supported");
+      }
+      if (method == ZIP_STORED && (flags & ZIP_HAS_DATA_DESCRIPTOR) != 0) {
+        throw new ZipException("Stored zip entries with a data descriptor are not supported");
+      }
+      pos += 30 + getShort(input, pos + 26) + getShort(input, pos + 28);
+      if (pos > input.length) {
+        throw new ZipException("Corrupt zip entry header");
+      }
+      int start = length;
+      if (method == ZIP_STORED) {
+        if (compressedSize < 0 || compressedSize > input.length - pos) {
+          throw new ZipException("Truncated zip entry");
+        }
+        ensureCapacity(start + compressedSize);
+        System.arraycopy(input, pos, buffer, start, compressedSize);
+        pos += compressedSize;
+        length = start + compressedSize;
+      } else if (method == ZIP_DEFLATED) {
+        pos = inflate(input, pos, input.length - pos, start);
+        length = start + inflater.getTotalOut();
+      } else {
+        throw new ZipException("Unsupported compression method " + method);
+      }
+      if ((flags & ZIP_HAS_DATA_DESCRIPTOR) != 0) {
+        // data descriptor, with an optional signature
+        int descriptorLength = input.length - pos >= 4 && getInt(input, pos) == ZIP_DATA_DESCRIPTOR ? 16 : 12;
+        if (input.length - pos < descriptorLength) {
+          throw new ZipException("Truncated zip data descriptor");
+        }
+        pos += descriptorLength;
+      }
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+
+  /**
+   * Decompresses an LZ4 frame. Frames with independent blocks and a known content size are decoded straight into
+   * the output array, anything else is read through {@link LZ4FrameInputStream}.
+   */
+  byte[] lz4(byte[] input) throws IOException {
+    if (lz4 == null) {
+      lz4 = LZ4Factory.fastestInstance().safeDecompressor();
+    }
+    if (input.length < 7 || getInt(input, 0) != FieldCompressor.LZ4_MAGIC) {
+      throw new IOException("Not in LZ4 frame format");
+    }
+    int flags = input[4];
+    if ((flags & LZ4_BLOCK_INDEPENDENCE) == 0 || (flags & LZ4_CONTENT_SIZE) == 0) {
+      return readFully(new LZ4FrameInputStream(new ByteArrayInputStream(input)));
+    }
+    int pos = 14 + ((flags & LZ4_DICT_ID) != 0 ? 4 : 0) + 1;
+    if (input.length < pos) {
+      throw new IOException("Corrupt LZ4 frame header");
+    }
+    long contentSize = getLong(input, 6);
+    if (contentSize < 0 || contentSize > Integer.MAX_VALUE || contentSize > input.length * LZ4_MAX_RATIO) {
+      throw new IOException("LZ4 frame content size " + contentSize + " is larger than the frame can hold");
+    }
+    int blockChecksum = (flags & LZ4_BLOCK_CHECKSUM) != 0 ? 4 : 0;
+    byte[] output = new byte[(int) contentSize];
+    int length = 0;
+    try {
+      int blockSize;
+      while ((blockSize = getInt(input, pos)) != 0) {
+        pos += 4;
+        int size = blockSize & 0x7FFFFFFF;
+        if (blockSize < 0) {
+          System.arraycopy(input, pos, output, length, size);
+          length += size;
+        } else {
+          length += lz4.decompress(input, pos, size, output, length, output.length - length);
+        }
+        pos += size + blockChecksum;
+      }
+    } catch (LZ4Exception | IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt LZ4 frame", e);
+    }
+    if (length != output.length) {
+      throw new IOException("LZ4 frame content size does not match the decompressed size");
+    }
+    return output;
+  }
+
+  byte[] zstd(byte[] input) throws IOException {
+    long size = Zstd.decompressedSize(input);
+    if (size > Integer.MAX_VALUE || size > input.length * ZSTD_MAX_RATIO) {
+      throw new IOException("Zstandard frame content size " + size + " is larger than the frame can hold");
+    }
+    if (size <= 0) {
+      // content size is not in the frame header
+      ZstdInputStream zis = new ZstdInputStream(new ByteArrayInputStream(input));
+      if (zstdDictionary != null) {
+        zis.setDict(zstdDictionary);
+      }
+      return readFully(zis);
+    }
+    if (zstd == null) {
+      zstd = new ZstdDecompressCtx();
+      if (zstdDictionary != null) {
+        zstd.loadDict(zstdDictionary);
+      }
+    }
+    byte[] output = new byte[(int) size];
+    try {
+      zstd.decompressByteArray(output, 0, output.length, input, 0, input.length);
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt Zstandard frame", e);
+    }
+    return output;
+  }
+
+  /**
+   * Detects the format of the input from its leading magic bytes and decompresses it. Input that is not in any
+   * known format is returned as is.
+   */
+  byte[] auto(byte[] input) throws IOException {
+    if (input.length >= 4) {
+      int magic = getInt(input, 0);
+      if (magic == FieldCompressor.ZSTD_MAGIC) {
+        return zstd(input);
+      }
+      if (magic == FieldCompressor.LZ4_MAGIC) {
+        return lz4(input);
+      }
+      if (magic == FieldCompressor.ZIP_LOCAL_HEADER) {
+        return zip(input);
+      }
+      if ((magic & 0xFFFF) == FieldCompressor.GZIP_MAGIC) {
+        return gzip(input);
+      }
+    }
+    // snappy has no header, so check that the input is a well formed snappy block instead
+    if (input.length > 0 && Snappy.isValidCompressedBuffer(input)) {
+      return snappy(input);
+    }
+    return input;
+  }
+
+  @Override
+  public void close() {
+    inflater.end();
+    if (zstd != null) {
+      zstd.close();
+    }
+  }
+
+  /**
+   * Inflates a raw deflate stream into the buffer, starting at the given offset.
+   *
+   * @return the position in the input just after the end of the deflate stream
+   */
+  private int inflate(byte[] input, int offset, int length, int outputOffset) throws IOException {
+    ensureCapacity(outputOffset + length * 2 + 64);
+    // reset before rather than after each stream, so that a stream that failed half way does not affect the next one
+    inflater.reset();
+    inflater.setInput(input, offset, length);
+    int pos = outputOffset;
+    try {
+      while (!inflater.finished()) {
+        if (pos == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int n = inflater.inflate(buffer, pos, buffer.length - pos);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new ZipException("Unexpected end of deflate stream");
+        }
+        pos += n;
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    }
+    return offset + length - inflater.getRemaining();
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (buffer.length < capacity) {
+      buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+    }
+  }
+
+  private byte[] readFully(InputStream in) throws IOException {
+    try (InputStream is = in) {
+      int length = 0;
+      int n;
+      while ((n = is.read(buffer, length, buffer.length - length)) >= 0) {
+        length += n;
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+      }
+      return Arrays.copyOf(buffer, length);
+    }
+  }
+
+  private static int skipZeroTerminated(byte[] input, int pos) throws ZipException {
+    while (pos < input.length && input[pos] != 0) {
+      pos++;
+    }
+    if (pos == input.length) {
+      throw new ZipException("Corrupt GZIP header");
+    }
+    return pos + 1;
+  }
+
+  private static int getShort(byte[] buf, int pos) {
+    return (buf[pos] & 0xFF) | (buf[pos + 1] & 0xFF) << 8;
+  }
+
+  private static int getInt(byte[] buf, int pos) {
+    return getShort(buf, pos) | getShort(buf, pos + 2) << 16;
+  }
+
+  private static long getLong(byte[] buf, int pos) {
+    return (getInt(buf, pos) & 0xFFFFFFFFL) | (long) getInt(buf, pos + 4) << 32;
+  }
+}
@@ -30,9 +30,14 @@ import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
+import io.cdap.plugin.common.RecordAccessor;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
-import org.apache.commons.codec.digest.DigestUtils;
+import net.openhft.hashing.LongHashFunction;
+import net.openhft.hashing.LongTupleHashFunction;
 
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -47,10 +52,21 @@ import javax.annotation.Nullable;
 @Plugin(type = "transform")
 @Name("Hasher")
 @Description("Encodes field values using one of the digest algorithms. MD2, MD5, SHA1, SHA256, " +
-  "SHA384 and SHA512 are the supported message digest algorithms.")
+  "SHA384 and SHA512 are the supported message digest algorithms. XXHASH64, MURMUR3_128 and CITYHASH64 " +
+  "are supported as fast non-cryptographic hashes.")
 public final class Hasher extends Transform<StructuredRecord, StructuredRecord> {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
   private final Config config;
   private Set<String> fieldSet = new HashSet<>();
+  private FieldHasher hasher;
+  private boolean binary;
+  // buffers reused across values, to hold the UTF-8 bytes of the value and the hex encoded hash
+  private byte[] valueBuffer = new byte[256];
+  private char[] hexBuffer;
+  // output schema, field names and the fields to hash for the last seen input schema
+  private RecordAccessor inputFields;
+  private Schema outputSchema;
+  private boolean[] hashed;
 
   // For testing purpose only.
   public Hasher(Config config) {
@@ -62,7 +78,9 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
     StageConfigurer stageConfigurer = pipelineConfigurer.getStageConfigurer();
     config.validate(stageConfigurer.getInputSchema(), stageConfigurer.getFailureCollector());
     stageConfigurer.getFailureCollector().getOrThrowException();
-    stageConfigurer.setOutputSchema(stageConfigurer.getInputSchema());
+    Schema inputSchema = stageConfigurer.getInputSchema();
+    stageConfigurer.setOutputSchema(inputSchema == null ? null :
+                                      getOutputSchema(inputSchema, config.getFields(), config.isBinary()));
   }
 
   @Override
@@ -95,44 +113,161 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
   @Override
   public void initialize(TransformContext context) throws Exception {
     fieldSet = config.getFields();
+    hasher = config.getHashType().newHasher();
+    binary = config.isBinary();
   }
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    StructuredRecord.Builder builder = StructuredRecord.builder(in.getSchema());
-    
-    List<Schema.Field> fields = in.getSchema().getFields();
-    for (Schema.Field field : fields) {
-      String name = field.getName();
-      if (fieldSet.contains(name) && field.getSchema().getType() == Schema.Type.STRING) {
-        String value = in.get(name);
-        String digest = value;
-        switch(config.hash.toLowerCase()) {
-          case "md2":
-            digest = DigestUtils.md2Hex(value);
-            break;
-          case "md5":
-            digest = DigestUtils.md5Hex(value);
-            break;
-          case "sha1":
-            digest = DigestUtils.sha1Hex(value);
-            break;
-          case "sha256":
-            digest = DigestUtils.sha256Hex(value);
-            break;
-          case "sha384":
-            digest = DigestUtils.sha384Hex(value);
-            break;
-          case "sha512":
-            digest = DigestUtils.sha512Hex(value);
-            break;
-        }
-        builder.set(name, digest);
+    Schema schema = in.getSchema();
+    if (inputFields == null || schema != inputFields.getSchema()) {
+      resolveFields(schema);
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
+    for (int i = 0; i < hashed.length; i++) {
+      Object value = inputFields.get(in, i);
+      inputFields.set(builder, i, hashed[i] ? hash((String) value) : value);
+    }
+    emitter.emit(builder.build());
+  }
+
+  private void resolveFields(Schema schema) {
+    inputFields = RecordAccessor.of(schema);
+    outputSchema = getOutputSchema(schema, fieldSet, binary);
+    hashed = new boolean[inputFields.size()];
+    for (int i = 0; i < hashed.length; i++) {
+      // nullable strings are not hashed
+      hashed[i] = fieldSet.contains(inputFields.getName(i))
+        && inputFields.getField(i).getSchema().getType() == Schema.Type.STRING;
+    }
+  }
+
+  @Nullable
+  private Object hash(@Nullable String value) {
+    if (value == null) {
+      return null;
+    }
+    if (valueBuffer.length < Utf8.maxEncodedLength(value)) {
+      valueBuffer = new byte[Utf8.maxEncodedLength(value)];
+    }
+    int length = Utf8.encode(value, valueBuffer);
+    byte[] hash = hasher.hash(valueBuffer, length);
+    if (binary) {
+      return Arrays.copyOf(hash, hash.length);
+    }
+    if (hexBuffer == null) {
+      hexBuffer = new char[hash.length * 2];
+    }
+    for (int i = 0; i < hash.length; i++) {
+      hexBuffer[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0x0f];
+      hexBuffer[2 * i + 1] = HEX_DIGITS[hash[i] & 0x0f];
+    }
+    return new String(hexBuffer);
+  }
+
+  private static Schema getOutputSchema(Schema inputSchema, Set<String> fields, boolean binary) {
+    if (!binary) {
+      return inputSchema;
+    }
+    List<Schema.Field> outputFields = new ArrayList<>();
+    for (Schema.Field field : inputSchema.getFields()) {
+      if (fields.contains(field.getName()) && field.getSchema().getType() == Schema.Type.STRING) {
+        outputFields.add(Schema.Field.of(field.getName(), Schema.of(Schema.Type.BYTES)));
       } else {
-        builder.set(name, in.get(name));
+        outputFields.add(field);
+      }
+    }
+    return Schema.recordOf(inputSchema.getRecordName(), outputFields);
+  }
+
+  /**
+   * Computes hashes into a buffer that is reused across calls.
+   */
+  private interface FieldHasher {
+
+    /**
+     * Hashes the first length bytes of the input.
+     *
+     * @return the hash, which is only valid until the next call
+     */
+    byte[] hash(byte[] input, int length);
+  }
+
+  /**
+   * Enum specifying the hash type.
+   */
+  private enum HashType {
+    MD2("MD2"),
+    MD5("MD5"),
+    SHA1("SHA-1"),
+    SHA256("SHA-256"),
+    SHA384("SHA-384"),
+    SHA512("SHA-512"),
+    XXHASH64(null),
+    MURMUR3_128(null),
+    CITYHASH64(null);
+
+    @Nullable
+    private final String digestAlgorithm;
+
+    HashType(@Nullable String digestAlgorithm) {
+      this.digestAlgorithm = digestAlgorithm;
+    }
+
+    /**
+     * Creates a new hasher. Hashers are not thread safe, so each task should create its own.
+     */
+    FieldHasher newHasher() throws NoSuchAlgorithmException {
+      switch (this) {
+        case XXHASH64:
+          return newLongHasher(LongHashFunction.xx());
+        case CITYHASH64:
+          return newLongHasher(LongHashFunction.city_1_1());
+        case MURMUR3_128:
+          LongTupleHashFunction murmur = LongTupleHashFunction.murmur_3();
+          long[] result = murmur.newResultArray();
+          byte[] murmurOutput = new byte[16];
+          return (input, length) -> {
+            murmur.hashBytes(input, 0, length, result);
+            // same byte order as the canonical murmur3 implementation
+            putLongLittleEndian(murmurOutput, 0, result[0]);
+            putLongLittleEndian(murmurOutput, 8, result[1]);
+            return murmurOutput;
+          };
+        default:
+          MessageDigest digest = MessageDigest.getInstance(digestAlgorithm);
+          byte[] digestOutput = new byte[digest.getDigestLength()];
+          return (input, length) -> {
+            digest.update(input, 0, length);
+            try {
+              digest.digest(digestOutput, 0, digestOutput.length);
+            } catch (DigestException e) {
+              // cannot happen, the output buffer is sized to the digest length
+              throw new IllegalStateException(e);
+            }
+            return digestOutput;
+          };
+      }
+    }
+
+    private static FieldHasher newLongHasher(LongHashFunction function) {
+      byte[] output = new byte[8];
+      return (input, length) -> {
+        long hash = function.hashBytes(input, 0, length);
+        for (int i = 7; i >= 0; i--) {
+          output[i] = (byte) hash;
+          hash >>>= 8;
+        }
+        return output;
+      };
+    }
+
+    private static void putLongLittleEndian(byte[] output, int offset, long value) {
+      for (int i = 0; i < 8; i++) {
+        output[offset + i] = (byte) value;
+        value >>>= 8;
       }
     }
-    emitter.emit(builder.build());
   }
 
   /**
@@ -141,6 +276,9 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
   public static class Config extends PluginConfig {
     private static final String HASH = "hash";
     private static final String FIELDS = "fields";
+    private static final String FORMAT = "format";
+    private static final String FORMAT_HEX = "hex";
+    private static final String FORMAT_BYTES = "bytes";
 
     @Name(HASH)
     @Description("Specifies the Hash method for hashing fields.")
@@ -150,19 +288,35 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
     @Name(FIELDS)
     @Description("List of fields to hash. Only string fields are allowed")
     private final String fields;
-    
+
+    @Name(FORMAT)
+    @Description("Format of the hashed fields. 'hex' emits the hash as a hex encoded string, 'bytes' emits the " +
+      "raw hash bytes and changes the type of the hashed fields to bytes. Defaults to 'hex'.")
+    @Nullable
+    private final String format;
+
     public Config(String hash, String fields) {
+      this(hash, fields, null);
+    }
+
+    public Config(String hash, String fields, @Nullable String format) {
       this.hash = hash;
       this.fields = fields;
+      this.format = format;
     }
 
     private void validate(@Nullable Schema inputSchema, FailureCollector failureCollector) {
       // Checks if hash specified is one of the supported types.
-      if (hash != null && !hash.equalsIgnoreCase("md2") && !hash.equalsIgnoreCase("md5") &&
-        !hash.equalsIgnoreCase("sha1") && !hash.equalsIgnoreCase("sha256") &&
-        !hash.equalsIgnoreCase("sha384") && !hash.equalsIgnoreCase("sha512")) {
+      if (hash != null && Arrays.stream(HashType.values()).noneMatch(type -> type.name().equalsIgnoreCase(hash))) {
         failureCollector.addFailure(String.format("Invalid hasher '%s' specified.", hash),
-                                    "Allowed hashers are md2, md5, sha1, sha256, sha384 and sha512");
+                                    "Allowed hashers are md2, md5, sha1, sha256, sha384, sha512, " +
+                                      "xxhash64, murmur3_128 and cityhash64");
+      }
+
+      if (format != null && !FORMAT_HEX.equalsIgnoreCase(format) && !FORMAT_BYTES.equalsIgnoreCase(format)) {
+        failureCollector.addFailure(String.format("Invalid format '%s' specified.", format),
+                                    "Allowed formats are hex and bytes")
+          .withConfigProperty(FORMAT);
       }
 
       if (inputSchema == null) {
@@ -188,6 +342,14 @@ public final class Hasher extends Transform<StructuredRecord, StructuredRecord>
     private Set<String> getFields() {
       return Arrays.stream(fields.split(",")).map(String::trim).collect(Collectors.toSet());
     }
+
+    private HashType getHashType() {
+      // MD5 is the default in the UI
+      return hash == null ? HashType.MD5 : HashType.valueOf(hash.toUpperCase());
+    }
+
+    private boolean isBinary() {
+      return FORMAT_BYTES.equalsIgnoreCase(format);
+    }
   }
 }
-
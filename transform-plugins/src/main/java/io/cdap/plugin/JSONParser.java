@@ -19,8 +19,10 @@ package io.cdap.plugin;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -68,6 +70,11 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
   // Specifies whether mapping is simple or complex.
   private boolean isSimple = true;
 
+  // Compiled Json path for each output field, or null for fields that are copied from the input.
+  private JsonPath[] paths;
+
+  private final JsonProvider jsonProvider = Configuration.defaultConfiguration().jsonProvider();
+
   // Mainly used for testing.
   public JSONParser(Config config) {
     this.config = config;
@@ -156,6 +163,25 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
     }
     extractMappings(collector);
     collector.getOrThrowException();
+    compilePaths(collector);
+    collector.getOrThrowException();
+  }
+
+  // Compiles the Json path of each output field once, rather than once per record.
+  private void compilePaths(FailureCollector collector) {
+    paths = new JsonPath[fields.size()];
+    for (int i = 0; i < paths.length; i++) {
+      String path = mapping.get(fields.get(i).getName());
+      if (path == null) {
+        continue;
+      }
+      try {
+        paths[i] = JsonPath.compile(path);
+      } catch (InvalidPathException e) {
+        collector.addFailure(String.format("Invalid JSON expression '%s': %s", path, e.getMessage()), null)
+          .withConfigElement(Config.MAPPING, fields.get(i).getName() + ":" + path);
+      }
+    }
   }
 
   @Override
@@ -166,27 +192,37 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
       emitter.emit(StructuredRecordStringConverter.fromJsonString((String) input.get(config.field), outSchema));
       return;
     }
+    StructuredRecord output = parseWithPaths(input);
+    if (output != null) {
+      emitter.emit(output);
+    }
+  }
 
-    // When it's not a simple Json to be parsed, we use the Json path to map the input Json fields into the
-    // output schema. In order to optimize for reading multiple paths from the Json we create a document that
-    // allows the Json to be parsed only once. We then iterate through the output fields and apply the
-    // path to extract the fields.
-    Object document = Configuration.defaultConfiguration().jsonProvider().parse((String) input.get(config.field));
+  /**
+   * Maps the input Json fields into the output schema using the Json paths. In order to optimize for reading
+   * multiple paths from the Json we create a document that allows the Json to be parsed only once. We then
+   * iterate through the output fields and apply the compiled path to extract the fields.
+   *
+   * @return the output record, or null if a path for a non-nullable field does not exist
+   */
+  @Nullable
+  private StructuredRecord parseWithPaths(StructuredRecord input) {
+    Object document = jsonProvider.parse((String) input.get(config.field));
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-    for (Schema.Field field : fields) {
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
       String name = field.getName();
-      if (mapping.containsKey(name)) {
-        String path = mapping.get(name);
+      JsonPath path = paths[i];
+      if (path != null) {
         try {
-          Object value = JsonPath.read(document, path);
-          builder.set(field.getName(), value);
+          builder.set(name, path.read(document));
         } catch (PathNotFoundException e) {
           if (field.getSchema().isNullable()) {
-            builder.set(field.getName(), null);
+            builder.set(name, null);
           } else {
-            LOG.error("Json path '" + path + "' specified for the field '" + name + "' doesn't exist. " +
+            LOG.error("Json path '" + path.getPath() + "' specified for the field '" + name + "' doesn't exist. " +
                         "Dropping the error record: " + StructuredRecordStringConverter.toJsonString(input));
-            return;
+            return null;
           }
         }
       } else {
@@ -198,7 +234,7 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
         }
       }
     }
-    emitter.emit(builder.build());
+    return builder.build();
   }
 
   /**
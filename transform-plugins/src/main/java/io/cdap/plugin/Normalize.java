@@ -53,6 +53,8 @@ public class Normalize extends Transform<StructuredRecord, StructuredRecord> {
   private Map<String, String> mappingFieldMap;
   private Map<String, String> normalizeFieldMap;
   private List<String> normalizeFieldList;
+  private Schema lastInputSchema;
+  private EmissionPlan emissionPlan;
 
   public Normalize(NormalizeConfig config) {
     this.config = config;
@@ -230,22 +232,73 @@ public class Normalize extends Transform<StructuredRecord, StructuredRecord> {
 
   @Override
   public void transform(StructuredRecord structuredRecord, Emitter<StructuredRecord> emitter) throws Exception {
-    for (String normalizeField : normalizeFieldList) {
-      if (structuredRecord.get(normalizeField) == null) {
+    if (structuredRecord.getSchema() != lastInputSchema) {
+      emissionPlan = new EmissionPlan(structuredRecord.getSchema());
+      lastInputSchema = structuredRecord.getSchema();
+    }
+    EmissionPlan plan = emissionPlan;
+
+    //Mapping fields are the same for every output record, so only convert them once
+    String[] mappedValues = null;
+    for (int i = 0; i < plan.normalizeFields.length; i++) {
+      Object normalizeValue = structuredRecord.get(plan.normalizeFields[i]);
+      if (normalizeValue == null) {
         continue;
       }
+      if (mappedValues == null) {
+        mappedValues = new String[plan.mappedInputFields.length];
+        for (int j = 0; j < mappedValues.length; j++) {
+          mappedValues[j] = String.valueOf(structuredRecord.<Object>get(plan.mappedInputFields[j]));
+        }
+      }
       StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-      String normalizeFieldValue = String.valueOf(structuredRecord.<Object>get(normalizeField));
       //Set normalize fields to the record
-      builder.set(normalizeFieldMap.get(normalizeField + NAME_KEY_SUFFIX), normalizeField)
-        .set(normalizeFieldMap.get(normalizeField + VALUE_KEY_SUFFIX), normalizeFieldValue);
+      builder.set(plan.nameOutputFields[i], plan.normalizeFields[i])
+        .set(plan.valueOutputFields[i], String.valueOf(normalizeValue));
 
       //Set mapping fields to the record
-      mappingFieldMap.forEach((key, value) -> builder.set(value, String.valueOf(structuredRecord.<Object>get(key))));
+      for (int j = 0; j < mappedValues.length; j++) {
+        builder.set(plan.mappedOutputFields[j], mappedValues[j]);
+      }
       emitter.emit(builder.build());
     }
   }
 
+  /**
+   * Output fields to set for records of one input schema, resolved once so that transforming a record does not
+   * need any map lookups or string concatenation. Normalizing fields that are not in the input schema are left
+   * out, since they never produce a record.
+   */
+  private final class EmissionPlan {
+    private final String[] mappedInputFields;
+    private final String[] mappedOutputFields;
+    private final String[] normalizeFields;
+    private final String[] nameOutputFields;
+    private final String[] valueOutputFields;
+
+    private EmissionPlan(Schema inputSchema) {
+      mappedInputFields = mappingFieldMap.keySet().toArray(new String[0]);
+      mappedOutputFields = new String[mappedInputFields.length];
+      for (int i = 0; i < mappedInputFields.length; i++) {
+        mappedOutputFields[i] = mappingFieldMap.get(mappedInputFields[i]);
+      }
+
+      List<String> fields = new ArrayList<>();
+      for (String normalizeField : normalizeFieldList) {
+        if (inputSchema.getField(normalizeField) != null) {
+          fields.add(normalizeField);
+        }
+      }
+      normalizeFields = fields.toArray(new String[0]);
+      nameOutputFields = new String[normalizeFields.length];
+      valueOutputFields = new String[normalizeFields.length];
+      for (int i = 0; i < normalizeFields.length; i++) {
+        nameOutputFields[i] = normalizeFieldMap.get(normalizeFields[i] + NAME_KEY_SUFFIX);
+        valueOutputFields[i] = normalizeFieldMap.get(normalizeFields[i] + VALUE_KEY_SUFFIX);
+      }
+    }
+  }
+
   /**
    * Configuration for the Normalize transform.
    */
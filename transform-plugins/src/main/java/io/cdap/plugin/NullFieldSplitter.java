@@ -50,7 +50,9 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
   public static final String NON_NULL_PORT = "nonnull";
   private final Conf conf;
   // only used when input schema is variable
-  private Map<Schema, Schema> schemaMap;
+  private Map<Schema, CopyPlan> schemaMap;
+  private Schema lastSchema;
+  private CopyPlan lastPlan;
 
   public NullFieldSplitter(Conf conf) {
     this.conf = conf;
@@ -74,7 +76,7 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
     if (inputSchema != null) {
       Schema nonNullSchema = getNonNullSchema(context.getInputSchema(), conf.field, collector);
       collector.getOrThrowException();
-      schemaMap.put(inputSchema, nonNullSchema);
+      schemaMap.put(inputSchema, new CopyPlan(inputSchema, nonNullSchema));
     }
   }
 
@@ -87,14 +89,17 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
     } else if (!conf.modifySchema) {
       emitter.emit(NON_NULL_PORT, record);
     } else {
-      Schema outputSchema = schemaMap.get(recordSchema);
-      if (outputSchema == null) {
-        outputSchema = getNonNullSchema(recordSchema, conf.field, null);
-        schemaMap.put(recordSchema, outputSchema);
+      if (recordSchema != lastSchema) {
+        CopyPlan plan = schemaMap.get(recordSchema);
+        if (plan == null) {
+          plan = new CopyPlan(recordSchema, getNonNullSchema(recordSchema, conf.field, null));
+          schemaMap.put(recordSchema, plan);
+        }
+        lastSchema = recordSchema;
+        lastPlan = plan;
       }
-      StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-      for (Schema.Field recordField : record.getSchema().getFields()) {
-        String fieldName = recordField.getName();
+      StructuredRecord.Builder builder = StructuredRecord.builder(lastPlan.outputSchema);
+      for (String fieldName : lastPlan.fieldNames) {
         builder.set(fieldName, record.get(fieldName));
       }
       emitter.emit(NON_NULL_PORT, builder.build());
@@ -150,6 +155,23 @@ public class NullFieldSplitter extends SplitterTransform<StructuredRecord, Struc
     return Schema.recordOf(nullableSchema.getRecordName() + ".nonnull", fields);
   }
 
+  /**
+   * Non-null output schema for one input schema, with the names of the fields to copy into it.
+   */
+  private static final class CopyPlan {
+    private final Schema outputSchema;
+    private final String[] fieldNames;
+
+    private CopyPlan(Schema inputSchema, Schema outputSchema) {
+      this.outputSchema = outputSchema;
+      List<Schema.Field> fields = inputSchema.getFields();
+      this.fieldNames = new String[fields.size()];
+      for (int i = 0; i < fieldNames.length; i++) {
+        fieldNames[i] = fields.get(i).getName();
+      }
+    }
+  }
+
   /**
    * Configuration for the plugin.
    */
@@ -33,6 +33,7 @@ import io.cdap.cdap.etl.api.SplitterTransform;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +50,8 @@ import javax.annotation.Nullable;
   "bool, int, long, float, double, or string).")
 public class UnionSplitter extends SplitterTransform<StructuredRecord, StructuredRecord> {
   private final Conf conf;
+  private Schema lastInputSchema;
+  private SplitPlan splitPlan;
 
   public UnionSplitter(Conf conf) {
     this.conf = conf;
@@ -73,39 +76,41 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
       return;
     }
 
-    Schema.Field schemaField = record.getSchema().getField(conf.unionField);
-    if (schemaField == null) {
+    if (record.getSchema() != lastInputSchema) {
+      splitPlan = new SplitPlan(record.getSchema());
+      lastInputSchema = record.getSchema();
+    }
+    SplitPlan plan = splitPlan;
+    if (plan.missingField) {
       emitter.emitError(new InvalidEntry<>(100, String.format("Field '%s' does not exist.", conf.unionField), record));
       return;
     }
-
-    Schema fieldSchema = schemaField.getSchema();
-    if (fieldSchema.getType() != Schema.Type.UNION) {
+    if (plan.unionSchema.getType() != Schema.Type.UNION) {
       emitter.emitError(new InvalidEntry<>(200, String.format("Field '%s' is not of type union, but is of type '%s'.",
-                                                              conf.unionField, fieldSchema.getType()), record));
+                                                              conf.unionField, plan.unionSchema.getType()), record));
       return;
     }
 
     Object val = record.get(conf.unionField);
-    Schema valSchema;
+    Schema.Type valType;
     if (val == null) {
-      valSchema = Schema.of(Schema.Type.NULL);
+      valType = Schema.Type.NULL;
     } else if (val instanceof Boolean) {
-      valSchema = Schema.of(Schema.Type.BOOLEAN);
+      valType = Schema.Type.BOOLEAN;
     } else if (val instanceof ByteBuffer || val instanceof byte[] || val instanceof Byte[]) {
-      valSchema = Schema.of(Schema.Type.BYTES);
+      valType = Schema.Type.BYTES;
     } else if (val instanceof Integer) {
-      valSchema = Schema.of(Schema.Type.INT);
+      valType = Schema.Type.INT;
     } else if (val instanceof Long) {
-      valSchema = Schema.of(Schema.Type.LONG);
+      valType = Schema.Type.LONG;
     } else if (val instanceof Float) {
-      valSchema = Schema.of(Schema.Type.FLOAT);
+      valType = Schema.Type.FLOAT;
     } else if (val instanceof Double) {
-      valSchema = Schema.of(Schema.Type.DOUBLE);
+      valType = Schema.Type.DOUBLE;
     } else if (val instanceof String) {
-      valSchema = Schema.of(Schema.Type.STRING);
+      valType = Schema.Type.STRING;
     } else if (val instanceof StructuredRecord) {
-      valSchema = ((StructuredRecord) val).getSchema();
+      valType = Schema.Type.RECORD;
     } else if (val.getClass().isEnum()) {
       emitter.emitError(
         new InvalidEntry<>(300, String.format("Field '%s' is an Enum, which is not supported.", conf.unionField),
@@ -129,41 +134,36 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
       return;
     }
 
-    boolean foundSchema = false;
-    for (Schema unionSchema : fieldSchema.getUnionSchemas()) {
-      // if the schema in the union matches the value's schema
-      if (unionSchema.equals(valSchema)) {
-        foundSchema = true;
+    Route route;
+    if (valType == Schema.Type.RECORD) {
+      Schema valSchema = ((StructuredRecord) val).getSchema();
+      route = plan.recordRoutes.get(valSchema);
+      if (route == null) {
+        emitter.emitError(
+          new InvalidEntry<>(400, String.format("Field '%s' has schema '%s', which is not in its union schema.",
+                                                conf.unionField, valSchema), record));
+        return;
       }
-    }
-    if (!foundSchema) {
-      emitter.emitError(
-        new InvalidEntry<>(400, String.format("Field '%s' has schema '%s', which is not in its union schema.",
-                                              conf.unionField, valSchema), record));
-      return;
-    }
-
-    Schema inputSchema = record.getSchema();
-    List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
-      if (fieldName.equals(conf.unionField)) {
-        fields.add(Schema.Field.of(fieldName, valSchema));
-      } else {
-        fields.add(inputSchemaField);
+    } else {
+      route = plan.simpleRoutes.get(valType);
+      if (route == null) {
+        emitter.emitError(
+          new InvalidEntry<>(400, String.format("Field '%s' has schema '%s', which is not in its union schema.",
+                                                conf.unionField, Schema.of(valType)), record));
+        return;
       }
     }
 
-    Schema.Type valType = valSchema.getType();
-    String port = valType == Schema.Type.RECORD ? valSchema.getRecordName() : valType.name().toLowerCase();
-    Schema outputSchema = conf.modifySchema ?
-      Schema.recordOf(inputSchema.getRecordName() + "." + port, fields) : inputSchema;
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-    for (Schema.Field inputSchemaField : inputSchema.getFields()) {
-      String fieldName = inputSchemaField.getName();
+    if (!conf.modifySchema) {
+      // the output schema is the input schema, so there is nothing to copy
+      emitter.emit(route.port, record);
+      return;
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(route.outputSchema);
+    for (String fieldName : plan.fieldNames) {
       builder.set(fieldName, record.get(fieldName));
     }
-    emitter.emit(port, builder.build());
+    emitter.emit(route.port, builder.build());
   }
 
   @VisibleForTesting
@@ -220,6 +220,71 @@ public class UnionSplitter extends SplitterTransform<StructuredRecord, Structure
     return outputPortSchemas;
   }
 
+  /**
+   * Routing for records of one input schema. Each schema in the union field is mapped to its port and output schema
+   * up front, so that splitting a record only needs to find the branch of its value.
+   */
+  private final class SplitPlan {
+    private final boolean missingField;
+    private final Schema unionSchema;
+    private final Map<Schema.Type, Route> simpleRoutes = new EnumMap<>(Schema.Type.class);
+    private final Map<Schema, Route> recordRoutes = new HashMap<>();
+    private final String[] fieldNames;
+
+    private SplitPlan(Schema inputSchema) {
+      List<Schema.Field> inputFields = inputSchema.getFields();
+      fieldNames = new String[inputFields.size()];
+      for (int i = 0; i < fieldNames.length; i++) {
+        fieldNames[i] = inputFields.get(i).getName();
+      }
+
+      Schema.Field unionSchemaField = inputSchema.getField(conf.unionField);
+      missingField = unionSchemaField == null;
+      unionSchema = missingField ? null : unionSchemaField.getSchema();
+      if (missingField || unionSchema.getType() != Schema.Type.UNION) {
+        return;
+      }
+
+      for (Schema branch : unionSchema.getUnionSchemas()) {
+        Schema.Type type = branch.getType();
+        String port = type == Schema.Type.RECORD ? branch.getRecordName() : type.name().toLowerCase();
+        Schema outputSchema = conf.modifySchema ? getBranchSchema(inputSchema, branch, port) : inputSchema;
+        if (type == Schema.Type.RECORD) {
+          recordRoutes.put(branch, new Route(port, outputSchema));
+        } else if (branch.equals(Schema.of(type))) {
+          // values only ever match plain simple types, and values of other types are emitted as errors
+          simpleRoutes.put(type, new Route(port, outputSchema));
+        }
+      }
+    }
+
+    private Schema getBranchSchema(Schema inputSchema, Schema branch, String port) {
+      List<Schema.Field> fields = new ArrayList<>(inputSchema.getFields().size());
+      for (Schema.Field inputSchemaField : inputSchema.getFields()) {
+        String fieldName = inputSchemaField.getName();
+        if (fieldName.equals(conf.unionField)) {
+          fields.add(Schema.Field.of(fieldName, branch));
+        } else {
+          fields.add(inputSchemaField);
+        }
+      }
+      return Schema.recordOf(inputSchema.getRecordName() + "." + port, fields);
+    }
+  }
+
+  /**
+   * Port and output schema for one schema of the union.
+   */
+  private static final class Route {
+    private final String port;
+    private final Schema outputSchema;
+
+    private Route(String port, Schema outputSchema) {
+      this.port = port;
+      this.outputSchema = outputSchema;
+    }
+  }
+
   /**
    * Plugin conf
    */
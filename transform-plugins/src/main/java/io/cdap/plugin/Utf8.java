@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+/**
+ * Encodes strings as UTF-8 into caller provided buffers, so that transforms can reuse one buffer across values
+ * instead of allocating a new array with {@link String#getBytes(java.nio.charset.Charset)} for every value.
+ */
+final class Utf8 {
+
+  private Utf8() {
+  }
+
+  /**
+   * Returns the maximum number of bytes the UTF-8 encoding of the value can take.
+   */
+  static int maxEncodedLength(String value) {
+    // a UTF-16 char never takes more than 3 bytes, surrogate pairs take 4 bytes for 2 chars
+    return value.length() * 3;
+  }
+
+  /**
+   * Encodes the value as UTF-8 into the buffer, which must hold at least {@link #maxEncodedLength(String)} bytes.
+   * Malformed surrogates are replaced with '?', the same as {@link String#getBytes(java.nio.charset.Charset)}.
+   *
+   * @return the number of bytes written
+   */
+  static int encode(String value, byte[] buf) {
+    int length = value.length();
+    int pos = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buf[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        buf[pos++] = (byte) (0xc0 | (c >> 6));
+        buf[pos++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        int codePoint = Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1)) ? Character.toCodePoint(c, value.charAt(++i)) : -1;
+        if (codePoint < 0) {
+          buf[pos++] = '?';
+        } else {
+          buf[pos++] = (byte) (0xf0 | (codePoint >> 18));
+          buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          buf[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+      } else {
+        buf[pos++] = (byte) (0xe0 | (c >> 12));
+        buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buf[pos++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    return pos;
+  }
+}
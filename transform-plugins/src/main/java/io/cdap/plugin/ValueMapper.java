@@ -17,6 +17,7 @@
 package io.cdap.plugin;
 
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.annotation.Requirements;
@@ -35,6 +36,7 @@ import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.cdap.etl.api.lineage.field.FieldTransformOperation;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
+import io.cdap.plugin.common.script.SnapshotLookup;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -42,6 +44,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Transforms records using custom mapping provided by the config.
@@ -56,6 +59,9 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   private final Map<String, ValueMapping> mappingValues = new HashMap<>();
   private Map<String, String> defaultsMapping = new HashMap<>();
   private Map<String, Lookup<String>> lookupTableCache = new HashMap<String, Lookup<String>>();
+  // output schema of the last seen input schema, to skip the schema cache lookup for records of the same schema
+  private Schema lastInputSchema;
+  private Schema lastOutputSchema;
 
   //for unit tests, otherwise config is injected by plugin framework.
   public ValueMapper(Config config) {
@@ -68,6 +74,9 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   public static class Config extends PluginConfig {
     public static final String DEFAULTS = "defaults";
     public static final String MAPPING = "mapping";
+    public static final String PRELOAD_LOOKUPS = "preloadLookups";
+    public static final String MAX_PRELOAD_SIZE = "maxPreloadSize";
+    private static final int DEFAULT_MAX_PRELOAD_SIZE = 100000;
 
     @Name("mapping")
     @Description("Specify the source and target field mapping and lookup dataset name." +
@@ -83,9 +92,47 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
             "For example: lang_code:English,country_code:Britain")
     private final String defaults;
 
+    @Name(PRELOAD_LOOKUPS)
+    @Description("Whether to keep the values read from the lookup tables in memory for the duration of the task, " +
+      "so that each distinct source value is read from its lookup table only once. Only use this if the lookup " +
+      "tables do not change while the pipeline runs. Defaults to false.")
+    @Macro
+    @Nullable
+    private final Boolean preloadLookups;
+
+    @Name(MAX_PRELOAD_SIZE)
+    @Description("Maximum number of source values kept in memory per lookup table when lookups are preloaded. " +
+      "Values read after the limit is reached go through a cache of the same size instead. Defaults to 100000.")
+    @Macro
+    @Nullable
+    private final Integer maxPreloadSize;
+
     public Config(String mapping, String defaults) {
+      this(mapping, defaults, null, null);
+    }
+
+    public Config(String mapping, String defaults, @Nullable Boolean preloadLookups,
+                  @Nullable Integer maxPreloadSize) {
       this.mapping = mapping;
       this.defaults = defaults;
+      this.preloadLookups = preloadLookups;
+      this.maxPreloadSize = maxPreloadSize;
+    }
+
+    private boolean isPreloadLookups() {
+      return preloadLookups != null && preloadLookups;
+    }
+
+    private int getMaxPreloadSize() {
+      return maxPreloadSize == null ? DEFAULT_MAX_PRELOAD_SIZE : maxPreloadSize;
+    }
+
+    private void validate(FailureCollector collector) {
+      if (!containsMacro(MAX_PRELOAD_SIZE) && maxPreloadSize != null && maxPreloadSize < 1) {
+        collector.addFailure(String.format("Invalid maximum preload size '%d'.", maxPreloadSize),
+                             "Specify a positive number.")
+          .withConfigProperty(MAX_PRELOAD_SIZE);
+      }
     }
   }
 
@@ -212,6 +259,10 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
       if (!lookupTableCache.containsKey(lookupTableName)) {
         LookupTableConfig tableConfig = new LookupTableConfig(LookupTableConfig.TableType.DATASET);
         Lookup<String> lookupTable = context.provide(lookupTableName, tableConfig.getDatasetProperties());
+        if (config.isPreloadLookups()) {
+          // hits and misses of all tables are reported as lookup.hits and lookup.misses
+          lookupTable = new SnapshotLookup<>(lookupTable, config.getMaxPreloadSize(), context.getMetrics(), "lookup");
+        }
         lookupTableCache.put(lookupTableName, lookupTable);
       }
     }
@@ -219,8 +270,11 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
 
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
-    StructuredRecord.Builder builder = StructuredRecord.builder(
-        getOutputSchema(input.getSchema(), getContext().getFailureCollector()));
+    if (input.getSchema() != lastInputSchema) {
+      lastOutputSchema = getOutputSchema(input.getSchema(), getContext().getFailureCollector());
+      lastInputSchema = input.getSchema();
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(lastOutputSchema);
     for (Schema.Field sourceField : input.getSchema().getFields()) {
       String sourceFieldName = sourceField.getName();
       if (mappingValues.containsKey(sourceFieldName)) {
@@ -255,6 +309,8 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   public void initialize(TransformContext context) throws Exception {
     super.initialize(context);
     parseConfiguration(this.config, context.getFailureCollector());
+    config.validate(context.getFailureCollector());
+    context.getFailureCollector().getOrThrowException();
     createLookupTableData(context);
   }
 
@@ -266,6 +322,7 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
     FailureCollector collector = pipelineConfigurer.getStageConfigurer().getFailureCollector();
     parseConfiguration(this.config, collector);
+    config.validate(collector);
     super.configurePipeline(pipelineConfigurer);
     Schema outputSchema = null;
     Schema inputSchema = pipelineConfigurer.getStageConfigurer().getInputSchema();
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin;
 
+import com.github.luben.zstd.Zstd;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.FailureCollector;
@@ -23,15 +24,18 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import net.jpountz.lz4.LZ4FrameInputStream;
 import org.junit.Assert;
 import org.junit.Test;
 import org.xerial.snappy.Snappy;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.ZipInputStream;
 
 /**
  * Tests {@link Compressor}.
@@ -84,10 +88,13 @@ public class CompressorTest {
                           .set("d", "4")
                           .set("e", "5").build(), emitter);
 
-    byte[] expected = compressZIP("This is a test for testing zip compression".getBytes());
     byte[] actual = emitter.getEmitted().get(0).get("a");
     Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
-    Assert.assertArrayEquals(expected, actual);
+    ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(actual));
+    ZipEntry entry = zis.getNextEntry();
+    Assert.assertEquals("c", entry.getName());
+    Assert.assertEquals("This is a test for testing zip compression", new String(readFully(zis)));
+    Assert.assertNull(zis.getNextEntry());
   }
 
   @Test
@@ -105,12 +112,69 @@ public class CompressorTest {
                           .set("d", "4")
                           .set("e", "5").build(), emitter);
 
-    byte[] expected = compressGZIP("This is a test for testing gzip compression".getBytes());
+    byte[] actual = emitter.getEmitted().get(0).get("a");
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertEquals("This is a test for testing gzip compression",
+                        new String(readFully(new GZIPInputStream(new ByteArrayInputStream(actual)))));
+  }
+
+  @Test
+  public void testLZ4Compress() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:LZ4", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    // large enough to span several frame blocks
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      value.append("This is a test for testing lz4 compression ").append(i);
+    }
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", value.toString())
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+
+    byte[] actual = emitter.getEmitted().get(0).get("a");
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertEquals(value.toString(),
+                        new String(readFully(new LZ4FrameInputStream(new ByteArrayInputStream(actual)))));
+  }
+
+  @Test
+  public void testZstdCompress() throws Exception {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:ZSTD", OUTPUT.toString(), 19, null));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", "This is a test for testing zstd compression")
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+
+    byte[] expected = Zstd.compress("This is a test for testing zstd compression".getBytes(), 19);
     byte[] actual = emitter.getEmitted().get(0).get("a");
     Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
     Assert.assertArrayEquals(expected, actual);
   }
 
+  @Test
+  public void testInvalidZstdLevel() {
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Compressor(new Compressor.Config("a:ZSTD", OUTPUT.toString(), 23, null));
+    MockPipelineConfigurer mockPipelineConfigurer = new MockPipelineConfigurer(INPUT);
+    FailureCollector collector = mockPipelineConfigurer.getStageConfigurer().getFailureCollector();
+    transform.configurePipeline(mockPipelineConfigurer);
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
   @Test
   public void testSchemaValidation() {
     Transform<StructuredRecord, StructuredRecord> transform =
@@ -147,20 +211,13 @@ public class CompressorTest {
     Assert.assertEquals(OUTPUT, mockPipelineConfigurer.getOutputSchema());
   }
 
-  private static byte[] compressGZIP(byte[] input) throws IOException {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    GZIPOutputStream gzip = new GZIPOutputStream(out);
-    gzip.write(input, 0, input.length);
-    gzip.close();
-    return out.toByteArray();
-  }
-
-  private byte[] compressZIP(byte[] input) throws IOException {
+  private static byte[] readFully(InputStream in) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
-    ZipOutputStream zos = new ZipOutputStream(out);
-    zos.putNextEntry(new ZipEntry("c"));
-    zos.write(input, 0, input.length);
-    zos.close();
+    byte[] buf = new byte[1024];
+    int len;
+    while ((len = in.read(buf)) > 0) {
+      out.write(buf, 0, len);
+    }
     return out.toByteArray();
   }
 }
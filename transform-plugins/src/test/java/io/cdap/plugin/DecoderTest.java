@@ -115,6 +115,26 @@ public class DecoderTest {
     Assert.assertEquals(0, encoderContext.getFailureCollector().getValidationFailures().size());
   }
 
+  @Test
+  public void testBase64UrlDecoder() throws Exception {
+    String test = "Ünïcödé ~~~ test ??? for base64 url decoding";
+    Transform<StructuredRecord, StructuredRecord> decoder =
+      new Decoder(new Decoder.Config("a:BASE64_URL", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    decoder.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    decoder.transform(StructuredRecord.builder(INPUT)
+                        .set("a", Base64.encodeBase64URLSafeString(test.getBytes("UTF-8")))
+                        .set("b", "2")
+                        .set("c", "3")
+                        .set("d", "4")
+                        .set("e", "5").build(), emitter);
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertArrayEquals(test.getBytes("UTF-8"), (byte[]) emitter.getEmitted().get(0).get("a"));
+    Assert.assertEquals(0, context.getFailureCollector().getValidationFailures().size());
+  }
+
   @Test
   public void testBase32Decoder() throws Exception {
     String test = "This is a test for testing base32 decoding";
@@ -17,6 +17,7 @@
 package io.cdap.plugin;
 
 
+import com.github.luben.zstd.Zstd;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.FailureCollector;
@@ -24,14 +25,17 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
 import io.cdap.cdap.etl.mock.transform.MockTransformContext;
+import net.jpountz.lz4.LZ4FrameOutputStream;
 import org.junit.Assert;
 import org.junit.Test;
 import org.xerial.snappy.Snappy;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -112,6 +116,188 @@ public class DecompressorTest {
     Assert.assertEquals(decompressTester, actual);
   }
 
+  @Test
+  public void testLZ4Decompress() throws Exception {
+    String decompressTester = "This is a test for testing lz4 compression";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:LZ4", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    // frames without the content size and with linked blocks must be readable too
+    for (byte[] compressed : new byte[][] {
+      lz4(decompressTester.getBytes(), LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE,
+          LZ4FrameOutputStream.FLG.Bits.CONTENT_SIZE),
+      lz4(decompressTester.getBytes(), LZ4FrameOutputStream.FLG.Bits.BLOCK_CHECKSUM)}) {
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", compressed)
+                            .set("b", "2")
+                            .set("c", "3")
+                            .set("d", "4")
+                            .set("e", "5").build(), emitter);
+      String actual = emitter.getEmitted().get(0).get("a");
+      Assert.assertEquals(decompressTester, actual);
+    }
+  }
+
+  @Test
+  public void testZstdDecompress() throws Exception {
+    String decompressTester = "This is a test for testing zstd compression";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:ZSTD", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    byte[] compressed = Zstd.compress(decompressTester.getBytes());
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", compressed)
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+    String actual = emitter.getEmitted().get(0).get("a");
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertEquals(decompressTester, actual);
+  }
+
+  @Test
+  public void testAutoDecompress() throws Exception {
+    String decompressTester = "This is a test for detecting the compression";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Decompressor(new Decompressor.Config("a:AUTO", OUTPUT.toString()));
+    MockTransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    byte[] value = decompressTester.getBytes();
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (byte[] compressed : new byte[][] {Snappy.compress(value), zip(value), gzip(value), Zstd.compress(value),
+      lz4(value, LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE), value}) {
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", compressed)
+                            .set("b", "2")
+                            .set("c", "3")
+                            .set("d", "4")
+                            .set("e", "5").build(), emitter);
+    }
+    Assert.assertEquals(6, emitter.getEmitted().size());
+    for (StructuredRecord record : emitter.getEmitted()) {
+      Assert.assertEquals(decompressTester, record.get("a"));
+    }
+  }
+
+  @Test
+  public void testUnsupportedZipEntries() throws Exception {
+    byte[] value = "This is a test for unsupported zip entries".getBytes();
+    // ZipOutputStream writes deflated entries with a data descriptor, which is only supported for deflated entries
+    byte[] encrypted = zip(value);
+    encrypted[6] |= 1;
+    assertZipRejected(encrypted, "Encrypted zip entries are not supported");
+    byte[] zip64 = zip(value);
+    Arrays.fill(zip64, 18, 22, (byte) 0xFF);
+    assertZipRejected(zip64, "Zip64 entries are not supported");
+    byte[] stored = zip(value);
+    stored[8] = 0;
+    assertZipRejected(stored, "Stored zip entries with a data descriptor are not supported");
+  }
+
+  @Test
+  public void testTruncatedInput() throws Exception {
+    byte[] value = "This is a test for truncated input".getBytes();
+    byte[] gzip = gzip(value);
+    byte[] lz4 = lz4(value, LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE,
+                     LZ4FrameOutputStream.FLG.Bits.CONTENT_SIZE);
+    byte[] zip = zip(value);
+    try (FieldDecompressor decompressor = new FieldDecompressor(null)) {
+      // a cut off value must fail with an IOException, not run past the end of the input
+      for (int length = 0; length < gzip.length; length++) {
+        assertCorrupt(decompressor::gzip, Arrays.copyOf(gzip, length));
+      }
+      for (int length = 0; length < lz4.length; length++) {
+        assertCorrupt(decompressor::lz4, Arrays.copyOf(lz4, length));
+      }
+      // a zip archive can be cut off between entries, or before the central directory, which is not read
+      for (int length = 0; length < zip.length; length++) {
+        try {
+          decompressor.zip(Arrays.copyOf(zip, length));
+        } catch (IOException e) {
+          // expected for archives cut off inside an entry
+        }
+      }
+      // a stored entry that claims more bytes than are left
+      byte[] stored = Arrays.copyOf(zip, zip.length);
+      stored[6] = 0;
+      stored[8] = 0;
+      stored[18] = (byte) 0xE8;
+      stored[19] = 3;
+      assertCorrupt(decompressor::zip, stored);
+
+      // a content size the frame cannot hold is not allocated for
+      byte[] oversized = Arrays.copyOf(lz4, lz4.length);
+      Arrays.fill(oversized, 6, 10, (byte) 0x7F);
+      assertCorrupt(decompressor::lz4, oversized);
+
+      // a value that failed half way does not affect the next one
+      assertCorrupt(decompressor::gzip, Arrays.copyOf(gzip, 40));
+      Assert.assertArrayEquals(value, decompressor.zip(zip));
+      assertCorrupt(decompressor::zip, Arrays.copyOf(zip, 40));
+      Assert.assertArrayEquals(value, decompressor.gzip(gzip));
+    }
+
+    // corrupt zip and gzip values are emitted as null
+    Schema output = Schema.recordOf("output",
+                                    Schema.Field.of("a", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.STRING)));
+    for (String decompressor : new String[] {"a:GZIP", "a:ZIP"}) {
+      Transform<StructuredRecord, StructuredRecord> transform =
+        new Decompressor(new Decompressor.Config(decompressor, output.toString()));
+      transform.initialize(new MockTransformContext());
+      byte[] compressed = decompressor.equals("a:GZIP") ? gzip : zip;
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+      transform.transform(StructuredRecord.builder(INPUT)
+                            .set("a", Arrays.copyOf(compressed, 40))
+                            .set("b", "2")
+                            .set("c", "3")
+                            .set("d", "4")
+                            .set("e", "5").build(), emitter);
+      Assert.assertNull(emitter.getEmitted().get(0).get("a"));
+    }
+  }
+
+  private static void assertCorrupt(Decompression decompression, byte[] input) {
+    try {
+      decompression.decompress(input);
+      Assert.fail("Expected the input of length " + input.length + " to be rejected");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  /**
+   * One of the decompression methods of {@link FieldDecompressor}.
+   */
+  private interface Decompression {
+    byte[] decompress(byte[] input) throws IOException;
+  }
+
+  private static void assertZipRejected(byte[] zip, String message) throws IOException {
+    try (FieldDecompressor decompressor = new FieldDecompressor(null)) {
+      decompressor.zip(zip);
+      Assert.fail("Expected the zip entry to be rejected");
+    } catch (ZipException e) {
+      Assert.assertEquals(message, e.getMessage());
+    }
+  }
+
+  private static byte[] lz4(byte[] input, LZ4FrameOutputStream.FLG.Bits... bits) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (LZ4FrameOutputStream lz4 = new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB,
+                                                             input.length, bits)) {
+      lz4.write(input);
+    }
+    return out.toByteArray();
+  }
 
   private static byte[] gzip(byte[] input) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
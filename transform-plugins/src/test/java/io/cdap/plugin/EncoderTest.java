@@ -97,6 +97,30 @@ public class EncoderTest {
     Assert.assertEquals(0, context.getFailureCollector().getValidationFailures().size());
   }
 
+  @Test
+  public void testBase64UrlStringEncoder() throws Exception {
+    // non-ASCII characters are encoded as UTF-8, and produce '-' and '_' in the URL safe alphabet
+    String test = "Ünïcödé ~~~ test ??? for base64 url encoding";
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Encoder(new Encoder.Config("a:STRING_BASE64_URL", OUTPUTSTR.toString()));
+    TransformContext context = new MockTransformContext();
+    transform.initialize(context);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(INPUT)
+                          .set("a", test)
+                          .set("b", "2")
+                          .set("c", "3")
+                          .set("d", "4")
+                          .set("e", "5").build(), emitter);
+
+    String expected = Base64.encodeBase64URLSafeString(test.getBytes("UTF-8"));
+    String actual = emitter.getEmitted().get(0).get("a");
+    Assert.assertEquals(2, emitter.getEmitted().get(0).getSchema().getFields().size());
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(0, context.getFailureCollector().getValidationFailures().size());
+  }
+
   @Test
   public void testBase32Encoder() throws Exception {
     String test = "This is a test for testing base32 encoding";
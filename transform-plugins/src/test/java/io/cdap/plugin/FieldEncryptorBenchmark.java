@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.FieldEncryptor;
+import io.cdap.plugin.common.KeystoreConf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Measures the throughput of {@link FieldEncryptor} for each supported transformation and a range of value sizes.
+ *
+ * Run with: java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main FieldEncryptorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldEncryptorBenchmark {
+  private static final Schema BYTES_SCHEMA = Schema.of(Schema.Type.BYTES);
+
+  @Param({"AES/ECB/PKCS5Padding", "AES/CBC/PKCS5Padding", "AES/CTR/NoPadding", "AES/GCM/NoPadding"})
+  public String transformation;
+
+  @Param({"16", "256", "4096"})
+  public int valueSize;
+
+  private File keystoreFile;
+  private FieldEncryptor encryptor;
+  private FieldEncryptor decryptor;
+  private byte[] value;
+  private byte[] encrypted;
+
+  @Setup
+  public void setup() throws Exception {
+    keystoreFile = Files.createTempFile("benchmark", ".jceks").toFile();
+    boolean gcm = transformation.contains("/GCM/");
+    boolean ecb = transformation.contains("/ECB/");
+    KeystoreConf conf = new KeystoreConf(transformation,
+                                         gcm || ecb ? null : "22BA219FC88FC0826CCAC88C474801D3",
+                                         keystoreFile.getAbsolutePath(),
+                                         "keystorePassword",
+                                         "JCEKS",
+                                         "key",
+                                         "keyPassword");
+
+    KeyStore ks = KeyStore.getInstance(conf.getKeystoreType());
+    ks.load(null);
+    SecretKey secretKey = KeyGenerator.getInstance("AES").generateKey();
+    ks.setEntry(conf.getKeyAlias(), new KeyStore.SecretKeyEntry(secretKey),
+                new KeyStore.PasswordProtection(conf.getKeyPassword().toCharArray()));
+    try (FileOutputStream fos = new FileOutputStream(keystoreFile)) {
+      ks.store(fos, conf.getKeystorePassword().toCharArray());
+    }
+
+    encryptor = new FileBasedFieldEncryptor(conf, Cipher.ENCRYPT_MODE);
+    encryptor.initialize();
+    decryptor = new FileBasedFieldEncryptor(conf, Cipher.DECRYPT_MODE);
+    decryptor.initialize();
+
+    value = new byte[valueSize];
+    new Random(0).nextBytes(value);
+    encrypted = encryptor.encrypt(value, BYTES_SCHEMA);
+  }
+
+  @TearDown
+  public void tearDown() {
+    keystoreFile.delete();
+  }
+
+  @Benchmark
+  public byte[] encrypt() throws Exception {
+    return encryptor.encrypt(value, BYTES_SCHEMA);
+  }
+
+  @Benchmark
+  public Object decrypt() throws Exception {
+    return decryptor.decrypt(encrypted, BYTES_SCHEMA);
+  }
+}
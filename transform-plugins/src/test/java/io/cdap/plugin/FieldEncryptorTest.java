@@ -27,7 +27,9 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.security.GeneralSecurityException;
 import java.security.KeyStore;
+import java.util.Arrays;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -75,4 +77,47 @@ public class FieldEncryptorTest {
     Assert.assertEquals("abc", decryptor.decrypt(encryptor.encrypt("abc", fieldSchema), fieldSchema));
   }
 
+  @Test
+  public void testGcmEncryption() throws Exception {
+    KeystoreConf gcmConf = new KeystoreConf("AES/GCM/NoPadding", null,
+                                            keystoreConf.getKeystorePath(),
+                                            keystoreConf.getKeystorePassword(),
+                                            keystoreConf.getKeystoreType(),
+                                            keystoreConf.getKeyAlias(),
+                                            keystoreConf.getKeyPassword());
+    FieldEncryptor encryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.ENCRYPT_MODE);
+    encryptor.initialize();
+    FieldEncryptor decryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.DECRYPT_MODE);
+    decryptor.initialize();
+
+    Schema stringSchema = Schema.nullableOf(Schema.of(Schema.Type.STRING));
+    byte[] first = encryptor.encrypt("abc", stringSchema);
+    byte[] second = encryptor.encrypt("abc", stringSchema);
+    // every value gets its own initialization vector
+    Assert.assertFalse(Arrays.equals(first, second));
+    Assert.assertEquals("abc", decryptor.decrypt(first, stringSchema));
+    Assert.assertEquals("abc", decryptor.decrypt(second, stringSchema));
+
+    Schema intSchema = Schema.of(Schema.Type.INT);
+    Assert.assertEquals(42, decryptor.decrypt(encryptor.encrypt(42, intSchema), intSchema));
+    Schema longSchema = Schema.of(Schema.Type.LONG);
+    Assert.assertEquals(42L, decryptor.decrypt(encryptor.encrypt(42L, longSchema), longSchema));
+    Schema doubleSchema = Schema.of(Schema.Type.DOUBLE);
+    Assert.assertEquals(4.2d, decryptor.decrypt(encryptor.encrypt(4.2d, doubleSchema), doubleSchema));
+    Schema bytesSchema = Schema.of(Schema.Type.BYTES);
+    Assert.assertArrayEquals(new byte[] {1, 2, 3},
+                             (byte[]) decryptor.decrypt(encryptor.encrypt(new byte[] {1, 2, 3}, bytesSchema),
+                                                        bytesSchema));
+    Assert.assertNull(encryptor.encrypt(null, stringSchema));
+
+    // tampering with the encrypted bytes is detected
+    first[first.length - 1]++;
+    try {
+      decryptor.decrypt(first, stringSchema);
+      Assert.fail("Decrypting a modified value should fail.");
+    } catch (GeneralSecurityException e) {
+      // expected
+    }
+  }
+
 }
@@ -16,6 +16,8 @@
 
 package io.cdap.plugin;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.Transform;
@@ -25,6 +27,9 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Tests {@link Hasher}
  */
@@ -182,4 +187,94 @@ public class HasherTest {
     transform.configurePipeline(mockPipelineConfigurer);
     Assert.assertEquals(INPUT, mockPipelineConfigurer.getOutputSchema());
   }
+
+  @Test
+  public void testHasherBytes() throws Exception {
+    Hasher hasher = new Hasher(new Hasher.Config("SHA256", "a,b,e", "bytes"));
+    MockPipelineConfigurer mockPipelineConfigurer = new MockPipelineConfigurer(INPUT);
+    hasher.configurePipeline(mockPipelineConfigurer);
+    Schema outputSchema = mockPipelineConfigurer.getOutputSchema();
+    Assert.assertEquals(Schema.of(Schema.Type.BYTES), outputSchema.getField("a").getSchema());
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), outputSchema.getField("c").getSchema());
+
+    hasher.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    hasher.transform(StructuredRecord.builder(INPUT)
+                       .set("a", "Field A")
+                       .set("b", "Field \u00e9\u4e2d\ud83d\ude00")
+                       .set("c", "Field C")
+                       .set("d", 4)
+                       .set("e", "Field E").build(), emitter);
+
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(outputSchema, output.getSchema());
+    Assert.assertArrayEquals(DigestUtils.sha256("Field A"), output.get("a"));
+    Assert.assertArrayEquals(DigestUtils.sha256("Field \u00e9\u4e2d\ud83d\ude00"), output.get("b"));
+    Assert.assertEquals("Field C", output.get("c"));
+    Assert.assertArrayEquals(DigestUtils.sha256("Field E"), output.get("e"));
+  }
+
+  @Test
+  public void testHasherNonCryptographic() throws Exception {
+    Schema schema = Schema.recordOf("input",
+                                    Schema.Field.of("empty", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("abc", Schema.of(Schema.Type.STRING)));
+    StructuredRecord input = StructuredRecord.builder(schema).set("empty", "").set("abc", "abc").build();
+
+    Transform<StructuredRecord, StructuredRecord> transform =
+      new Hasher(new Hasher.Config("XXHASH64", "empty,abc"));
+    transform.initialize(null);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(input, emitter);
+    Assert.assertEquals("ef46db3751d8e999", emitter.getEmitted().get(0).get("empty"));
+    Assert.assertEquals("44bc2cf5ad770999", emitter.getEmitted().get(0).get("abc"));
+
+    transform = new Hasher(new Hasher.Config("CITYHASH64", "empty"));
+    transform.initialize(null);
+    emitter.clear();
+    transform.transform(input, emitter);
+    Assert.assertEquals("9ae16a3b2f90404f", emitter.getEmitted().get(0).get("empty"));
+
+    transform = new Hasher(new Hasher.Config("MURMUR3_128", "empty,abc"));
+    transform.initialize(null);
+    emitter.clear();
+    transform.transform(input, emitter);
+    Assert.assertEquals(Hashing.murmur3_128().hashString("", Charsets.UTF_8).toString(),
+                        emitter.getEmitted().get(0).get("empty"));
+    Assert.assertEquals(Hashing.murmur3_128().hashString("abc", Charsets.UTF_8).toString(),
+                        emitter.getEmitted().get(0).get("abc"));
+  }
+
+  @Test
+  public void testHasherSchemaChange() throws Exception {
+    Schema other = Schema.recordOf("other",
+                                   Schema.Field.of("e", Schema.of(Schema.Type.STRING)),
+                                   Schema.Field.of("a", Schema.of(Schema.Type.STRING)));
+    Hasher hasher = new Hasher(new Hasher.Config("MD5", "a,b,e"));
+    hasher.initialize(null);
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (StructuredRecord input : Arrays.asList(
+      StructuredRecord.builder(INPUT).set("a", "A1").set("b", "B1").set("c", "C1").set("d", 1).set("e", "E1").build(),
+      StructuredRecord.builder(INPUT).set("a", "A2").set("b", "B2").set("c", "C2").set("d", 2).set("e", "E2").build(),
+      StructuredRecord.builder(other).set("e", "E3").set("a", "A3").build())) {
+      hasher.transform(input, emitter);
+    }
+
+    List<StructuredRecord> emitted = emitter.getEmitted();
+    Assert.assertEquals(3, emitted.size());
+    for (int i = 0; i < 2; i++) {
+      StructuredRecord output = emitted.get(i);
+      Assert.assertEquals(INPUT, output.getSchema());
+      Assert.assertEquals(DigestUtils.md5Hex("A" + (i + 1)), output.get("a"));
+      Assert.assertEquals(DigestUtils.md5Hex("B" + (i + 1)), output.get("b"));
+      Assert.assertEquals("C" + (i + 1), output.get("c"));
+      Assert.assertEquals(i + 1, output.<Integer>get("d").intValue());
+      Assert.assertEquals(DigestUtils.md5Hex("E" + (i + 1)), output.get("e"));
+    }
+    // the fields are resolved again when the schema of the input changes
+    Assert.assertEquals(other, emitted.get(2).getSchema());
+    Assert.assertEquals(DigestUtils.md5Hex("A3"), emitted.get(2).get("a"));
+    Assert.assertEquals(DigestUtils.md5Hex("E3"), emitted.get(2).get("e"));
+  }
 }
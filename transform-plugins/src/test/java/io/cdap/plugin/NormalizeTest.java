@@ -29,7 +29,9 @@ import io.cdap.cdap.etl.api.validation.ValidationException;
 import io.cdap.cdap.etl.api.validation.ValidationFailure;
 import io.cdap.cdap.etl.mock.batch.MockSink;
 import io.cdap.cdap.etl.mock.batch.MockSource;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
 import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
 import io.cdap.cdap.etl.proto.v2.ETLPlugin;
 import io.cdap.cdap.etl.proto.v2.ETLStage;
@@ -390,4 +392,47 @@ public class NormalizeTest extends TransformPluginsTestBase {
     Assert.assertEquals(outputRecords.get(2).get(ATTRIBUTE_VALUE), dataMap.get(getKeyFromRecord(outputRecords.get(2))));
     Assert.assertEquals(outputRecords.get(3).get(ATTRIBUTE_VALUE), dataMap.get(getKeyFromRecord(outputRecords.get(3))));
   }
+
+  @Test
+  public void testNormalizeWideRecord() throws Exception {
+    Normalize.NormalizeConfig config = new Normalize.NormalizeConfig(validFieldMapping, "Q1:" + ATTRIBUTE_TYPE + ":"
+      + ATTRIBUTE_VALUE + ",Q2:" + ATTRIBUTE_TYPE + ":" + ATTRIBUTE_VALUE + ",Q3:" + ATTRIBUTE_TYPE + ":"
+      + ATTRIBUTE_VALUE, OUTPUT_SCHEMA.toString());
+    Transform<StructuredRecord, StructuredRecord> transform = new Normalize(config);
+    transform.initialize(new MockTransformContext());
+
+    Schema wideSchema = Schema.recordOf("wide",
+                                        Schema.Field.of(CUSTOMER_ID, Schema.of(Schema.Type.STRING)),
+                                        Schema.Field.of(PURCHASE_DATE, Schema.of(Schema.Type.STRING)),
+                                        Schema.Field.of("Q1", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                        Schema.Field.of("Q2", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                        Schema.Field.of("Q3", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(wideSchema).set(CUSTOMER_ID, CUSTOMER_ID_FIRST)
+                          .set(PURCHASE_DATE, PURCHASE_DATE_ROW1).set("Q1", 1).set("Q3", 3).build(), emitter);
+    transform.transform(StructuredRecord.builder(wideSchema).set(CUSTOMER_ID, CUSTOMER_ID_SECOND)
+                          .set(PURCHASE_DATE, PURCHASE_DATE_ROW2).set("Q2", 2).build(), emitter);
+
+    //records of a different schema, without the Q2 and Q3 fields
+    Schema narrowSchema = Schema.recordOf("narrow",
+                                          Schema.Field.of(CUSTOMER_ID, Schema.of(Schema.Type.STRING)),
+                                          Schema.Field.of(PURCHASE_DATE, Schema.of(Schema.Type.STRING)),
+                                          Schema.Field.of("Q1", Schema.of(Schema.Type.STRING)));
+    transform.transform(StructuredRecord.builder(narrowSchema).set(CUSTOMER_ID, CUSTOMER_ID_SECOND)
+                          .set(PURCHASE_DATE, PURCHASE_DATE_ROW3).set("Q1", "yes").build(), emitter);
+
+    List<StructuredRecord> emitted = emitter.getEmitted();
+    Assert.assertEquals(4, emitted.size());
+    assertNormalized(emitted.get(0), CUSTOMER_ID_FIRST, PURCHASE_DATE_ROW1, "Q1", "1");
+    assertNormalized(emitted.get(1), CUSTOMER_ID_FIRST, PURCHASE_DATE_ROW1, "Q3", "3");
+    assertNormalized(emitted.get(2), CUSTOMER_ID_SECOND, PURCHASE_DATE_ROW2, "Q2", "2");
+    assertNormalized(emitted.get(3), CUSTOMER_ID_SECOND, PURCHASE_DATE_ROW3, "Q1", "yes");
+  }
+
+  private static void assertNormalized(StructuredRecord record, String id, String date, String type, String value) {
+    Assert.assertEquals(id, record.get(ID));
+    Assert.assertEquals(date, record.get(DATE));
+    Assert.assertEquals(type, record.get(ATTRIBUTE_TYPE));
+    Assert.assertEquals(value, record.get(ATTRIBUTE_VALUE));
+  }
 }
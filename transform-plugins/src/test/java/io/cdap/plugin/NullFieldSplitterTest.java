@@ -133,4 +133,46 @@ public class NullFieldSplitterTest {
       mockEmitter.getEmitted());
   }
 
+  @Test
+  public void testSchemaChangesBetweenRecords() throws Exception {
+    Schema schema1 = Schema.recordOf("test",
+                                     Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                                     Schema.Field.of("z", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    // the field is a nullable union of several types, and in a different position
+    Schema schema2 = Schema.recordOf("other",
+                                     Schema.Field.of("z", Schema.unionOf(Schema.of(Schema.Type.NULL),
+                                                                         Schema.of(Schema.Type.INT),
+                                                                         Schema.of(Schema.Type.STRING))),
+                                     Schema.Field.of("w", Schema.of(Schema.Type.STRING)));
+    Schema nonNullSchema1 = Schema.recordOf("test.nonnull",
+                                            Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                                            Schema.Field.of("z", Schema.of(Schema.Type.STRING)));
+    Schema nonNullSchema2 = Schema.recordOf("other.nonnull",
+                                            Schema.Field.of("z", Schema.unionOf(Schema.of(Schema.Type.INT),
+                                                                                Schema.of(Schema.Type.STRING))),
+                                            Schema.Field.of("w", Schema.of(Schema.Type.STRING)));
+    NullFieldSplitter nullFieldSplitter = new NullFieldSplitter(new NullFieldSplitter.Conf("z", true));
+    nullFieldSplitter.initialize(new MockTransformContext());
+
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+    nullFieldSplitter.transform(StructuredRecord.builder(schema1).set("x", 0L).set("z", "a").build(), mockEmitter);
+    nullFieldSplitter.transform(StructuredRecord.builder(schema2).set("z", 1).set("w", "w1").build(), mockEmitter);
+    nullFieldSplitter.transform(StructuredRecord.builder(schema1).set("x", 1L).build(), mockEmitter);
+    nullFieldSplitter.transform(StructuredRecord.builder(schema1).set("z", "b").build(), mockEmitter);
+    nullFieldSplitter.transform(StructuredRecord.builder(schema2).set("w", "w2").build(), mockEmitter);
+    nullFieldSplitter.transform(StructuredRecord.builder(schema2).set("z", "c").set("w", "w3").build(), mockEmitter);
+
+    Assert.assertEquals(
+      ImmutableMap.of(
+        NullFieldSplitter.NON_NULL_PORT,
+        ImmutableList.of(StructuredRecord.builder(nonNullSchema1).set("x", 0L).set("z", "a").build(),
+                         StructuredRecord.builder(nonNullSchema2).set("z", 1).set("w", "w1").build(),
+                         StructuredRecord.builder(nonNullSchema1).set("z", "b").build(),
+                         StructuredRecord.builder(nonNullSchema2).set("z", "c").set("w", "w3").build()),
+        NullFieldSplitter.NULL_PORT,
+        ImmutableList.of(StructuredRecord.builder(schema1).set("x", 1L).build(),
+                         StructuredRecord.builder(schema2).set("w", "w2").build())),
+      mockEmitter.getEmitted());
+  }
+
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.RecordAccessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares copying every field of a record while resolving each field's type from the schema per value, as the
+ * converters used to, with copying it through a {@link RecordAccessor} created once for the schema.
+ *
+ * Run with: java -cp target/test-classes:&lt;test classpath&gt; org.openjdk.jmh.Main RecordAccessorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordAccessorBenchmark {
+
+  @Param({"10", "100"})
+  public int fieldCount;
+
+  private Schema schema;
+  private StructuredRecord record;
+  private RecordAccessor accessor;
+
+  @Setup
+  public void setup() {
+    List<Schema.Field> fields = new ArrayList<>();
+    for (int i = 0; i < fieldCount; i++) {
+      Schema fieldSchema = i % 2 == 0 ? Schema.of(Schema.Type.LONG) : Schema.of(Schema.Type.STRING);
+      fields.add(Schema.Field.of("field" + i, i % 3 == 0 ? Schema.nullableOf(fieldSchema) : fieldSchema));
+    }
+    schema = Schema.recordOf("record", fields);
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < fieldCount; i++) {
+      builder.set("field" + i, i % 2 == 0 ? (Object) (long) i : "value" + i);
+    }
+    record = builder.build();
+    accessor = RecordAccessor.of(schema);
+  }
+
+  @Benchmark
+  public StructuredRecord copyByName() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (Schema.Field field : record.getSchema().getFields()) {
+      Schema fieldSchema = schema.getField(field.getName()).getSchema();
+      Schema.Type type = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+      builder.set(field.getName(), copy(type, record.get(field.getName())));
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public StructuredRecord copyByPosition() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(accessor.getSchema());
+    for (int i = 0; i < accessor.size(); i++) {
+      accessor.set(builder, i, copy(accessor.getType(i), accessor.get(record, i)));
+    }
+    return builder.build();
+  }
+
+  private static Object copy(Schema.Type type, Object value) {
+    switch (type) {
+      case LONG:
+        return (Long) value + 1;
+      case STRING:
+        return value;
+      default:
+        throw new IllegalArgumentException("Unexpected type " + type);
+    }
+  }
+}
@@ -301,4 +301,94 @@ public class UnionSplitterTest {
     Assert.assertEquals(expected, actual);
     Assert.assertEquals(0, context.getFailureCollector().getValidationFailures().size());
   }
+
+  @Test
+  public void testSchemaChangesBetweenRecords() throws Exception {
+    Schema rec1Schema = Schema.recordOf("rec1", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    StructuredRecord rec1 = StructuredRecord.builder(rec1Schema).set("x", 1).build();
+    Schema schema1 = Schema.recordOf(
+      "union",
+      Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("b", Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.INT), rec1Schema)));
+    // same union field, but in a different position, with other branches and other fields around it
+    Schema schema2 = Schema.recordOf(
+      "other",
+      Schema.Field.of("b", Schema.unionOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.LONG))),
+      Schema.Field.of("c", Schema.of(Schema.Type.STRING)));
+    Schema missingSchema = Schema.recordOf("missing", Schema.Field.of("a", Schema.of(Schema.Type.LONG)));
+
+    UnionSplitter unionSplitter = new UnionSplitter(new UnionSplitter.Conf("b", true));
+    unionSplitter.initialize(new MockTransformContext());
+    MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+    unionSplitter.transform(StructuredRecord.builder(schema1).set("a", 0L).set("b", 5).build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(schema2).set("b", "x").set("c", "c1").build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(schema1).set("a", 1L).set("b", rec1).build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(missingSchema).set("a", 2L).build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(schema2).set("b", 7L).set("c", "c2").build(), mockEmitter);
+    // a value that is in the union of the other schema, but not in the union of this one
+    unionSplitter.transform(StructuredRecord.builder(schema1).set("a", 3L).set("b", "x").build(), mockEmitter);
+    unionSplitter.transform(StructuredRecord.builder(schema1).set("a", 4L).set("b", null).build(), mockEmitter);
+
+    Map<String, Schema> outputSchemas1 = UnionSplitter.getOutputSchemas(schema1, "b", true,
+                                                                        new MockFailureCollector());
+    Map<String, Schema> outputSchemas2 = UnionSplitter.getOutputSchemas(schema2, "b", true,
+                                                                        new MockFailureCollector());
+    Map<String, List<StructuredRecord>> expected = new HashMap<>();
+    expected.put("int", ImmutableList.of(
+      StructuredRecord.builder(outputSchemas1.get("int")).set("a", 0L).set("b", 5).build()));
+    expected.put("string", ImmutableList.of(
+      StructuredRecord.builder(outputSchemas2.get("string")).set("b", "x").set("c", "c1").build()));
+    expected.put("rec1", ImmutableList.of(
+      StructuredRecord.builder(outputSchemas1.get("rec1")).set("a", 1L).set("b", rec1).build()));
+    expected.put("long", ImmutableList.of(
+      StructuredRecord.builder(outputSchemas2.get("long")).set("b", 7L).set("c", "c2").build()));
+    expected.put("null", ImmutableList.of(
+      StructuredRecord.builder(outputSchemas1.get("null")).set("a", 4L).set("b", null).build()));
+    Assert.assertEquals(expected, mockEmitter.getEmitted());
+    Assert.assertEquals(2, mockEmitter.getErrors().size());
+    Assert.assertEquals(100, mockEmitter.getErrors().get(0).getErrorCode());
+    Assert.assertEquals(400, mockEmitter.getErrors().get(1).getErrorCode());
+    Assert.assertEquals(3L, (long) mockEmitter.getErrors().get(1).getInvalidRecord().get("a"));
+  }
+
+  @Test
+  public void testNullableUnion() throws Exception {
+    Schema recSchema = Schema.recordOf("rec", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    StructuredRecord rec = StructuredRecord.builder(recSchema).set("x", 1).build();
+    Schema inputSchema = Schema.recordOf(
+      "nullable",
+      Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("r", Schema.nullableOf(recSchema)));
+    StructuredRecord withValues = StructuredRecord.builder(inputSchema).set("s", "x").set("r", rec).build();
+    StructuredRecord withNulls = StructuredRecord.builder(inputSchema).set("s", null).set("r", null).build();
+
+    for (String field : ImmutableList.of("s", "r")) {
+      String port = field.equals("s") ? "string" : "rec";
+      Map<String, Schema> outputSchemas = UnionSplitter.getOutputSchemas(inputSchema, field, true,
+                                                                         new MockFailureCollector());
+      UnionSplitter unionSplitter = new UnionSplitter(new UnionSplitter.Conf(field, true));
+      unionSplitter.initialize(new MockTransformContext());
+      MockMultiOutputEmitter<StructuredRecord> mockEmitter = new MockMultiOutputEmitter<>();
+      unionSplitter.transform(withValues, mockEmitter);
+      unionSplitter.transform(withNulls, mockEmitter);
+
+      Map<String, List<StructuredRecord>> expected = new HashMap<>();
+      expected.put(port, ImmutableList.of(
+        StructuredRecord.builder(outputSchemas.get(port)).set("s", "x").set("r", rec).build()));
+      expected.put("null", ImmutableList.of(
+        StructuredRecord.builder(outputSchemas.get("null")).set("s", null).set("r", null).build()));
+      Assert.assertEquals(expected, mockEmitter.getEmitted());
+      Assert.assertEquals(0, mockEmitter.getErrors().size());
+
+      // without modifying the schema, records are emitted as they are
+      unionSplitter = new UnionSplitter(new UnionSplitter.Conf(field, false));
+      unionSplitter.initialize(new MockTransformContext());
+      mockEmitter.clear();
+      unionSplitter.transform(withValues, mockEmitter);
+      unionSplitter.transform(withNulls, mockEmitter);
+      expected.put(port, ImmutableList.of(withValues));
+      expected.put("null", ImmutableList.of(withNulls));
+      Assert.assertEquals(expected, mockEmitter.getEmitted());
+    }
+  }
 }
@@ -19,18 +19,23 @@ package io.cdap.plugin;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValueTable;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.datapipeline.SmartWorkflow;
+import io.cdap.cdap.etl.api.Lookup;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.validation.CauseAttributes;
 import io.cdap.cdap.etl.api.validation.ValidationException;
 import io.cdap.cdap.etl.api.validation.ValidationFailure.Cause;
 import io.cdap.cdap.etl.mock.batch.MockSink;
 import io.cdap.cdap.etl.mock.batch.MockSource;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
+import io.cdap.cdap.etl.mock.common.MockLookupProvider;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
 import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
 import io.cdap.cdap.etl.proto.v2.ETLPlugin;
 import io.cdap.cdap.etl.proto.v2.ETLStage;
@@ -44,9 +49,12 @@ import io.cdap.cdap.test.WorkflowManager;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -447,4 +455,90 @@ public class ValueMapperTest extends TransformPluginsTestBase {
       Assert.assertEquals(expectedCause, e.getFailures().get(0).getCauses().get(0));
     }
   }
+
+  @Test
+  public void testPreloadLookups() throws Exception {
+    Map<String, String> designations = ImmutableMap.of("1", "SE", "2", "SSE");
+    List<String> designationIds = Arrays.asList("1", "2", "1", "4", "4", "1", null, "");
+    List<String> expected = ImmutableList.of("SE", "SSE", "SE", "DEFAULTID", "DEFAULTID", "SE", "DEFAULTID",
+                                             "DEFAULTID");
+
+    // without preloading, every source value is read from the table
+    CountingLookup lookup = new CountingLookup(designations);
+    MockTransformContext context = new MockTransformContext(STAGE, new HashMap<>(), new MockLookupProvider(lookup));
+    Assert.assertEquals(expected, mapDesignations(new ValueMapper.Config(
+      "designationid:designation_lookup_table:designationName", "designationid:DEFAULTID"), context, designationIds));
+    Assert.assertEquals(6, lookup.reads);
+
+    // with preloading, each distinct value is read once, including the one that is not in the table
+    lookup = new CountingLookup(designations);
+    context = new MockTransformContext(STAGE, new HashMap<>(), new MockLookupProvider(lookup));
+    Assert.assertEquals(expected, mapDesignations(new ValueMapper.Config(
+      "designationid:designation_lookup_table:designationName", "designationid:DEFAULTID", true, null),
+                                                  context, designationIds));
+    Assert.assertEquals(3, lookup.reads);
+    Assert.assertEquals(3, context.getMockMetrics().getCount("lookup.hits"));
+    Assert.assertEquals(3, context.getMockMetrics().getCount("lookup.misses"));
+
+    // values past the preload size fall back to a cache, which also remembers values not in the table
+    lookup = new CountingLookup(designations);
+    context = new MockTransformContext(STAGE, new HashMap<>(), new MockLookupProvider(lookup));
+    Assert.assertEquals(expected, mapDesignations(new ValueMapper.Config(
+      "designationid:designation_lookup_table:designationName", "designationid:DEFAULTID", true, 1),
+                                                  context, designationIds));
+    Assert.assertEquals(3, lookup.reads);
+    Assert.assertEquals(2, context.getMockMetrics().getCount("lookup.hits"));
+    Assert.assertEquals(4, context.getMockMetrics().getCount("lookup.misses"));
+  }
+
+  private static List<String> mapDesignations(ValueMapper.Config config, MockTransformContext context,
+                                              List<String> designationIds) throws Exception {
+    ValueMapper mapper = new ValueMapper(config);
+    mapper.initialize(context);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (int i = 0; i < designationIds.size(); i++) {
+      mapper.transform(StructuredRecord.builder(SOURCE_SCHEMA).set(ID, String.valueOf(i)).set(NAME, "name")
+                         .set(SALARY, "1000").set(DESIGNATIONID, designationIds.get(i)).build(), emitter);
+    }
+    List<String> mapped = new ArrayList<>();
+    for (StructuredRecord record : emitter.getEmitted()) {
+      mapped.add(record.get(DESIGNATIONNAME));
+    }
+    return mapped;
+  }
+
+  /**
+   * Lookup over a map that counts the keys read from it.
+   */
+  private static final class CountingLookup implements Lookup<String> {
+    private final Map<String, String> values;
+    private int reads;
+
+    private CountingLookup(Map<String, String> values) {
+      this.values = values;
+    }
+
+    @Override
+    public String lookup(String key) {
+      reads++;
+      return values.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        reads++;
+        if (values.containsKey(key)) {
+          result.put(key, values.get(key));
+        }
+      }
+      return result;
+    }
+  }
 }